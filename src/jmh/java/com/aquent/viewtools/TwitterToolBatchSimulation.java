@@ -0,0 +1,92 @@
+package com.aquent.viewtools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import twitter4j.Twitter;
+import twitter4j.TwitterFactory;
+import twitter4j.User;
+import twitter4j.conf.ConfigurationBuilder;
+
+/**
+ * Starts more async showUser calls at once than there are async threads against the stand-in, so
+ * every async thread ends up waiting on a batched users/lookup, and reports how long the calls
+ * took and how many came back without a user.  Exits with 1 if any did, eg because the lookups
+ * were queued behind the calls waiting for them.
+ *
+ * Settings are name=value arguments, anything not listed here is passed to the stand-in:
+ * <ul>
+ * <li>calls - async showUser calls to start at once, defaults to 16</li>
+ * <li>asyncThreads - the twitter4jAsyncThreads to run them on, defaults to 2</li>
+ * <li>window - the twitter4jShowUserBatchWindow, defaults to 5</li>
+ * <li>wait - seconds to wait for each call, defaults to 10</li>
+ * </ul>
+ * The stand-in defaults to 20ms of latency.
+ */
+public final class TwitterToolBatchSimulation {
+
+  private TwitterToolBatchSimulation() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> settings = TwitterToolStandIn.parseArgs(args);
+    int calls = Integer.parseInt(settings.getOrDefault("calls", "16"));
+    String asyncThreads = settings.getOrDefault("asyncThreads", "2");
+    String window = settings.getOrDefault("window", "5");
+    long wait = Long.parseLong(settings.getOrDefault("wait", "10"));
+
+    Map<String, String> standInSettings = new HashMap<>(settings);
+    standInSettings.putIfAbsent("port", "0");
+    standInSettings.putIfAbsent("latency", "20");
+    TwitterToolStandIn standIn = new TwitterToolStandIn(standInSettings);
+    standIn.start();
+    TwitterToolMemoryCache.install();
+
+    Map<String, Object> config = new HashMap<>();
+    config.put("twitter4jAsyncThreads", asyncThreads);
+    config.put("twitter4jShowUserBatchWindow", window);
+    Twitter twitter = new TwitterFactory(new ConfigurationBuilder()
+        .setOAuthConsumerKey("batch").setOAuthConsumerSecret("batch")
+        .setOAuthAccessToken("batch").setOAuthAccessTokenSecret("batch")
+        .setRestBaseURL(standIn.getBaseUrl()).build()).getInstance();
+    TwitterTool tool = new TwitterTool();
+    tool.init(new TwitterToolConfig(config), twitter);
+
+    System.out.println("Starting " + calls + " async showUser calls on " + asyncThreads + " async threads, batched over "
+        + window + "ms");
+    long start = System.nanoTime();
+    List<Future<User>> futures = new ArrayList<>(calls);
+    for (int i = 0; i < calls; i++) {
+      futures.add(tool.showUserAsync("batch_user_" + i));
+    }
+    int found = 0;
+    int missed = 0;
+    for (Future<User> future : futures) {
+      User user;
+      try {
+        user = future.get(wait, TimeUnit.SECONDS);
+      } catch (ExecutionException | TimeoutException e) {
+        user = null;
+      }
+      if (user != null) {
+        found++;
+      } else {
+        missed++;
+      }
+    }
+    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    System.out.println("Users returned: " + found + ", missing: " + missed + ", in " + millis + "ms");
+    System.out.println("Stand-in requests: " + standIn.getRequests());
+    standIn.stop();
+    TwitterToolExecutors.INSTANCE.shutdown();
+    System.exit(missed == 0 ? 0 : 1);
+  }
+
+}
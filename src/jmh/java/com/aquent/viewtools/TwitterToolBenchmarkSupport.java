@@ -0,0 +1,41 @@
+package com.aquent.viewtools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import twitter4j.TwitterException;
+
+/**
+ * Builds TwitterTool instances backed by the stub Twitter and in-memory cache for the benchmarks.
+ */
+final class TwitterToolBenchmarkSupport {
+
+  static final String SCREEN_NAME = "aquent";
+  static final long USER_ID = 15378515L;
+  static final int TIMELINE_SIZE = 200;
+
+  private TwitterToolBenchmarkSupport() {
+  }
+
+  /**
+   * Creates a tool with the in-memory cache installed.
+   *
+   * @param cacheEnabled false to send every call through to the stub
+   * @return The tool
+   * @throws TwitterException If the stub fixture cannot be parsed
+   */
+  static TwitterTool newTool(boolean cacheEnabled) throws TwitterException {
+    TwitterToolMemoryCache.install();
+    Map<String, Object> settings = new HashMap<>();
+    settings.put("twitter4jCacheEnabled", String.valueOf(cacheEnabled));
+    // Long ttls so cached benchmarks never refresh, no batching so showUser calls users/show
+    for (TwitterToolEndpoint endpoint : TwitterToolEndpoint.values()) {
+      settings.put("twitter4jCacheTtl" + endpoint.getConfigName(), "86400");
+    }
+    settings.put("twitter4jShowUserBatchWindow", "0");
+    TwitterTool tool = new TwitterTool();
+    tool.init(new TwitterToolConfig(settings), TwitterToolStubTwitter.create(TIMELINE_SIZE));
+    return tool;
+  }
+
+}
@@ -0,0 +1,58 @@
+package com.aquent.viewtools;
+
+import java.io.File;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every TwitterTool benchmark at 1, 8 and 64 threads with the GC profiler for allocation rates.
+ *
+ * Run with ./gradlew jmh, any JMH command line options given in -Pjmh.args, eg -Pjmh.args="-f 2 -i 10",
+ * are applied on top.  Results are written to build/reports/jmh/threads-N.json.
+ */
+public final class TwitterToolBenchmarks {
+
+  private static final int[] THREADS = {1, 8, 64};
+
+  private TwitterToolBenchmarks() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    File reports = new File("build/reports/jmh");
+    if (!reports.isDirectory() && !reports.mkdirs()) {
+      throw new IllegalStateException("Unable to create " + reports);
+    }
+
+    for (int threads : THREADS) {
+      ChainedOptionsBuilder builder = new OptionsBuilder()
+          .parent(commandLine)
+          .threads(threads)
+          .addProfiler(GCProfiler.class)
+          .resultFormat(ResultFormatType.JSON)
+          .result(new File(reports, "threads-" + threads + ".json").getPath());
+      // Defaults for anything not given on the command line
+      if (commandLine.getIncludes().isEmpty()) {
+        builder.include(TwitterToolBenchmarks.class.getPackage().getName() + ".TwitterTool.*Benchmark");
+      }
+      if (!commandLine.getForkCount().hasValue()) {
+        builder.forks(1);
+      }
+      if (!commandLine.getWarmupIterations().hasValue()) {
+        builder.warmupIterations(3);
+      }
+      if (!commandLine.getMeasurementIterations().hasValue()) {
+        builder.measurementIterations(5);
+      }
+      Options options = builder.build();
+      new Runner(options).run();
+    }
+  }
+
+}
@@ -0,0 +1,75 @@
+package com.aquent.viewtools;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import twitter4j.ResponseList;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.User;
+
+/**
+ * The render path when everything is cached: the miss cache check and fresh result cache hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TwitterToolCacheBenchmark {
+
+  private static final String MISSING = "nobody_here";
+
+  private TwitterTool tool;
+  private String neverMissedKey;
+  private String missedKey;
+
+  @Setup
+  public void setUp() throws TwitterException {
+    tool = TwitterToolBenchmarkSupport.newTool(true);
+    TwitterToolMissCacheGroupHandler.INSTANCE.removeAll();
+    neverMissedKey = TwitterToolMissCacheGroupHandler.screenNameKey(TwitterToolBenchmarkSupport.SCREEN_NAME);
+    missedKey = TwitterToolMissCacheGroupHandler.screenNameKey(MISSING);
+    TwitterToolMissCacheGroupHandler.INSTANCE.put(missedKey, TwitterToolMissReason.NOT_FOUND);
+
+    // Prime the result cache
+    tool.getUserTimeline(TwitterToolBenchmarkSupport.SCREEN_NAME, 1, 20);
+    tool.showUser(TwitterToolBenchmarkSupport.SCREEN_NAME);
+  }
+
+  @Benchmark
+  public boolean missCacheCheckNeverMissed() {
+    return TwitterToolMissCacheGroupHandler.INSTANCE.get(neverMissedKey);
+  }
+
+  @Benchmark
+  public boolean missCacheCheckMissed() {
+    return TwitterToolMissCacheGroupHandler.INSTANCE.get(missedKey);
+  }
+
+  @Benchmark
+  public User showUserMissCached() {
+    return tool.showUser(MISSING);
+  }
+
+  @Benchmark
+  public User showUserCached() {
+    return tool.showUser(TwitterToolBenchmarkSupport.SCREEN_NAME);
+  }
+
+  @Benchmark
+  public ResponseList<Status> getUserTimelineCached() {
+    return tool.getUserTimeline(TwitterToolBenchmarkSupport.SCREEN_NAME, 1, 20);
+  }
+
+  @Benchmark
+  public ResponseList<Status> getUserTimelineCachedPage() {
+    return tool.getUserTimeline(TwitterToolBenchmarkSupport.SCREEN_NAME, 3, 50);
+  }
+
+}
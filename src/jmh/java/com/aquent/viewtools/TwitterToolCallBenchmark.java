@@ -0,0 +1,54 @@
+package com.aquent.viewtools;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import twitter4j.ResponseList;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.User;
+
+/**
+ * The render path with the result cache off, so every call goes through the call wrapper (single
+ * flight, rate limiter, metrics) to the stub Twitter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TwitterToolCallBenchmark {
+
+  private TwitterTool tool;
+  private TwitterToolSingleFlight singleFlight;
+  private TwitterToolCacheKey key;
+
+  @Setup
+  public void setUp() throws TwitterException {
+    tool = TwitterToolBenchmarkSupport.newTool(false);
+    TwitterToolMissCacheGroupHandler.INSTANCE.removeAll();
+    singleFlight = new TwitterToolSingleFlight();
+    key = TwitterToolCacheKey.of(TwitterToolEndpoint.SHOW_USER, TwitterToolBenchmarkSupport.SCREEN_NAME, null, 0, 0);
+  }
+
+  @Benchmark
+  public Object singleFlight() {
+    return singleFlight.execute(key, () -> key);
+  }
+
+  @Benchmark
+  public User showUserUncached() {
+    return tool.showUser(TwitterToolBenchmarkSupport.USER_ID);
+  }
+
+  @Benchmark
+  public ResponseList<Status> getUserTimelineUncached() {
+    return tool.getUserTimeline(TwitterToolBenchmarkSupport.SCREEN_NAME, 1, 20);
+  }
+
+}
@@ -0,0 +1,135 @@
+package com.aquent.viewtools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import twitter4j.Twitter;
+import twitter4j.TwitterFactory;
+import twitter4j.conf.ConfigurationBuilder;
+
+/**
+ * Simulates several dotCMS nodes in one JVM rendering the same handles against the stand-in, first
+ * with a private cache per node and then sharing fetches through one cluster, and reports the
+ * upstream requests each way.
+ *
+ * The result cache is a JVM wide singleton so each node runs with it off and a cluster as its
+ * cache: a cluster of its own when not shared, the same cluster for every node when shared.
+ * Settings are name=value arguments, anything not listed here is passed to the stand-in:
+ * <ul>
+ * <li>nodes - the number of simulated nodes, defaults to 4</li>
+ * <li>threads - render threads per node, defaults to 4</li>
+ * <li>duration - seconds to run each way, defaults to 10</li>
+ * <li>handles - the number of distinct handles to render, defaults to 20</li>
+ * <li>ttl - seconds a timeline or user is fresh for, defaults to 2</li>
+ * </ul>
+ */
+public final class TwitterToolClusterSimulation {
+
+  private TwitterToolClusterSimulation() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> settings = TwitterToolStandIn.parseArgs(args);
+    int nodes = Integer.parseInt(settings.getOrDefault("nodes", "4"));
+    int threads = Integer.parseInt(settings.getOrDefault("threads", "4"));
+    long duration = Long.parseLong(settings.getOrDefault("duration", "10"));
+    int handleCount = Integer.parseInt(settings.getOrDefault("handles", "20"));
+    String ttl = settings.getOrDefault("ttl", "2");
+
+    Map<String, String> standInSettings = new HashMap<>(settings);
+    standInSettings.putIfAbsent("port", "0");
+    standInSettings.putIfAbsent("latency", "50");
+    standInSettings.putIfAbsent("rateLimit", "1000000");
+    TwitterToolStandIn standIn = new TwitterToolStandIn(standInSettings);
+    standIn.start();
+    TwitterToolMemoryCache.install();
+
+    Map<String, Object> config = new HashMap<>();
+    config.put("twitter4jCacheEnabled", "false");
+    config.put("twitter4jCacheTtlUserTimeline", ttl);
+    config.put("twitter4jCacheTtlShowUser", ttl);
+    config.put("twitter4jShowUserBatchWindow", "0");
+
+    List<String> handles = new ArrayList<>();
+    for (int i = 0; i < handleCount; i++) {
+      handles.add("handle_" + i);
+    }
+
+    System.out.println("Simulating " + nodes + " nodes with " + threads + " threads each, rendering " + handleCount
+        + " handles for " + duration + "s each way");
+
+    int before = standIn.getRequests();
+    long renders = run(nodes(nodes, config, standIn.getBaseUrl(), null), handles, threads, duration);
+    int alone = standIn.getRequests() - before;
+    System.out.printf("private caches: %d renders, %d upstream requests%n", renders, alone);
+
+    before = standIn.getRequests();
+    renders = run(nodes(nodes, config, standIn.getBaseUrl(), new TwitterToolLocalCluster()), handles, threads, duration);
+    int shared = standIn.getRequests() - before;
+    System.out.printf("shared cluster: %d renders, %d upstream requests%n", renders, shared);
+    System.out.printf("upstream requests cut by %.1fx%n", alone / (double) Math.max(1, shared));
+
+    TwitterToolExecutors.INSTANCE.shutdown();
+    standIn.stop();
+  }
+
+  /**
+   * Creates the nodes, each with a twitter instance and rate limits of its own.
+   *
+   * @param shared The cluster every node shares, or null to give each node its own
+   */
+  private static List<TwitterTool> nodes(int count, Map<String, Object> config, String baseUrl,
+      TwitterToolCluster shared) {
+    List<TwitterTool> tools = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Twitter twitter = new TwitterFactory(new ConfigurationBuilder()
+          .setOAuthConsumerKey("node" + i).setOAuthConsumerSecret("node" + i)
+          .setOAuthAccessToken("node" + i).setOAuthAccessTokenSecret("node" + i)
+          .setRestBaseURL(baseUrl).build()).getInstance();
+      TwitterTool tool = new TwitterTool();
+      tool.init(new TwitterToolConfig(config), twitter);
+      tool.setCluster(shared != null ? shared : new TwitterToolLocalCluster(), "node-" + i);
+      tools.add(tool);
+    }
+    return tools;
+  }
+
+  private static long run(List<TwitterTool> tools, final List<String> handles, int threads, long seconds)
+      throws InterruptedException {
+    final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    final CountDownLatch done = new CountDownLatch(tools.size() * threads);
+    final long[] renders = new long[tools.size() * threads];
+    int n = 0;
+    for (final TwitterTool tool : tools) {
+      for (int i = 0; i < threads; i++) {
+        final int slot = n++;
+        Thread thread = new Thread(() -> {
+          try {
+            while (System.nanoTime() < end) {
+              String handle = handles.get(ThreadLocalRandom.current().nextInt(handles.size()));
+              tool.getUserTimeline(handle, 1, 20);
+              tool.showUser(handle);
+              renders[slot]++;
+            }
+          } finally {
+            done.countDown();
+          }
+        }, "twittertool-node-" + slot);
+        thread.setDaemon(true);
+        thread.start();
+      }
+    }
+    done.await();
+    long total = 0;
+    for (long r : renders) {
+      total += r;
+    }
+    return total;
+  }
+
+}
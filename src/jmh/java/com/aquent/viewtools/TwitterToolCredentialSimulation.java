@@ -0,0 +1,116 @@
+package com.aquent.viewtools;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import twitter4j.Twitter;
+import twitter4j.TwitterFactory;
+import twitter4j.conf.ConfigurationBuilder;
+
+/**
+ * Renders more distinct handles than one access token's rate limit covers against the stand-in,
+ * first with the default app alone and then with a pool of several, and reports how many renders
+ * twitter answered and how many failed as the rate limits ran out.
+ *
+ * Settings are name=value arguments, anything not listed here is passed to the stand-in:
+ * <ul>
+ * <li>threads - render threads, defaults to 8</li>
+ * <li>duration - seconds to run each way, defaults to 10</li>
+ * <li>handles - the number of distinct handles to render, defaults to 1000</li>
+ * <li>apps - the number of access tokens in the pool the second time, defaults to 3</li>
+ * </ul>
+ * The stand-in defaults to 20ms of latency and 50 calls per endpoint per token.
+ */
+public final class TwitterToolCredentialSimulation {
+
+  private TwitterToolCredentialSimulation() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> settings = TwitterToolStandIn.parseArgs(args);
+    int threads = Integer.parseInt(settings.getOrDefault("threads", "8"));
+    long duration = Long.parseLong(settings.getOrDefault("duration", "10"));
+    int handles = Integer.parseInt(settings.getOrDefault("handles", "1000"));
+    int apps = Integer.parseInt(settings.getOrDefault("apps", "3"));
+
+    Map<String, String> standInSettings = new HashMap<>(settings);
+    standInSettings.putIfAbsent("port", "0");
+    standInSettings.putIfAbsent("latency", "20");
+    standInSettings.putIfAbsent("rateLimit", "50");
+    TwitterToolStandIn standIn = new TwitterToolStandIn(standInSettings);
+    standIn.start();
+    TwitterToolMemoryCache.install();
+
+    System.out.println("Rendering " + handles + " handles from " + threads + " threads for " + duration
+        + "s each way");
+
+    TwitterTool single = newTool(standIn, 1);
+    run(single, handles, threads, duration);
+    report("1 app", single);
+
+    TwitterToolResultCacheGroupHandler.INSTANCE.removeAll();
+    TwitterToolMetrics.INSTANCE.reset();
+    TwitterTool pooled = newTool(standIn, apps);
+    run(pooled, handles, threads, duration);
+    report(apps + " apps", pooled);
+
+    TwitterToolExecutors.INSTANCE.shutdown();
+    standIn.stop();
+  }
+
+  private static TwitterTool newTool(TwitterToolStandIn standIn, int apps) {
+    // Each tool gets tokens of its own so the second run starts with full budgets
+    String prefix = "apps" + apps + "-";
+    TwitterTool tool = new TwitterTool();
+    tool.init(new TwitterToolConfig(new HashMap<>()), twitter(standIn, prefix + 0));
+    for (int i = 1; i < apps; i++) {
+      tool.addCredentials(prefix + i, twitter(standIn, prefix + i));
+    }
+    return tool;
+  }
+
+  private static Twitter twitter(TwitterToolStandIn standIn, String token) {
+    return new TwitterFactory(new ConfigurationBuilder()
+        .setOAuthConsumerKey("credentials").setOAuthConsumerSecret("credentials")
+        .setOAuthAccessToken(token).setOAuthAccessTokenSecret(token)
+        .setRestBaseURL(standIn.getBaseUrl()).build()).getInstance();
+  }
+
+  private static void report(String name, TwitterTool tool) {
+    Map<String, Object> stats = TwitterToolMetrics.INSTANCE.getStats()
+        .get(TwitterToolEndpoint.USER_TIMELINE.getConfigName());
+    System.out.printf("%s: %s renders, %s hits, %s fetched, %s failed, %s upstream calls, %s upstream errors%n",
+        name, stats.get("calls"), stats.get("hits"), stats.get("fetches"), stats.get("errors"),
+        stats.get("upstreamCalls"), stats.get("upstreamErrors"));
+    for (Map.Entry<String, Map<String, Map<String, Long>>> e : tool.getCredentialStats().entrySet()) {
+      System.out.println("  " + e.getKey() + ": " + e.getValue().get(TwitterToolEndpoint.USER_TIMELINE.getResource()));
+    }
+  }
+
+  private static void run(final TwitterTool tool, final int handles, int threads, long seconds)
+      throws InterruptedException {
+    final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int i = 0; i < threads; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          while (System.nanoTime() < end) {
+            tool.getUserTimeline("handle_" + ThreadLocalRandom.current().nextInt(handles), 1, 20);
+            Thread.sleep(10);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          done.countDown();
+        }
+      }, "twittertool-render-" + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+    done.await();
+  }
+
+}
@@ -0,0 +1,76 @@
+package com.aquent.viewtools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import twitter4j.Status;
+import twitter4j.TwitterObjectFactory;
+
+/**
+ * Measures the heap a timeline of twitter4j statuses takes against its compact copies with JOL,
+ * walking every object each list reaches so strings and authors shared between statuses are
+ * counted once.
+ *
+ * Statuses are parsed from the benchmark status fixture, one author with about 130 characters of
+ * text each, and each is given its own id and text so nothing is shared by accident.  Settings
+ * are name=value arguments:
+ * <ul>
+ * <li>statuses - the number of statuses to measure, defaults to 20000</li>
+ * </ul>
+ */
+public final class TwitterToolFootprint {
+
+  private static final long NEWEST_ID = 1050118621198921728L;
+  private static final String TEXT = "Tweet number 1 ";
+
+  private TwitterToolFootprint() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> settings = TwitterToolStandIn.parseArgs(args);
+    int count = Integer.parseInt(settings.getOrDefault("statuses", "20000"));
+
+    String json = fixture("status.json");
+    List<Status> statuses = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      statuses.add(TwitterObjectFactory.createStatus(json
+          .replace(String.valueOf(NEWEST_ID), String.valueOf(NEWEST_ID - i))
+          .replace(TEXT, "Tweet number " + (i + 1) + " ")));
+    }
+    List<Status> compacts = new ArrayList<>(count);
+    for (Status status : statuses) {
+      compacts.add(TwitterToolCompactor.INSTANCE.compact(status));
+    }
+
+    long full = GraphLayout.parseInstance(statuses).totalSize();
+    long compact = GraphLayout.parseInstance(compacts).totalSize();
+    long author = GraphLayout.parseInstance(statuses.get(0).getUser()).totalSize();
+
+    System.out.println("JVM: " + System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+    System.out.println("Statuses: " + count);
+    System.out.printf("%-10s %12s %12s%n", "", "total bytes", "per status");
+    System.out.printf("%-10s %,12d %,12d%n", "twitter4j", full, full / count);
+    System.out.printf("%-10s %,12d %,12d%n", "compact", compact, compact / count);
+    System.out.printf("Each twitter4j Status holds its own %,d byte author%n", author);
+  }
+
+  private static String fixture(String name) throws IOException {
+    try (InputStream in = TwitterToolFootprint.class.getResourceAsStream(name)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+}
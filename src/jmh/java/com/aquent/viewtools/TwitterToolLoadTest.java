@@ -0,0 +1,130 @@
+package com.aquent.viewtools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import twitter4j.Twitter;
+import twitter4j.TwitterFactory;
+import twitter4j.conf.ConfigurationBuilder;
+
+/**
+ * Renders a typical $twitter widget from many threads against the stand-in, or any url given in
+ * baseUrl, and reports render throughput and tail latency.
+ *
+ * Each render is a getUserTimeline(handle, 1, 20) and a showUser(handle) for a random handle.
+ * Settings are name=value arguments, anything not listed here is passed to the stand-in:
+ * <ul>
+ * <li>baseUrl - the v1.1 base url to call, defaults to a stand-in started here</li>
+ * <li>threads - render threads, defaults to 32</li>
+ * <li>duration - seconds to run for after a 5 second warm up, defaults to 30</li>
+ * <li>handles - the number of distinct handles to render, defaults to 50</li>
+ * <li>any twitter4j host variable, eg twitter4jCacheEnabled=false</li>
+ * </ul>
+ */
+public final class TwitterToolLoadTest {
+
+  private static final long WARM_UP_SECONDS = 5;
+
+  private TwitterToolLoadTest() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> settings = TwitterToolStandIn.parseArgs(args);
+    int threads = Integer.parseInt(settings.getOrDefault("threads", "32"));
+    long duration = Long.parseLong(settings.getOrDefault("duration", "30"));
+    int handleCount = Integer.parseInt(settings.getOrDefault("handles", "50"));
+
+    TwitterToolStandIn standIn = null;
+    String baseUrl = settings.get("baseUrl");
+    if (baseUrl == null) {
+      Map<String, String> standInSettings = new HashMap<>(settings);
+      standInSettings.putIfAbsent("port", "0");
+      standIn = new TwitterToolStandIn(standInSettings);
+      standIn.start();
+      baseUrl = standIn.getBaseUrl();
+    }
+
+    TwitterToolMemoryCache.install();
+    Map<String, Object> config = new HashMap<>();
+    for (Map.Entry<String, String> e : settings.entrySet()) {
+      if (e.getKey().startsWith("twitter4j")) {
+        config.put(e.getKey(), e.getValue());
+      }
+    }
+    Twitter twitter = new TwitterFactory(new ConfigurationBuilder()
+        .setOAuthConsumerKey("loadtest").setOAuthConsumerSecret("loadtest")
+        .setOAuthAccessToken("loadtest").setOAuthAccessTokenSecret("loadtest")
+        .setRestBaseURL(baseUrl).build()).getInstance();
+    TwitterTool tool = new TwitterTool();
+    tool.init(new TwitterToolConfig(config), twitter);
+
+    List<String> handles = new ArrayList<>();
+    for (int i = 0; i < handleCount; i++) {
+      handles.add("handle_" + i);
+    }
+
+    System.out.println("Rendering " + handleCount + " handles from " + threads + " threads against " + baseUrl);
+    run(tool, handles, threads, WARM_UP_SECONDS, null, null);
+    TwitterToolMetrics.INSTANCE.reset();
+    int standInRequests = standIn == null ? 0 : standIn.getRequests();
+
+    TwitterToolHistogram latency = new TwitterToolHistogram();
+    LongAdder empty = new LongAdder();
+    run(tool, handles, threads, duration, latency, empty);
+
+    System.out.println();
+    System.out.printf("renders:     %d in %ds, %.1f/s%n", latency.getCount(), duration, latency.getCount() / (double) duration);
+    System.out.printf("empty:       %d renders got a null result%n", empty.sum());
+    System.out.printf("latency ms:  mean %.3f, p50 %.3f, p95 %.3f, p99 %.3f, max %.3f%n", latency.getMeanMillis(),
+        latency.getPercentileMillis(0.5), latency.getPercentileMillis(0.95), latency.getPercentileMillis(0.99),
+        latency.getMaxMillis());
+    if (standIn != null) {
+      System.out.printf("upstream:    %d requests to the stand-in%n", standIn.getRequests() - standInRequests);
+    }
+    for (Map.Entry<String, Map<String, Object>> e : TwitterToolMetrics.INSTANCE.getStats().entrySet()) {
+      if (((Number) e.getValue().get("calls")).longValue() > 0) {
+        System.out.println(e.getKey() + ": " + e.getValue());
+      }
+    }
+
+    TwitterToolExecutors.INSTANCE.shutdown();
+    if (standIn != null) {
+      standIn.stop();
+    }
+  }
+
+  private static void run(final TwitterTool tool, final List<String> handles, int threads, long seconds,
+      final TwitterToolHistogram latency, final LongAdder empty) throws InterruptedException {
+    final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int i = 0; i < threads; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          while (System.nanoTime() < end) {
+            String handle = handles.get(ThreadLocalRandom.current().nextInt(handles.size()));
+            long start = System.nanoTime();
+            boolean gotAll = tool.getUserTimeline(handle, 1, 20) != null & tool.showUser(handle) != null;
+            if (latency != null) {
+              latency.record(System.nanoTime() - start);
+              if (!gotAll) {
+                empty.increment();
+              }
+            }
+          }
+        } finally {
+          done.countDown();
+        }
+      }, "twittertool-loadtest-" + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+    done.await();
+  }
+
+}
@@ -0,0 +1,86 @@
+package com.aquent.viewtools;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.DotCacheAdministrator;
+
+/**
+ * An in-memory DotCacheAdministrator for running the TwitterTool outside of dotCMS.
+ *
+ * Each group is a ConcurrentHashMap, there is no size limit or eviction.  Only get, put, remove,
+ * flushGroup, flushAll and getKeys do anything, the other methods return null or do nothing.
+ */
+public final class TwitterToolMemoryCache implements InvocationHandler {
+
+  private final Map<String, Map<String, Object>> groups = new ConcurrentHashMap<>();
+
+  private TwitterToolMemoryCache() {
+  }
+
+  /**
+   * Creates an in-memory cache and makes it the one CacheLocator.getCacheAdministrator() returns.
+   *
+   * @return The cache
+   */
+  public static DotCacheAdministrator install() {
+    DotCacheAdministrator cache = (DotCacheAdministrator) Proxy.newProxyInstance(
+        DotCacheAdministrator.class.getClassLoader(), new Class<?>[] {DotCacheAdministrator.class},
+        new TwitterToolMemoryCache());
+    try {
+      for (Field field : CacheLocator.class.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers()) && field.getType() == DotCacheAdministrator.class) {
+          field.setAccessible(true);
+          field.set(null, cache);
+          return cache;
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Unable to install the in-memory cache", e);
+    }
+    throw new IllegalStateException("CacheLocator has no static DotCacheAdministrator field");
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "get":
+        return group(args[1]).get((String) args[0]);
+      case "put":
+        group(args[2]).put((String) args[0], args[1]);
+        return null;
+      case "remove":
+        group(args[1]).remove((String) args[0]);
+        return null;
+      case "flushGroup":
+        group(args[0]).clear();
+        return null;
+      case "flushAll":
+        groups.clear();
+        return null;
+      case "getKeys":
+        return Collections.unmodifiableSet(new HashSet<>(group(args[0]).keySet()));
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "equals":
+        return proxy == args[0];
+      case "toString":
+        return "TwitterToolMemoryCache";
+      default:
+        return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+    }
+  }
+
+  private Map<String, Object> group(Object name) {
+    return groups.computeIfAbsent(String.valueOf(name).toLowerCase(), g -> new ConcurrentHashMap<>());
+  }
+
+}
@@ -0,0 +1,109 @@
+package com.aquent.viewtools;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+
+/**
+ * Merging the timelines of a news wall: sorting every status the way templates did, a heap merge
+ * of every timeline, and updating the last merge after one handle tweets again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TwitterToolMergeBenchmark {
+
+  @Param({"20"})
+  public int handles;
+
+  @Param({"200"})
+  public int count;
+
+  private List<List<Status>> timelines;
+  private List<List<Status>> oneNewTweet;
+  private TwitterToolMergedTimeline merged;
+
+  @Setup
+  public void setUp() throws TwitterException {
+    timelines = new ArrayList<>(handles);
+    for (int i = 0; i < handles; i++) {
+      timelines.add(new ArrayList<>(count));
+    }
+    // Interleave the handles' ids, with every tenth status a retweet of another handle's tweet
+    long id = 1000000L * handles * count;
+    for (int n = 0; n < handles * count; n++) {
+      int handle = n % handles;
+      long retweeted = n % 10 == 9 ? id + 1 : -1;
+      timelines.get(handle).add(status(id--, handle, retweeted));
+    }
+
+    oneNewTweet = new ArrayList<>(timelines);
+    List<Status> tweeted = new ArrayList<>(count);
+    tweeted.add(status(1000000L * handles * count + 1, 0, -1));
+    tweeted.addAll(timelines.get(0).subList(0, count - 1));
+    oneNewTweet.set(0, tweeted);
+
+    merged = TwitterToolMergedTimeline.merge(timelines, count);
+  }
+
+  private static Status status(long id, int handle, long retweeted) throws TwitterException {
+    String user = "{\"id\":" + (handle + 1) + ",\"screen_name\":\"handle" + handle + "\"}";
+    String json = "{\"id\":" + id + ",\"text\":\"Tweet " + id + "\",\"user\":" + user
+        + (retweeted == -1 ? "" : ",\"retweeted_status\":{\"id\":" + retweeted + ",\"text\":\"Tweet\",\"user\":" + user + "}")
+        + "}";
+    return TwitterObjectFactory.createStatus(json);
+  }
+
+  @Benchmark
+  public List<Status> sortAll() {
+    List<Status> all = new ArrayList<>(handles * count);
+    for (List<Status> timeline : oneNewTweet) {
+      all.addAll(timeline);
+    }
+    all.sort(Comparator.comparingLong(Status::getId).reversed());
+    List<Status> sorted = new ArrayList<>(count);
+    Set<Long> seen = new HashSet<>();
+    for (Status status : all) {
+      if (sorted.size() == count) {
+        break;
+      }
+      Status retweeted = status.getRetweetedStatus();
+      if (seen.add(retweeted == null ? status.getId() : retweeted.getId())) {
+        sorted.add(status);
+      }
+    }
+    return sorted;
+  }
+
+  @Benchmark
+  public TwitterToolMergedTimeline heapMerge() {
+    return TwitterToolMergedTimeline.merge(oneNewTweet, count);
+  }
+
+  @Benchmark
+  public TwitterToolMergedTimeline incrementalUpdate() {
+    return merged.update(oneNewTweet, count);
+  }
+
+  @Benchmark
+  public TwitterToolMergedTimeline unchanged() {
+    return merged.update(timelines, count);
+  }
+
+}
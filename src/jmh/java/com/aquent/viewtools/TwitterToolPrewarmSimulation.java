@@ -0,0 +1,112 @@
+package com.aquent.viewtools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import twitter4j.TwitterFactory;
+import twitter4j.conf.ConfigurationBuilder;
+
+/**
+ * Renders a few handles against the stand-in with short lived cache entries, first with only the
+ * renders fetching and then with the prewarmer keeping the handles fresh, and reports how the
+ * renders were answered each way.
+ *
+ * Settings are name=value arguments, anything not listed here is passed to the stand-in:
+ * <ul>
+ * <li>threads - render threads, defaults to 8</li>
+ * <li>duration - seconds to run each way, defaults to 10</li>
+ * <li>handles - the number of distinct handles to render, defaults to 10</li>
+ * <li>ttl - seconds a timeline is fresh for, defaults to 2</li>
+ * <li>maxStale - seconds a stale timeline is served while it refreshes, defaults to 0 so renders
+ * wait for an expired timeline</li>
+ * </ul>
+ * The stand-in defaults to 100ms of latency.
+ */
+public final class TwitterToolPrewarmSimulation {
+
+  private TwitterToolPrewarmSimulation() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> settings = TwitterToolStandIn.parseArgs(args);
+    int threads = Integer.parseInt(settings.getOrDefault("threads", "8"));
+    long duration = Long.parseLong(settings.getOrDefault("duration", "10"));
+    int handleCount = Integer.parseInt(settings.getOrDefault("handles", "10"));
+
+    Map<String, String> standInSettings = new HashMap<>(settings);
+    standInSettings.putIfAbsent("port", "0");
+    standInSettings.putIfAbsent("latency", "100");
+    standInSettings.putIfAbsent("rateLimit", "1000000");
+    TwitterToolStandIn standIn = new TwitterToolStandIn(standInSettings);
+    standIn.start();
+    TwitterToolMemoryCache.install();
+
+    List<String> handles = new ArrayList<>();
+    for (int i = 0; i < handleCount; i++) {
+      handles.add("handle_" + i);
+    }
+    Map<String, Object> config = new HashMap<>();
+    config.put("twitter4jCacheTtlUserTimeline", settings.getOrDefault("ttl", "2"));
+    config.put("twitter4jCacheMaxStale", settings.getOrDefault("maxStale", "0"));
+    config.put("twitter4jPrewarm", String.join(",", handles));
+    TwitterTool tool = new TwitterTool();
+    tool.init(new TwitterToolConfig(config), new TwitterFactory(new ConfigurationBuilder()
+        .setOAuthConsumerKey("prewarm").setOAuthConsumerSecret("prewarm")
+        .setOAuthAccessToken("prewarm").setOAuthAccessTokenSecret("prewarm")
+        .setRestBaseURL(standIn.getBaseUrl()).build()).getInstance());
+
+    System.out.println("Rendering " + handleCount + " handles from " + threads + " threads for " + duration
+        + "s each way");
+
+    run(tool, handles, threads, duration);
+    report("renders fetching", standIn);
+
+    TwitterToolResultCacheGroupHandler.INSTANCE.removeAll();
+    TwitterToolMetrics.INSTANCE.reset();
+    TwitterToolPrewarmer.INSTANCE.start(new TwitterToolConfig(config), tool);
+    run(tool, handles, threads, duration);
+    report("prewarmed", standIn);
+    System.out.println("prewarmer: " + tool.getPrewarmStats());
+
+    TwitterToolPrewarmer.INSTANCE.stop();
+    TwitterToolExecutors.INSTANCE.shutdown();
+    standIn.stop();
+  }
+
+  private static void report(String name, TwitterToolStandIn standIn) {
+    Map<String, Object> stats = TwitterToolMetrics.INSTANCE.getStats()
+        .get(TwitterToolEndpoint.USER_TIMELINE.getConfigName());
+    System.out.printf("%s: %s renders, %s fresh hits, %s stale hits, %s waited on twitter, p99 %sms, max %sms,"
+        + " %s upstream calls%n", name, stats.get("calls"), stats.get("hits"), stats.get("staleHits"),
+        stats.get("fetches"), stats.get("latencyP99Millis"), stats.get("latencyMaxMillis"), stats.get("upstreamCalls"));
+  }
+
+  private static void run(final TwitterTool tool, final List<String> handles, int threads, long seconds)
+      throws InterruptedException {
+    final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int i = 0; i < threads; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          while (System.nanoTime() < end) {
+            tool.getUserTimeline(handles.get(ThreadLocalRandom.current().nextInt(handles.size())), 1, 20);
+            Thread.sleep(10);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          done.countDown();
+        }
+      }, "twittertool-render-" + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+    done.await();
+  }
+
+}
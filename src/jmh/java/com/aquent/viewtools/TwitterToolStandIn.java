@@ -0,0 +1,735 @@
+package com.aquent.viewtools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import twitter4j.HttpClientFactory;
+import twitter4j.HttpParameter;
+import twitter4j.HttpResponse;
+import twitter4j.JSONArray;
+import twitter4j.JSONException;
+import twitter4j.JSONObject;
+import twitter4j.TwitterException;
+import twitter4j.auth.OAuthAuthorization;
+import twitter4j.conf.ConfigurationContext;
+
+/**
+ * A local stand-in for the v1.1 endpoints the TwitterTool calls, answering from recorded JSON
+ * fixtures so templates can be load tested without the real api.
+ *
+ * Fixtures are looked up as &lt;dir&gt;/&lt;endpoint&gt;/&lt;params&gt;.json, eg
+ * statuses_user_timeline/screen_name=aquent.json, falling back to &lt;endpoint&gt;/default.json.
+ * A fixture holding an "errors" array is sent with the status twitter uses for its first code.
+ * Timelines are sliced by count, page, since_id and max_id, followers, follower ids and list
+ * members are paged with cursors, and users/lookup is answered from the users/show fixtures.
+ * Followers and members without a fixture are made up from the default user, and follower ids
+ * without a fixture are taken from the followers.  Responses are gzipped when the client asks.
+ * statuses/filter streams the canned messages in statuses_filter/default.json one at a time,
+ * giving each status a new id and the next followed user, and each delete the last status sent.
+ *
+ * Settings are name=value arguments:
+ * <ul>
+ * <li>port - defaults to 8089, 0 picks a free port</li>
+ * <li>fixtures - a fixture directory, defaults to the fixtures bundled on the classpath</li>
+ * <li>record - true to fetch missing fixtures from api.twitter.com and save them in the fixtures
+ * directory, using the credentials in twitter4j.properties or the twitter4j.oauth system properties</li>
+ * <li>latency, jitter - milliseconds added to every response, jitter is random on top</li>
+ * <li>errors - code:rate pairs sent at random, eg 34:0.01,63:0.005,88:0.01,130:0.01</li>
+ * <li>rateLimit - calls per endpoint per 15 minute window before 429s, 0 for twitter's own limits.
+ * Like twitter's, the limits are per access token</li>
+ * <li>collectionSize - the number of made up followers and members, defaults to 100</li>
+ * <li>streamInterval - milliseconds between streamed messages, defaults to 1000</li>
+ * <li>streamDrop - messages after which a stream connection is dropped, 0 to keep it open</li>
+ * </ul>
+ */
+public final class TwitterToolStandIn {
+
+  private static final String BUNDLED_FIXTURES = "standin/";
+  private static final String TWITTER_API = "https://api.twitter.com/1.1/";
+  private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(15);
+  private static final int DEFAULT_PORT = 8089;
+  private static final int DEFAULT_COLLECTION_SIZE = 100;
+  private static final int DEFAULT_COUNT = 20;
+  private static final int DEFAULT_IDS_COUNT = 5000;
+  private static final long DEFAULT_STREAM_INTERVAL = 1000;
+  // Twitter's snowflake epoch, streamed ids are made from the time so they are newer than the fixtures
+  private static final long TWITTER_EPOCH = 1288834974657L;
+  private static final Pattern ACCESS_TOKEN = Pattern.compile("oauth_token=\"([^\"]*)\"");
+  private static final List<String> IDENTITY_PARAMS =
+      Arrays.asList("screen_name", "user_id", "owner_screen_name", "owner_id", "slug", "list_id");
+
+  private final Map<String, String> settings;
+  private final File fixtureDir;
+  private final boolean record;
+  private final long latency;
+  private final long jitter;
+  private final int rateLimit;
+  private final int collectionSize;
+  private final long streamInterval;
+  private final int streamDrop;
+  private final Map<Integer, Double> errorRates = new LinkedHashMap<>();
+  private final Map<String, Window> windows = new ConcurrentHashMap<>();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicLong bytesSent = new AtomicLong();
+  private final AtomicLong nextStatusId = new AtomicLong();
+  private final AtomicInteger streamed = new AtomicInteger();
+  private final AtomicInteger streamConnections = new AtomicInteger();
+  private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+  private HttpServer server;
+  private ExecutorService executor;
+
+  /**
+   * Creates a stand-in, call {@link #start()} to serve.
+   *
+   * @param settings The settings described above
+   */
+  public TwitterToolStandIn(Map<String, String> settings) {
+    this.settings = settings;
+    this.fixtureDir = settings.containsKey("fixtures") ? new File(settings.get("fixtures")) : null;
+    this.record = Boolean.parseBoolean(settings.get("record"));
+    this.latency = Long.parseLong(settings.getOrDefault("latency", "0"));
+    this.jitter = Long.parseLong(settings.getOrDefault("jitter", "0"));
+    this.rateLimit = Integer.parseInt(settings.getOrDefault("rateLimit", "0"));
+    this.collectionSize = Integer.parseInt(settings.getOrDefault("collectionSize", String.valueOf(DEFAULT_COLLECTION_SIZE)));
+    this.streamInterval = Long.parseLong(settings.getOrDefault("streamInterval", String.valueOf(DEFAULT_STREAM_INTERVAL)));
+    this.streamDrop = Integer.parseInt(settings.getOrDefault("streamDrop", "0"));
+    String errors = settings.get("errors");
+    if (errors != null && !errors.isEmpty()) {
+      for (String pair : errors.split(",")) {
+        String[] parts = pair.split(":");
+        errorRates.put(Integer.valueOf(parts[0].trim()), Double.valueOf(parts[1].trim()));
+      }
+    }
+    if (record && fixtureDir == null) {
+      throw new IllegalArgumentException("record needs a fixtures directory to save to");
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    TwitterToolStandIn standIn = new TwitterToolStandIn(parseArgs(args));
+    standIn.start();
+    System.out.println("Twitter stand-in listening on " + standIn.getBaseUrl());
+  }
+
+  /**
+   * Parses name=value arguments.
+   *
+   * @param args The arguments
+   * @return The settings
+   */
+  static Map<String, String> parseArgs(String[] args) {
+    Map<String, String> map = new LinkedHashMap<>();
+    for (String arg : args) {
+      int eq = arg.indexOf('=');
+      if (eq > 0) {
+        map.put(arg.substring(0, eq).replaceFirst("^-+", ""), arg.substring(eq + 1));
+      }
+    }
+    return map;
+  }
+
+  /**
+   * Starts serving on daemon threads.
+   *
+   * @throws IOException If the port cannot be bound
+   */
+  public synchronized void start() throws IOException {
+    int port = Integer.parseInt(settings.getOrDefault("port", String.valueOf(DEFAULT_PORT)));
+    // Without this keep-alive responses stall on delayed acks, read once when the first server starts
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+    executor = Executors.newCachedThreadPool(TwitterToolExecutors.daemonThreads("TwitterToolStandIn"));
+    server.setExecutor(executor);
+    server.createContext("/1.1/", this::handle);
+    server.start();
+  }
+
+  public synchronized void stop() {
+    if (server != null) {
+      server.stop(0);
+      executor.shutdownNow();
+      server = null;
+    }
+  }
+
+  /**
+   * The base url to give twitter4j, eg as the twitter4jRestBaseUrl host variable.
+   *
+   * @return The base url
+   */
+  public String getBaseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/1.1/";
+  }
+
+  public int getRequests() {
+    return requests.get();
+  }
+
+  /**
+   * The response body bytes written, gzipped when the client asked for it.
+   *
+   * @return The bytes sent
+   */
+  public long getBytesSent() {
+    return bytesSent.get();
+  }
+
+  /**
+   * The number of client connections seen, each keep-alive connection counts once.
+   *
+   * @return The connections
+   */
+  public int getConnections() {
+    return connections.size();
+  }
+
+  /**
+   * The number of messages streamed over statuses/filter.
+   *
+   * @return The messages streamed
+   */
+  public int getStreamedMessages() {
+    return streamed.get();
+  }
+
+  /**
+   * The number of statuses/filter connections made, the first plus any reconnects.
+   *
+   * @return The stream connections
+   */
+  public int getStreamConnections() {
+    return streamConnections.get();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    connections.add(exchange.getRemoteAddress());
+    try {
+      String path = exchange.getRequestURI().getPath();
+      String name = path.substring("/1.1/".length()).replaceFirst("\\.json$", "");
+      Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+      TwitterToolEndpoint endpoint = TwitterToolEndpoint.forUrl(path);
+
+      sleep();
+      if (endpoint != null) {
+        Window window = windows.computeIfAbsent(endpoint + "|" + accessToken(exchange),
+            key -> new Window(rateLimit > 0 ? rateLimit : defaultLimit(endpoint)));
+        int remaining = window.take();
+        exchange.getResponseHeaders().add("x-rate-limit-limit", String.valueOf(window.limit));
+        exchange.getResponseHeaders().add("x-rate-limit-remaining", String.valueOf(Math.max(0, remaining)));
+        exchange.getResponseHeaders().add("x-rate-limit-reset", String.valueOf(window.resetAt / 1000));
+        if (remaining < 0) {
+          sendError(exchange, 88, "Rate limit exceeded");
+          return;
+        }
+      }
+      for (Map.Entry<Integer, Double> e : errorRates.entrySet()) {
+        if (ThreadLocalRandom.current().nextDouble() < e.getValue()) {
+          sendError(exchange, e.getKey(), "Injected error");
+          return;
+        }
+      }
+
+      if (name.equals("statuses/filter")) {
+        // twitter4j posts the filter as a form
+        params.putAll(parseQuery(readBody(exchange)));
+        stream(exchange, params);
+        return;
+      }
+
+      Object body = answer(name, params);
+      if (body == null) {
+        sendError(exchange, 34, "Sorry, that page does not exist.");
+      } else {
+        send(exchange, body);
+      }
+    } catch (IOException | JSONException | RuntimeException e) {
+      byte[] bytes = ("{\"errors\":[{\"code\":131,\"message\":\"" + e + "\"}]}").getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(500, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private Object answer(String name, Map<String, String> params) throws IOException, JSONException {
+    switch (name) {
+      case "statuses/user_timeline":
+      case "lists/statuses":
+        Object timeline = fixture(name, params);
+        if (timeline == null && name.equals("lists/statuses")) {
+          timeline = fixture("statuses/user_timeline", params);
+        }
+        return timeline instanceof JSONArray ? slice((JSONArray) timeline, params) : timeline;
+      case "users/show":
+        return fixture(name, params);
+      case "users/lookup":
+        return lookup(params);
+      case "followers/list":
+      case "lists/members":
+        Object users = fixture(name, params);
+        if (users == null || isError(users)) {
+          return users;
+        }
+        return page(((JSONObject) users).getJSONArray("users"), "users", DEFAULT_COUNT, params);
+      case "followers/ids":
+        Object ids = fixture(name, params);
+        if (ids == null) {
+          Object followers = fixture("followers/list", params);
+          if (followers == null || isError(followers)) {
+            return followers;
+          }
+          ids = idsOf(((JSONObject) followers).getJSONArray("users"));
+        }
+        if (isError(ids)) {
+          return ids;
+        }
+        return page(((JSONObject) ids).getJSONArray("ids"), "ids", DEFAULT_IDS_COUNT, params);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Streams the canned messages to the followed users until the client goes away or streamDrop
+   * messages have been sent.
+   */
+  private void stream(HttpExchange exchange, Map<String, String> params) throws IOException, JSONException {
+    Object canned = fixture("statuses/filter", params);
+    String[] follow = params.getOrDefault("follow", "").split(",");
+    if (!(canned instanceof JSONArray) || follow[0].isEmpty()) {
+      sendError(exchange, 34, "Sorry, that page does not exist.");
+      return;
+    }
+    JSONArray messages = (JSONArray) canned;
+    streamConnections.incrementAndGet();
+    exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+    exchange.sendResponseHeaders(200, 0);
+    OutputStream out = exchange.getResponseBody();
+
+    long lastId = 0;
+    String lastUserId = null;
+    for (int sent = 0; streamDrop <= 0 || sent < streamDrop; sent++) {
+      pause(streamInterval);
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+      JSONObject message = new JSONObject(messages.getJSONObject(sent % messages.length()).toString());
+      if (message.has("delete")) {
+        if (lastUserId == null) {
+          continue;
+        }
+        JSONObject status = message.getJSONObject("delete").getJSONObject("status");
+        setId(status, "id", lastId);
+        setId(status, "user_id", Long.parseLong(lastUserId));
+      } else {
+        long id = nextStatusId.accumulateAndGet((System.currentTimeMillis() - TWITTER_EPOCH) << 22,
+            (last, now) -> Math.max(last + 1, now));
+        setId(message, "id", id);
+        JSONObject user = message.getJSONObject("user");
+        // Statuses by user 0 are by the next followed user, the rest are by someone else, eg a retweet
+        if (user.getLong("id") == 0) {
+          lastId = id;
+          lastUserId = follow[sent % follow.length].trim();
+          setId(user, "id", Long.parseLong(lastUserId));
+          user.put("screen_name", "user_" + lastUserId);
+        } else if (message.has("retweeted_status") && lastUserId != null) {
+          JSONObject retweeted = message.getJSONObject("retweeted_status");
+          setId(retweeted, "id", lastId);
+          setId(retweeted.getJSONObject("user"), "id", Long.parseLong(lastUserId));
+          retweeted.getJSONObject("user").put("screen_name", "user_" + lastUserId);
+        }
+      }
+      byte[] bytes = (message + "\r\n").getBytes(StandardCharsets.UTF_8);
+      try {
+        out.write(bytes);
+        out.flush();
+      } catch (IOException e) {
+        // The client went away
+        return;
+      }
+      bytesSent.addAndGet(bytes.length);
+      streamed.incrementAndGet();
+    }
+  }
+
+  private static void setId(JSONObject json, String field, long id) throws JSONException {
+    json.put(field, id);
+    json.put(field + "_str", String.valueOf(id));
+  }
+
+  private JSONArray slice(JSONArray statuses, Map<String, String> params) throws JSONException {
+    int count = Integer.parseInt(params.getOrDefault("count", String.valueOf(DEFAULT_COUNT)));
+    int page = Integer.parseInt(params.getOrDefault("page", "1"));
+    long sinceId = Long.parseLong(params.getOrDefault("since_id", "0"));
+    long maxId = Long.parseLong(params.getOrDefault("max_id", String.valueOf(Long.MAX_VALUE)));
+    JSONArray result = new JSONArray();
+    int skip = (page - 1) * count;
+    for (int i = 0; i < statuses.length() && result.length() < count; i++) {
+      JSONObject status = statuses.getJSONObject(i);
+      long id = status.getLong("id");
+      if (id <= sinceId || id > maxId) {
+        continue;
+      }
+      if (skip > 0) {
+        skip--;
+        continue;
+      }
+      result.put(status);
+    }
+    return result;
+  }
+
+  private JSONObject page(JSONArray items, String field, int defaultCount, Map<String, String> params)
+      throws JSONException {
+    int count = Integer.parseInt(params.getOrDefault("count", String.valueOf(defaultCount)));
+    long cursor = Long.parseLong(params.getOrDefault("cursor", "-1"));
+    int start = cursor <= 0 ? 0 : (int) cursor;
+    JSONArray pageItems = new JSONArray();
+    for (int i = start; i < items.length() && i < start + count; i++) {
+      pageItems.put(items.get(i));
+    }
+    JSONObject result = new JSONObject();
+    result.put(field, pageItems);
+    result.put("next_cursor", start + count < items.length() ? start + count : 0);
+    result.put("previous_cursor", start > 0 ? -Math.max(1, start - count) : 0);
+    return result;
+  }
+
+  private Object lookup(Map<String, String> params) throws IOException, JSONException {
+    JSONArray result = new JSONArray();
+    for (String param : new String[] {"user_id", "screen_name"}) {
+      String values = params.get(param);
+      if (values == null) {
+        continue;
+      }
+      for (String value : values.split(",")) {
+        Map<String, String> one = new LinkedHashMap<>();
+        one.put(param, value);
+        Object user = fixture("users/show", one);
+        if (user instanceof JSONObject && !isError(user)) {
+          result.put(user);
+        }
+      }
+    }
+    if (result.length() == 0) {
+      return error(17, "No user matches for specified terms.");
+    }
+    return result;
+  }
+
+  /**
+   * Finds the fixture for a call, recording it first if it is missing and recording is on.
+   */
+  private Object fixture(String name, Map<String, String> params) throws IOException, JSONException {
+    String dir = name.replace('/', '_');
+    String key = fixtureKey(params);
+    String json = read(dir + "/" + key + ".json");
+    if (json == null && record) {
+      json = recordFixture(name, params, new File(new File(fixtureDir, dir), key + ".json"));
+    }
+    if (json == null) {
+      json = read(dir + "/default.json");
+      if (json != null) {
+        json = personalize(json, params);
+      }
+    }
+    if (json == null && (name.equals("followers/list") || name.equals("lists/members"))) {
+      return madeUpUsers();
+    }
+    if (json == null) {
+      return null;
+    }
+    json = json.trim();
+    return json.startsWith("[") ? new JSONArray(json) : new JSONObject(json);
+  }
+
+  /**
+   * Puts the requested screen name or id on a default users/show fixture, so every handle gets a
+   * user of its own.
+   */
+  private static String personalize(String json, Map<String, String> params) {
+    if (!json.trim().startsWith("{\"id\"")) {
+      return json;
+    }
+    if (params.containsKey("screen_name")) {
+      json = json.replaceFirst("\"screen_name\":\"[^\"]*\"", "\"screen_name\":\"" + params.get("screen_name") + "\"");
+    }
+    if (params.containsKey("user_id")) {
+      String id = params.get("user_id");
+      json = json.replaceFirst("\"id\":\\d+,\"id_str\":\"\\d+\"", "\"id\":" + id + ",\"id_str\":\"" + id + "\"");
+    }
+    return json;
+  }
+
+  private static JSONObject idsOf(JSONArray users) throws JSONException {
+    JSONArray ids = new JSONArray();
+    for (int i = 0; i < users.length(); i++) {
+      ids.put(users.getJSONObject(i).getLong("id"));
+    }
+    JSONObject result = new JSONObject();
+    result.put("ids", ids);
+    return result;
+  }
+
+  private JSONObject madeUpUsers() throws IOException, JSONException {
+    String template = read("users_show/default.json");
+    JSONArray users = new JSONArray();
+    for (int i = 0; i < collectionSize && template != null; i++) {
+      Map<String, String> params = new LinkedHashMap<>();
+      params.put("screen_name", "follower_" + i);
+      params.put("user_id", String.valueOf(1000000L + i));
+      users.put(new JSONObject(personalize(template, params)));
+    }
+    JSONObject result = new JSONObject();
+    result.put("users", users);
+    return result;
+  }
+
+  private String recordFixture(String name, Map<String, String> params, File file) throws IOException, JSONException {
+    List<HttpParameter> httpParams = new ArrayList<>();
+    for (Map.Entry<String, String> e : params.entrySet()) {
+      httpParams.add(new HttpParameter(e.getKey(), e.getValue()));
+    }
+    String json;
+    try {
+      HttpResponse res = HttpClientFactory.getInstance().get(TWITTER_API + name + ".json",
+          httpParams.toArray(new HttpParameter[0]), new OAuthAuthorization(ConfigurationContext.getInstance()), null);
+      json = res.asString();
+    } catch (TwitterException e) {
+      if (e.getErrorCode() == -1) {
+        throw new IOException("Unable to record " + name + ": " + e.getMessage(), e);
+      }
+      json = error(e.getErrorCode(), e.getErrorMessage()).toString();
+    }
+    File dir = file.getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Unable to create " + dir);
+    }
+    Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+    System.out.println("Recorded " + file);
+    return json;
+  }
+
+  private String read(String path) throws IOException {
+    if (fixtureDir != null) {
+      File file = new File(fixtureDir, path);
+      return file.isFile() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8) : null;
+    }
+    try (InputStream in = TwitterToolStandIn.class.getResourceAsStream(BUNDLED_FIXTURES + path)) {
+      if (in == null) {
+        return null;
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private void sleep() {
+    pause(latency + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0));
+  }
+
+  private static void pause(long millis) {
+    if (millis > 0) {
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void send(HttpExchange exchange, Object body) throws IOException {
+    int status = 200;
+    if (isError(body)) {
+      JSONObject json = (JSONObject) body;
+      try {
+        status = json.has("errors") ? statusFor(json.getJSONArray("errors").getJSONObject(0).getInt("code")) : 401;
+      } catch (JSONException e) {
+        status = 400;
+      }
+    }
+    byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+    String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+    if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+      ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+      try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+        gzip.write(bytes);
+      }
+      bytes = gzipped.toByteArray();
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+    }
+    bytesSent.addAndGet(bytes.length);
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private void sendError(HttpExchange exchange, int code, String message) throws IOException {
+    try {
+      send(exchange, error(code, message));
+    } catch (JSONException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static JSONObject error(int code, String message) throws JSONException {
+    JSONObject error = new JSONObject();
+    error.put("code", code);
+    error.put("message", message);
+    JSONArray errors = new JSONArray();
+    errors.put(error);
+    JSONObject body = new JSONObject();
+    body.put("errors", errors);
+    return body;
+  }
+
+  private static boolean isError(Object body) {
+    return body instanceof JSONObject && (((JSONObject) body).has("errors") || ((JSONObject) body).has("error"));
+  }
+
+  /**
+   * The http status twitter sends with an error code.
+   */
+  private static int statusFor(int code) {
+    switch (code) {
+      case 17:
+      case 34:
+      case 50:
+        return 404;
+      case 63:
+      case 179:
+        return 403;
+      case 88:
+        return 429;
+      case 32:
+      case 89:
+        return 401;
+      case 131:
+        return 500;
+      case 130:
+        return 503;
+      default:
+        return 400;
+    }
+  }
+
+  /**
+   * The oauth_token of the request's Authorization header, or an empty string if it has none.
+   */
+  private static String accessToken(HttpExchange exchange) {
+    String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+    if (authorization != null) {
+      Matcher matcher = ACCESS_TOKEN.matcher(authorization);
+      if (matcher.find()) {
+        return matcher.group(1);
+      }
+    }
+    return "";
+  }
+
+  /**
+   * Twitter's own limits per 15 minutes with user auth.
+   */
+  private static int defaultLimit(TwitterToolEndpoint endpoint) {
+    return endpoint == TwitterToolEndpoint.FOLLOWERS_LIST || endpoint == TwitterToolEndpoint.FOLLOWERS_IDS ? 15 : 900;
+  }
+
+  private static String fixtureKey(Map<String, String> params) {
+    StringBuilder key = new StringBuilder();
+    for (String name : IDENTITY_PARAMS) {
+      String value = params.get(name);
+      if (value != null) {
+        if (key.length() > 0) {
+          key.append('&');
+        }
+        key.append(name).append('=').append(value.toLowerCase().replaceAll("[^a-z0-9_-]", "_"));
+      }
+    }
+    return key.length() == 0 ? "default" : key.toString();
+  }
+
+  private static String readBody(HttpExchange exchange) throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+      return out.size() == 0 ? null : new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static Map<String, String> parseQuery(String query) throws IOException {
+    Map<String, String> params = new LinkedHashMap<>();
+    if (query == null) {
+      return params;
+    }
+    for (String pair : query.split("&")) {
+      int eq = pair.indexOf('=');
+      if (eq > 0) {
+        params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+      }
+    }
+    return params;
+  }
+
+  /**
+   * A 15 minute rate limit window.
+   */
+  private static final class Window {
+    private final int limit;
+    private int remaining;
+    private volatile long resetAt;
+
+    Window(int limit) {
+      this.limit = limit;
+    }
+
+    synchronized int take() {
+      long now = System.currentTimeMillis();
+      if (now >= resetAt) {
+        resetAt = now + WINDOW_MILLIS;
+        remaining = limit;
+      }
+      return --remaining;
+    }
+  }
+
+}
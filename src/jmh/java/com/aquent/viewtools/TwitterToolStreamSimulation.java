@@ -0,0 +1,101 @@
+package com.aquent.viewtools;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import twitter4j.ResponseList;
+import twitter4j.Status;
+import twitter4j.TwitterFactory;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+/**
+ * Streams the watched users' timelines from the stand-in's canned stream while rendering them, and
+ * reports the messages ingested, the reconnects, the timeline requests made and how long a
+ * streamed status took to show up in a render.
+ *
+ * Settings are name=value arguments, anything not listed here is passed to the stand-in:
+ * <ul>
+ * <li>follow - the user ids to watch, defaults to 15378515,1000001,1000002</li>
+ * <li>duration - seconds to run, defaults to 10</li>
+ * <li>renderInterval - milliseconds between renders of each timeline, defaults to 50</li>
+ * </ul>
+ * The stand-in defaults to a message every 100ms and drops the stream every 25 messages.
+ */
+public final class TwitterToolStreamSimulation {
+
+  private static final long TWITTER_EPOCH = 1288834974657L;
+
+  private TwitterToolStreamSimulation() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> settings = TwitterToolStandIn.parseArgs(args);
+    String follow = settings.getOrDefault("follow", "15378515,1000001,1000002");
+    long duration = Long.parseLong(settings.getOrDefault("duration", "10"));
+    long renderInterval = Long.parseLong(settings.getOrDefault("renderInterval", "50"));
+
+    Map<String, String> standInSettings = new HashMap<>(settings);
+    standInSettings.putIfAbsent("port", "0");
+    standInSettings.putIfAbsent("streamInterval", "100");
+    standInSettings.putIfAbsent("streamDrop", "25");
+    TwitterToolStandIn standIn = new TwitterToolStandIn(standInSettings);
+    standIn.start();
+    TwitterToolMemoryCache.install();
+
+    Configuration conf = new ConfigurationBuilder()
+        .setOAuthConsumerKey("stream").setOAuthConsumerSecret("stream")
+        .setOAuthAccessToken("stream").setOAuthAccessTokenSecret("stream")
+        .setRestBaseURL(standIn.getBaseUrl()).setStreamBaseURL(standIn.getBaseUrl()).build();
+    Map<String, Object> config = new HashMap<>();
+    config.put("twitter4jStreamFollow", follow);
+    config.put("twitter4jStreamBackfillInterval", "1");
+    config.put("twitter4jCacheTtlUserTimeline", "60");
+    TwitterTool tool = new TwitterTool();
+    tool.init(new TwitterToolConfig(config), new TwitterFactory(conf).getInstance());
+
+    System.out.println("Streaming " + follow + " from " + standIn.getBaseUrl() + " for " + duration + "s");
+    TwitterToolStream.INSTANCE.start(new TwitterToolConfig(config), conf, tool);
+
+    String[] ids = follow.split(",");
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+    long renders = 0;
+    long lagTotal = 0;
+    long lagged = 0;
+    long[] newest = new long[ids.length];
+    while (System.nanoTime() < end) {
+      for (int i = 0; i < ids.length; i++) {
+        ResponseList<Status> statuses = tool.getUserTimeline(Long.parseLong(ids[i].trim()), 1, 20);
+        renders++;
+        if (statuses != null && !statuses.isEmpty() && statuses.get(0).getId() > newest[i]) {
+          newest[i] = statuses.get(0).getId();
+          // The stand-in makes its ids from the time a status is streamed
+          long lag = System.currentTimeMillis() - ((newest[i] >> 22) + TWITTER_EPOCH);
+          if (lag >= 0 && lag < TimeUnit.MINUTES.toMillis(1)) {
+            lagTotal += lag;
+            lagged++;
+          }
+        }
+      }
+      Thread.sleep(renderInterval);
+    }
+
+    System.out.printf("stand-in: %d messages streamed over %d connections%n", standIn.getStreamedMessages(),
+        standIn.getStreamConnections());
+    System.out.println("stream: " + tool.getStreamStats());
+    System.out.printf("renders: %d, timeline requests including backfills: %s%n", renders,
+        tool.getStats().get(TwitterToolEndpoint.USER_TIMELINE.getConfigName()).get("upstreamCalls"));
+    System.out.printf("new statuses seen by renders: %d, mean lag %.0f ms%n", lagged,
+        lagTotal / (double) Math.max(1, lagged));
+    for (String id : ids) {
+      TwitterToolTimeline timeline = TwitterToolStream.INSTANCE.getTimeline(Long.parseLong(id.trim()));
+      System.out.println("  " + id.trim() + ": " + (timeline == null ? 0 : timeline.size()) + " statuses");
+    }
+
+    TwitterToolStream.INSTANCE.stop();
+    TwitterToolExecutors.INSTANCE.shutdown();
+    standIn.stop();
+  }
+
+}
@@ -0,0 +1,146 @@
+package com.aquent.viewtools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import twitter4j.Paging;
+import twitter4j.Status;
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+import twitter4j.User;
+
+/**
+ * A Twitter that answers the calls the TwitterTool makes from a canned status, without any network.
+ *
+ * Timelines hold count statuses with descending ids and honour since_id, users are made from the
+ * status author with the requested screen name or id.  Any other call throws
+ * UnsupportedOperationException.
+ */
+public final class TwitterToolStubTwitter implements InvocationHandler {
+
+  private static final long NEWEST_ID = 1050118621198921728L;
+  private static final int DEFAULT_COUNT = 20;
+
+  private final String statusJson;
+  private final String userJson;
+  private final User author;
+  private final List<Status> statuses;
+  private final ConcurrentHashMap<String, User> users = new ConcurrentHashMap<>();
+
+  private TwitterToolStubTwitter(int timelineSize) throws TwitterException {
+    this.statusJson = fixture("status.json");
+    this.userJson = statusJson.substring(statusJson.indexOf("\"user\":") + "\"user\":".length(), statusJson.indexOf(",\"geo\":"));
+    Status status = TwitterObjectFactory.createStatus(statusJson);
+    this.author = status.getUser();
+    List<Status> list = new ArrayList<>(timelineSize);
+    for (int i = 0; i < timelineSize; i++) {
+      list.add(TwitterObjectFactory.createStatus(statusJson.replace(String.valueOf(NEWEST_ID), String.valueOf(NEWEST_ID - i))));
+    }
+    this.statuses = Collections.unmodifiableList(list);
+  }
+
+  /**
+   * Creates a stub Twitter.
+   *
+   * @param timelineSize The number of statuses in every timeline
+   * @return The stub
+   * @throws TwitterException If the fixture cannot be parsed
+   */
+  public static Twitter create(int timelineSize) throws TwitterException {
+    return (Twitter) Proxy.newProxyInstance(Twitter.class.getClassLoader(), new Class<?>[] {Twitter.class},
+        new TwitterToolStubTwitter(timelineSize));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    switch (method.getName()) {
+      case "getUserTimeline":
+      case "getUserListStatuses":
+        return timeline(args != null && args[args.length - 1] instanceof Paging ? (Paging) args[args.length - 1] : null);
+      case "showUser":
+        return user(args[0]);
+      case "lookupUsers":
+        return lookup(args[0]);
+      case "getFollowersList":
+      case "getUserListMembers":
+        return new TwitterToolPagableResponseList<>(Collections.singletonList(author), null, 0, 0);
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "equals":
+        return proxy == args[0];
+      case "toString":
+        return "TwitterToolStubTwitter";
+      default:
+        throw new UnsupportedOperationException(method.getName());
+    }
+  }
+
+  private TwitterToolResponseList<Status> timeline(Paging paging) {
+    int count = paging == null || paging.getCount() <= 0 ? DEFAULT_COUNT : paging.getCount();
+    int page = paging == null || paging.getPage() <= 0 ? 1 : paging.getPage();
+    long sinceId = paging == null ? -1 : paging.getSinceId();
+    List<Status> result = new ArrayList<>(count);
+    for (int i = (page - 1) * count; i < statuses.size() && result.size() < count; i++) {
+      Status status = statuses.get(i);
+      if (sinceId > 0 && status.getId() <= sinceId) {
+        break;
+      }
+      result.add(status);
+    }
+    return new TwitterToolResponseList<>(result, null);
+  }
+
+  private TwitterToolResponseList<User> lookup(Object ids) throws TwitterException {
+    List<User> result = new ArrayList<>();
+    for (int i = 0; i < Array.getLength(ids); i++) {
+      result.add(user(Array.get(ids, i)));
+    }
+    return new TwitterToolResponseList<>(result, null);
+  }
+
+  private User user(Object who) throws TwitterException {
+    String key = who.toString();
+    User user = users.get(key);
+    if (user == null) {
+      String json = userJson;
+      if (who instanceof Long) {
+        json = json.replaceFirst("\"id\":\\d+,\"id_str\":\"\\d+\"", "\"id\":" + who + ",\"id_str\":\"" + who + "\"");
+      } else {
+        json = json.replace("\"screen_name\":\"aquent\"", "\"screen_name\":\"" + who + "\"");
+      }
+      user = TwitterObjectFactory.createUser(json);
+      User existing = users.putIfAbsent(key, user);
+      user = existing == null ? user : existing;
+    }
+    return user;
+  }
+
+  private static String fixture(String name) {
+    try (InputStream in = TwitterToolStubTwitter.class.getResourceAsStream(name)) {
+      if (in == null) {
+        throw new IllegalStateException("Missing fixture " + name);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read fixture " + name, e);
+    }
+  }
+
+}
@@ -0,0 +1,90 @@
+package com.aquent.viewtools;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import twitter4j.Paging;
+import twitter4j.ResponseList;
+import twitter4j.Status;
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+import twitter4j.TwitterFactory;
+import twitter4j.User;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+/**
+ * Per call latency of twitter4j's own transport against the pooled one, calling the stand-in
+ * directly without the tool's caches.  The bytes on the wire and connections opened per call are
+ * printed at the end of each trial.
+ *
+ * The stand-in speaks plain HTTP/1.1, so this measures pooling and gzip but not HTTP/2, which
+ * needs TLS with ALPN against api.twitter.com.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TwitterToolTransportBenchmark {
+
+  private static final int MAX_IDLE_CONNECTIONS = 64;
+  private static final long KEEP_ALIVE_SECONDS = 300;
+
+  @Param({"default", "pooled"})
+  public String transport;
+
+  private TwitterToolStandIn standIn;
+  private Twitter twitter;
+
+  @Setup
+  public void setUp() throws IOException {
+    Map<String, String> settings = new HashMap<>();
+    settings.put("port", "0");
+    settings.put("rateLimit", String.valueOf(Integer.MAX_VALUE));
+    standIn = new TwitterToolStandIn(settings);
+    standIn.start();
+
+    Configuration conf = new ConfigurationBuilder()
+        .setOAuthConsumerKey("benchmark").setOAuthConsumerSecret("benchmark")
+        .setOAuthAccessToken("benchmark").setOAuthAccessTokenSecret("benchmark")
+        .setRestBaseURL(standIn.getBaseUrl()).build();
+    twitter = new TwitterFactory(conf).getInstance();
+    if (transport.equals("pooled")) {
+      TwitterToolHttpTransport.INSTANCE.usePooled(conf.getHttpClientConfiguration(), MAX_IDLE_CONNECTIONS,
+          KEEP_ALIVE_SECONDS, true);
+    } else {
+      TwitterToolHttpTransport.INSTANCE.useDefault();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    int requests = Math.max(1, standIn.getRequests());
+    System.out.printf("%n%s transport: %d requests, %.0f bytes on the wire per call, %d connections opened%n",
+        transport, requests, standIn.getBytesSent() / (double) requests, standIn.getConnections());
+    TwitterToolHttpTransport.INSTANCE.shutdown();
+    standIn.stop();
+  }
+
+  @Benchmark
+  public User showUser() throws TwitterException {
+    return twitter.showUser(TwitterToolBenchmarkSupport.SCREEN_NAME);
+  }
+
+  @Benchmark
+  public ResponseList<Status> getUserTimeline() throws TwitterException {
+    return twitter.getUserTimeline(TwitterToolBenchmarkSupport.SCREEN_NAME, new Paging(1, 20));
+  }
+
+}
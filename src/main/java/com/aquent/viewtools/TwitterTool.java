@@ -1,12 +1,35 @@
 package com.aquent.viewtools;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
 import org.apache.velocity.tools.view.tools.ViewTool;
 
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.business.APILocator;
+import com.dotmarketing.util.ConfigUtils;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
 
+import twitter4j.IDs;
 import twitter4j.PagableResponseList;
 import twitter4j.Paging;
 import twitter4j.ResponseList;
@@ -14,7 +37,9 @@ import twitter4j.Status;
 import twitter4j.Twitter;
 import twitter4j.TwitterException;
 import twitter4j.TwitterFactory;
+import twitter4j.TwitterResponse;
 import twitter4j.User;
+import twitter4j.conf.Configuration;
 import twitter4j.conf.ConfigurationBuilder;
 
 /**
@@ -25,11 +50,54 @@ import twitter4j.conf.ConfigurationBuilder;
  */
 public class TwitterTool implements ViewTool {
 
-  private Twitter twitter;
   private boolean inited = false;
 
-  private static final int DEFAULT_LIMIT = 20;
-  private static final int TWITTER_ERR_CODE = 34;
+  private boolean cacheEnabled = true;
+  private long maxStale;
+  private final Map<TwitterToolEndpoint, Long> ttls = new EnumMap<>(TwitterToolEndpoint.class);
+  private final Set<TwitterToolCacheKey> refreshing = ConcurrentHashMap.newKeySet();
+  private final TwitterToolSingleFlight singleFlight = new TwitterToolSingleFlight();
+  private final Map<String, TwitterToolMergedTimeline> mergedTimelines = Collections.synchronizedMap(newMergedTimelines());
+  private TwitterToolCredentialPool credentials;
+  private TwitterToolUserBatcher userBatcher;
+  private boolean batchShowUser;
+  private int asyncThreads;
+  private long asyncDeadline;
+  private int cursorPageSize;
+  private TwitterToolCluster cluster;
+  private String clusterNode;
+  private long clusterLease;
+  private long clusterWait;
+  private int timelineSize;
+  private boolean compactCache;
+
+  static final int DEFAULT_LIMIT = 20;
+  private static final long DEFAULT_MAX_STALE = 86400;
+  private static final int DEFAULT_RATE_LIMIT_RESERVE = 20;
+  private static final long DEFAULT_BATCH_WINDOW = 5;
+  private static final int DEFAULT_ASYNC_THREADS = 16;
+  private static final long DEFAULT_ASYNC_DEADLINE = 2000;
+  private static final int DEFAULT_TIMELINE_SIZE = TwitterToolTimeline.MAX_COUNT;
+  private static final int DEFAULT_ALIAS_INDEX_SIZE = TwitterToolAliases.DEFAULT_SIZE;
+  private static final int DEFAULT_WARM_CACHE_ENTRIES = 1000;
+  private static final long DEFAULT_WARM_CACHE_WRITE_DELAY = 30;
+  private static final int DEFAULT_CURSOR_PAGE_SIZE = 200;
+  private static final int MAX_FOLLOWER_IDS = 5000;
+  private static final long DEFAULT_CLUSTER_LEASE = 10000;
+  private static final long DEFAULT_CLUSTER_WAIT = 3000;
+  private static final long CLUSTER_POLL_INTERVAL = 50;
+  private static final int DEFAULT_CONNECT_TIMEOUT = 3000;
+  private static final int DEFAULT_READ_TIMEOUT = 5000;
+  private static final int DEFAULT_CIRCUIT_FAILURES = 5;
+  private static final long DEFAULT_CIRCUIT_SLOW_CALL = 5000;
+  private static final long DEFAULT_CIRCUIT_COOLDOWN = 30;
+  private static final int DEFAULT_HTTP_MAX_IDLE = 10;
+  private static final long DEFAULT_HTTP_KEEP_ALIVE = 300;
+  private static final int MAX_MERGED_TIMELINES = 100;
+
+  // Identifies this JVM to the other nodes in a cluster
+  private static final String DEFAULT_APP = "default";
+  private static final String NODE_ID = UUID.randomUUID().toString();
 
   public void init(Object initData) {
     Logger.debug(this, "Twitter Tool Starting Up");
@@ -45,13 +113,95 @@ public class TwitterTool implements ViewTool {
 
     Logger.debug(this, "Default Host = " + defaultHost.getHostname());
 
+    TwitterToolConfig config = new TwitterToolConfig(defaultHost);
+    ConfigurationBuilder cb = newConfigurationBuilder(defaultHost, config);
+
+    Logger.debug(this, "Twitter Configuration: " + cb);
+
+    Twitter twitterInstance;
+    try {
+      Configuration twitterConfig = cb.build();
+      twitterInstance = new TwitterFactory(twitterConfig).getInstance();
+
+      // pooled for a shared keep-alive OkHttp client with gzip and HTTP/2, default for twitter4j's own
+      if ("pooled".equalsIgnoreCase(config.getString("twitter4jHttpTransport", "default"))) {
+        TwitterToolHttpTransport.INSTANCE.usePooled(twitterConfig.getHttpClientConfiguration(),
+            config.getInt("twitter4jHttpMaxIdleConnections", DEFAULT_HTTP_MAX_IDLE),
+            config.getLong("twitter4jHttpKeepAlive", DEFAULT_HTTP_KEEP_ALIVE),
+            config.getBoolean("twitter4jHttp2", true));
+      } else {
+        TwitterToolHttpTransport.INSTANCE.useDefault();
+      }
+    } catch (Exception e) {
+      Logger.error(this, "Error getting twitter instance", e);
+      return;
+    }
+
+    init(config, twitterInstance);
+    addHostCredentials(defaultHost, config);
+    Logger.info(this, "Twitter Tool Started Up");
+  }
+
+  /**
+   * Adds the twitter app of each host that sets credentials of its own to the pool, so calls are
+   * spread across every app's rate limits.  Hosts without them use the default host's app.
+   *
+   * @param defaultHost The default host, already in the pool
+   * @param config The settings on the default host
+   */
+  private void addHostCredentials(Host defaultHost, TwitterToolConfig config) {
+    List<Host> hosts;
+    try {
+      hosts = APILocator.getHostAPI().findAll(APILocator.getUserAPI().getSystemUser(), false);
+    } catch (Exception e) {
+      Logger.error(this, "Unable to list the hosts, using the default host's credentials only", e);
+      return;
+    }
+
+    String defaultCredentials = credentialsOf(defaultHost);
+    for (final Host host : hosts) {
+      String hostCredentials = credentialsOf(host);
+      if (hostCredentials == null || hostCredentials.equals(defaultCredentials)) {
+        continue;
+      }
+      credentials.add(host.getHostname(), hostCredentials,
+          () -> new TwitterFactory(newConfigurationBuilder(host, config).build()).getInstance());
+      Logger.info(this, "Twitter credentials of " + host.getHostname() + " added to the pool");
+    }
+  }
+
+  /**
+   * Identifies the twitter app a host's credentials are for, without its secrets.
+   *
+   * @param host The host
+   * @return The consumer key and access token, or null if the host does not set all four credentials
+   */
+  private static String credentialsOf(Host host) {
+    String ck = host.getStringProperty("twitter4jConsumerKey");
+    String at = host.getStringProperty("twitter4jAccessToken");
+    if (!UtilMethods.isSet(ck) || !UtilMethods.isSet(host.getStringProperty("twitter4jConsumerSecret"))
+        || !UtilMethods.isSet(at) || !UtilMethods.isSet(host.getStringProperty("twitter4jTokenSecret"))) {
+      return null;
+    }
+    return ck + "|" + at;
+  }
+
+  /**
+   * Creates a twitter4j configuration with a host's credentials and the base url and timeouts from
+   * the default host, shared by the tool and the stream.
+   *
+   * @param defaultHost The host whose credentials to use, the default host's for the stream
+   * @param config The settings on the default host
+   * @return The configuration builder
+   */
+  static ConfigurationBuilder newConfigurationBuilder(Host defaultHost, TwitterToolConfig config) {
     boolean debug = defaultHost.getBoolProperty("twitter4jDebug");
     String ck = defaultHost.getStringProperty("twitter4jConsumerKey");
     String cks = defaultHost.getStringProperty("twitter4jConsumerSecret");
     String at = defaultHost.getStringProperty("twitter4jAccessToken");
     String ats = defaultHost.getStringProperty("twitter4jTokenSecret");
 
-    Logger.debug(this, "Twitter Auth - CK=" + ck + ", CKS=" + cks + ", AT=" + at + ", ATS=" + ats);
+    Logger.debug(TwitterTool.class, "Twitter Auth - CK=" + ck + ", CKS=" + cks + ", AT=" + at + ", ATS=" + ats);
 
     ConfigurationBuilder cb = new ConfigurationBuilder();
     cb.setDebugEnabled(debug)
@@ -60,27 +210,267 @@ public class TwitterTool implements ViewTool {
     .setOAuthAccessToken(at)
     .setOAuthAccessTokenSecret(ats);
 
-    Logger.debug(this, "Twitter Configuration: " + cb);
+    // Point the tool at another server speaking the v1.1 api, eg the stand-in used for load testing
+    String restBaseUrl = config.getString("twitter4jRestBaseUrl", null);
+    if (restBaseUrl != null) {
+      cb.setRestBaseURL(restBaseUrl.endsWith("/") ? restBaseUrl : restBaseUrl + "/");
+      Logger.info(TwitterTool.class, "Twitter REST base url set to " + restBaseUrl);
+    }
 
-    try {
-      twitter = new TwitterFactory(cb.build()).getInstance();
-    } catch (Exception e) {
-      Logger.error(this, "Error getting twitter instance", e);
-      return;
+    // Milliseconds to wait for twitter before giving up, endpoints can override these in init(TwitterToolConfig, Twitter)
+    cb.setHttpConnectionTimeout(config.getInt("twitter4jConnectTimeout", DEFAULT_CONNECT_TIMEOUT))
+    .setHttpReadTimeout(config.getInt("twitter4jReadTimeout", DEFAULT_READ_TIMEOUT));
+    return cb;
+  }
+
+  /**
+   * Sets the tool up with the given settings and twitter instance, eg a stub in the benchmarks.
+   *
+   * @param config The TwitterTool settings
+   * @param twitterInstance The twitter instance to call
+   */
+  void init(TwitterToolConfig config, Twitter twitterInstance) {
+    // Result cache settings, ttls are in seconds
+    cacheEnabled = config.getBoolean("twitter4jCacheEnabled", true);
+    maxStale = config.getLong("twitter4jCacheMaxStale", DEFAULT_MAX_STALE) * 1000L;
+    for (TwitterToolEndpoint endpoint : TwitterToolEndpoint.values()) {
+      ttls.put(endpoint, config.getLong("twitter4jCacheTtl" + endpoint.getConfigName(), endpoint.getDefaultTtl()) * 1000L);
+    }
+    Logger.debug(this, "Twitter Result Cache - enabled=" + cacheEnabled + ", maxStale=" + maxStale + ", ttls=" + ttls);
+
+    // Connect and read timeouts in milliseconds for each endpoint, eg twitter4jReadTimeoutFollowersList
+    int connectTimeout = config.getInt("twitter4jConnectTimeout", DEFAULT_CONNECT_TIMEOUT);
+    int readTimeout = config.getInt("twitter4jReadTimeout", DEFAULT_READ_TIMEOUT);
+    for (TwitterToolEndpoint endpoint : TwitterToolEndpoint.values()) {
+      TwitterToolTimeouts.INSTANCE.set(endpoint,
+          config.getInt("twitter4jConnectTimeout" + endpoint.getConfigName(), connectTimeout),
+          config.getInt("twitter4jReadTimeout" + endpoint.getConfigName(), readTimeout));
+    }
+
+    // Stop calling an endpoint after failures in a row, letting a probe through after the cooldown in seconds
+    TwitterToolCircuitBreaker.INSTANCE.configure(
+        config.getInt("twitter4jCircuitFailures", DEFAULT_CIRCUIT_FAILURES),
+        config.getLong("twitter4jCircuitSlowCall", DEFAULT_CIRCUIT_SLOW_CALL),
+        config.getLong("twitter4jCircuitCooldown", DEFAULT_CIRCUIT_COOLDOWN));
+
+    // Seconds to remember a missing, suspended or protected user
+    for (TwitterToolMissReason reason : TwitterToolMissReason.values()) {
+      TwitterToolMissCacheGroupHandler.INSTANCE.setTtl(reason,
+          config.getLong("twitter4jMissTtl" + reason.getConfigName(), reason.getDefaultTtl()));
+    }
+
+    // Percent of each app's rate limit budget kept back for renders, the default host's app comes first
+    credentials = new TwitterToolCredentialPool(config.getInt("twitter4jRateLimitReserve", DEFAULT_RATE_LIMIT_RESERVE));
+    credentials.add(DEFAULT_APP, DEFAULT_APP, () -> twitterInstance);
+
+    // Milliseconds to collect showUser calls into one users/lookup call, 0 to call users/show directly
+    long batchWindow = config.getLong("twitter4jShowUserBatchWindow", DEFAULT_BATCH_WINDOW);
+    batchShowUser = batchWindow > 0;
+    userBatcher = new TwitterToolUserBatcher(batchWindow, credentials,
+        task -> TwitterToolExecutors.INSTANCE.lookup().execute(task));
+
+    // Async methods, the most calls to run at once and the default milliseconds to wait for them
+    asyncThreads = Math.max(1, config.getInt("twitter4jAsyncThreads", DEFAULT_ASYNC_THREADS));
+    asyncDeadline = config.getLong("twitter4jAsyncDeadline", DEFAULT_ASYNC_DEADLINE);
+
+    // Share fetches with the other nodes in a cluster, one node fetches each key and the others read its result
+    cluster = newCluster(config.getString("twitter4jClusterProvider", null));
+    clusterNode = config.getString("twitter4jClusterNodeId", NODE_ID);
+    clusterLease = config.getLong("twitter4jClusterLease", DEFAULT_CLUSTER_LEASE);
+    clusterWait = config.getLong("twitter4jClusterWait", DEFAULT_CLUSTER_WAIT);
+
+    // Users fetched per page when iterating followers and list members
+    cursorPageSize = Math.max(1, config.getInt("twitter4jCursorPageSize", DEFAULT_CURSOR_PAGE_SIZE));
+
+    // The most recent statuses kept per handle and list, pages within this are served from it
+    timelineSize = Math.max(1, config.getInt("twitter4jTimelineSize", DEFAULT_TIMELINE_SIZE));
+
+    // The most screen names to remember the user ids of, so calls by screen name and by id share a key
+    TwitterToolAliases.INSTANCE.setMaxSize(config.getInt("twitter4jAliasIndexSize", DEFAULT_ALIAS_INDEX_SIZE));
+
+    // Cache and return compact copies of statuses and users instead of the full twitter4j objects
+    compactCache = config.getBoolean("twitter4jCompactCache", false);
+
+    // Render each status's text to HTML once when it is fetched, kept with the status
+    TwitterToolEnricher.INSTANCE.setEnabled(config.getBoolean("twitter4jEnrichStatuses", true));
+
+    // Keep the latest timelines and users on disk so a restart does not start cold, the file holds
+    // compact copies so it is only kept when the cache holds them too
+    boolean warmCache = cacheEnabled && config.getBoolean("twitter4jWarmCacheEnabled", false);
+    if (warmCache && !compactCache) {
+      Logger.warn(this, "Twitter Warm Cache needs twitter4jCompactCache on, not keeping the warm cache");
+    } else if (warmCache) {
+      String warmCacheFile = config.getString("twitter4jWarmCacheFile",
+          ConfigUtils.getDynamicContentPath() + File.separator + "twittertool" + File.separator + "warmcache.bin");
+      TwitterToolWarmStore.INSTANCE.configure(new File(warmCacheFile),
+          config.getInt("twitter4jWarmCacheMaxEntries", DEFAULT_WARM_CACHE_ENTRIES),
+          config.getLong("twitter4jWarmCacheWriteDelay", DEFAULT_WARM_CACHE_WRITE_DELAY) * 1000L);
+      TwitterToolWarmStore.INSTANCE.loadInBackground();
+      Logger.debug(this, "Twitter Warm Cache - file=" + warmCacheFile);
     }
 
     inited = true;
-    Logger.info(this, "Twitter Tool Started Up");
+  }
+
+  /**
+   * The form of a handle calls are keyed on, the user id if we have seen the screen name.
+   *
+   * @param handle A screen name (String) or user id (Number)
+   * @return The user id (Long) or the screen name in lower case
+   */
+  private static Object canonical(Object handle) {
+    if (handle instanceof Number) {
+      return Long.valueOf(((Number) handle).longValue());
+    }
+    Long userId = TwitterToolAliases.INSTANCE.getUserId(handle.toString());
+    return userId != null ? userId : TwitterToolAliases.normalize(handle.toString());
+  }
+
+  private static Map<String, TwitterToolMergedTimeline> newMergedTimelines() {
+    return new LinkedHashMap<String, TwitterToolMergedTimeline>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, TwitterToolMergedTimeline> eldest) {
+        return size() > MAX_MERGED_TIMELINES;
+      }
+    };
+  }
+
+  /**
+   * Creates the cluster named by the twitter4jClusterProvider host variable.
+   *
+   * @param provider db for the dotCMS database or the class name of a TwitterToolCluster, empty for none
+   * @return The cluster or null if fetches are not shared
+   */
+  private TwitterToolCluster newCluster(String provider) {
+    if (!UtilMethods.isSet(provider)) {
+      return null;
+    }
+    if (provider.equalsIgnoreCase("db")) {
+      return new TwitterToolDbCluster();
+    }
+    try {
+      return Class.forName(provider).asSubclass(TwitterToolCluster.class).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      Logger.error(this, "Could not create the cluster provider " + provider + ", fetches will not be shared", e);
+      return null;
+    }
+  }
+
+  /**
+   * Shares fetches through a cluster, eg one simulated node of several in one JVM.
+   *
+   * @param newCluster The cluster or null to stop sharing
+   * @param node The id of this node
+   */
+  void setCluster(TwitterToolCluster newCluster, String node) {
+    cluster = newCluster;
+    clusterNode = node;
+  }
+
+  /**
+   * Adds an app to the credential pool, eg one more access token on the stand-in.
+   *
+   * @param name The name the app's stats are shown under
+   * @param twitterInstance The Twitter instance to call with
+   */
+  void addCredentials(String name, Twitter twitterInstance) {
+    credentials.add(name, name, () -> twitterInstance);
   }
 
   /**
    * Returns the twitter object - use with care.
    *
-   * @return  The twitter object
+   * @return  The twitter object for the default host's credentials
    */
   public Twitter getTwitter() {
+    return getTwitter(null);
+  }
+
+  /**
+   * Returns the twitter object for a host - use with care.
+   *
+   * @param hostname  The host name
+   * @return          The twitter object for the host's credentials, or the default host's if it has none
+   */
+  public Twitter getTwitter(String hostname) {
+    if (inited) {
+      return credentials.forHost(hostname).getTwitter();
+    } else {
+      Logger.warn(this, "ViewTool not inited");
+      return null;
+    }
+  }
+
+  /**
+   * Returns how many upstream calls were made and how many concurrent identical calls shared them.
+   *
+   * @return A map of upstreamCalls, coalescedCalls and inFlight
+   */
+  public Map<String, Long> getCoalescingStats() {
+    return singleFlight.getStats();
+  }
+
+  /**
+   * Returns the call counts, hit ratios, latencies and upstream calls and bytes for each endpoint.
+   *
+   * @return A read only map of endpoint config name, eg UserTimeline, to its stats
+   */
+  public Map<String, Map<String, Object>> getStats() {
+    return TwitterToolMetrics.INSTANCE.getStats();
+  }
+
+  /**
+   * Returns the state of each endpoint's circuit: CLOSED, OPEN or HALF_OPEN.
+   *
+   * @return The state keyed by endpoint, eg UserTimeline
+   */
+  public Map<String, String> getCircuits() {
+    return TwitterToolCircuitBreaker.INSTANCE.getStates();
+  }
+
+  /**
+   * Returns whether the stream of watched users is connected and how many messages it has had.
+   *
+   * @return A map of connected, connects, disconnects, statuses, deletes, backfills and watched
+   */
+  public Map<String, Object> getStreamStats() {
+    return TwitterToolStream.INSTANCE.getStats();
+  }
+
+  /**
+   * Returns the pages kept fresh by the prewarmer and how its refreshes have gone.
+   *
+   * @return A map of pages, refreshes, failures and skipped
+   */
+  public Map<String, Object> getPrewarmStats() {
+    return TwitterToolPrewarmer.INSTANCE.getStats();
+  }
+
+  /**
+   * Returns the rate limit budget last reported by twitter for each endpoint, added up across the
+   * apps in the credential pool.
+   *
+   * @return A map of rate limit resource to its limit, remaining calls and soonest reset time in epoch seconds
+   */
+  public Map<String, Map<String, Long>> getRateLimits() {
+    if (inited) {
+      return credentials.getStats();
+    } else {
+      Logger.warn(this, "ViewTool not inited");
+      return null;
+    }
+  }
+
+  /**
+   * Returns the rate limit budgets of each app in the credential pool.
+   *
+   * @return A map of the host that added each app to its rate limits, as getRateLimits
+   */
+  public Map<String, Map<String, Map<String, Long>>> getCredentialStats() {
     if (inited) {
-      return twitter;
+      return credentials.getClientStats();
     } else {
       Logger.warn(this, "ViewTool not inited");
       return null;
@@ -98,35 +488,22 @@ public class TwitterTool implements ViewTool {
    * @return A list of the last count tweets for the the screen name, or null if something went wrong
    */
   public ResponseList<Status> getUserTimeline(String screenName, int page, int count) {
-    if (inited) {
-      if (!UtilMethods.isSet(page)) {
-        page = 1;
-      }
-      if (!UtilMethods.isSet(count)) {
-        count = DEFAULT_LIMIT;
-      }
-
-      // See if this username is a miss
-      boolean isMiss = TwitterToolMissCacheGroupHandler.INSTANCE.get(screenName);
-      if (isMiss) {
-        Logger.debug(this, "Miss Cached with handle: " + screenName);
-        return null;
-      }
-
-      try {
-        return twitter.getUserTimeline(screenName, new Paging(page, count));
-      } catch (TwitterException e) {
-        Logger.error(this, "Error Fetching timeline for handle: " + screenName + " errorCode: " + e.getErrorCode(), e);
-        if (e.getErrorCode() == TWITTER_ERR_CODE) {
-          Logger.debug(this, "Adding " + screenName + " to the miss cache");
-          TwitterToolMissCacheGroupHandler.INSTANCE.put(screenName, true);
-        }
-        return null;
-      }
-    } else {
-      Logger.warn(this, "ViewTool not inited");
-      return null;
+    Long userId = TwitterToolAliases.INSTANCE.getUserId(screenName);
+    if (userId != null) {
+      return getUserTimeline(userId.longValue(), page, count);
+    }
+    if (!UtilMethods.isSet(page)) {
+      page = 1;
     }
+    if (!UtilMethods.isSet(count)) {
+      count = DEFAULT_LIMIT;
+    }
+    ResponseList<Status> streamed = streamed(TwitterToolStream.INSTANCE.getTimeline(screenName), page, count);
+    if (streamed != null) {
+      return streamed;
+    }
+    return timeline(TwitterToolCacheKey.of(TwitterToolEndpoint.USER_TIMELINE, screenName, null, 0, 0), page, count,
+        (t, paging) -> t.getUserTimeline(screenName, paging));
   }
 
   /**
@@ -140,35 +517,76 @@ public class TwitterTool implements ViewTool {
    * @return A list of the last count tweets for the the user id, or null if something went wrong
    */
   public ResponseList<Status> getUserTimeline(long userId, int page, int count) {
-    if (inited) {
-      if (!UtilMethods.isSet(page)) {
-        page = 1;
-      }
-      if (!UtilMethods.isSet(count)) {
-        count = DEFAULT_LIMIT;
-      }
-
-      // See if this username is a miss
-      boolean isMiss = TwitterToolMissCacheGroupHandler.INSTANCE.get(String.valueOf(userId));
-      if (isMiss) {
-        Logger.debug(this, "Miss Cached with userId: " + userId);
-        return null;
-      }
+    if (!UtilMethods.isSet(page)) {
+      page = 1;
+    }
+    if (!UtilMethods.isSet(count)) {
+      count = DEFAULT_LIMIT;
+    }
+    ResponseList<Status> streamed = streamed(TwitterToolStream.INSTANCE.getTimeline(userId), page, count);
+    if (streamed != null) {
+      return streamed;
+    }
+    return timeline(TwitterToolCacheKey.of(TwitterToolEndpoint.USER_TIMELINE, userId, null, 0, 0), page, count,
+        (t, paging) -> t.getUserTimeline(userId, paging));
+  }
 
-      try {
-        return twitter.getUserTimeline(userId, new Paging(page, count));
-      } catch (TwitterException e) {
-        Logger.error(this, "Error Fetching timeline for userId: " + userId + " errorCode: " + e.getErrorCode(), e);
-        if (e.getErrorCode() == TWITTER_ERR_CODE) {
-          Logger.debug(this, "Adding " + userId + " to the miss cache");
-          TwitterToolMissCacheGroupHandler.INSTANCE.put(String.valueOf(userId), true);
-        }
-        return null;
-      }
-    } else {
+  /**
+   * Fetches the last count tweets of several handles interleaved into one timeline, newest first,
+   * eg for a news wall.
+   *
+   * The handles' timelines are fetched in parallel, waiting up to the async deadline, and merged
+   * by status id.  A tweet that more than one handle posted or retweeted is shown once.  The merged
+   * timeline is kept, so when a handle tweets again only its new tweets are merged in.  A handle
+   * whose timeline could not be fetched in time keeps the tweets it had last time.
+   *
+   * See {@link #getUserTimeline(String, int, int)}
+   *
+   * @param handles The screen names (Strings) and user ids (Numbers) to merge
+   * @param count The number of tweets to return, if empty 20
+   * @return The newest count tweets of all the handles, or null if something went wrong
+   */
+  @SuppressWarnings("unchecked")
+  public List<Status> getMergedTimeline(Collection<?> handles, int count) {
+    if (!inited) {
       Logger.warn(this, "ViewTool not inited");
       return null;
     }
+    if (handles == null) {
+      return null;
+    }
+    if (!UtilMethods.isSet(count)) {
+      count = DEFAULT_LIMIT;
+    }
+    final int limit = Math.min(count, TwitterToolTimeline.MAX_COUNT);
+
+    // Each handle once, or its tweets would be merged twice, by id if we have seen its screen name
+    Set<Object> users = new LinkedHashSet<>();
+    for (Object o : handles) {
+      if (o != null) {
+        users.add(canonical(o));
+      }
+    }
+    List<Future<ResponseList<Status>>> futures = new ArrayList<>(users.size());
+    for (Object user : users) {
+      futures.add(user instanceof Long ? getUserTimelineAsync((Long) user, 1, limit)
+          : getUserTimelineAsync((String) user, 1, limit));
+    }
+    final List<List<Status>> timelines = new ArrayList<>(users.size());
+    boolean fetched = false;
+    for (Object result : fetchAll(futures, asyncDeadline)) {
+      timelines.add((List<Status>) result);
+      fetched |= result != null;
+    }
+    final boolean anyFetched = fetched;
+
+    TwitterToolMergedTimeline merged = mergedTimelines.compute(limit + "|" + users, (key, previous) -> {
+      if (previous == null) {
+        return anyFetched ? TwitterToolMergedTimeline.merge(timelines, limit) : null;
+      }
+      return previous.update(timelines, limit);
+    });
+    return merged == null ? null : merged.getStatuses();
   }
 
   /**
@@ -180,28 +598,12 @@ public class TwitterTool implements ViewTool {
    * @return              A Twitter4J User object for the screen name or null if something went wrong
    */
   public User showUser(String screenName) {
-    if (inited) {
-      // See if this username is a miss
-      boolean isMiss = TwitterToolMissCacheGroupHandler.INSTANCE.get(screenName);
-      if (isMiss) {
-        Logger.debug(this, "Miss Cached with handle: " + screenName);
-        return null;
-      }
-
-      try {
-        return twitter.showUser(screenName);
-      } catch (TwitterException e) {
-        Logger.error(this, "Error Fetching user for handle: " + screenName + " errorCode: " + e.getErrorCode(), e);
-        if (e.getErrorCode() == TWITTER_ERR_CODE) {
-          Logger.debug(this, "Adding " + screenName + " to the miss cache");
-          TwitterToolMissCacheGroupHandler.INSTANCE.put(screenName, true);
-        }
-        return null;
-      }
-    } else {
-      Logger.warn(this, "ViewTool not inited");
-      return null;
+    Long userId = TwitterToolAliases.INSTANCE.getUserId(screenName);
+    if (userId != null) {
+      return showUser(userId.longValue());
     }
+    TwitterToolCall<User> call = batchShowUser ? t -> userBatcher.showUser(screenName) : t -> t.showUser(screenName);
+    return fetch(TwitterToolCacheKey.of(TwitterToolEndpoint.SHOW_USER, screenName, null, 0, 0), call);
   }
 
   /**
@@ -213,28 +615,114 @@ public class TwitterTool implements ViewTool {
    * @return              A Twitter4J User object for the screen name or null if something went wrong
    */
   public User showUser(long userId) {
-    if (inited) {
-      // See if this username is a miss
-      boolean isMiss = TwitterToolMissCacheGroupHandler.INSTANCE.get(String.valueOf(userId));
-      if (isMiss) {
-        Logger.debug(this, "Miss Cached with userId: " + userId);
-        return null;
+    TwitterToolCall<User> call = batchShowUser ? t -> userBatcher.showUser(userId) : t -> t.showUser(userId);
+    return fetch(TwitterToolCacheKey.of(TwitterToolEndpoint.SHOW_USER, userId, null, 0, 0), call);
+  }
+
+  /**
+   * Returns Twitter4J User objects for a collection of screen names and user ids.
+   *
+   * Users that are already cached come from cache, the rest are fetched 100 at a time.
+   *
+   * See {@link twitter4j.Twitter.lookupUsers}
+   *
+   * @param users         The screen names (Strings) and user ids (Numbers) to look for
+   * @return              A list of the users found in the order they were asked for, or null if something went wrong
+   */
+  public List<User> showUsers(Collection<?> users) {
+    if (!inited) {
+      Logger.warn(this, "ViewTool not inited");
+      return null;
+    }
+    if (users == null) {
+      return null;
+    }
+
+    long start = System.nanoTime();
+    TwitterToolOutcome outcome = TwitterToolOutcome.HIT;
+    boolean lookupAllowed = TwitterToolCircuitBreaker.INSTANCE.isAllowed(TwitterToolEndpoint.LOOKUP_USERS);
+    Map<Object, User> resolved = new LinkedHashMap<>();
+    Map<Object, TwitterToolCacheKey> keys = new LinkedHashMap<>();
+    List<Long> userIds = new ArrayList<>();
+    List<String> screenNames = new ArrayList<>();
+    for (Object o : users) {
+      if (o == null) {
+        continue;
       }
+      Object user = canonical(o);
+      if (resolved.containsKey(user)) {
+        continue;
+      }
+
+      TwitterToolCacheKey key = user instanceof Long
+          ? TwitterToolCacheKey.of(TwitterToolEndpoint.SHOW_USER, (Long) user, null, 0, 0)
+          : TwitterToolCacheKey.of(TwitterToolEndpoint.SHOW_USER, (String) user, null, 0, 0);
+      resolved.put(user, null);
+
+      // See if this user is a miss
+      if (isMiss(key)) {
+        Logger.debug(this, "Miss Cached with " + describe(key));
+        continue;
+      }
+
+      if (cacheEnabled) {
+        TwitterToolCacheEntry entry = TwitterToolResultCacheGroupHandler.INSTANCE.get(key);
+        // Serve the last good user, however old, while the lookup circuit is open
+        if (entry != null && (!lookupAllowed || entry.getAge(System.currentTimeMillis()) < ttls.get(key.getEndpoint()))) {
+          resolved.put(user, (User) entry.getValue());
+          continue;
+        }
+      }
+
+      keys.put(user, key);
+      if (user instanceof Long) {
+        userIds.add((Long) user);
+      } else {
+        screenNames.add((String) user);
+      }
+    }
 
+    if (!keys.isEmpty() && !lookupAllowed) {
+      Logger.debug(this, "Circuit for " + TwitterToolEndpoint.LOOKUP_USERS.getResource() + " is open, not looking up "
+          + keys.size() + " users");
+      outcome = TwitterToolOutcome.ERROR;
+    } else if (!keys.isEmpty()) {
+      outcome = TwitterToolOutcome.FETCHED;
       try {
-        return twitter.showUser(userId);
-      } catch (TwitterException e) {
-        Logger.error(this, "Error Fetching user for userId: " + userId + " errorCode: " + e.getErrorCode(), e);
-        if (e.getErrorCode() == TWITTER_ERR_CODE) {
-          Logger.debug(this, "Adding " + userId + " to the miss cache");
-          TwitterToolMissCacheGroupHandler.INSTANCE.put(String.valueOf(userId), true);
+        Map<String, User> found = userBatcher.lookup(userIds, screenNames, TwitterToolPriority.INTERACTIVE);
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Object, TwitterToolCacheKey> e : keys.entrySet()) {
+          User user = found.get(TwitterToolUserBatcher.keyOf(e.getKey()));
+          if (user != null && compactCache) {
+            user = TwitterToolCompactor.INSTANCE.compact(user);
+          }
+          if (user != null) {
+            resolved.put(e.getKey(), user);
+            if (cacheEnabled) {
+              TwitterToolCacheEntry entry = new TwitterToolCacheEntry(user, now);
+              TwitterToolResultCacheGroupHandler.INSTANCE.put(e.getValue(), entry);
+              TwitterToolWarmStore.INSTANCE.record(e.getValue(), entry);
+              if (!e.getValue().isById()) {
+                TwitterToolResultCacheGroupHandler.INSTANCE.put(e.getValue().withUserId(user.getId()), entry);
+              }
+            }
+          }
         }
-        return null;
+      } catch (TwitterException e) {
+        outcome = TwitterToolOutcome.ERROR;
+        Logger.error(this, "Error Fetching users for userIds: " + userIds + " handles: " + screenNames
+            + " errorCode: " + e.getErrorCode(), e);
       }
-    } else {
-      Logger.warn(this, "ViewTool not inited");
-      return null;
     }
+
+    List<User> result = new ArrayList<>();
+    for (User user : resolved.values()) {
+      if (user != null) {
+        result.add(user);
+      }
+    }
+    TwitterToolMetrics.INSTANCE.record(TwitterToolEndpoint.LOOKUP_USERS, outcome, start);
+    return result;
   }
 
   /**
@@ -246,28 +734,12 @@ public class TwitterTool implements ViewTool {
    * @return             A list of up to 20 of the user's followers
    */
   public PagableResponseList<User> getFollowersList(String screenName) {
-    if (inited) {
-      // See if this username is a miss
-      boolean isMiss = TwitterToolMissCacheGroupHandler.INSTANCE.get(screenName);
-      if (isMiss) {
-        Logger.debug(this, "Miss Cached with handle: " + screenName);
-        return null;
-      }
-
-      try {
-        return twitter.getFollowersList(screenName, -1);
-      } catch (TwitterException e) {
-        Logger.error(this, "Error Fetching followers for handle: " + screenName + " errorCode: " + e.getErrorCode(), e);
-        if (e.getErrorCode() == TWITTER_ERR_CODE) {
-          Logger.debug(this, "Adding " + screenName + " to the miss cache");
-          TwitterToolMissCacheGroupHandler.INSTANCE.put(screenName, true);
-        }
-        return null;
-      }
-    } else {
-      Logger.warn(this, "ViewTool not inited");
-      return null;
+    Long userId = TwitterToolAliases.INSTANCE.getUserId(screenName);
+    if (userId != null) {
+      return getFollowersList(userId.longValue());
     }
+    return fetch(TwitterToolCacheKey.of(TwitterToolEndpoint.FOLLOWERS_LIST, screenName, null, 0, 0),
+        t -> t.getFollowersList(screenName, -1));
   }
 
   /**
@@ -279,28 +751,74 @@ public class TwitterTool implements ViewTool {
    * @return          A List of up to 20 of the user followers
    */
   public PagableResponseList<User> getFollowersList(long userId) {
-    if (inited) {
-      // See if this username is a miss
-      boolean isMiss = TwitterToolMissCacheGroupHandler.INSTANCE.get(String.valueOf(userId));
-      if (isMiss) {
-        Logger.debug(this, "Miss Cached with userId: " + userId);
-        return null;
-      }
+    return fetch(TwitterToolCacheKey.of(TwitterToolEndpoint.FOLLOWERS_LIST, userId, null, 0, 0),
+        t -> t.getFollowersList(userId, -1));
+  }
 
-      try {
-        return twitter.getFollowersList(userId, -1);
-      } catch (TwitterException e) {
-        Logger.error(this, "Error Fetching followers for userId: " + userId + " errorCode: " + e.getErrorCode(), e);
-        if (e.getErrorCode() == TWITTER_ERR_CODE) {
-          Logger.debug(this, "Adding " + userId + " to the miss cache");
-          TwitterToolMissCacheGroupHandler.INSTANCE.put(String.valueOf(userId), true);
-        }
-        return null;
-      }
-    } else {
-      Logger.warn(this, "ViewTool not inited");
-      return null;
+  /**
+   * Gets a page of a user's followers, looked up from their cached follower ids.
+   *
+   * Follower ids are fetched 5000 per call and cached, and only the followers on the page are
+   * looked up, 100 per call, so this costs far less of the rate limit than getFollowersList.
+   *
+   * @param screenName The screen name to get the followers of
+   * @param page The page to pull
+   * @param count The number of followers per page
+   * @return The followers on the page, in the order twitter returns their ids
+   */
+  public List<User> getFollowers(String screenName, int page, int count) {
+    Long userId = TwitterToolAliases.INSTANCE.getUserId(screenName);
+    if (userId != null) {
+      return getFollowers(userId.longValue(), page, count);
     }
+    return followers(TwitterToolCacheKey.of(TwitterToolEndpoint.FOLLOWERS_IDS, screenName, null, 0, MAX_FOLLOWER_IDS),
+        page, count, cursor -> t -> t.getFollowersIDs(screenName, cursor, MAX_FOLLOWER_IDS));
+  }
+
+  /**
+   * Gets a page of a user's followers, looked up from their cached follower ids.
+   *
+   * Follower ids are fetched 5000 per call and cached, and only the followers on the page are
+   * looked up, 100 per call, so this costs far less of the rate limit than getFollowersList.
+   *
+   * @param userId The userid to get the followers of
+   * @param page The page to pull
+   * @param count The number of followers per page
+   * @return The followers on the page, in the order twitter returns their ids
+   */
+  public List<User> getFollowers(long userId, int page, int count) {
+    return followers(TwitterToolCacheKey.of(TwitterToolEndpoint.FOLLOWERS_IDS, userId, null, 0, MAX_FOLLOWER_IDS),
+        page, count, cursor -> t -> t.getFollowersIDs(userId, cursor, MAX_FOLLOWER_IDS));
+  }
+
+  /**
+   * Gets the ids of up to 5000 of a user's followers.
+   *
+   * See {@link twitter4j.Twitter.getFollowersIDs}
+   *
+   * @param screenName The screen name to get the follower ids of
+   * @return The follower ids, most recent first
+   */
+  public IDs getFollowersIDs(String screenName) {
+    Long userId = TwitterToolAliases.INSTANCE.getUserId(screenName);
+    if (userId != null) {
+      return getFollowersIDs(userId.longValue());
+    }
+    return fetch(TwitterToolCacheKey.of(TwitterToolEndpoint.FOLLOWERS_IDS, screenName, null, 0, MAX_FOLLOWER_IDS),
+        t -> t.getFollowersIDs(screenName, -1, MAX_FOLLOWER_IDS));
+  }
+
+  /**
+   * Gets the ids of up to 5000 of a user's followers.
+   *
+   * See {@link twitter4j.Twitter.getFollowersIDs}
+   *
+   * @param userId The userid to get the follower ids of
+   * @return The follower ids, most recent first
+   */
+  public IDs getFollowersIDs(long userId) {
+    return fetch(TwitterToolCacheKey.of(TwitterToolEndpoint.FOLLOWERS_IDS, userId, null, 0, MAX_FOLLOWER_IDS),
+        t -> t.getFollowersIDs(userId, -1, MAX_FOLLOWER_IDS));
   }
 
   /**
@@ -313,28 +831,12 @@ public class TwitterTool implements ViewTool {
    * @return  A list of up to 20 of the list's members
    */
   public PagableResponseList<User> getUserListMembers(String ownerScreenName, String slug) {
-    if (inited) {
-      // See if this username is a miss
-      boolean isMiss = TwitterToolMissCacheGroupHandler.INSTANCE.get(ownerScreenName);
-      if (isMiss) {
-        Logger.debug(this, "Miss Cached with handle: " + ownerScreenName);
-        return null;
-      }
-
-      try {
-        return twitter.getUserListMembers(ownerScreenName, slug, -1);
-      } catch (TwitterException e) {
-        Logger.error(this, "Error Fetching userlist members for handle: " + ownerScreenName + " errorCode: " + e.getErrorCode(), e);
-        if (e.getErrorCode() == TWITTER_ERR_CODE) {
-          Logger.debug(this, "Adding " + ownerScreenName + " to the miss cache");
-          TwitterToolMissCacheGroupHandler.INSTANCE.put(ownerScreenName, true);
-        }
-        return null;
-      }
-    } else {
-      Logger.warn(this, "ViewTool not inited");
-      return null;
+    Long userId = TwitterToolAliases.INSTANCE.getUserId(ownerScreenName);
+    if (userId != null) {
+      return getUserListMembers(userId.longValue(), slug);
     }
+    return fetch(TwitterToolCacheKey.of(TwitterToolEndpoint.LIST_MEMBERS, ownerScreenName, slug, 0, 0),
+        t -> t.getUserListMembers(ownerScreenName, slug, -1));
   }
 
   /**
@@ -347,28 +849,136 @@ public class TwitterTool implements ViewTool {
    * @return A list of up to 20 of the list's members
    */
   public PagableResponseList<User> getUserListMembers(long ownerId, String slug) {
-    if (inited) {
-      // See if this username is a miss
-      boolean isMiss = TwitterToolMissCacheGroupHandler.INSTANCE.get(String.valueOf(ownerId));
-      if (isMiss) {
-        Logger.debug(this, "Miss Cached with userId: " + ownerId);
-        return null;
-      }
+    return fetch(TwitterToolCacheKey.of(TwitterToolEndpoint.LIST_MEMBERS, ownerId, slug, 0, 0),
+        t -> t.getUserListMembers(ownerId, slug, -1));
+  }
 
-      try {
-        return twitter.getUserListMembers(ownerId, slug, -1);
-      } catch (TwitterException e) {
-        Logger.error(this, "Error Fetching userlist members for userId: " + ownerId + " errorCode: " + e.getErrorCode(), e);
-        if (e.getErrorCode() == TWITTER_ERR_CODE) {
-          Logger.debug(this, "Adding " + ownerId + " to the miss cache");
-          TwitterToolMissCacheGroupHandler.INSTANCE.put(String.valueOf(ownerId), true);
-        }
-        return null;
-      }
-    } else {
-      Logger.warn(this, "ViewTool not inited");
-      return null;
+  /**
+   * Iterates over a user's followers, fetching pages as they are reached.
+   *
+   * See {@link twitter4j.Twitter.getFollowersList}
+   *
+   * @param screenName The screen name to get the followers of
+   * @param limit The most followers to return
+   * @return A lazy iterable of the user's followers
+   */
+  public TwitterToolCursor iterateFollowers(String screenName, int limit) {
+    return iterateFollowers(screenName, limit, 0);
+  }
+
+  /**
+   * Iterates over a user's followers, fetching pages as they are reached.
+   *
+   * See {@link twitter4j.Twitter.getFollowersList}
+   *
+   * @param screenName The screen name to get the followers of
+   * @param limit The most followers to return
+   * @param deadline The most milliseconds to spend fetching pages, 0 for no deadline
+   * @return A lazy iterable of the user's followers
+   */
+  public TwitterToolCursor iterateFollowers(String screenName, int limit, long deadline) {
+    Long userId = TwitterToolAliases.INSTANCE.getUserId(screenName);
+    if (userId != null) {
+      return iterateFollowers(userId.longValue(), limit, deadline);
     }
+    final int count = cursorCount(limit);
+    return cursor(TwitterToolCacheKey.of(TwitterToolEndpoint.FOLLOWERS_LIST, screenName, null, 0, count), limit, deadline,
+        cursor -> t -> t.getFollowersList(screenName, cursor, count));
+  }
+
+  /**
+   * Iterates over a user's followers, fetching pages as they are reached.
+   *
+   * See {@link twitter4j.Twitter.getFollowersList}
+   *
+   * @param userId The userid to get the followers of
+   * @param limit The most followers to return
+   * @return A lazy iterable of the user's followers
+   */
+  public TwitterToolCursor iterateFollowers(long userId, int limit) {
+    return iterateFollowers(userId, limit, 0);
+  }
+
+  /**
+   * Iterates over a user's followers, fetching pages as they are reached.
+   *
+   * See {@link twitter4j.Twitter.getFollowersList}
+   *
+   * @param userId The userid to get the followers of
+   * @param limit The most followers to return
+   * @param deadline The most milliseconds to spend fetching pages, 0 for no deadline
+   * @return A lazy iterable of the user's followers
+   */
+  public TwitterToolCursor iterateFollowers(long userId, int limit, long deadline) {
+    final int count = cursorCount(limit);
+    return cursor(TwitterToolCacheKey.of(TwitterToolEndpoint.FOLLOWERS_LIST, userId, null, 0, count), limit, deadline,
+        cursor -> t -> t.getFollowersList(userId, cursor, count));
+  }
+
+  /**
+   * Iterates over the members of a user's list, fetching pages as they are reached.
+   *
+   * See {@link twitter4j.Twitter.getUserListMembers}
+   *
+   * @param ownerScreenName The list owner's screen name
+   * @param slug The list's slug
+   * @param limit The most members to return
+   * @return A lazy iterable of the list's members
+   */
+  public TwitterToolCursor iterateUserListMembers(String ownerScreenName, String slug, int limit) {
+    return iterateUserListMembers(ownerScreenName, slug, limit, 0);
+  }
+
+  /**
+   * Iterates over the members of a user's list, fetching pages as they are reached.
+   *
+   * See {@link twitter4j.Twitter.getUserListMembers}
+   *
+   * @param ownerScreenName The list owner's screen name
+   * @param slug The list's slug
+   * @param limit The most members to return
+   * @param deadline The most milliseconds to spend fetching pages, 0 for no deadline
+   * @return A lazy iterable of the list's members
+   */
+  public TwitterToolCursor iterateUserListMembers(String ownerScreenName, String slug, int limit, long deadline) {
+    Long userId = TwitterToolAliases.INSTANCE.getUserId(ownerScreenName);
+    if (userId != null) {
+      return iterateUserListMembers(userId.longValue(), slug, limit, deadline);
+    }
+    final int count = cursorCount(limit);
+    return cursor(TwitterToolCacheKey.of(TwitterToolEndpoint.LIST_MEMBERS, ownerScreenName, slug, 0, count), limit,
+        deadline, cursor -> t -> t.getUserListMembers(ownerScreenName, slug, count, cursor));
+  }
+
+  /**
+   * Iterates over the members of a user's list, fetching pages as they are reached.
+   *
+   * See {@link twitter4j.Twitter.getUserListMembers}
+   *
+   * @param ownerId The list owner's id
+   * @param slug The list's slug
+   * @param limit The most members to return
+   * @return A lazy iterable of the list's members
+   */
+  public TwitterToolCursor iterateUserListMembers(long ownerId, String slug, int limit) {
+    return iterateUserListMembers(ownerId, slug, limit, 0);
+  }
+
+  /**
+   * Iterates over the members of a user's list, fetching pages as they are reached.
+   *
+   * See {@link twitter4j.Twitter.getUserListMembers}
+   *
+   * @param ownerId The list owner's id
+   * @param slug The list's slug
+   * @param limit The most members to return
+   * @param deadline The most milliseconds to spend fetching pages, 0 for no deadline
+   * @return A lazy iterable of the list's members
+   */
+  public TwitterToolCursor iterateUserListMembers(long ownerId, String slug, int limit, long deadline) {
+    final int count = cursorCount(limit);
+    return cursor(TwitterToolCacheKey.of(TwitterToolEndpoint.LIST_MEMBERS, ownerId, slug, 0, count), limit, deadline,
+        cursor -> t -> t.getUserListMembers(ownerId, slug, count, cursor));
   }
 
   /**
@@ -383,35 +993,18 @@ public class TwitterTool implements ViewTool {
    * @return                   A list of the last count statuses for the user's list
    */
   public ResponseList<Status> getUserListStatuses(String ownerScreenName, String slug, int page, int count) {
-    if (inited) {
-      if (!UtilMethods.isSet(page)) {
-        page = 1;
-      }
-      if (!UtilMethods.isSet(count)) {
-        count = DEFAULT_LIMIT;
-      }
-
-      // See if this username is a miss
-      boolean isMiss = TwitterToolMissCacheGroupHandler.INSTANCE.get(ownerScreenName);
-      if (isMiss) {
-        Logger.debug(this, "Miss Cached with handle: " + ownerScreenName);
-        return null;
-      }
-
-      try {
-        return twitter.getUserListStatuses(ownerScreenName, slug, new Paging(page, count));
-      } catch (TwitterException e) {
-        Logger.error(this, "Error Fetching tweets for handle: " + ownerScreenName + " errorCode: " + e.getErrorCode(), e);
-        if (e.getErrorCode() == TWITTER_ERR_CODE) {
-          Logger.debug(this, "Adding " + ownerScreenName + " to the miss cache");
-          TwitterToolMissCacheGroupHandler.INSTANCE.put(ownerScreenName, true);
-        }
-        return null;
-      }
-    } else {
-      Logger.warn(this, "ViewTool not inited");
-      return null;
+    Long userId = TwitterToolAliases.INSTANCE.getUserId(ownerScreenName);
+    if (userId != null) {
+      return getUserListStatuses(userId.longValue(), slug, page, count);
+    }
+    if (!UtilMethods.isSet(page)) {
+      page = 1;
     }
+    if (!UtilMethods.isSet(count)) {
+      count = DEFAULT_LIMIT;
+    }
+    return timeline(TwitterToolCacheKey.of(TwitterToolEndpoint.LIST_STATUSES, ownerScreenName, slug, 0, 0), page, count,
+        (t, paging) -> t.getUserListStatuses(ownerScreenName, slug, paging));
   }
 
   /**
@@ -426,35 +1019,841 @@ public class TwitterTool implements ViewTool {
    * @return           A list of the last count statuses for the user's list
    */
   public ResponseList<Status> getUserListStatuses(long ownerId, String slug, int page, int count) {
-    if (inited) {
-      if (!UtilMethods.isSet(page)) {
-        page = 1;
+    if (!UtilMethods.isSet(page)) {
+      page = 1;
+    }
+    if (!UtilMethods.isSet(count)) {
+      count = DEFAULT_LIMIT;
+    }
+    return timeline(TwitterToolCacheKey.of(TwitterToolEndpoint.LIST_STATUSES, ownerId, slug, 0, 0), page, count,
+        (t, paging) -> t.getUserListStatuses(ownerId, slug, paging));
+  }
+
+  /**
+   * Fetches the first page of a user timeline or list into the cache ahead of the renders that ask
+   * for it, whether or not the cached copy has expired yet.  Called by the prewarmer, so it counts
+   * as background work against the rate limit.
+   *
+   * @param handle The user, or the list and its owner
+   * @param page The page renders ask for
+   * @param count The number of statuses per page renders ask for
+   * @return true if the page was fetched, or is kept up to date by the stream
+   */
+  boolean prewarm(TwitterToolHandle handle, int page, int count) {
+    if (!inited) {
+      Logger.warn(this, "ViewTool not inited");
+      return false;
+    }
+    boolean byId = handle.isById();
+    Long aliasId = byId ? null : TwitterToolAliases.INSTANCE.getUserId(handle.getScreenName());
+    if (aliasId != null) {
+      return prewarm(handle.withUserId(aliasId), page, count);
+    }
+    final String user = handle.getScreenName();
+    final String slug = handle.getSlug();
+    final long userId = handle.getUserId();
+    if (byId && slug == null && TwitterToolStream.INSTANCE.getTimeline(userId) != null) {
+      return true;
+    }
+
+    TwitterToolEndpoint endpoint = slug == null ? TwitterToolEndpoint.USER_TIMELINE : TwitterToolEndpoint.LIST_STATUSES;
+    final TwitterToolCacheKey timelineKey = byId ? TwitterToolCacheKey.of(endpoint, userId, slug, 0, 0)
+        : TwitterToolCacheKey.of(endpoint, user, slug, 0, 0);
+    TwitterToolTimeline.Fetcher fetcher;
+    if (slug == null) {
+      fetcher = byId ? (t, paging) -> t.getUserTimeline(userId, paging) : (t, paging) -> t.getUserTimeline(user, paging);
+    } else {
+      fetcher = byId ? (t, paging) -> t.getUserListStatuses(userId, slug, paging)
+          : (t, paging) -> t.getUserListStatuses(user, slug, paging);
+    }
+    if (isMiss(timelineKey)) {
+      return false;
+    }
+
+    // Pages past the kept timeline are cached on their own, the same as timeline() does
+    final int needed = page * count;
+    final TwitterToolCacheKey key = needed > timelineSize ? timelineKey.withPage(page, count) : timelineKey;
+    final Paging paging = new Paging(page, count);
+    TwitterToolCall<?> call = needed > timelineSize ? t -> fetcher.fetch(t, paging)
+        : t -> TwitterToolTimeline.sync(cachedTimeline(timelineKey), fetcher, t, needed, timelineSize);
+    if (!refreshing.add(key)) {
+      return false;
+    }
+    try {
+      return load(key, call, TwitterToolPriority.BACKGROUND) != null;
+    } finally {
+      refreshing.remove(key);
+    }
+  }
+
+  /**
+   * Brings a user's cached timeline up to date for the stream's backfill, without serving it from
+   * the stream.  A background call like the prewarmer's, so it goes through the credential pool,
+   * rate limiter, circuit breaker and miss cache the same as a render.
+   *
+   * @param userId The user id
+   * @return The synced timeline or null if it could not be fetched
+   */
+  TwitterToolTimeline syncTimeline(final long userId) {
+    if (!inited) {
+      Logger.warn(this, "ViewTool not inited");
+      return null;
+    }
+    final TwitterToolCacheKey key = TwitterToolCacheKey.of(TwitterToolEndpoint.USER_TIMELINE, userId, null, 0, 0);
+    if (isMiss(key)) {
+      return null;
+    }
+    TwitterToolTimeline.Fetcher fetcher = (t, paging) -> t.getUserTimeline(userId, paging);
+    return load(key, t -> TwitterToolTimeline.sync(cachedTimeline(key), fetcher, t, timelineSize, timelineSize),
+        TwitterToolPriority.BACKGROUND);
+  }
+
+  /**
+   * Returns how long a result from an endpoint is fresh for.
+   *
+   * @param endpoint The endpoint
+   * @return The ttl in milliseconds
+   */
+  long getTtl(TwitterToolEndpoint endpoint) {
+    return ttls.getOrDefault(endpoint, endpoint.getDefaultTtl() * 1000L);
+  }
+
+  /**
+   * Returns how long past its ttl a result is still served while it refreshes.
+   *
+   * @return The max stale in milliseconds
+   */
+  long getMaxStale() {
+    return maxStale;
+  }
+
+  /**
+   * Returns the text of a status as escaped HTML, with t.co links expanded, mentions and hashtags
+   * linked and media shown as thumbnails.
+   *
+   * Statuses are rendered once when they are fetched, so this just returns the string.  Write it
+   * to the page as is, it is already escaped.
+   *
+   * @param status The status
+   * @return The HTML, empty if the status is null
+   */
+  public String html(Status status) {
+    return TwitterToolEnricher.INSTANCE.getHtml(status);
+  }
+
+  /**
+   * Returns the url to show one of twitter's images at, served from the local image cache when the
+   * image proxy is on.
+   *
+   * @param url The image url, eg a profile image or media url
+   * @return The proxy url, or the url as given if the proxy is off or the url is not twitter's
+   */
+  public String imageUrl(String url) {
+    return TwitterToolImageProxy.INSTANCE.rewrite(url, 0);
+  }
+
+  /**
+   * Returns the url to show one of twitter's images at a width, served from the local image cache
+   * when the image proxy is on.
+   *
+   * @param url The image url, eg a profile image or media url
+   * @param width The width it is shown at, rounded up to the next twitter4jImageWidths width
+   * @return The proxy url, or the url as given if the proxy is off or the url is not twitter's
+   */
+  public String imageUrl(String url, int width) {
+    return TwitterToolImageProxy.INSTANCE.rewrite(url, width);
+  }
+
+  /**
+   * Returns the url to show a user's profile image at a width.  With the image proxy on this is the
+   * original image resized by the proxy, otherwise the smallest of twitter's own sizes that is at
+   * least as wide.
+   *
+   * @param user The user
+   * @param width The width it is shown at
+   * @return The url, or null if the user is null
+   */
+  public String profileImageUrl(User user, int width) {
+    if (user == null) {
+      return null;
+    }
+    if (TwitterToolImageProxy.INSTANCE.isEnabled()) {
+      return TwitterToolImageProxy.INSTANCE.rewrite(user.getOriginalProfileImageURLHttps(), width);
+    }
+    if (width <= 24) {
+      return user.getMiniProfileImageURLHttps();
+    } else if (width <= 48) {
+      return user.getProfileImageURLHttps();
+    } else if (width <= 73) {
+      return user.getBiggerProfileImageURLHttps();
+    }
+    return user.getOriginalProfileImageURLHttps();
+  }
+
+  /**
+   * Returns the state of the image proxy.
+   *
+   * @return A map of enabled, images and bytes cached, hits, fetches, resizes and failures
+   */
+  public Map<String, Object> getImageStats() {
+    return TwitterToolImageProxy.INSTANCE.getStats();
+  }
+
+  /**
+   * Returns the compact copy of a Status, User, or list of them.
+   *
+   * The compact copies keep only the fields templates normally render and take a fraction of the
+   * memory, everything else (entities, place, etc) comes back empty.
+   *
+   * @param result A result from one of the methods above
+   * @return The compact copy
+   */
+  public Object compact(Object result) {
+    return TwitterToolCompactor.INSTANCE.compact(result);
+  }
+
+  /**
+   * Starts fetching the last count tweets for the screen name in the background.
+   *
+   * See {@link #getUserTimeline(String, int, int)}
+   *
+   * @param screenName The screen name to fetch the tweets for
+   * @param page The page of results to pull, if empty 1
+   * @param count The number of results to pull per page, if empty 20
+   * @return A future for the tweets, pass it to fetchAll or await
+   */
+  public Future<ResponseList<Status>> getUserTimelineAsync(String screenName, int page, int count) {
+    return async(() -> getUserTimeline(screenName, page, count));
+  }
+
+  /**
+   * Starts fetching the last count tweets for the user id in the background.
+   *
+   * See {@link #getUserTimeline(long, int, int)}
+   *
+   * @param userId The User ID to fetch the tweets for
+   * @param page The page of results to pull, if empty 1
+   * @param count The number of results to pull per page, if empty 20
+   * @return A future for the tweets, pass it to fetchAll or await
+   */
+  public Future<ResponseList<Status>> getUserTimelineAsync(long userId, int page, int count) {
+    return async(() -> getUserTimeline(userId, page, count));
+  }
+
+  /**
+   * Starts fetching the user for the screen name in the background.
+   *
+   * See {@link #showUser(String)}
+   *
+   * @param screenName The screen name to look for
+   * @return A future for the user, pass it to fetchAll or await
+   */
+  public Future<User> showUserAsync(String screenName) {
+    return async(() -> showUser(screenName));
+  }
+
+  /**
+   * Starts fetching the user for the user id in the background.
+   *
+   * See {@link #showUser(long)}
+   *
+   * @param userId The user id to look for
+   * @return A future for the user, pass it to fetchAll or await
+   */
+  public Future<User> showUserAsync(long userId) {
+    return async(() -> showUser(userId));
+  }
+
+  /**
+   * Starts fetching up to 20 followers for the screen name in the background.
+   *
+   * See {@link #getFollowersList(String)}
+   *
+   * @param screenName The screen name to get the followers for
+   * @return A future for the followers, pass it to fetchAll or await
+   */
+  public Future<PagableResponseList<User>> getFollowersListAsync(String screenName) {
+    return async(() -> getFollowersList(screenName));
+  }
+
+  /**
+   * Starts fetching up to 20 followers for the user id in the background.
+   *
+   * See {@link #getFollowersList(long)}
+   *
+   * @param userId The user id to get the followers for
+   * @return A future for the followers, pass it to fetchAll or await
+   */
+  public Future<PagableResponseList<User>> getFollowersListAsync(long userId) {
+    return async(() -> getFollowersList(userId));
+  }
+
+  /**
+   * Starts fetching up to 20 members of the user's list in the background.
+   *
+   * See {@link #getUserListMembers(String, String)}
+   *
+   * @param ownerScreenName The list owner's screen name
+   * @param slug The list's slug
+   * @return A future for the members, pass it to fetchAll or await
+   */
+  public Future<PagableResponseList<User>> getUserListMembersAsync(String ownerScreenName, String slug) {
+    return async(() -> getUserListMembers(ownerScreenName, slug));
+  }
+
+  /**
+   * Starts fetching up to 20 members of the user's list in the background.
+   *
+   * See {@link #getUserListMembers(long, String)}
+   *
+   * @param ownerId The list owner's id
+   * @param slug The list's slug
+   * @return A future for the members, pass it to fetchAll or await
+   */
+  public Future<PagableResponseList<User>> getUserListMembersAsync(long ownerId, String slug) {
+    return async(() -> getUserListMembers(ownerId, slug));
+  }
+
+  /**
+   * Starts fetching tweets from a user's list in the background.
+   *
+   * See {@link #getUserListStatuses(String, String, int, int)}
+   *
+   * @param ownerScreenName The list owner's screen name
+   * @param slug The list's slug
+   * @param page The page to pull
+   * @param count The number of items to pull per page
+   * @return A future for the tweets, pass it to fetchAll or await
+   */
+  public Future<ResponseList<Status>> getUserListStatusesAsync(String ownerScreenName, String slug, int page, int count) {
+    return async(() -> getUserListStatuses(ownerScreenName, slug, page, count));
+  }
+
+  /**
+   * Starts fetching tweets from a user's list in the background.
+   *
+   * See {@link #getUserListStatuses(long, String, int, int)}
+   *
+   * @param ownerId The list owner's id
+   * @param slug The list's slug
+   * @param page The page to pull
+   * @param count The number of items to pull per page
+   * @return A future for the tweets, pass it to fetchAll or await
+   */
+  public Future<ResponseList<Status>> getUserListStatusesAsync(long ownerId, String slug, int page, int count) {
+    return async(() -> getUserListStatuses(ownerId, slug, page, count));
+  }
+
+  /**
+   * Waits for a future from one of the async methods, up to the default deadline.
+   *
+   * @param future The future to wait for
+   * @return The result or null if it did not finish in time or something went wrong
+   */
+  public Object await(Future<?> future) {
+    List<Object> results = fetchAll(Collections.singletonList(future), asyncDeadline);
+    return results == null ? null : results.get(0);
+  }
+
+  /**
+   * Waits for the futures from the async methods, up to the default deadline for all of them.
+   *
+   * @param futures The futures to wait for
+   * @return The results in the same order, with null for any that did not finish in time
+   */
+  public List<Object> fetchAll(List<? extends Future<?>> futures) {
+    return fetchAll(futures, asyncDeadline);
+  }
+
+  /**
+   * Waits for the futures from the async methods, up to deadline milliseconds for all of them.
+   *
+   * The calls run in parallel so this takes as long as the slowest call, capped at the deadline.
+   *
+   * @param futures The futures to wait for
+   * @param deadline The most milliseconds to wait in total
+   * @return The results in the same order, with null for any that did not finish in time
+   */
+  public List<Object> fetchAll(List<? extends Future<?>> futures, long deadline) {
+    if (futures == null) {
+      return null;
+    }
+
+    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadline);
+    List<Object> results = new ArrayList<>(futures.size());
+    for (Future<?> future : futures) {
+      Object result = null;
+      if (future != null) {
+        try {
+          result = future.get(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+          Logger.debug(this, "Async twitter call did not finish within " + deadline + "ms");
+        } catch (ExecutionException e) {
+          Logger.error(this, "Async twitter call failed", e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          Logger.warn(this, "Interrupted waiting for async twitter calls");
+          break;
+        }
       }
-      if (!UtilMethods.isSet(count)) {
-        count = DEFAULT_LIMIT;
+      results.add(result);
+    }
+    while (results.size() < futures.size()) {
+      results.add(null);
+    }
+    return results;
+  }
+
+  /**
+   * Runs a viewtool method on the async executor.  If too many calls are already waiting the
+   * future is completed with null rather than running the method on this thread.
+   *
+   * @param method The method to run
+   * @return A future for the method's result
+   */
+  private <T> Future<T> async(Supplier<T> method) {
+    if (!inited) {
+      Logger.warn(this, "ViewTool not inited");
+      return CompletableFuture.completedFuture(null);
+    }
+    try {
+      return CompletableFuture.supplyAsync(method, TwitterToolExecutors.INSTANCE.async(asyncThreads));
+    } catch (RejectedExecutionException e) {
+      Logger.warn(this, "Too many TwitterTool async calls waiting, not fetching: " + e.getMessage());
+      return CompletableFuture.completedFuture(null);
+    }
+  }
+
+  /**
+   * Creates a cursor whose pages are each fetched and cached like any other call.
+   *
+   * @param key The key for the first page
+   * @param limit The most users to return
+   * @param deadline The most milliseconds to spend fetching pages, 0 for no deadline
+   * @param calls Creates the twitter call for a cursor
+   * @return The cursor or null if the viewtool is not inited
+   */
+  private TwitterToolCursor cursor(final TwitterToolCacheKey key, int limit, long deadline,
+      final LongFunction<TwitterToolCall<PagableResponseList<User>>> calls) {
+    if (!inited) {
+      Logger.warn(this, "ViewTool not inited");
+      return null;
+    }
+    return new TwitterToolCursor(cursor -> fetch(key.withCursor(cursor), calls.apply(cursor)), Math.max(0, limit),
+        deadline, TwitterToolExecutors.INSTANCE.async(asyncThreads));
+  }
+
+  /**
+   * Finds the follower ids on a page, walking the cached pages of ids, and looks up those users.
+   *
+   * @param idsKey The key for the first page of follower ids
+   * @param page The page to pull
+   * @param count The number of followers per page
+   * @param calls Creates the twitter call for a page of ids at a cursor
+   * @return The followers on the page or null if something went wrong
+   */
+  private List<User> followers(final TwitterToolCacheKey idsKey, int page, int count,
+      final LongFunction<TwitterToolCall<IDs>> calls) {
+    if (!inited) {
+      Logger.warn(this, "ViewTool not inited");
+      return null;
+    }
+    if (page < 1) {
+      page = 1;
+    }
+    if (count <= 0) {
+      count = DEFAULT_LIMIT;
+    }
+
+    long skip = (long) (page - 1) * count;
+    List<Long> ids = new ArrayList<>(count);
+    long cursor = -1;
+    while (ids.size() < count) {
+      IDs chunk = fetch(idsKey.withCursor(cursor), calls.apply(cursor));
+      if (chunk == null) {
+        if (ids.isEmpty()) {
+          return null;
+        }
+        break;
       }
+      long[] chunkIds = chunk.getIDs();
+      if (skip >= chunkIds.length) {
+        skip -= chunkIds.length;
+      } else {
+        for (int i = (int) skip; i < chunkIds.length && ids.size() < count; i++) {
+          ids.add(chunkIds[i]);
+        }
+        skip = 0;
+      }
+      if (!chunk.hasNext()) {
+        break;
+      }
+      cursor = chunk.getNextCursor();
+    }
+    return showUsers(ids);
+  }
 
-      // See if this username is a miss
-      boolean isMiss = TwitterToolMissCacheGroupHandler.INSTANCE.get(String.valueOf(ownerId));
-      if (isMiss) {
-        Logger.debug(this, "Miss Cached with userId: " + ownerId);
-        return null;
+  /**
+   * The page size to use for a cursor, no bigger than needed for the limit.
+   *
+   * @param limit The most users the cursor returns
+   * @return The number of users to fetch per page
+   */
+  private int cursorCount(int limit) {
+    return Math.max(1, Math.min(cursorPageSize, limit));
+  }
+
+  /**
+   * Serves a page of a watched user's timeline from the stream without calling twitter.
+   *
+   * @param timeline The streamed timeline or null if the user is not watched
+   * @param page The page to pull
+   * @param count The number of items to pull per page
+   * @return The statuses on the page or null if the stream does not hold enough of the timeline
+   */
+  private ResponseList<Status> streamed(TwitterToolTimeline timeline, int page, int count) {
+    long start = System.nanoTime();
+    if (timeline == null || !timeline.covers(page * count)) {
+      return null;
+    }
+    TwitterToolMetrics.INSTANCE.record(TwitterToolEndpoint.USER_TIMELINE, TwitterToolOutcome.HIT, start);
+    return timeline.page(page, count);
+  }
+
+  /**
+   * Serves a page of a user timeline or list from the synced timeline kept for it.
+   *
+   * Refreshing a timeline only fetches the statuses newer than the newest one we have.  Pages
+   * past the end of the kept timeline are fetched and cached on their own.
+   *
+   * @param timelineKey The key for the whole timeline
+   * @param page The page to pull
+   * @param count The number of items to pull per page
+   * @param fetcher Fetches a page of the timeline from twitter
+   * @return The statuses on the page or null if something went wrong
+   */
+  private ResponseList<Status> timeline(final TwitterToolCacheKey timelineKey, int page, int count,
+      final TwitterToolTimeline.Fetcher fetcher) {
+    final int needed = page * count;
+    if (needed > timelineSize) {
+      final Paging paging = new Paging(page, count);
+      return fetch(timelineKey.withPage(page, count), t -> fetcher.fetch(t, paging));
+    }
+
+    TwitterToolCall<TwitterToolTimeline> sync =
+        t -> TwitterToolTimeline.sync(cachedTimeline(timelineKey), fetcher, t, needed, timelineSize);
+    TwitterToolTimeline timeline = fetch(timelineKey, sync);
+    if (timeline != null && !timeline.covers(needed)) {
+      timeline = load(timelineKey, sync, TwitterToolPriority.INTERACTIVE);
+    }
+    return timeline == null ? null : timeline.page(page, count);
+  }
+
+  /**
+   * Returns the timeline in the result cache, fresh or not.
+   *
+   * @param timelineKey The key for the whole timeline
+   * @return The cached timeline or null
+   */
+  private TwitterToolTimeline cachedTimeline(TwitterToolCacheKey timelineKey) {
+    if (!cacheEnabled) {
+      return null;
+    }
+    TwitterToolCacheEntry entry = TwitterToolResultCacheGroupHandler.INSTANCE.get(timelineKey);
+    return entry == null ? null : (TwitterToolTimeline) entry.getValue();
+  }
+
+  /**
+   * Runs a read against twitter, serving it from the miss cache or result cache when possible.
+   *
+   * Fresh results are returned straight from cache.  Stale results are returned while a single
+   * background refresh runs, so once a key has been fetched a render does not wait on twitter.
+   *
+   * @param key The key for this read
+   * @param call The call to make against twitter
+   * @return The result of the call or null if something went wrong
+   */
+  @SuppressWarnings("unchecked")
+  private <T> T fetch(final TwitterToolCacheKey key, final TwitterToolCall<T> call) {
+    if (!inited) {
+      Logger.warn(this, "ViewTool not inited");
+      return null;
+    }
+
+    long start = System.nanoTime();
+    TwitterToolEndpoint endpoint = key.getEndpoint();
+
+    // See if this user is a miss
+    if (isMiss(key)) {
+      Logger.debug(this, "Miss Cached with " + describe(key));
+      TwitterToolMetrics.INSTANCE.record(endpoint, TwitterToolOutcome.MISS_CACHED, start);
+      return null;
+    }
+
+    if (cacheEnabled) {
+      TwitterToolCacheEntry entry = TwitterToolResultCacheGroupHandler.INSTANCE.get(key);
+      if (entry != null) {
+        long age = entry.getAge(System.currentTimeMillis());
+        if (age < ttls.get(endpoint)) {
+          TwitterToolMetrics.INSTANCE.record(endpoint, TwitterToolOutcome.HIT, start);
+          return (T) entry.getValue();
+        }
+        if (!TwitterToolCircuitBreaker.INSTANCE.isAllowed(endpoint)) {
+          Logger.debug(this, "Circuit for " + endpoint.getResource() + " is open, serving the last good " + key);
+          TwitterToolMetrics.INSTANCE.record(endpoint, TwitterToolOutcome.STALE, start);
+          return (T) entry.getValue();
+        }
+        if (age < maxStale) {
+          Logger.debug(this, "Serving stale " + key + " while it refreshes");
+          refreshInBackground(key, call);
+          TwitterToolMetrics.INSTANCE.record(endpoint, TwitterToolOutcome.STALE, start);
+          return (T) entry.getValue();
+        }
       }
+    }
+
+    if (!TwitterToolCircuitBreaker.INSTANCE.isAllowed(endpoint)) {
+      Logger.debug(this, "Circuit for " + endpoint.getResource() + " is open, not fetching " + key);
+      TwitterToolMetrics.INSTANCE.record(endpoint, TwitterToolOutcome.ERROR, start);
+      return null;
+    }
+
+    T result = load(key, call, TwitterToolPriority.INTERACTIVE);
+    TwitterToolMetrics.INSTANCE.record(endpoint, result == null ? TwitterToolOutcome.ERROR : TwitterToolOutcome.FETCHED, start);
+    return result;
+  }
+
+  /**
+   * Checks the miss cache for the user, list or protected endpoint this key reads.
+   *
+   * @param key The key for this read
+   * @return true if the key should not be fetched
+   */
+  static boolean isMiss(TwitterToolCacheKey key) {
+    return TwitterToolMissCacheGroupHandler.INSTANCE.get(key.getMissKey())
+        || TwitterToolMissCacheGroupHandler.INSTANCE.get(key.getEndpointMissKey());
+  }
 
+  /**
+   * Loads a key from twitter, sharing the call with any other thread loading the same key.
+   *
+   * @param key The key for this read
+   * @param call The call to make against twitter
+   * @param priority The priority of the call
+   * @return The result of the call or null if something went wrong
+   */
+  private <T> T load(final TwitterToolCacheKey key, final TwitterToolCall<T> call, final TwitterToolPriority priority) {
+    return singleFlight.execute(key, () -> callTwitter(key, call, priority));
+  }
+
+  /**
+   * Calls twitter for a key, or when in a cluster reads the result of the node holding its lease.
+   *
+   * @param key The key for this read
+   * @param call The call to make against twitter
+   * @param priority The priority of the call
+   * @return The result of the call or null if something went wrong
+   */
+  private <T> T callTwitter(TwitterToolCacheKey key, TwitterToolCall<T> call, TwitterToolPriority priority) {
+    if (cluster == null) {
+      return callUpstream(key, call, priority);
+    }
+
+    // Another node may have fetched this already
+    T shared = readShared(key);
+    if (shared != null) {
+      return shared;
+    }
+
+    // Wait for the node holding the lease to publish its result, or take over if it gives up the lease
+    String leaseKey = key.toString();
+    boolean leased = cluster.tryLease(leaseKey, clusterNode, clusterLease);
+    if (!leased && priority == TwitterToolPriority.BACKGROUND) {
+      Logger.debug(this, "Another node is fetching " + key + ", not refreshing it here");
+      return null;
+    }
+    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(clusterWait);
+    while (!leased && System.nanoTime() - end < 0) {
       try {
-        return twitter.getUserListStatuses(ownerId, slug, new Paging(page, count));
-      } catch (TwitterException e) {
-        Logger.error(this, "Error Fetching tweets for userId: " + ownerId + " errorCode: " + e.getErrorCode(), e);
-        if (e.getErrorCode() == TWITTER_ERR_CODE) {
-          Logger.debug(this, "Adding " + ownerId + " to the miss cache");
-          TwitterToolMissCacheGroupHandler.INSTANCE.put(String.valueOf(ownerId), true);
-        }
+        Thread.sleep(CLUSTER_POLL_INTERVAL);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
         return null;
       }
-    } else {
-      Logger.warn(this, "ViewTool not inited");
+      shared = readShared(key);
+      if (shared != null) {
+        return shared;
+      }
+      leased = cluster.tryLease(leaseKey, clusterNode, clusterLease);
+    }
+    if (!leased) {
+      Logger.debug(this, "No result from the node fetching " + key + " within " + clusterWait + "ms, fetching it here");
+    }
+
+    try {
+      T result = callUpstream(key, call, priority);
+      if (result != null) {
+        cluster.publish(leaseKey, new TwitterToolCacheEntry(result, System.currentTimeMillis()));
+      }
+      return result;
+    } finally {
+      cluster.release(leaseKey, clusterNode);
+    }
+  }
+
+  /**
+   * Reads a result another node published for a key, if it is still fresh.
+   *
+   * @param key The key for this read
+   * @return The result or null if there is no fresh result
+   */
+  @SuppressWarnings("unchecked")
+  private <T> T readShared(TwitterToolCacheKey key) {
+    TwitterToolCacheEntry entry = cluster.read(key.toString());
+    if (entry == null || entry.getAge(System.currentTimeMillis()) >= ttls.get(key.getEndpoint())) {
       return null;
     }
+    if (cacheEnabled) {
+      TwitterToolResultCacheGroupHandler.INSTANCE.put(key, entry);
+      TwitterToolWarmStore.INSTANCE.record(key, entry);
+    }
+    return (T) entry.getValue();
+  }
+
+  /**
+   * Calls twitter and caches the result, or adds the user to the miss cache if they do not exist.
+   *
+   * @param key The key for this read
+   * @param call The call to make against twitter
+   * @param priority The priority of the call
+   * @return The result of the call or null if something went wrong
+   */
+  @SuppressWarnings("unchecked")
+  private <T> T callUpstream(TwitterToolCacheKey key, TwitterToolCall<T> call, TwitterToolPriority priority) {
+    TwitterToolEndpoint endpoint = key.getEndpoint();
+    // The batcher takes a users/lookup token for each batch and tracks that limit itself, taking a
+    // users/show token as well would spend budget on calls that are never made
+    boolean batched = endpoint == TwitterToolEndpoint.SHOW_USER && batchShowUser;
+    TwitterToolCredentialPool.Client client = batched ? credentials.getDefault() : credentials.acquire(endpoint, priority);
+    if (client == null) {
+      Logger.debug(this, "Rate limit budget for " + endpoint.getResource() + " used up, not fetching " + key);
+      return null;
+    }
+    TwitterToolRateLimiter rateLimiter = client.getRateLimiter();
+
+    try {
+      T result = call.call(client.getTwitter());
+      if (result instanceof TwitterResponse && !batched) {
+        rateLimiter.update(endpoint, ((TwitterResponse) result).getRateLimitStatus());
+      }
+      // Compact copies render their HTML before dropping the entities
+      if (compactCache) {
+        result = (T) TwitterToolCompactor.INSTANCE.compact(result);
+      } else {
+        result = (T) TwitterToolEnricher.INSTANCE.enrich(result);
+      }
+      TwitterToolAliases.INSTANCE.learn(result);
+      if (cacheEnabled && result != null) {
+        TwitterToolCacheEntry entry = new TwitterToolCacheEntry(result, System.currentTimeMillis());
+        TwitterToolResultCacheGroupHandler.INSTANCE.put(key, entry);
+        TwitterToolWarmStore.INSTANCE.record(key, entry);
+        // Calls by this screen name are made by id from now on, so they start with this result
+        Long userId = key.isById() ? null : TwitterToolAliases.INSTANCE.getUserId(key.getUser());
+        if (userId != null) {
+          TwitterToolResultCacheGroupHandler.INSTANCE.put(key.withUserId(userId), entry);
+        }
+      }
+      return result;
+    } catch (TwitterToolCircuitOpenException e) {
+      Logger.debug(this, e.getMessage() + ", not fetching " + key);
+      return null;
+    } catch (TwitterException e) {
+      Logger.error(this, "Error Fetching " + endpoint.getDescription() + " for " + describe(key)
+          + " errorCode: " + e.getErrorCode(), e);
+      if (batched) {
+        // The batcher has already recorded the users/lookup limit
+      } else if (e.exceededRateLimitation()) {
+        rateLimiter.exhausted(endpoint, e.getRateLimitStatus(), e.getRetryAfter());
+      } else {
+        rateLimiter.update(endpoint, e.getRateLimitStatus());
+      }
+      TwitterToolMissReason reason = TwitterToolMissReason.of(e);
+      if (reason == null && TwitterToolMissReason.isBareUnauthorized(e) && isKnownProtected(key)) {
+        reason = TwitterToolMissReason.PROTECTED;
+      }
+      if (reason != null) {
+        String missKey = reason == TwitterToolMissReason.PROTECTED ? key.getEndpointMissKey() : key.getMissKey();
+        Logger.debug(this, "Adding " + missKey + " to the miss cache as " + reason);
+        TwitterToolMissCacheGroupHandler.INSTANCE.put(missKey, reason);
+        TwitterToolResultCacheGroupHandler.INSTANCE.remove(key);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Checks if a key is for the tweets or lists of an account whose cached profile says it is
+   * protected, so a bare 401 for it is twitter refusing to show them rather than a bad token.
+   *
+   * @param key The key that was refused
+   * @return true if the key reads a protected account's tweets or lists
+   */
+  private boolean isKnownProtected(TwitterToolCacheKey key) {
+    switch (key.getEndpoint()) {
+      case USER_TIMELINE:
+      case LIST_STATUSES:
+      case LIST_MEMBERS:
+        break;
+      default:
+        return false;
+    }
+    if (!cacheEnabled) {
+      return false;
+    }
+    TwitterToolCacheEntry entry = TwitterToolResultCacheGroupHandler.INSTANCE.get(
+        TwitterToolCacheKey.of(TwitterToolEndpoint.SHOW_USER, key.getUser(), key.isById(), null, 0, 0));
+    if (entry == null && !key.isById()) {
+      Long userId = TwitterToolAliases.INSTANCE.getUserId(key.getUser());
+      if (userId != null) {
+        entry = TwitterToolResultCacheGroupHandler.INSTANCE.get(
+            TwitterToolCacheKey.of(TwitterToolEndpoint.SHOW_USER, userId.longValue(), null, 0, 0));
+      }
+    }
+    return entry != null && entry.getValue() instanceof User && ((User) entry.getValue()).isProtected();
+  }
+
+  /**
+   * Refreshes a stale key on the refresh threads, unless a refresh for it is already running.
+   *
+   * @param key The key to refresh
+   * @param call The call to make against twitter
+   */
+  private <T> void refreshInBackground(final TwitterToolCacheKey key, final TwitterToolCall<T> call) {
+    TwitterToolEndpoint budget = key.getEndpoint() == TwitterToolEndpoint.SHOW_USER && batchShowUser
+        ? TwitterToolEndpoint.LOOKUP_USERS : key.getEndpoint();
+    if (!credentials.isAvailable(budget, TwitterToolPriority.BACKGROUND)) {
+      Logger.debug(this, "Rate limit budget for " + key.getEndpoint().getResource() + " is low, not refreshing " + key);
+      return;
+    }
+    if (!refreshing.add(key)) {
+      return;
+    }
+    try {
+      TwitterToolExecutors.INSTANCE.refresh().execute(() -> {
+        try {
+          load(key, call, TwitterToolPriority.BACKGROUND);
+        } finally {
+          refreshing.remove(key);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      Logger.debug(this, "Refresh queue full, skipping refresh of " + key);
+      refreshing.remove(key);
+    }
+  }
+
+  private static String describe(TwitterToolCacheKey key) {
+    return (key.isById() ? "userId: " : "handle: ") + key.getUser();
   }
 
 }
@@ -1,10 +1,21 @@
 package com.aquent.viewtools;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.Servlet;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.filters.CMSFilter;
 import com.dotmarketing.loggers.Log4jUtil;
 import com.dotmarketing.osgi.GenericBundleActivator;
+import com.dotmarketing.util.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.core.LoggerContext;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.http.HttpService;
 
 /**
  * Activator Class for the TwitterTool.
@@ -12,6 +23,8 @@ import org.osgi.framework.BundleContext;
  */
 public class TwitterToolActivator extends GenericBundleActivator {
     private LoggerContext pluginLoggerContext;
+    private HttpService httpService;
+    private final List<String> servletAliases = new ArrayList<>();
 
     @Override
     public void start(BundleContext bundleContext) throws Exception {
@@ -24,12 +37,86 @@ public class TwitterToolActivator extends GenericBundleActivator {
         initializeServices(bundleContext);
 
         //Registering the ViewTool service
-        registerViewToolService(bundleContext, new TwitterToolInfo());
+        TwitterToolInfo toolInfo = new TwitterToolInfo();
+        registerViewToolService(bundleContext, toolInfo);
+
+        //Exposing the TwitterTool stats over JMX
+        TwitterToolMetrics.INSTANCE.registerMBeans();
+
+        //Streaming the watched users' timelines, if there are any
+        TwitterToolStream.INSTANCE.start(toolInfo::getViewTool);
+
+        //Keeping the configured timelines and lists fresh, if there are any
+        TwitterToolPrewarmer.INSTANCE.start(toolInfo::getViewTool);
+
+        //Serving twitter's images from a local cache, if the proxy is turned on
+        if (TwitterToolImageProxy.INSTANCE.start()
+                && !registerServlet(bundleContext, TwitterToolImageProxy.SERVLET_ALIAS, new TwitterToolImageServlet())) {
+            TwitterToolImageProxy.INSTANCE.stop();
+        }
+
+        //Serving the configured timelines, users and lists as JSON, if the api is turned on
+        TwitterToolConfig config = defaultHostConfig();
+        if (config != null && config.getBoolean("twitter4jApiEnabled", false)) {
+            List<TwitterToolHandle> handles = TwitterToolApiServlet.handlesOf(config);
+            if (handles.isEmpty()) {
+                Logger.warn(this, "twitter4jApiEnabled is on but neither twitter4jApiHandles nor twitter4jPrewarm names any handles, not serving the api");
+            } else {
+                registerServlet(bundleContext, TwitterToolApiServlet.SERVLET_ALIAS,
+                        new TwitterToolApiServlet(toolInfo::getViewTool, handles));
+            }
+        }
+    }
+
+    private TwitterToolConfig defaultHostConfig() {
+        try {
+            Host defaultHost = APILocator.getHostAPI().findDefaultHost(APILocator.getUserAPI().getSystemUser(), false);
+            return new TwitterToolConfig(defaultHost);
+        } catch (Exception e) {
+            Logger.error(this, "Unable to get the default host, not serving the api", e);
+            return null;
+        }
+    }
+
+    /**
+     * Registers a servlet with the HttpService, dotCMS serves it under /app.
+     */
+    private boolean registerServlet(BundleContext bundleContext, String alias, Servlet servlet) {
+        if (httpService == null) {
+            ServiceReference sRef = bundleContext.getServiceReference(HttpService.class.getName());
+            if (sRef == null) {
+                Logger.warn(this, "No HttpService to register " + alias + " with");
+                return false;
+            }
+            httpService = (HttpService) bundleContext.getService(sRef);
+        }
+        try {
+            httpService.registerServlet(alias, servlet, null, null);
+            CMSFilter.addExclude("/app" + alias);
+            servletAliases.add(alias);
+            return true;
+        } catch (Exception e) {
+            Logger.error(this, "Unable to register " + alias, e);
+            return false;
+        }
     }
 
     @Override
     public void stop(BundleContext bundleContext) throws Exception {
         unregisterViewToolServices();
+        for (String alias : servletAliases) {
+            httpService.unregister(alias);
+            CMSFilter.removeExclude("/app" + alias);
+        }
+        servletAliases.clear();
+        httpService = null;
+        TwitterToolImageProxy.INSTANCE.stop();
+        TwitterToolPrewarmer.INSTANCE.stop();
+        TwitterToolStream.INSTANCE.stop();
+        TwitterToolMetrics.INSTANCE.unregisterMBeans();
+        TwitterToolWarmStore.INSTANCE.flush();
+        TwitterToolExecutors.INSTANCE.shutdown();
+        TwitterToolHttpTransport.INSTANCE.shutdown();
         unpublishBundleServices();
         unregisterServices(bundleContext);
         Log4jUtil.shutdown(pluginLoggerContext);
@@ -0,0 +1,157 @@
+package com.aquent.viewtools;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import twitter4j.Status;
+import twitter4j.User;
+
+/**
+ * The user id each screen name was last seen with, learned from the users and statuses twitter
+ * returns.
+ *
+ * Calls made with a screen name whose id is known are made with the id instead, so a user asked
+ * for by screen name, in any case, and by id shares one cached result.  When a user is seen with a
+ * new screen name their old one is forgotten, and a screen name taken over by another user points
+ * at the new owner from then on.  The least recently used screen names are dropped past the size.
+ *
+ * Shared by every TwitterTool like the caches it keys, so this is a singleton.
+ */
+public enum TwitterToolAliases {
+  // Makes this a singleton
+  INSTANCE;
+
+  static final int DEFAULT_SIZE = 10000;
+
+  private volatile int maxSize = DEFAULT_SIZE;
+  private final Map<String, Long> userIds = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+      if (size() > maxSize) {
+        screenNames.remove(eldest.getValue(), eldest.getKey());
+        return true;
+      }
+      return false;
+    }
+  };
+  private final Map<Long, String> screenNames = new HashMap<>();
+
+  /**
+   * The form screen names are keyed by, twitter does not tell them apart by case.
+   *
+   * @param screenName The screen name
+   * @return The screen name in lower case
+   */
+  public static String normalize(String screenName) {
+    return screenName.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Sets the most screen names to remember.
+   *
+   * @param size The size, 0 to stop learning screen names
+   */
+  public void setMaxSize(int size) {
+    synchronized (userIds) {
+      maxSize = Math.max(0, size);
+      if (maxSize == 0) {
+        userIds.clear();
+        screenNames.clear();
+      }
+    }
+  }
+
+  /**
+   * Returns the user id a screen name was last seen with.
+   *
+   * @param screenName The screen name, in any case
+   * @return The user id or null if the screen name has not been seen
+   */
+  public Long getUserId(String screenName) {
+    if (screenName == null || maxSize == 0) {
+      return null;
+    }
+    String key = normalize(screenName);
+    synchronized (userIds) {
+      return userIds.get(key);
+    }
+  }
+
+  /**
+   * Learns the screen names of the users in a result: a user, the author of a status and of the
+   * status it retweets or quotes, or any of these in a list or timeline.
+   *
+   * @param result The result of a call
+   */
+  public void learn(Object result) {
+    if (maxSize == 0) {
+      return;
+    }
+    if (result instanceof User) {
+      learn((User) result);
+    } else if (result instanceof Status) {
+      learn((Status) result);
+    } else if (result instanceof TwitterToolTimeline) {
+      learn(((TwitterToolTimeline) result).getStatuses());
+    } else if (result instanceof Iterable) {
+      for (Object o : (Iterable<?>) result) {
+        if (o instanceof User) {
+          learn((User) o);
+        } else if (o instanceof Status) {
+          learn((Status) o);
+        } else {
+          // Lists hold one kind of result, there is nothing to learn from the rest
+          return;
+        }
+      }
+    }
+  }
+
+  private void learn(Status status) {
+    learn(status.getUser());
+    if (status.getRetweetedStatus() != null) {
+      learn(status.getRetweetedStatus().getUser());
+    }
+    if (status.getQuotedStatus() != null) {
+      learn(status.getQuotedStatus().getUser());
+    }
+  }
+
+  private void learn(User user) {
+    if (user == null || user.getScreenName() == null || user.getId() <= 0) {
+      return;
+    }
+    String key = normalize(user.getScreenName());
+    Long userId = user.getId();
+    synchronized (userIds) {
+      if (userId.equals(userIds.get(key))) {
+        return;
+      }
+      // Forget the user's old screen name, and the old owner of this one
+      String oldScreenName = screenNames.put(userId, key);
+      if (oldScreenName != null) {
+        userIds.remove(oldScreenName, userId);
+      }
+      Long oldUserId = userIds.put(key, userId);
+      if (oldUserId != null) {
+        screenNames.remove(oldUserId, key);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of screen names remembered.
+   *
+   * @return The size
+   */
+  public int size() {
+    synchronized (userIds) {
+      return userIds.size();
+    }
+  }
+
+}
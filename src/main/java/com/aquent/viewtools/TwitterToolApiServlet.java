@@ -0,0 +1,310 @@
+package com.aquent.viewtools;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import twitter4j.Status;
+import twitter4j.User;
+
+/**
+ * Serves the TwitterTool's timelines, users and list statuses as JSON, so widgets can load them
+ * from the browser instead of every page render, eg
+ *
+ * /app/twittertool/api/timeline?screen_name=aquent&amp;count=5
+ * /app/twittertool/api/user?user_id=12345
+ * /app/twittertool/api/list?owner_screen_name=aquent&amp;slug=team&amp;page=2&amp;count=10
+ *
+ * The parameters are named as twitter names them and the results come from the tool's caches.
+ * Only the handles and lists the site configures are served, anything else gets a 403, so a
+ * client cannot spend the rate limit the templates share by asking for handles of its own.
+ *
+ * A result's strong ETag is its newest status id and a hash of its JSON, so it changes whenever
+ * any byte sent does, counts included, and a request carrying it is answered with a 304.  The
+ * Cache-Control lets browsers and CDNs keep a result as long as the tool does.  Users and lists
+ * twitter does not have get a 404, and results twitter cannot be reached for a 503 that nothing
+ * caches.
+ */
+public class TwitterToolApiServlet extends HttpServlet {
+
+  public static final String SERVLET_ALIAS = "/twittertool/api";
+
+  private static final long serialVersionUID = 1L;
+  // Seconds a missing user or list is remembered by browsers and CDNs
+  private static final long NOT_FOUND_MAX_AGE = 300;
+
+  private final transient Supplier<TwitterTool> tool;
+  // The users, and owners and lists, whose timelines, users and list statuses are served
+  private final Set<TwitterToolHandle> served = new HashSet<>();
+
+  /**
+   * Serves the results of a tool for the handles and lists given.
+   *
+   * @param tool Returns the tool, which is created the first time it is asked for
+   * @param handles Users, and owners with a slug for lists, see {@link #handlesOf}
+   */
+  public TwitterToolApiServlet(Supplier<TwitterTool> tool, Collection<TwitterToolHandle> handles) {
+    this.tool = tool;
+    for (TwitterToolHandle handle : handles) {
+      served.add(handle);
+      // A list's owner can be shown alongside it
+      served.add(handle.getOwner());
+    }
+  }
+
+  /**
+   * Reads the handles the api serves from twitter4jApiHandles, or the pages in twitter4jPrewarm
+   * when it is not set.  Each is a screen name or id: and a user id, with /slug for one of their
+   * lists, see {@link TwitterToolHandle}.
+   *
+   * @param config The default host's config
+   * @return The handles
+   */
+  public static List<TwitterToolHandle> handlesOf(TwitterToolConfig config) {
+    String setting = config.getString("twitter4jApiHandles", null);
+    if (setting == null) {
+      setting = config.getString("twitter4jPrewarm", "");
+    }
+    List<TwitterToolHandle> handles = new ArrayList<>();
+    for (String spec : setting.split(",")) {
+      // Prewarm pages end in :page:count
+      String trimmed = spec.trim();
+      TwitterToolHandle handle = TwitterToolHandle.parse(trimmed.substring(0, TwitterToolHandle.endOf(trimmed)));
+      if (handle != null) {
+        handles.add(handle);
+      }
+    }
+    return handles;
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+    String path = request.getPathInfo() == null ? "" : request.getPathInfo();
+    TwitterTool twitter = tool.get();
+    try {
+      switch (path) {
+        case "/timeline":
+          timeline(request, response, twitter);
+          break;
+        case "/user":
+          user(request, response, twitter);
+          break;
+        case "/list":
+          list(request, response, twitter);
+          break;
+        default:
+          response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      }
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+    }
+  }
+
+  private void timeline(HttpServletRequest request, HttpServletResponse response, TwitterTool twitter) throws IOException {
+    int page = intParam(request, "page", 1, Integer.MAX_VALUE);
+    int count = intParam(request, "count", TwitterTool.DEFAULT_LIMIT, TwitterToolTimeline.MAX_COUNT);
+    Long userId = idParam(request, "user_id");
+    String screenName = userId == null ? requiredParam(request, "screen_name", "screen_name or user_id") : null;
+    if (!isServed(userId != null ? TwitterToolHandle.of(userId, null) : TwitterToolHandle.of(screenName, null))) {
+      sendForbidden(response);
+      return;
+    }
+
+    List<Status> statuses = userId != null ? twitter.getUserTimeline(userId, page, count)
+        : twitter.getUserTimeline(screenName, page, count);
+    TwitterToolCacheKey key = userId != null ? TwitterToolCacheKey.of(TwitterToolEndpoint.USER_TIMELINE, userId, null, 0, 0)
+        : TwitterToolCacheKey.of(TwitterToolEndpoint.USER_TIMELINE, screenName, null, 0, 0);
+    sendStatuses(request, response, twitter, key, statuses);
+  }
+
+  private void list(HttpServletRequest request, HttpServletResponse response, TwitterTool twitter) throws IOException {
+    int page = intParam(request, "page", 1, Integer.MAX_VALUE);
+    int count = intParam(request, "count", TwitterTool.DEFAULT_LIMIT, TwitterToolTimeline.MAX_COUNT);
+    String slug = requiredParam(request, "slug", "slug");
+    Long ownerId = idParam(request, "owner_id");
+    String ownerScreenName = ownerId == null ? requiredParam(request, "owner_screen_name", "owner_screen_name or owner_id")
+        : null;
+    if (!isServed(ownerId != null ? TwitterToolHandle.of(ownerId, slug) : TwitterToolHandle.of(ownerScreenName, slug))) {
+      sendForbidden(response);
+      return;
+    }
+
+    List<Status> statuses = ownerId != null ? twitter.getUserListStatuses(ownerId, slug, page, count)
+        : twitter.getUserListStatuses(ownerScreenName, slug, page, count);
+    TwitterToolCacheKey key = ownerId != null ? TwitterToolCacheKey.of(TwitterToolEndpoint.LIST_STATUSES, ownerId, slug, 0, 0)
+        : TwitterToolCacheKey.of(TwitterToolEndpoint.LIST_STATUSES, ownerScreenName, slug, 0, 0);
+    sendStatuses(request, response, twitter, key, statuses);
+  }
+
+  private void user(HttpServletRequest request, HttpServletResponse response, TwitterTool twitter) throws IOException {
+    Long userId = idParam(request, "user_id");
+    String screenName = userId == null ? requiredParam(request, "screen_name", "screen_name or user_id") : null;
+    if (!isServed(userId != null ? TwitterToolHandle.of(userId, null) : TwitterToolHandle.of(screenName, null))) {
+      sendForbidden(response);
+      return;
+    }
+
+    User user = userId != null ? twitter.showUser(userId) : twitter.showUser(screenName);
+    TwitterToolCacheKey key = userId != null ? TwitterToolCacheKey.of(TwitterToolEndpoint.SHOW_USER, userId, null, 0, 0)
+        : TwitterToolCacheKey.of(TwitterToolEndpoint.SHOW_USER, screenName, null, 0, 0);
+    if (user == null) {
+      sendMissing(response, key);
+      return;
+    }
+
+    // A user has no id that changes with it, so the ETag is just a hash of what is sent
+    String json = new TwitterToolJson(twitter).user(user).toString();
+    String etag = "\"u-" + sha1(json) + "\"";
+    if (send304(request, response, twitter, key, etag)) {
+      return;
+    }
+    send(response, json);
+  }
+
+  private void sendStatuses(HttpServletRequest request, HttpServletResponse response, TwitterTool twitter,
+      TwitterToolCacheKey key, List<Status> statuses) throws IOException {
+    if (statuses == null) {
+      sendMissing(response, key);
+      return;
+    }
+
+    // The newest id says when a page gained a status, the hash covers counts, users and html
+    // changing under the same statuses, so the tag changes whenever the bytes do
+    String json = new TwitterToolJson(twitter).statuses(statuses).toString();
+    String etag = "\"s-" + (statuses.isEmpty() ? 0 : statuses.get(0).getId()) + "-" + sha1(json) + "\"";
+    if (send304(request, response, twitter, key, etag)) {
+      return;
+    }
+    send(response, json);
+  }
+
+  /**
+   * Sets the cache headers and, if the request already has this ETag, answers it with a 304.
+   */
+  private static boolean send304(HttpServletRequest request, HttpServletResponse response, TwitterTool twitter,
+      TwitterToolCacheKey key, String etag) {
+    long maxAge = twitter.getTtl(key.getEndpoint()) / 1000;
+    long maxStale = twitter.getMaxStale() / 1000;
+    response.setHeader("ETag", etag);
+    response.setHeader("Cache-Control", "public, max-age=" + maxAge + ", stale-while-revalidate=" + maxStale
+        + ", stale-if-error=" + maxStale);
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return true;
+    }
+    return false;
+  }
+
+  private static void send(HttpServletResponse response, String json) throws IOException {
+    byte[] body = json.getBytes(StandardCharsets.UTF_8);
+    response.setContentType("application/json;charset=UTF-8");
+    response.setHeader("X-Content-Type-Options", "nosniff");
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  /**
+   * Checks a user or list against the handles served.  A user id also matches a screen name it is
+   * known by, and a screen name a user id.
+   */
+  private boolean isServed(TwitterToolHandle requested) {
+    if (served.contains(requested)) {
+      return true;
+    }
+    if (!requested.isById()) {
+      Long aliasId = TwitterToolAliases.INSTANCE.getUserId(requested.getScreenName());
+      return aliasId != null && served.contains(requested.withUserId(aliasId));
+    }
+    for (TwitterToolHandle handle : served) {
+      if (!handle.isById()) {
+        Long aliasId = TwitterToolAliases.INSTANCE.getUserId(handle.getScreenName());
+        if (aliasId != null && handle.withUserId(aliasId).equals(requested)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static void sendForbidden(HttpServletResponse response) throws IOException {
+    response.setHeader("Cache-Control", "public, max-age=" + NOT_FOUND_MAX_AGE);
+    response.sendError(HttpServletResponse.SC_FORBIDDEN, "Not one of the handles this site serves");
+  }
+
+  /**
+   * Answers a result the tool does not have, a 404 if twitter said there is no such user or list.
+   */
+  private static void sendMissing(HttpServletResponse response, TwitterToolCacheKey key) throws IOException {
+    if (TwitterTool.isMiss(key)) {
+      response.setHeader("Cache-Control", "public, max-age=" + NOT_FOUND_MAX_AGE);
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+    } else {
+      response.setHeader("Cache-Control", "no-store");
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+  }
+
+  private static int intParam(HttpServletRequest request, String name, int defaultValue, int max) {
+    String value = request.getParameter(name);
+    if (value == null || value.isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      int parsed = Integer.parseInt(value);
+      if (parsed >= 1 && parsed <= max) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // Falls through to the error below
+    }
+    throw new IllegalArgumentException(name + " must be a number from 1 to " + max);
+  }
+
+  private static Long idParam(HttpServletRequest request, String name) {
+    String value = request.getParameter(name);
+    if (value == null || value.isEmpty()) {
+      return null;
+    }
+    try {
+      return Long.valueOf(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(name + " must be a number");
+    }
+  }
+
+  private static String requiredParam(HttpServletRequest request, String name, String description) {
+    String value = request.getParameter(name);
+    if (value == null || value.trim().isEmpty()) {
+      throw new IllegalArgumentException(description + " is required");
+    }
+    return value.trim();
+  }
+
+  private static String sha1(String value) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every JVM has SHA-1
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
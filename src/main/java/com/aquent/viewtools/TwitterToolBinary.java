@@ -0,0 +1,77 @@
+package com.aquent.viewtools;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers for the TwitterTool's binary file formats.
+ */
+final class TwitterToolBinary {
+
+  private TwitterToolBinary() {
+  }
+
+  /**
+   * Writes a string that may be null.
+   *
+   * @param out The output
+   * @param value The string or null
+   * @throws IOException If the write fails
+   */
+  static void writeString(DataOutput out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  /**
+   * Reads a string written by writeString.
+   *
+   * @param in The input
+   * @param strings The interner to share the string through, or null
+   * @return The string or null
+   * @throws IOException If the read fails
+   */
+  static String readString(DataInput in, TwitterToolInterner<String> strings) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    String value = in.readUTF();
+    return strings == null ? value : strings.intern(value);
+  }
+
+  /**
+   * Wraps a buffer, eg a memory mapped file, in an InputStream.
+   *
+   * @param buffer The buffer
+   * @return An InputStream reading from the buffer's position
+   */
+  static InputStream asInputStream(final ByteBuffer buffer) {
+    return new InputStream() {
+      @Override
+      public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+        if (!buffer.hasRemaining()) {
+          return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+      }
+
+      @Override
+      public int available() {
+        return buffer.remaining();
+      }
+    };
+  }
+
+}
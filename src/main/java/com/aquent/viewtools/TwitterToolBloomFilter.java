@@ -0,0 +1,92 @@
+package com.aquent.viewtools;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free Bloom filter over strings.
+ *
+ * mightContain never returns false for a string that was added, so a false answer means the
+ * string was definitely never added.
+ */
+public class TwitterToolBloomFilter {
+
+  private final AtomicLongArray bits;
+  private final int numBits;
+  private final int numHashes;
+
+  /**
+   * Creates a filter sized for the expected number of strings and false positive rate.
+   *
+   * @param expected The number of strings expected to be added
+   * @param falsePositiveRate The wanted false positive rate once that many are added, eg 0.01
+   */
+  public TwitterToolBloomFilter(int expected, double falsePositiveRate) {
+    int n = Math.max(1, expected);
+    long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    this.numBits = (int) Math.max(64, Math.min(Integer.MAX_VALUE - 63, m));
+    this.numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+    this.bits = new AtomicLongArray((numBits + 63) / 64);
+  }
+
+  /**
+   * Adds a string.
+   *
+   * @param value The string
+   */
+  public void put(String value) {
+    long hash = hash(value);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= numHashes; i++) {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+      int index = bit >>> 6;
+      long mask = 1L << bit;
+      long word;
+      do {
+        word = bits.get(index);
+        if ((word & mask) != 0) {
+          break;
+        }
+      } while (!bits.compareAndSet(index, word, word | mask));
+    }
+  }
+
+  /**
+   * Checks if a string might have been added.
+   *
+   * @param value The string
+   * @return false if the string was definitely never added
+   */
+  public boolean mightContain(String value) {
+    long hash = hash(value);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= numHashes; i++) {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+      if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Removes every string.
+   */
+  public void clear() {
+    for (int i = 0; i < bits.length(); i++) {
+      bits.set(i, 0L);
+    }
+  }
+
+  // 64 bit FNV-1a
+  private static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash ^ (hash >>> 29);
+  }
+
+}
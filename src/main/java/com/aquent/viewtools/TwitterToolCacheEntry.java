@@ -0,0 +1,44 @@
+package com.aquent.viewtools;
+
+import java.io.Serializable;
+
+/**
+ * A successful TwitterTool result and the time it was fetched.
+ */
+public final class TwitterToolCacheEntry implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final Object value;
+  private final long fetchedAt;
+
+  /**
+   * Creates an entry.
+   *
+   * @param value The result returned by twitter
+   * @param fetchedAt The time in millis the result was fetched
+   */
+  public TwitterToolCacheEntry(Object value, long fetchedAt) {
+    this.value = value;
+    this.fetchedAt = fetchedAt;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public long getFetchedAt() {
+    return fetchedAt;
+  }
+
+  /**
+   * Returns the age of this entry.
+   *
+   * @param now The current time in millis
+   * @return The number of millis since this entry was fetched
+   */
+  public long getAge(long now) {
+    return now - fetchedAt;
+  }
+
+}
@@ -0,0 +1,185 @@
+package com.aquent.viewtools;
+
+/**
+ * Identifies a single TwitterTool read - the endpoint plus the arguments it was called with.
+ * Screen names are kept in lower case, so calls made with a screen name in any case share a key.
+ */
+public final class TwitterToolCacheKey {
+
+  private final TwitterToolEndpoint endpoint;
+  private final String user;
+  private final boolean byId;
+  private final String slug;
+  private final int page;
+  private final int count;
+  private final long cursor;
+  private final String key;
+
+  private TwitterToolCacheKey(TwitterToolEndpoint endpoint, String user, boolean byId, String slug, int page, int count) {
+    this(endpoint, user, byId, slug, page, count, 0);
+  }
+
+  private TwitterToolCacheKey(TwitterToolEndpoint endpoint, String user, boolean byId, String slug, int page, int count,
+      long cursor) {
+    this.endpoint = endpoint;
+    // Twitter does not tell screen names apart by case, so neither do the keys
+    this.user = byId ? user : TwitterToolAliases.normalize(user);
+    this.byId = byId;
+    this.slug = slug;
+    this.page = page;
+    this.count = count;
+    this.cursor = cursor;
+    this.key = endpoint.name() + "|" + (byId ? "id:" : "sn:") + this.user + "|" + (slug == null ? "" : slug) + "|" + page + "|" + count
+        + (cursor == 0 ? "" : "|" + cursor);
+  }
+
+  /**
+   * Builds a key for a call made with a screen name.
+   *
+   * @param endpoint The endpoint being called
+   * @param screenName The screen name
+   * @param slug The list slug or null
+   * @param page The page or 0
+   * @param count The count or 0
+   * @return The key
+   */
+  public static TwitterToolCacheKey of(TwitterToolEndpoint endpoint, String screenName, String slug, int page, int count) {
+    return new TwitterToolCacheKey(endpoint, screenName, false, slug, page, count);
+  }
+
+  /**
+   * Builds a key for a call made with a user id.
+   *
+   * @param endpoint The endpoint being called
+   * @param userId The user id
+   * @param slug The list slug or null
+   * @param page The page or 0
+   * @param count The count or 0
+   * @return The key
+   */
+  public static TwitterToolCacheKey of(TwitterToolEndpoint endpoint, long userId, String slug, int page, int count) {
+    return new TwitterToolCacheKey(endpoint, String.valueOf(userId), true, slug, page, count);
+  }
+
+  /**
+   * Rebuilds a key from its parts, eg when reading it back from disk.
+   *
+   * @param endpoint The endpoint being called
+   * @param user The screen name or user id
+   * @param byId true if user is a user id
+   * @param slug The list slug or null
+   * @param page The page or 0
+   * @param count The count or 0
+   * @return The key
+   */
+  static TwitterToolCacheKey of(TwitterToolEndpoint endpoint, String user, boolean byId, String slug, int page, int count) {
+    return new TwitterToolCacheKey(endpoint, user, byId, slug, page, count);
+  }
+
+  /**
+   * Returns a key for the same call with a different page and count.
+   *
+   * @param newPage The page
+   * @param newCount The count
+   * @return The key
+   */
+  public TwitterToolCacheKey withPage(int newPage, int newCount) {
+    return new TwitterToolCacheKey(endpoint, user, byId, slug, newPage, newCount);
+  }
+
+  /**
+   * Returns a key for the same call made with a user id, eg the id a screen name belongs to.
+   *
+   * @param userId The user id
+   * @return The key
+   */
+  public TwitterToolCacheKey withUserId(long userId) {
+    return new TwitterToolCacheKey(endpoint, String.valueOf(userId), true, slug, page, count, cursor);
+  }
+
+  /**
+   * Returns a key for the same call at a different cursor.
+   *
+   * @param newCursor The cursor, -1 or 0 for the first page
+   * @return The key
+   */
+  public TwitterToolCacheKey withCursor(long newCursor) {
+    return new TwitterToolCacheKey(endpoint, user, byId, slug, page, count, newCursor == -1 ? 0 : newCursor);
+  }
+
+  public TwitterToolEndpoint getEndpoint() {
+    return endpoint;
+  }
+
+  /**
+   * The screen name or user id this call was made for.
+   *
+   * @return The screen name or user id
+   */
+  public String getUser() {
+    return user;
+  }
+
+  /**
+   * The miss cache key for this call, the typed user plus the list slug when there is one so a
+   * missing list does not hide the user's other lists.
+   *
+   * @return The miss cache key
+   */
+  public String getMissKey() {
+    String userKey = byId ? TwitterToolMissCacheGroupHandler.userIdKey(Long.parseLong(user))
+        : TwitterToolMissCacheGroupHandler.screenNameKey(user);
+    return slug == null ? userKey : userKey + "/" + slug;
+  }
+
+  /**
+   * The miss cache key for this call on this endpoint only, used for protected accounts whose
+   * profile can still be read even though their tweets and lists cannot.
+   *
+   * @return The miss cache key for this endpoint
+   */
+  public String getEndpointMissKey() {
+    return getMissKey() + "|" + endpoint.name();
+  }
+
+  public boolean isById() {
+    return byId;
+  }
+
+  public String getSlug() {
+    return slug;
+  }
+
+  public int getPage() {
+    return page;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * The cursor of a cursored call, 0 for the first page.
+   *
+   * @return The cursor
+   */
+  public long getCursor() {
+    return cursor;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof TwitterToolCacheKey && key.equals(((TwitterToolCacheKey) o).key);
+  }
+
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+
+}
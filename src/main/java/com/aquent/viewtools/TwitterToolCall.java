@@ -0,0 +1,22 @@
+package com.aquent.viewtools;
+
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+
+/**
+ * A single read against the Twitter API.
+ *
+ * @param <T> The type the call returns
+ */
+public interface TwitterToolCall<T> {
+
+  /**
+   * Makes the call.
+   *
+   * @param twitter The twitter instance to call
+   * @return The result of the call
+   * @throws TwitterException If twitter returns an error
+   */
+  T call(Twitter twitter) throws TwitterException;
+
+}
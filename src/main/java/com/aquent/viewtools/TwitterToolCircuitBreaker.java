@@ -0,0 +1,216 @@
+package com.aquent.viewtools;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.dotmarketing.util.Logger;
+
+import twitter4j.TwitterException;
+
+/**
+ * Stops calling an endpoint while twitter is failing or slow to answer it.
+ *
+ * Each endpoint has a circuit that opens after a number of failures in a row, where a failure is a
+ * network error, a 5xx or a call slower than the slow call threshold.  While it is open requests
+ * to the endpoint fail straight away without touching the network.  After the cooldown one probe
+ * request is let through, closing the circuit if it succeeds and opening it again if not.
+ *
+ * Requests are checked and recorded by the twitter4j HttpClient, so this is a singleton.
+ */
+public enum TwitterToolCircuitBreaker {
+  // Makes this a singleton
+  INSTANCE;
+
+  /**
+   * The state of an endpoint's circuit.
+   */
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private static final int DEFAULT_FAILURES = 5;
+  private static final long DEFAULT_SLOW_CALL = 5000;
+  private static final long DEFAULT_COOLDOWN = 30;
+
+  private final Map<TwitterToolEndpoint, Circuit> circuits = new EnumMap<>(TwitterToolEndpoint.class);
+  private volatile int failureThreshold = DEFAULT_FAILURES;
+  private volatile long slowCallNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_CALL);
+  private volatile long cooldownMillis = TimeUnit.SECONDS.toMillis(DEFAULT_COOLDOWN);
+
+  TwitterToolCircuitBreaker() {
+    for (TwitterToolEndpoint endpoint : TwitterToolEndpoint.values()) {
+      circuits.put(endpoint, new Circuit());
+    }
+  }
+
+  /**
+   * Sets the thresholds and closes every circuit.
+   *
+   * @param failures The failures in a row that open a circuit, 0 to never open
+   * @param slowCallMillis The milliseconds after which a successful call counts as a failure
+   * @param cooldownSeconds The seconds a circuit stays open before a probe is let through
+   */
+  public void configure(int failures, long slowCallMillis, long cooldownSeconds) {
+    failureThreshold = failures;
+    slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+    cooldownMillis = TimeUnit.SECONDS.toMillis(cooldownSeconds);
+    for (Circuit circuit : circuits.values()) {
+      circuit.close();
+    }
+  }
+
+  /**
+   * Checks whether a request to the endpoint would be let through, without taking the probe.
+   *
+   * @param endpoint The endpoint
+   * @return false if the circuit is open
+   */
+  public boolean isAllowed(TwitterToolEndpoint endpoint) {
+    Circuit circuit = circuits.get(endpoint);
+    switch (circuit.state(cooldownMillis)) {
+      case OPEN:
+        return false;
+      case HALF_OPEN:
+        return circuit.probe.get() == null;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Lets a request to the endpoint through, taking the probe if the circuit is half open.
+   *
+   * @param endpoint The endpoint about to be requested
+   * @return true if the request may be made
+   */
+  public boolean tryAcquire(TwitterToolEndpoint endpoint) {
+    Circuit circuit = circuits.get(endpoint);
+    switch (circuit.state(cooldownMillis)) {
+      case OPEN:
+        return false;
+      case HALF_OPEN:
+        return circuit.probe.compareAndSet(null, Thread.currentThread());
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Records a request twitter answered.
+   *
+   * @param endpoint The endpoint requested
+   * @param nanos How long the request took
+   */
+  public void onSuccess(TwitterToolEndpoint endpoint, long nanos) {
+    if (nanos > slowCallNanos) {
+      onFailure(endpoint, "a call took " + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms");
+      return;
+    }
+    Circuit circuit = circuits.get(endpoint);
+    circuit.failures.set(0);
+    if (circuit.openedAt != 0) {
+      Logger.info(this, "Closing the circuit for " + endpoint.getResource());
+      circuit.close();
+    }
+  }
+
+  /**
+   * Records a request that failed, counting it against the circuit if twitter could not answer.
+   *
+   * @param endpoint The endpoint requested
+   * @param e The error
+   * @param nanos How long the request took
+   */
+  public void onError(TwitterToolEndpoint endpoint, TwitterException e, long nanos) {
+    if (e.isCausedByNetworkIssue() || e.getStatusCode() >= 500) {
+      onFailure(endpoint, e.getMessage());
+    } else {
+      // Twitter answered, eg not found or rate limited
+      onSuccess(endpoint, nanos);
+    }
+  }
+
+  /**
+   * Records a request that failed without twitter answering, eg an error in the http client.
+   *
+   * @param endpoint The endpoint requested
+   * @param e The error
+   * @param nanos How long the request took
+   */
+  public void onError(TwitterToolEndpoint endpoint, RuntimeException e, long nanos) {
+    onFailure(endpoint, e.toString());
+  }
+
+  /**
+   * Gives back the probe if this thread took it and the request ended without its outcome being
+   * recorded, so a half open circuit is never left waiting on a probe that will not finish.
+   * Called on the requesting thread once every request to the endpoint is done.
+   *
+   * @param endpoint The endpoint requested
+   */
+  public void release(TwitterToolEndpoint endpoint) {
+    circuits.get(endpoint).probe.compareAndSet(Thread.currentThread(), null);
+  }
+
+  /**
+   * Returns the state of each endpoint's circuit.
+   *
+   * @return The state name keyed by endpoint config name
+   */
+  public Map<String, String> getStates() {
+    Map<String, String> states = new LinkedHashMap<>();
+    for (Map.Entry<TwitterToolEndpoint, Circuit> e : circuits.entrySet()) {
+      states.put(e.getKey().getConfigName(), e.getValue().state(cooldownMillis).name());
+    }
+    return states;
+  }
+
+  private void onFailure(TwitterToolEndpoint endpoint, String reason) {
+    int threshold = failureThreshold;
+    if (threshold <= 0) {
+      return;
+    }
+    Circuit circuit = circuits.get(endpoint);
+    if (circuit.openedAt != 0) {
+      // The probe failed
+      Logger.warn(this, "Probe for " + endpoint.getResource() + " failed, keeping the circuit open: " + reason);
+      circuit.open();
+    } else if (circuit.failures.incrementAndGet() >= threshold) {
+      Logger.warn(this, "Opening the circuit for " + endpoint.getResource() + " after " + threshold
+          + " failures, last: " + reason);
+      circuit.open();
+    }
+  }
+
+  private static final class Circuit {
+    private final AtomicInteger failures = new AtomicInteger();
+    // The thread making the probe request while the circuit is half open
+    private final AtomicReference<Thread> probe = new AtomicReference<>();
+    private volatile long openedAt = 0;
+
+    private State state(long cooldownMillis) {
+      long opened = openedAt;
+      if (opened == 0) {
+        return State.CLOSED;
+      }
+      return System.currentTimeMillis() - opened < cooldownMillis ? State.OPEN : State.HALF_OPEN;
+    }
+
+    private void open() {
+      openedAt = System.currentTimeMillis();
+      failures.set(0);
+      probe.set(null);
+    }
+
+    private void close() {
+      openedAt = 0;
+      failures.set(0);
+      probe.set(null);
+    }
+  }
+
+}
@@ -0,0 +1,16 @@
+package com.aquent.viewtools;
+
+import twitter4j.TwitterException;
+
+/**
+ * Thrown instead of making a request while the endpoint's circuit is open.
+ */
+public class TwitterToolCircuitOpenException extends TwitterException {
+
+  private static final long serialVersionUID = 1L;
+
+  public TwitterToolCircuitOpenException(TwitterToolEndpoint endpoint) {
+    super("The circuit for " + endpoint.getResource() + " is open");
+  }
+
+}
@@ -0,0 +1,50 @@
+package com.aquent.viewtools;
+
+/**
+ * Shares fetches between the dotCMS nodes in a cluster.
+ *
+ * Before a node calls twitter for a key it takes a short lease on the key.  The node holding the
+ * lease fetches and publishes the result, the other nodes wait for and read the published result
+ * instead of calling twitter themselves.
+ *
+ * Implementations are set with the twitter4jClusterProvider host variable and must be thread safe
+ * and have a public no argument constructor.  They should not throw, a node that cannot reach the
+ * cluster should be allowed to fetch on its own.
+ */
+public interface TwitterToolCluster {
+
+  /**
+   * Takes the lease on a key if no other node holds it.
+   *
+   * @param key The cache key
+   * @param node The id of the node taking the lease
+   * @param millis The number of milliseconds the lease is held before it expires
+   * @return true if this node now holds the lease
+   */
+  boolean tryLease(String key, String node, long millis);
+
+  /**
+   * Gives up a lease, if this node holds it.
+   *
+   * @param key The cache key
+   * @param node The id of the node giving up the lease
+   */
+  void release(String key, String node);
+
+  /**
+   * Shares the result fetched for a key with the other nodes.
+   *
+   * @param key The cache key
+   * @param entry The result and the time it was fetched
+   */
+  void publish(String key, TwitterToolCacheEntry entry);
+
+  /**
+   * Reads the last result published for a key by any node.
+   *
+   * @param key The cache key
+   * @return The entry or null if none has been published
+   */
+  TwitterToolCacheEntry read(String key);
+
+}
@@ -0,0 +1,370 @@
+package com.aquent.viewtools;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+
+import twitter4j.GeoLocation;
+import twitter4j.HashtagEntity;
+import twitter4j.MediaEntity;
+import twitter4j.Place;
+import twitter4j.RateLimitStatus;
+import twitter4j.Scopes;
+import twitter4j.Status;
+import twitter4j.SymbolEntity;
+import twitter4j.TwitterResponse;
+import twitter4j.URLEntity;
+import twitter4j.User;
+import twitter4j.UserMentionEntity;
+
+/**
+ * A small, immutable copy of a twitter4j Status holding only the fields templates render.
+ *
+ * Entities, place, scopes and quoted statuses are dropped and return null or an empty array, the
+ * text rendered to HTML with its entities by {@link TwitterToolEnricher} is kept instead.  A
+ * retweet keeps a compact copy of the retweeted status.  Build these with {@link TwitterToolCompactor}
+ * so authors and repeated strings are shared.
+ */
+public final class TwitterToolCompactStatus implements Status {
+
+  private static final long serialVersionUID = 1L;
+  private static final long[] NO_CONTRIBUTORS = new long[0];
+  private static final UserMentionEntity[] NO_MENTIONS = new UserMentionEntity[0];
+  private static final URLEntity[] NO_URLS = new URLEntity[0];
+  private static final HashtagEntity[] NO_HASHTAGS = new HashtagEntity[0];
+  private static final MediaEntity[] NO_MEDIA = new MediaEntity[0];
+  private static final SymbolEntity[] NO_SYMBOLS = new SymbolEntity[0];
+
+  private final long id;
+  private final long createdAt;
+  private final long inReplyToStatusId;
+  private final long inReplyToUserId;
+  private final long quotedStatusId;
+  private final double latitude;
+  private final double longitude;
+  private final String text;
+  private final String source;
+  private final String inReplyToScreenName;
+  private final String lang;
+  private final String html;
+  private final int favoriteCount;
+  private final int retweetCount;
+  private final boolean truncated;
+  private final boolean possiblySensitive;
+  private final long[] contributors;
+  private final User user;
+  private final Status retweetedStatus;
+
+  TwitterToolCompactStatus(Status status, User user, Status retweetedStatus, TwitterToolInterner<String> strings) {
+    this.id = status.getId();
+    this.createdAt = status.getCreatedAt() == null ? 0 : status.getCreatedAt().getTime();
+    this.inReplyToStatusId = status.getInReplyToStatusId();
+    this.inReplyToUserId = status.getInReplyToUserId();
+    this.quotedStatusId = status.getQuotedStatusId();
+    GeoLocation geo = status.getGeoLocation();
+    this.latitude = geo == null ? Double.NaN : geo.getLatitude();
+    this.longitude = geo == null ? Double.NaN : geo.getLongitude();
+    this.text = status.getText();
+    this.source = strings.intern(status.getSource());
+    this.inReplyToScreenName = strings.intern(status.getInReplyToScreenName());
+    this.lang = strings.intern(status.getLang());
+    this.html = enrichedHtml(status);
+    this.favoriteCount = status.getFavoriteCount();
+    this.retweetCount = status.getRetweetCount();
+    this.truncated = status.isTruncated();
+    this.possiblySensitive = status.isPossiblySensitive();
+    long[] c = status.getContributors();
+    this.contributors = c == null || c.length == 0 ? NO_CONTRIBUTORS : c;
+    this.user = user;
+    this.retweetedStatus = retweetedStatus;
+  }
+
+  TwitterToolCompactStatus(DataInput in, User user, Status retweetedStatus, TwitterToolInterner<String> strings)
+      throws IOException {
+    this.id = in.readLong();
+    this.createdAt = in.readLong();
+    this.inReplyToStatusId = in.readLong();
+    this.inReplyToUserId = in.readLong();
+    this.quotedStatusId = in.readLong();
+    this.latitude = in.readDouble();
+    this.longitude = in.readDouble();
+    this.text = TwitterToolBinary.readString(in, null);
+    this.source = TwitterToolBinary.readString(in, strings);
+    this.inReplyToScreenName = TwitterToolBinary.readString(in, strings);
+    this.lang = TwitterToolBinary.readString(in, strings);
+    this.html = TwitterToolBinary.readString(in, null);
+    this.favoriteCount = in.readInt();
+    this.retweetCount = in.readInt();
+    this.truncated = in.readBoolean();
+    this.possiblySensitive = in.readBoolean();
+    int contributorCount = in.readInt();
+    long[] c = contributorCount == 0 ? NO_CONTRIBUTORS : new long[contributorCount];
+    for (int i = 0; i < contributorCount; i++) {
+      c[i] = in.readLong();
+    }
+    this.contributors = c;
+    this.user = user;
+    this.retweetedStatus = retweetedStatus;
+  }
+
+  /**
+   * Writes the fields a compact status keeps, in the order the DataInput constructor reads them.
+   *
+   * The user and retweeted status are not written, the caller writes those.
+   *
+   * @param status The status to write
+   * @param out The output
+   * @throws IOException If the write fails
+   */
+  static void write(Status status, DataOutput out) throws IOException {
+    out.writeLong(status.getId());
+    out.writeLong(status.getCreatedAt() == null ? 0 : status.getCreatedAt().getTime());
+    out.writeLong(status.getInReplyToStatusId());
+    out.writeLong(status.getInReplyToUserId());
+    out.writeLong(status.getQuotedStatusId());
+    GeoLocation geo = status.getGeoLocation();
+    out.writeDouble(geo == null ? Double.NaN : geo.getLatitude());
+    out.writeDouble(geo == null ? Double.NaN : geo.getLongitude());
+    TwitterToolBinary.writeString(out, status.getText());
+    TwitterToolBinary.writeString(out, status.getSource());
+    TwitterToolBinary.writeString(out, status.getInReplyToScreenName());
+    TwitterToolBinary.writeString(out, status.getLang());
+    TwitterToolBinary.writeString(out, enrichedHtml(status));
+    out.writeInt(status.getFavoriteCount());
+    out.writeInt(status.getRetweetCount());
+    out.writeBoolean(status.isTruncated());
+    out.writeBoolean(status.isPossiblySensitive());
+    long[] c = status.getContributors();
+    out.writeInt(c == null ? 0 : c.length);
+    if (c != null) {
+      for (long contributor : c) {
+        out.writeLong(contributor);
+      }
+    }
+  }
+
+  /**
+   * Returns the HTML the status was enriched with, rendering it before the entities are dropped.
+   *
+   * @param status The status
+   * @return The HTML or null if enrichment is off
+   */
+  private static String enrichedHtml(Status status) {
+    if (status instanceof TwitterToolCompactStatus) {
+      return ((TwitterToolCompactStatus) status).html;
+    }
+    return TwitterToolEnricher.INSTANCE.isEnabled() ? TwitterToolEnricher.INSTANCE.getHtml(status) : null;
+  }
+
+  /**
+   * Returns the text as escaped HTML with its links and media thumbnails.
+   *
+   * @return The HTML or null if the status was compacted with enrichment off
+   */
+  public String getHtml() {
+    return html;
+  }
+
+  @Override
+  public Date getCreatedAt() {
+    return createdAt == 0 ? null : new Date(createdAt);
+  }
+
+  @Override
+  public long getId() {
+    return id;
+  }
+
+  @Override
+  public String getText() {
+    return text;
+  }
+
+  @Override
+  public int getDisplayTextRangeStart() {
+    return 0;
+  }
+
+  @Override
+  public int getDisplayTextRangeEnd() {
+    return text == null ? 0 : text.length();
+  }
+
+  @Override
+  public String getSource() {
+    return source;
+  }
+
+  @Override
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  @Override
+  public long getInReplyToStatusId() {
+    return inReplyToStatusId;
+  }
+
+  @Override
+  public long getInReplyToUserId() {
+    return inReplyToUserId;
+  }
+
+  @Override
+  public String getInReplyToScreenName() {
+    return inReplyToScreenName;
+  }
+
+  @Override
+  public GeoLocation getGeoLocation() {
+    return Double.isNaN(latitude) ? null : new GeoLocation(latitude, longitude);
+  }
+
+  @Override
+  public Place getPlace() {
+    return null;
+  }
+
+  @Override
+  public boolean isFavorited() {
+    return false;
+  }
+
+  @Override
+  public boolean isRetweeted() {
+    return false;
+  }
+
+  @Override
+  public int getFavoriteCount() {
+    return favoriteCount;
+  }
+
+  @Override
+  public User getUser() {
+    return user;
+  }
+
+  @Override
+  public boolean isRetweet() {
+    return retweetedStatus != null;
+  }
+
+  @Override
+  public Status getRetweetedStatus() {
+    return retweetedStatus;
+  }
+
+  @Override
+  public long[] getContributors() {
+    return contributors.length == 0 ? contributors : contributors.clone();
+  }
+
+  @Override
+  public int getRetweetCount() {
+    return retweetCount;
+  }
+
+  @Override
+  public boolean isRetweetedByMe() {
+    return false;
+  }
+
+  @Override
+  public long getCurrentUserRetweetId() {
+    return -1L;
+  }
+
+  @Override
+  public boolean isPossiblySensitive() {
+    return possiblySensitive;
+  }
+
+  @Override
+  public String getLang() {
+    return lang;
+  }
+
+  @Override
+  public Scopes getScopes() {
+    return null;
+  }
+
+  @Override
+  public String[] getWithheldInCountries() {
+    return null;
+  }
+
+  @Override
+  public long getQuotedStatusId() {
+    return quotedStatusId;
+  }
+
+  @Override
+  public Status getQuotedStatus() {
+    return null;
+  }
+
+  @Override
+  public UserMentionEntity[] getUserMentionEntities() {
+    return NO_MENTIONS;
+  }
+
+  @Override
+  public URLEntity[] getURLEntities() {
+    return NO_URLS;
+  }
+
+  @Override
+  public HashtagEntity[] getHashtagEntities() {
+    return NO_HASHTAGS;
+  }
+
+  @Override
+  public MediaEntity[] getMediaEntities() {
+    return NO_MEDIA;
+  }
+
+  @Override
+  public SymbolEntity[] getSymbolEntities() {
+    return NO_SYMBOLS;
+  }
+
+  @Override
+  public RateLimitStatus getRateLimitStatus() {
+    return null;
+  }
+
+  @Override
+  public int getAccessLevel() {
+    return TwitterResponse.READ;
+  }
+
+  @Override
+  public int compareTo(Status that) {
+    long delta = id - that.getId();
+    if (delta < Integer.MIN_VALUE) {
+      return Integer.MIN_VALUE;
+    } else if (delta > Integer.MAX_VALUE) {
+      return Integer.MAX_VALUE;
+    }
+    return (int) delta;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof Status && ((Status) o).getId() == id);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(id);
+  }
+
+  @Override
+  public String toString() {
+    return "TwitterToolCompactStatus{id=" + id + ", user=" + (user == null ? null : user.getScreenName()) + ", text=" + text + "}";
+  }
+
+}
@@ -0,0 +1,438 @@
+package com.aquent.viewtools;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+import java.util.Objects;
+
+import twitter4j.RateLimitStatus;
+import twitter4j.Status;
+import twitter4j.TwitterResponse;
+import twitter4j.URLEntity;
+import twitter4j.User;
+
+/**
+ * A small, immutable copy of a twitter4j User holding only the fields templates render.
+ *
+ * Everything else returns null, false, 0 or an empty array.  Build these with
+ * {@link TwitterToolCompactor} so equal users and repeated strings are shared.
+ */
+public final class TwitterToolCompactUser implements User {
+
+  private static final long serialVersionUID = 1L;
+  private static final URLEntity[] NO_URLS = new URLEntity[0];
+
+  private final long id;
+  private final long createdAt;
+  private final String name;
+  private final String screenName;
+  private final String location;
+  private final String description;
+  private final String url;
+  private final String profileImageUrlHttps;
+  private final String profileBannerUrl;
+  private final String lang;
+  private final int followersCount;
+  private final int friendsCount;
+  private final int statusesCount;
+  private final int favouritesCount;
+  private final int listedCount;
+  private final boolean isProtected;
+  private final boolean verified;
+  private final boolean defaultProfileImage;
+
+  TwitterToolCompactUser(User user, TwitterToolInterner<String> strings) {
+    this.id = user.getId();
+    this.createdAt = user.getCreatedAt() == null ? 0 : user.getCreatedAt().getTime();
+    this.name = strings.intern(user.getName());
+    this.screenName = strings.intern(user.getScreenName());
+    this.location = strings.intern(user.getLocation());
+    this.description = strings.intern(user.getDescription());
+    this.url = strings.intern(user.getURL());
+    this.profileImageUrlHttps = strings.intern(user.getProfileImageURLHttps());
+    this.profileBannerUrl = strings.intern(user.getProfileBannerURL());
+    this.lang = strings.intern(user.getLang());
+    this.followersCount = user.getFollowersCount();
+    this.friendsCount = user.getFriendsCount();
+    this.statusesCount = user.getStatusesCount();
+    this.favouritesCount = user.getFavouritesCount();
+    this.listedCount = user.getListedCount();
+    this.isProtected = user.isProtected();
+    this.verified = user.isVerified();
+    this.defaultProfileImage = user.isDefaultProfileImage();
+  }
+
+  TwitterToolCompactUser(DataInput in, TwitterToolInterner<String> strings) throws IOException {
+    this.id = in.readLong();
+    this.createdAt = in.readLong();
+    this.name = TwitterToolBinary.readString(in, strings);
+    this.screenName = TwitterToolBinary.readString(in, strings);
+    this.location = TwitterToolBinary.readString(in, strings);
+    this.description = TwitterToolBinary.readString(in, strings);
+    this.url = TwitterToolBinary.readString(in, strings);
+    this.profileImageUrlHttps = TwitterToolBinary.readString(in, strings);
+    this.profileBannerUrl = TwitterToolBinary.readString(in, strings);
+    this.lang = TwitterToolBinary.readString(in, strings);
+    this.followersCount = in.readInt();
+    this.friendsCount = in.readInt();
+    this.statusesCount = in.readInt();
+    this.favouritesCount = in.readInt();
+    this.listedCount = in.readInt();
+    this.isProtected = in.readBoolean();
+    this.verified = in.readBoolean();
+    this.defaultProfileImage = in.readBoolean();
+  }
+
+  /**
+   * Writes the fields a compact user keeps, in the order the DataInput constructor reads them.
+   *
+   * @param user The user to write
+   * @param out The output
+   * @throws IOException If the write fails
+   */
+  static void write(User user, DataOutput out) throws IOException {
+    out.writeLong(user.getId());
+    out.writeLong(user.getCreatedAt() == null ? 0 : user.getCreatedAt().getTime());
+    TwitterToolBinary.writeString(out, user.getName());
+    TwitterToolBinary.writeString(out, user.getScreenName());
+    TwitterToolBinary.writeString(out, user.getLocation());
+    TwitterToolBinary.writeString(out, user.getDescription());
+    TwitterToolBinary.writeString(out, user.getURL());
+    TwitterToolBinary.writeString(out, user.getProfileImageURLHttps());
+    TwitterToolBinary.writeString(out, user.getProfileBannerURL());
+    TwitterToolBinary.writeString(out, user.getLang());
+    out.writeInt(user.getFollowersCount());
+    out.writeInt(user.getFriendsCount());
+    out.writeInt(user.getStatusesCount());
+    out.writeInt(user.getFavouritesCount());
+    out.writeInt(user.getListedCount());
+    out.writeBoolean(user.isProtected());
+    out.writeBoolean(user.isVerified());
+    out.writeBoolean(user.isDefaultProfileImage());
+  }
+
+  @Override
+  public long getId() {
+    return id;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String getEmail() {
+    return null;
+  }
+
+  @Override
+  public String getScreenName() {
+    return screenName;
+  }
+
+  @Override
+  public String getLocation() {
+    return location;
+  }
+
+  @Override
+  public String getDescription() {
+    return description;
+  }
+
+  @Override
+  public boolean isContributorsEnabled() {
+    return false;
+  }
+
+  @Override
+  public String getProfileImageURL() {
+    return toHttp(profileImageUrlHttps);
+  }
+
+  @Override
+  public String getBiggerProfileImageURL() {
+    return toHttp(getBiggerProfileImageURLHttps());
+  }
+
+  @Override
+  public String getMiniProfileImageURL() {
+    return toHttp(getMiniProfileImageURLHttps());
+  }
+
+  @Override
+  public String getOriginalProfileImageURL() {
+    return toHttp(getOriginalProfileImageURLHttps());
+  }
+
+  @Override
+  public String getProfileImageURLHttps() {
+    return profileImageUrlHttps;
+  }
+
+  @Override
+  public String getBiggerProfileImageURLHttps() {
+    return imageVariant("_bigger");
+  }
+
+  @Override
+  public String getMiniProfileImageURLHttps() {
+    return imageVariant("_mini");
+  }
+
+  @Override
+  public String getOriginalProfileImageURLHttps() {
+    return imageVariant("");
+  }
+
+  @Override
+  public boolean isDefaultProfileImage() {
+    return defaultProfileImage;
+  }
+
+  @Override
+  public String getURL() {
+    return url;
+  }
+
+  @Override
+  public boolean isProtected() {
+    return isProtected;
+  }
+
+  @Override
+  public int getFollowersCount() {
+    return followersCount;
+  }
+
+  @Override
+  public Status getStatus() {
+    return null;
+  }
+
+  @Override
+  public String getProfileBackgroundColor() {
+    return null;
+  }
+
+  @Override
+  public String getProfileTextColor() {
+    return null;
+  }
+
+  @Override
+  public String getProfileLinkColor() {
+    return null;
+  }
+
+  @Override
+  public String getProfileSidebarFillColor() {
+    return null;
+  }
+
+  @Override
+  public String getProfileSidebarBorderColor() {
+    return null;
+  }
+
+  @Override
+  public boolean isProfileUseBackgroundImage() {
+    return false;
+  }
+
+  @Override
+  public boolean isDefaultProfile() {
+    return false;
+  }
+
+  @Override
+  public boolean isShowAllInlineMedia() {
+    return false;
+  }
+
+  @Override
+  public int getFriendsCount() {
+    return friendsCount;
+  }
+
+  @Override
+  public Date getCreatedAt() {
+    return createdAt == 0 ? null : new Date(createdAt);
+  }
+
+  @Override
+  public int getFavouritesCount() {
+    return favouritesCount;
+  }
+
+  @Override
+  public int getUtcOffset() {
+    return 0;
+  }
+
+  @Override
+  public String getTimeZone() {
+    return null;
+  }
+
+  @Override
+  public String getProfileBackgroundImageURL() {
+    return null;
+  }
+
+  @Override
+  public String getProfileBackgroundImageUrlHttps() {
+    return null;
+  }
+
+  @Override
+  public String getProfileBannerURL() {
+    return profileBannerUrl;
+  }
+
+  @Override
+  public String getProfileBannerRetinaURL() {
+    return bannerVariant("/web_retina");
+  }
+
+  @Override
+  public String getProfileBannerIPadURL() {
+    return bannerVariant("/ipad");
+  }
+
+  @Override
+  public String getProfileBannerIPadRetinaURL() {
+    return bannerVariant("/ipad_retina");
+  }
+
+  @Override
+  public String getProfileBannerMobileURL() {
+    return bannerVariant("/mobile");
+  }
+
+  @Override
+  public String getProfileBannerMobileRetinaURL() {
+    return bannerVariant("/mobile_retina");
+  }
+
+  @Override
+  public boolean isProfileBackgroundTiled() {
+    return false;
+  }
+
+  @Override
+  public String getLang() {
+    return lang;
+  }
+
+  @Override
+  public int getStatusesCount() {
+    return statusesCount;
+  }
+
+  @Override
+  public boolean isGeoEnabled() {
+    return false;
+  }
+
+  @Override
+  public boolean isVerified() {
+    return verified;
+  }
+
+  @Override
+  public boolean isTranslator() {
+    return false;
+  }
+
+  @Override
+  public int getListedCount() {
+    return listedCount;
+  }
+
+  @Override
+  public boolean isFollowRequestSent() {
+    return false;
+  }
+
+  @Override
+  public URLEntity[] getDescriptionURLEntities() {
+    return NO_URLS;
+  }
+
+  @Override
+  public URLEntity getURLEntity() {
+    return null;
+  }
+
+  @Override
+  public String[] getWithheldInCountries() {
+    return null;
+  }
+
+  @Override
+  public RateLimitStatus getRateLimitStatus() {
+    return null;
+  }
+
+  @Override
+  public int getAccessLevel() {
+    return TwitterResponse.READ;
+  }
+
+  @Override
+  public int compareTo(User that) {
+    return Long.compare(id, that.getId());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof TwitterToolCompactUser)) {
+      return false;
+    }
+    TwitterToolCompactUser that = (TwitterToolCompactUser) o;
+    return id == that.id && createdAt == that.createdAt && followersCount == that.followersCount
+        && friendsCount == that.friendsCount && statusesCount == that.statusesCount
+        && favouritesCount == that.favouritesCount && listedCount == that.listedCount
+        && isProtected == that.isProtected && verified == that.verified && defaultProfileImage == that.defaultProfileImage
+        && Objects.equals(name, that.name) && Objects.equals(screenName, that.screenName)
+        && Objects.equals(location, that.location) && Objects.equals(description, that.description)
+        && Objects.equals(url, that.url) && Objects.equals(profileImageUrlHttps, that.profileImageUrlHttps)
+        && Objects.equals(profileBannerUrl, that.profileBannerUrl) && Objects.equals(lang, that.lang);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * Long.hashCode(id) + followersCount) + statusesCount;
+  }
+
+  @Override
+  public String toString() {
+    return "TwitterToolCompactUser{id=" + id + ", screenName=" + screenName + ", name=" + name + "}";
+  }
+
+  private String imageVariant(String suffix) {
+    if (profileImageUrlHttps == null) {
+      return null;
+    }
+    int index = profileImageUrlHttps.lastIndexOf("_normal");
+    if (index == -1) {
+      return profileImageUrlHttps;
+    }
+    return profileImageUrlHttps.substring(0, index) + suffix + profileImageUrlHttps.substring(index + "_normal".length());
+  }
+
+  private String bannerVariant(String suffix) {
+    return profileBannerUrl == null ? null : profileBannerUrl.replaceFirst("/web$", "") + suffix;
+  }
+
+  private static String toHttp(String https) {
+    return https == null ? null : https.replaceFirst("^https://", "http://");
+  }
+
+}
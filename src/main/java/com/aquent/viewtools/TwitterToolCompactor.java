@@ -0,0 +1,116 @@
+package com.aquent.viewtools;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import twitter4j.PagableResponseList;
+import twitter4j.ResponseList;
+import twitter4j.Status;
+import twitter4j.User;
+
+/**
+ * Turns twitter4j Statuses and Users into their compact copies before they are cached.
+ *
+ * Strings that repeat across tweets (names, screen names, image urls, sources) and authors whose
+ * profile has not changed are shared between every compact copy.
+ */
+public enum TwitterToolCompactor {
+  // Makes this a singleton
+  INSTANCE;
+
+  private final TwitterToolInterner<String> strings = new TwitterToolInterner<>();
+  private final TwitterToolInterner<TwitterToolCompactUser> users = new TwitterToolInterner<>();
+
+  /**
+   * Returns the compact copy of a twitter result.
+   *
+   * Handles Statuses, Users, timelines and lists of them, anything else is returned as is.
+   *
+   * @param result The result to compact
+   * @return The compact copy
+   */
+  @SuppressWarnings("unchecked")
+  public Object compact(Object result) {
+    if (result instanceof Status) {
+      return compact((Status) result);
+    } else if (result instanceof User) {
+      return compact((User) result);
+    } else if (result instanceof TwitterToolTimeline) {
+      return ((TwitterToolTimeline) result).map(this::compact);
+    } else if (result instanceof PagableResponseList) {
+      PagableResponseList<?> list = (PagableResponseList<?>) result;
+      if (list.isEmpty() || !(list.get(0) instanceof User)) {
+        return list;
+      }
+      List<User> compacted = new ArrayList<>(list.size());
+      for (User user : (PagableResponseList<User>) list) {
+        compacted.add(compact(user));
+      }
+      return new TwitterToolPagableResponseList<>(compacted, list.getRateLimitStatus(), list.getPreviousCursor(),
+          list.getNextCursor());
+    } else if (result instanceof ResponseList) {
+      ResponseList<?> list = (ResponseList<?>) result;
+      List<Object> compacted = new ArrayList<>(list.size());
+      for (Object o : list) {
+        compacted.add(compact(o));
+      }
+      return new TwitterToolResponseList<>(compacted, list.getRateLimitStatus());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the compact copy of a status.
+   *
+   * @param status The status
+   * @return The compact copy
+   */
+  public Status compact(Status status) {
+    if (status == null || status instanceof TwitterToolCompactStatus) {
+      return status;
+    }
+    Status retweeted = status.getRetweetedStatus() == null ? null
+        : new TwitterToolCompactStatus(status.getRetweetedStatus(), compact(status.getRetweetedStatus().getUser()), null, strings);
+    return new TwitterToolCompactStatus(status, compact(status.getUser()), retweeted, strings);
+  }
+
+  /**
+   * Returns the compact copy of a user, shared with any other copy of the same profile.
+   *
+   * @param user The user
+   * @return The compact copy
+   */
+  public User compact(User user) {
+    if (user == null || user instanceof TwitterToolCompactUser) {
+      return user;
+    }
+    return users.intern(new TwitterToolCompactUser(user, strings));
+  }
+
+  /**
+   * Reads a compact user written by {@link TwitterToolCompactUser#write}, shared with any equal copy.
+   *
+   * @param in The input
+   * @return The compact user
+   * @throws IOException If the read fails
+   */
+  User readUser(DataInput in) throws IOException {
+    return users.intern(new TwitterToolCompactUser(in, strings));
+  }
+
+  /**
+   * Reads a compact status written by {@link TwitterToolCompactStatus#write}.
+   *
+   * @param in The input
+   * @param user The status's author
+   * @param retweetedStatus The retweeted status or null
+   * @return The compact status
+   * @throws IOException If the read fails
+   */
+  Status readStatus(DataInput in, User user, Status retweetedStatus) throws IOException {
+    return new TwitterToolCompactStatus(in, user, retweetedStatus, strings);
+  }
+
+}
@@ -0,0 +1,95 @@
+package com.aquent.viewtools;
+
+import java.util.Map;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+/**
+ * Reads the optional TwitterTool settings from the host variables on a host.
+ */
+public class TwitterToolConfig {
+
+  private final Map<String, Object> properties;
+
+  /**
+   * Creates a config backed by the host's variables.
+   *
+   * @param host The host to read the variables from
+   */
+  public TwitterToolConfig(Host host) {
+    this.properties = host.getMap();
+  }
+
+  /**
+   * Creates a config backed by a map of settings, eg in the benchmarks.
+   *
+   * @param properties The settings keyed by host variable name
+   */
+  TwitterToolConfig(Map<String, Object> properties) {
+    this.properties = properties;
+  }
+
+  /**
+   * Returns the host variable as a String.
+   *
+   * @param name The host variable name
+   * @param defaultValue The value to use if the variable is not set
+   * @return The value of the host variable or the default
+   */
+  public String getString(String name, String defaultValue) {
+    Object o = properties == null ? null : properties.get(name);
+    if (o == null || !UtilMethods.isSet(o.toString().trim())) {
+      return defaultValue;
+    }
+    return o.toString().trim();
+  }
+
+  /**
+   * Returns the host variable as an int.
+   *
+   * @param name The host variable name
+   * @param defaultValue The value to use if the variable is not set or is not a number
+   * @return The value of the host variable or the default
+   */
+  public int getInt(String name, int defaultValue) {
+    return (int) getLong(name, defaultValue);
+  }
+
+  /**
+   * Returns the host variable as a long.
+   *
+   * @param name The host variable name
+   * @param defaultValue The value to use if the variable is not set or is not a number
+   * @return The value of the host variable or the default
+   */
+  public long getLong(String name, long defaultValue) {
+    String value = getString(name, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      Logger.warn(this, "Host variable " + name + " is not a number: " + value);
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Returns the host variable as a boolean.
+   *
+   * @param name The host variable name
+   * @param defaultValue The value to use if the variable is not set
+   * @return The value of the host variable or the default
+   */
+  public boolean getBoolean(String name, boolean defaultValue) {
+    String value = getString(name, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    return Boolean.parseBoolean(value);
+  }
+
+}
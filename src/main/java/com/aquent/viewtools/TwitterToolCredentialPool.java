@@ -0,0 +1,238 @@
+package com.aquent.viewtools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import twitter4j.Twitter;
+
+/**
+ * The twitter apps the tool can call with, each with a rate limit budget of its own.
+ *
+ * The default host's credentials are the first app, and each host that sets twitter4j credentials
+ * of its own adds another, hosts without them fall back to the default host's.  An app's Twitter
+ * instance is only built the first time a call is made with it.  Reads are cached for every host,
+ * so any app can make them: each call goes to the app with the most budget left for its endpoint,
+ * and the pool makes as many calls per rate limit window as all of its apps together.
+ */
+public class TwitterToolCredentialPool {
+
+  private final int reservePercent;
+  private final List<Client> clients = new CopyOnWriteArrayList<>();
+  private final Map<String, Client> byCredentials = new ConcurrentHashMap<>();
+  private final Map<String, Client> byHost = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an empty pool.
+   *
+   * @param reservePercent The percent of each app's budgets kept back for interactive calls
+   */
+  public TwitterToolCredentialPool(int reservePercent) {
+    this.reservePercent = reservePercent;
+  }
+
+  /**
+   * Adds the app a host calls with, building its Twitter instance when it is first used.  Hosts with
+   * the same credentials share one app and one budget.
+   *
+   * @param hostname The host the credentials were set on
+   * @param credentials Identifies the credentials, eg the consumer key and access token
+   * @param factory Builds the Twitter instance
+   * @return The app, which is the one already in the pool if another host has the same credentials
+   */
+  public synchronized Client add(String hostname, String credentials, Supplier<Twitter> factory) {
+    Client client = byCredentials.get(credentials);
+    if (client == null) {
+      client = new Client(hostname, factory, new TwitterToolRateLimiter(reservePercent));
+      byCredentials.put(credentials, client);
+      clients.add(client);
+    }
+    byHost.put(hostname.toLowerCase(), client);
+    return client;
+  }
+
+  /**
+   * Takes one call from the budget of the app with the most of it left for an endpoint.  Apps whose
+   * budget is not known yet are tried first, and apps with the same budget left take turns.
+   *
+   * @param endpoint The endpoint about to be called
+   * @param priority The priority of the call
+   * @return The app to make the call with, or null if no app has room for it
+   */
+  public Client acquire(TwitterToolEndpoint endpoint, TwitterToolPriority priority) {
+    List<Client> candidates = clients;
+    int n = candidates.size();
+    if (n == 1) {
+      Client only = candidates.get(0);
+      return only.rateLimiter.tryAcquire(endpoint, priority) ? only : null;
+    }
+
+    // The budgets change under us, so rank them as they were when we started
+    int[] remaining = new int[n];
+    for (int i = 0; i < n; i++) {
+      remaining[i] = candidates.get(i).rateLimiter.getRemaining(endpoint);
+    }
+    boolean[] tried = new boolean[n];
+    int offset = n == 0 ? 0 : ThreadLocalRandom.current().nextInt(n);
+    for (int attempt = 0; attempt < n; attempt++) {
+      int best = -1;
+      for (int k = 0; k < n; k++) {
+        int i = (offset + k) % n;
+        if (!tried[i] && (best == -1 || remaining[i] > remaining[best])) {
+          best = i;
+        }
+      }
+      tried[best] = true;
+      Client client = candidates.get(best);
+      if (client.rateLimiter.tryAcquire(endpoint, priority)) {
+        return client;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks if any app has room for a call of this priority without taking it from a budget.
+   *
+   * @param endpoint The endpoint to check
+   * @param priority The priority of the call
+   * @return true if a call would be allowed
+   */
+  public boolean isAvailable(TwitterToolEndpoint endpoint, TwitterToolPriority priority) {
+    for (Client client : clients) {
+      if (client.rateLimiter.isAvailable(endpoint, priority)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the app a host calls with.
+   *
+   * @param hostname The host name, or null for the default host
+   * @return The host's app, or the default host's if it has none of its own
+   */
+  public Client forHost(String hostname) {
+    Client client = hostname == null ? null : byHost.get(hostname.toLowerCase());
+    return client != null ? client : getDefault();
+  }
+
+  /**
+   * Returns the default host's app, the first added.
+   *
+   * @return The app or null if the pool is empty
+   */
+  public Client getDefault() {
+    List<Client> all = clients;
+    return all.isEmpty() ? null : all.get(0);
+  }
+
+  public int size() {
+    return clients.size();
+  }
+
+  /**
+   * Returns the budgets of every app added together for display.
+   *
+   * @return A map of resource to limit, remaining and the soonest reset (epoch seconds)
+   */
+  public Map<String, Map<String, Long>> getStats() {
+    if (clients.size() == 1) {
+      return clients.get(0).rateLimiter.getStats();
+    }
+    Map<String, Map<String, Long>> total = new LinkedHashMap<>();
+    for (Client client : clients) {
+      for (Map.Entry<String, Map<String, Long>> e : client.rateLimiter.getStats().entrySet()) {
+        Map<String, Long> budget = total.computeIfAbsent(e.getKey(), resource -> new LinkedHashMap<>());
+        budget.merge("limit", e.getValue().get("limit"), Long::sum);
+        budget.merge("remaining", e.getValue().get("remaining"), Long::sum);
+        long reset = e.getValue().get("reset");
+        budget.merge("reset", reset, (a, b) -> a == 0 ? b : b == 0 ? a : Math.min(a, b));
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Returns each app's budgets, named after the host that added it.
+   *
+   * @return A map of app to resource to limit, remaining and reset (epoch seconds)
+   */
+  public Map<String, Map<String, Map<String, Long>>> getClientStats() {
+    Map<String, Map<String, Map<String, Long>>> stats = new LinkedHashMap<>();
+    for (Client client : clients) {
+      stats.put(client.name, client.rateLimiter.getStats());
+    }
+    return Collections.unmodifiableMap(stats);
+  }
+
+  /**
+   * Returns the apps in the pool.
+   *
+   * @return The apps, the default host's first
+   */
+  public List<Client> getClients() {
+    return Collections.unmodifiableList(new ArrayList<>(clients));
+  }
+
+  /**
+   * One app's Twitter instance, built on first use, and its rate limit budgets.
+   */
+  public static final class Client {
+    private final String name;
+    private final Supplier<Twitter> factory;
+    private final TwitterToolRateLimiter rateLimiter;
+    private volatile Twitter twitter;
+
+    private Client(String name, Supplier<Twitter> factory, TwitterToolRateLimiter rateLimiter) {
+      this.name = name;
+      this.factory = factory;
+      this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Returns the app's Twitter instance, building it if this is the first call made with it.
+     *
+     * @return The Twitter instance
+     */
+    public Twitter getTwitter() {
+      Twitter t = twitter;
+      if (t == null) {
+        synchronized (this) {
+          t = twitter;
+          if (t == null) {
+            t = factory.get();
+            twitter = t;
+          }
+        }
+      }
+      return t;
+    }
+
+    public TwitterToolRateLimiter getRateLimiter() {
+      return rateLimiter;
+    }
+
+    /**
+     * The host that added this app.
+     *
+     * @return The host name
+     */
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+package com.aquent.viewtools;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.dotmarketing.util.Logger;
+
+import twitter4j.PagableResponseList;
+import twitter4j.User;
+
+/**
+ * A lazy walk over a cursored list of users, eg a user's followers or a list's members.
+ *
+ * Pages are only fetched as the iterator reaches them and the next page is fetched in the
+ * background while the current one is read, so only two pages are held at once.  Iteration stops
+ * at the limit, at the end of the list or once the deadline passes, whichever comes first.
+ *
+ * Each call to iterator() starts again from the first page and its own deadline, so the same
+ * cursor can be used in more than one #foreach.
+ */
+public final class TwitterToolCursor implements Iterable<User> {
+
+  /**
+   * Loads the page of users at a cursor.
+   */
+  public interface PageLoader {
+    PagableResponseList<User> load(long cursor);
+  }
+
+  private final PageLoader loader;
+  private final int limit;
+  private final long deadline;
+  private final Executor prefetcher;
+
+  /**
+   * Creates a cursor.
+   *
+   * @param loader Loads a page, returning null if something went wrong
+   * @param limit The most users to return
+   * @param deadline The most milliseconds to spend per iteration, 0 or less to wait as long as it takes
+   * @param prefetcher Runs the page loads
+   */
+  public TwitterToolCursor(PageLoader loader, int limit, long deadline, Executor prefetcher) {
+    this.loader = loader;
+    this.limit = limit;
+    this.deadline = deadline;
+    this.prefetcher = prefetcher;
+  }
+
+  /**
+   * The most users this cursor returns.
+   *
+   * @return The limit
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  @Override
+  public Iterator<User> iterator() {
+    return new PageIterator();
+  }
+
+  private final class PageIterator implements Iterator<User> {
+
+    private final long end = deadline > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadline) : 0;
+    private CompletableFuture<PagableResponseList<User>> next;
+    private List<User> page = Collections.emptyList();
+    private int index;
+    private int served;
+
+    private PageIterator() {
+      next = prefetch(-1);
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (served >= limit) {
+        return false;
+      }
+      while (index >= page.size()) {
+        if (next == null) {
+          return false;
+        }
+        PagableResponseList<User> loaded = await(next);
+        next = null;
+        if (loaded == null) {
+          return false;
+        }
+        page = loaded;
+        index = 0;
+        if (loaded.hasNext() && served + loaded.size() < limit && !expired()) {
+          next = prefetch(loaded.getNextCursor());
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public User next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      served++;
+      return page.get(index++);
+    }
+
+    private CompletableFuture<PagableResponseList<User>> prefetch(final long cursor) {
+      try {
+        return CompletableFuture.supplyAsync(() -> loader.load(cursor), prefetcher);
+      } catch (RejectedExecutionException e) {
+        // Ends the cursor here rather than loading the page on this thread
+        return CompletableFuture.completedFuture(null);
+      }
+    }
+
+    private PagableResponseList<User> await(CompletableFuture<PagableResponseList<User>> future) {
+      try {
+        if (end == 0) {
+          return future.get();
+        }
+        return future.get(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        // The page is still cached when it arrives so the next render picks it up
+        Logger.debug(this, "Cursor deadline of " + deadline + "ms reached after " + served + " users");
+      } catch (ExecutionException e) {
+        Logger.error(this, "Cursor page load failed", e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        Logger.warn(this, "Interrupted waiting for a cursor page");
+      }
+      return null;
+    }
+
+    private boolean expired() {
+      return end != 0 && System.nanoTime() - end >= 0;
+    }
+  }
+
+}
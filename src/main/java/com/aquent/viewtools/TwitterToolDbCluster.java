@@ -0,0 +1,210 @@
+package com.aquent.viewtools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.util.Logger;
+
+/**
+ * A cluster kept in the dotCMS database, which every node in a dotCMS cluster shares.
+ *
+ * Each key has a row in the twittertool_lease table holding its lease and its last published
+ * result.  The table is created the first time it is needed.  Database errors are logged and let
+ * the node fetch on its own.
+ */
+public class TwitterToolDbCluster implements TwitterToolCluster {
+
+  private static final String TABLE = "twittertool_lease";
+  // The SQL state class of unique and other integrity constraint violations
+  private static final String INTEGRITY_CONSTRAINT_STATE = "23";
+
+  private volatile boolean tableReady = false;
+
+  @Override
+  public boolean tryLease(String key, String node, long millis) {
+    long now = System.currentTimeMillis();
+    long expiresAt = now + millis;
+    try {
+      ensureTable();
+      new DotConnect()
+          .setSQL("UPDATE " + TABLE + " SET lease_owner = ?, expires_at = ? WHERE lease_key = ? AND (expires_at < ? OR lease_owner = ?)")
+          .addParam(node).addParam(expiresAt).addParam(key).addParam(now).addParam(node)
+          .loadResult();
+
+      List<Map<String, Object>> rows = new DotConnect()
+          .setSQL("SELECT lease_owner, expires_at FROM " + TABLE + " WHERE lease_key = ?")
+          .addParam(key)
+          .loadObjectResults();
+      if (rows.isEmpty()) {
+        try {
+          new DotConnect()
+              .setSQL("INSERT INTO " + TABLE + " (lease_key, lease_owner, expires_at, fetched_at) VALUES (?, ?, ?, 0)")
+              .addParam(key).addParam(node).addParam(expiresAt)
+              .loadResult();
+          return true;
+        } catch (DotDataException e) {
+          if (isDuplicateKey(e)) {
+            // Another node inserted the row first, so it holds the lease
+            return false;
+          }
+          throw e;
+        }
+      }
+      Map<String, Object> row = rows.get(0);
+      return node.equals(row.get("lease_owner")) && ((Number) row.get("expires_at")).longValue() == expiresAt;
+    } catch (DotDataException | RuntimeException e) {
+      Logger.warn(this, "Could not take the cluster lease for " + key + ", fetching it here: " + e.getMessage());
+      return true;
+    }
+  }
+
+  @Override
+  public void release(String key, String node) {
+    try {
+      new DotConnect()
+          .setSQL("UPDATE " + TABLE + " SET expires_at = 0 WHERE lease_key = ? AND lease_owner = ?")
+          .addParam(key).addParam(node)
+          .loadResult();
+    } catch (DotDataException | RuntimeException e) {
+      Logger.warn(this, "Could not release the cluster lease for " + key + ": " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void publish(String key, TwitterToolCacheEntry entry) {
+    try {
+      new DotConnect()
+          .setSQL("UPDATE " + TABLE + " SET result_data = ?, fetched_at = ? WHERE lease_key = ?")
+          .addParam(serialize(entry)).addParam(entry.getFetchedAt()).addParam(key)
+          .loadResult();
+    } catch (DotDataException | IOException | RuntimeException e) {
+      Logger.warn(this, "Could not publish " + key + " to the cluster: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public TwitterToolCacheEntry read(String key) {
+    try {
+      ensureTable();
+      List<Map<String, Object>> rows = new DotConnect()
+          .setSQL("SELECT result_data FROM " + TABLE + " WHERE lease_key = ? AND fetched_at > 0")
+          .addParam(key)
+          .loadObjectResults();
+      if (rows.isEmpty()) {
+        return null;
+      }
+      byte[] data = bytes(rows.get(0).get("result_data"));
+      return data == null ? null : deserialize(data);
+    } catch (DotDataException | IOException | ClassNotFoundException | SQLException | RuntimeException e) {
+      Logger.warn(this, "Could not read " + key + " from the cluster: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Checks if an error was caused by a row with the same key already being there, which every
+   * database reports with an integrity constraint SQL state, class 23.
+   */
+  private static boolean isDuplicateKey(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLException) {
+        String state = ((SQLException) cause).getSQLState();
+        if (state != null && state.startsWith(INTEGRITY_CONSTRAINT_STATE)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void ensureTable() throws DotDataException {
+    if (tableReady) {
+      return;
+    }
+    synchronized (this) {
+      if (tableReady) {
+        return;
+      }
+      try {
+        new DotConnect().setSQL("SELECT count(*) AS leases FROM " + TABLE).loadObjectResults();
+      } catch (DotDataException e) {
+        Logger.info(this, "Creating the " + TABLE + " table");
+        new DotConnect().setSQL("CREATE TABLE " + TABLE + " (lease_key varchar(255) NOT NULL PRIMARY KEY, "
+            + "lease_owner varchar(64), expires_at " + longType() + " NOT NULL, fetched_at " + longType() + " NOT NULL, "
+            + "result_data " + blobType() + ")").loadResult();
+      }
+      tableReady = true;
+    }
+  }
+
+  private static String longType() {
+    return DbConnectionFactory.isOracle() ? "number(19)" : "bigint";
+  }
+
+  private static String blobType() {
+    if (DbConnectionFactory.isPostgres()) {
+      return "bytea";
+    } else if (DbConnectionFactory.isMySql()) {
+      return "longblob";
+    } else if (DbConnectionFactory.isMsSql()) {
+      return "varbinary(max)";
+    }
+    return "blob";
+  }
+
+  private static byte[] bytes(Object value) throws SQLException {
+    if (value instanceof byte[]) {
+      return (byte[]) value;
+    } else if (value instanceof Blob) {
+      Blob blob = (Blob) value;
+      return blob.getBytes(1, (int) blob.length());
+    }
+    return null;
+  }
+
+  private static byte[] serialize(TwitterToolCacheEntry entry) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(entry);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static TwitterToolCacheEntry deserialize(byte[] data) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream in = new BundleObjectInputStream(new ByteArrayInputStream(data))) {
+      return (TwitterToolCacheEntry) in.readObject();
+    }
+  }
+
+  /**
+   * Resolves classes through this bundle, which embeds twitter4j, rather than the caller's loader.
+   */
+  private static final class BundleObjectInputStream extends ObjectInputStream {
+
+    private BundleObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+      try {
+        return Class.forName(desc.getName(), false, TwitterToolDbCluster.class.getClassLoader());
+      } catch (ClassNotFoundException e) {
+        return super.resolveClass(desc);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,84 @@
+package com.aquent.viewtools;
+
+/**
+ * The Twitter API endpoints the TwitterTool reads from.
+ */
+public enum TwitterToolEndpoint {
+  USER_TIMELINE("UserTimeline", "timeline", 60, "/statuses/user_timeline"),
+  SHOW_USER("ShowUser", "user", 300, "/users/show/:id"),
+  LOOKUP_USERS("LookupUsers", "users", 300, "/users/lookup"),
+  FOLLOWERS_LIST("FollowersList", "followers", 900, "/followers/list"),
+  FOLLOWERS_IDS("FollowersIds", "follower ids", 900, "/followers/ids"),
+  LIST_MEMBERS("ListMembers", "userlist members", 900, "/lists/members"),
+  LIST_STATUSES("ListStatuses", "tweets", 60, "/lists/statuses");
+
+  private final String configName;
+  private final String description;
+  private final int defaultTtl;
+  private final String resource;
+
+  TwitterToolEndpoint(String configName, String description, int defaultTtl, String resource) {
+    this.configName = configName;
+    this.description = description;
+    this.defaultTtl = defaultTtl;
+    this.resource = resource;
+  }
+
+  /**
+   * The suffix used for the per endpoint host variables, eg twitter4jCacheTtlUserTimeline.
+   *
+   * @return The config name for this endpoint
+   */
+  public String getConfigName() {
+    return configName;
+  }
+
+  /**
+   * A short description used when logging.
+   *
+   * @return The description of this endpoint
+   */
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * The number of seconds a successful result is considered fresh when no host variable is set.
+   *
+   * @return The default ttl in seconds
+   */
+  public int getDefaultTtl() {
+    return defaultTtl;
+  }
+
+  /**
+   * The twitter rate limit resource this endpoint counts against.
+   *
+   * @return The rate limit resource
+   */
+  public String getResource() {
+    return resource;
+  }
+
+  /**
+   * Finds the endpoint a request url is for.
+   *
+   * @param url The request url, eg https://api.twitter.com/1.1/statuses/user_timeline.json?count=20
+   * @return The endpoint or null if the url is not for one of ours
+   */
+  public static TwitterToolEndpoint forUrl(String url) {
+    if (url == null) {
+      return null;
+    }
+    int query = url.indexOf('?');
+    String path = query == -1 ? url : url.substring(0, query);
+    for (TwitterToolEndpoint endpoint : values()) {
+      String prefix = endpoint.resource.replace("/:id", "");
+      if (path.endsWith(prefix + ".json") || path.contains(prefix + "/")) {
+        return endpoint;
+      }
+    }
+    return null;
+  }
+
+}
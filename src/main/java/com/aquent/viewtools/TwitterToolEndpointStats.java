@@ -0,0 +1,185 @@
+package com.aquent.viewtools;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters and latency histograms for one endpoint.
+ *
+ * Calls and their latency are counted once per viewtool call, upstream calls once per http
+ * request made to twitter.
+ */
+public class TwitterToolEndpointStats implements TwitterToolEndpointStatsMBean {
+
+  private final Map<TwitterToolOutcome, LongAdder> outcomes = new EnumMap<>(TwitterToolOutcome.class);
+  private final TwitterToolHistogram latency = new TwitterToolHistogram();
+  private final LongAdder upstreamCalls = new LongAdder();
+  private final LongAdder upstreamErrors = new LongAdder();
+  private final LongAdder upstreamBytes = new LongAdder();
+  private final TwitterToolHistogram upstreamLatency = new TwitterToolHistogram();
+
+  public TwitterToolEndpointStats() {
+    for (TwitterToolOutcome outcome : TwitterToolOutcome.values()) {
+      outcomes.put(outcome, new LongAdder());
+    }
+  }
+
+  void record(TwitterToolOutcome outcome, long nanos) {
+    outcomes.get(outcome).increment();
+    latency.record(nanos);
+  }
+
+  void recordUpstream(long nanos, boolean error) {
+    upstreamCalls.increment();
+    if (error) {
+      upstreamErrors.increment();
+    }
+    upstreamLatency.record(nanos);
+  }
+
+  void recordUpstreamBytes(long bytes) {
+    upstreamBytes.add(bytes);
+  }
+
+  @Override
+  public long getCalls() {
+    return latency.getCount();
+  }
+
+  @Override
+  public long getHits() {
+    return outcomes.get(TwitterToolOutcome.HIT).sum();
+  }
+
+  @Override
+  public long getStaleHits() {
+    return outcomes.get(TwitterToolOutcome.STALE).sum();
+  }
+
+  @Override
+  public long getMissCacheHits() {
+    return outcomes.get(TwitterToolOutcome.MISS_CACHED).sum();
+  }
+
+  @Override
+  public long getFetches() {
+    return outcomes.get(TwitterToolOutcome.FETCHED).sum();
+  }
+
+  @Override
+  public long getErrors() {
+    return outcomes.get(TwitterToolOutcome.ERROR).sum();
+  }
+
+  /**
+   * The share of calls answered without waiting on twitter, fresh and stale hits plus miss cache
+   * hits.
+   *
+   * @return The ratio from 0 to 1, 0 if there were no calls
+   */
+  @Override
+  public double getHitRatio() {
+    long hits = getHits() + getStaleHits() + getMissCacheHits();
+    long total = hits + getFetches() + getErrors();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  @Override
+  public double getLatencyMeanMillis() {
+    return latency.getMeanMillis();
+  }
+
+  @Override
+  public double getLatencyP50Millis() {
+    return latency.getPercentileMillis(0.5);
+  }
+
+  @Override
+  public double getLatencyP95Millis() {
+    return latency.getPercentileMillis(0.95);
+  }
+
+  @Override
+  public double getLatencyP99Millis() {
+    return latency.getPercentileMillis(0.99);
+  }
+
+  @Override
+  public double getLatencyMaxMillis() {
+    return latency.getMaxMillis();
+  }
+
+  @Override
+  public long getUpstreamCalls() {
+    return upstreamCalls.sum();
+  }
+
+  @Override
+  public long getUpstreamErrors() {
+    return upstreamErrors.sum();
+  }
+
+  @Override
+  public long getUpstreamBytes() {
+    return upstreamBytes.sum();
+  }
+
+  @Override
+  public double getUpstreamLatencyMeanMillis() {
+    return upstreamLatency.getMeanMillis();
+  }
+
+  @Override
+  public double getUpstreamLatencyP95Millis() {
+    return upstreamLatency.getPercentileMillis(0.95);
+  }
+
+  @Override
+  public double getUpstreamLatencyP99Millis() {
+    return upstreamLatency.getPercentileMillis(0.99);
+  }
+
+  @Override
+  public void reset() {
+    for (LongAdder adder : outcomes.values()) {
+      adder.reset();
+    }
+    latency.reset();
+    upstreamCalls.reset();
+    upstreamErrors.reset();
+    upstreamBytes.reset();
+    upstreamLatency.reset();
+  }
+
+  /**
+   * Returns a read only snapshot of the stats.
+   *
+   * @return The stats keyed by name
+   */
+  public Map<String, Object> toMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("calls", getCalls());
+    map.put("hits", getHits());
+    map.put("staleHits", getStaleHits());
+    map.put("missCacheHits", getMissCacheHits());
+    map.put("fetches", getFetches());
+    map.put("errors", getErrors());
+    map.put("hitRatio", getHitRatio());
+    map.put("latencyMeanMillis", getLatencyMeanMillis());
+    map.put("latencyP50Millis", getLatencyP50Millis());
+    map.put("latencyP95Millis", getLatencyP95Millis());
+    map.put("latencyP99Millis", getLatencyP99Millis());
+    map.put("latencyMaxMillis", getLatencyMaxMillis());
+    map.put("upstreamCalls", getUpstreamCalls());
+    map.put("upstreamErrors", getUpstreamErrors());
+    map.put("upstreamBytes", getUpstreamBytes());
+    map.put("upstreamLatencyMeanMillis", getUpstreamLatencyMeanMillis());
+    map.put("upstreamLatencyP95Millis", getUpstreamLatencyP95Millis());
+    map.put("upstreamLatencyP99Millis", getUpstreamLatencyP99Millis());
+    return Collections.unmodifiableMap(map);
+  }
+
+}
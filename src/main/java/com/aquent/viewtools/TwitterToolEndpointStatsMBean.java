@@ -0,0 +1,47 @@
+package com.aquent.viewtools;
+
+/**
+ * The JMX view of one endpoint's {@link TwitterToolEndpointStats}, registered as
+ * com.aquent.viewtools:type=TwitterTool,endpoint=&lt;name&gt;.  Latencies are in milliseconds.
+ */
+public interface TwitterToolEndpointStatsMBean {
+
+  long getCalls();
+
+  long getHits();
+
+  long getStaleHits();
+
+  long getMissCacheHits();
+
+  long getFetches();
+
+  long getErrors();
+
+  double getHitRatio();
+
+  double getLatencyMeanMillis();
+
+  double getLatencyP50Millis();
+
+  double getLatencyP95Millis();
+
+  double getLatencyP99Millis();
+
+  double getLatencyMaxMillis();
+
+  long getUpstreamCalls();
+
+  long getUpstreamErrors();
+
+  long getUpstreamBytes();
+
+  double getUpstreamLatencyMeanMillis();
+
+  double getUpstreamLatencyP95Millis();
+
+  double getUpstreamLatencyP99Millis();
+
+  void reset();
+
+}
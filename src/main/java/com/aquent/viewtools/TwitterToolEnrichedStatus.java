@@ -0,0 +1,248 @@
+package com.aquent.viewtools;
+
+import java.util.Date;
+
+import twitter4j.GeoLocation;
+import twitter4j.HashtagEntity;
+import twitter4j.MediaEntity;
+import twitter4j.Place;
+import twitter4j.RateLimitStatus;
+import twitter4j.Scopes;
+import twitter4j.Status;
+import twitter4j.SymbolEntity;
+import twitter4j.URLEntity;
+import twitter4j.User;
+import twitter4j.UserMentionEntity;
+
+/**
+ * A twitter4j Status with its text already rendered to HTML by {@link TwitterToolEnricher}.
+ *
+ * Everything else is answered by the wrapped status, so templates can use it like any other.
+ * Write the HTML with $status.html or $twitter.html($status).
+ */
+public final class TwitterToolEnrichedStatus implements Status {
+
+  private static final long serialVersionUID = 1L;
+
+  private final Status status;
+  private final String html;
+
+  TwitterToolEnrichedStatus(Status status, String html) {
+    this.status = status;
+    this.html = html;
+  }
+
+  /**
+   * Returns the text of the status as escaped HTML with its links and media thumbnails.
+   *
+   * @return The HTML
+   */
+  public String getHtml() {
+    return html;
+  }
+
+  /**
+   * Returns the status this wraps.
+   *
+   * @return The twitter4j status
+   */
+  public Status getStatus() {
+    return status;
+  }
+
+  @Override
+  public Date getCreatedAt() {
+    return status.getCreatedAt();
+  }
+
+  @Override
+  public long getId() {
+    return status.getId();
+  }
+
+  @Override
+  public String getText() {
+    return status.getText();
+  }
+
+  @Override
+  public int getDisplayTextRangeStart() {
+    return status.getDisplayTextRangeStart();
+  }
+
+  @Override
+  public int getDisplayTextRangeEnd() {
+    return status.getDisplayTextRangeEnd();
+  }
+
+  @Override
+  public String getSource() {
+    return status.getSource();
+  }
+
+  @Override
+  public boolean isTruncated() {
+    return status.isTruncated();
+  }
+
+  @Override
+  public long getInReplyToStatusId() {
+    return status.getInReplyToStatusId();
+  }
+
+  @Override
+  public long getInReplyToUserId() {
+    return status.getInReplyToUserId();
+  }
+
+  @Override
+  public String getInReplyToScreenName() {
+    return status.getInReplyToScreenName();
+  }
+
+  @Override
+  public GeoLocation getGeoLocation() {
+    return status.getGeoLocation();
+  }
+
+  @Override
+  public Place getPlace() {
+    return status.getPlace();
+  }
+
+  @Override
+  public boolean isFavorited() {
+    return status.isFavorited();
+  }
+
+  @Override
+  public boolean isRetweeted() {
+    return status.isRetweeted();
+  }
+
+  @Override
+  public int getFavoriteCount() {
+    return status.getFavoriteCount();
+  }
+
+  @Override
+  public User getUser() {
+    return status.getUser();
+  }
+
+  @Override
+  public boolean isRetweet() {
+    return status.isRetweet();
+  }
+
+  @Override
+  public Status getRetweetedStatus() {
+    return status.getRetweetedStatus();
+  }
+
+  @Override
+  public long[] getContributors() {
+    return status.getContributors();
+  }
+
+  @Override
+  public int getRetweetCount() {
+    return status.getRetweetCount();
+  }
+
+  @Override
+  public boolean isRetweetedByMe() {
+    return status.isRetweetedByMe();
+  }
+
+  @Override
+  public long getCurrentUserRetweetId() {
+    return status.getCurrentUserRetweetId();
+  }
+
+  @Override
+  public boolean isPossiblySensitive() {
+    return status.isPossiblySensitive();
+  }
+
+  @Override
+  public String getLang() {
+    return status.getLang();
+  }
+
+  @Override
+  public Scopes getScopes() {
+    return status.getScopes();
+  }
+
+  @Override
+  public String[] getWithheldInCountries() {
+    return status.getWithheldInCountries();
+  }
+
+  @Override
+  public long getQuotedStatusId() {
+    return status.getQuotedStatusId();
+  }
+
+  @Override
+  public Status getQuotedStatus() {
+    return status.getQuotedStatus();
+  }
+
+  @Override
+  public UserMentionEntity[] getUserMentionEntities() {
+    return status.getUserMentionEntities();
+  }
+
+  @Override
+  public URLEntity[] getURLEntities() {
+    return status.getURLEntities();
+  }
+
+  @Override
+  public HashtagEntity[] getHashtagEntities() {
+    return status.getHashtagEntities();
+  }
+
+  @Override
+  public MediaEntity[] getMediaEntities() {
+    return status.getMediaEntities();
+  }
+
+  @Override
+  public SymbolEntity[] getSymbolEntities() {
+    return status.getSymbolEntities();
+  }
+
+  @Override
+  public RateLimitStatus getRateLimitStatus() {
+    return status.getRateLimitStatus();
+  }
+
+  @Override
+  public int getAccessLevel() {
+    return status.getAccessLevel();
+  }
+
+  @Override
+  public int compareTo(Status that) {
+    return status.compareTo(that);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof Status && ((Status) o).getId() == getId());
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(getId());
+  }
+
+  @Override
+  public String toString() {
+    return status.toString();
+  }
+
+}
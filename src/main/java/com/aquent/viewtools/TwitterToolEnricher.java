@@ -0,0 +1,361 @@
+package com.aquent.viewtools;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import twitter4j.MediaEntity;
+import twitter4j.ResponseList;
+import twitter4j.Status;
+import twitter4j.TweetEntity;
+import twitter4j.URLEntity;
+import twitter4j.UserMentionEntity;
+
+/**
+ * Renders the text of a status to HTML once, when it is fetched, so templates write a string
+ * instead of linking entities on every render.
+ *
+ * Everything from the tweet is escaped.  t.co links are replaced by links to their expanded url,
+ * mentions, hashtags and cashtags link to twitter, and photos and videos are shown as thumbnails
+ * after the text in place of their t.co link.  Only http and https urls are linked.
+ *
+ * The HTML is kept on the status: fetched statuses are wrapped in a
+ * {@link TwitterToolEnrichedStatus} and compact copies carry it themselves.
+ */
+public enum TwitterToolEnricher {
+  // Makes this a singleton
+  INSTANCE;
+
+  private static final String TWITTER = "https://twitter.com/";
+  private static final Comparator<Span> BY_START = Comparator.comparingInt(span -> span.entity.getStart());
+
+  private volatile boolean enabled = true;
+
+  /**
+   * Turns enrichment on or off for statuses fetched from now on.
+   *
+   * @param enabled false to cache statuses without their HTML
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Adds the HTML to each status in a twitter result.
+   *
+   * Handles Statuses, timelines and lists of statuses, anything else is returned as is.
+   *
+   * @param result The result to enrich
+   * @return The enriched result
+   */
+  @SuppressWarnings("unchecked")
+  public Object enrich(Object result) {
+    if (!enabled) {
+      return result;
+    }
+    if (result instanceof Status) {
+      return enrich((Status) result);
+    } else if (result instanceof TwitterToolTimeline) {
+      return ((TwitterToolTimeline) result).map(this::enrich);
+    } else if (result instanceof ResponseList && !((ResponseList<?>) result).isEmpty()
+        && ((ResponseList<?>) result).get(0) instanceof Status) {
+      ResponseList<Status> list = (ResponseList<Status>) result;
+      List<Status> enriched = new ArrayList<>(list.size());
+      for (Status status : list) {
+        enriched.add(enrich(status));
+      }
+      return new TwitterToolResponseList<>(enriched, list.getRateLimitStatus());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the status with its HTML, or the status itself if it already has it.
+   *
+   * @param status The status
+   * @return The enriched status
+   */
+  public Status enrich(Status status) {
+    if (!enabled || status == null || status instanceof TwitterToolEnrichedStatus
+        || status instanceof TwitterToolCompactStatus) {
+      return status;
+    }
+    return new TwitterToolEnrichedStatus(status, toHtml(status));
+  }
+
+  /**
+   * Returns the HTML of a status, rendering it now if it was not enriched when it was fetched.
+   *
+   * @param status The status
+   * @return The HTML or an empty string if there is no status
+   */
+  public String getHtml(Status status) {
+    if (status == null) {
+      return "";
+    }
+    String html = null;
+    if (status instanceof TwitterToolEnrichedStatus) {
+      html = ((TwitterToolEnrichedStatus) status).getHtml();
+    } else if (status instanceof TwitterToolCompactStatus) {
+      html = ((TwitterToolCompactStatus) status).getHtml();
+    }
+    return html != null ? html : toHtml(status);
+  }
+
+  /**
+   * Renders the text of a status to HTML.  A retweet is rendered as RT, a link to the retweeted
+   * user and the retweeted status, since twitter cuts the retweet's own text short.
+   *
+   * @param status The status
+   * @return The HTML
+   */
+  public String toHtml(Status status) {
+    StringBuilder html = new StringBuilder();
+    Status retweeted = status.getRetweetedStatus();
+    if (retweeted != null && retweeted.getUser() != null) {
+      html.append("RT ");
+      mention(html, retweeted.getUser().getScreenName());
+      html.append(": ");
+      render(html, retweeted);
+    } else {
+      render(html, status);
+    }
+    return html.toString();
+  }
+
+  private void render(StringBuilder html, Status status) {
+    String text = status.getText();
+    if (text == null) {
+      return;
+    }
+
+    // twitter4j's hashtag and symbol entities are the same class, so each is tagged with its kind
+    List<Span> spans = new ArrayList<>();
+    addAll(spans, Kind.URL, status.getURLEntities());
+    addAll(spans, Kind.MENTION, status.getUserMentionEntities());
+    addAll(spans, Kind.HASHTAG, status.getHashtagEntities());
+    addAll(spans, Kind.SYMBOL, status.getSymbolEntities());
+    MediaEntity[] media = status.getMediaEntities();
+    if (media != null && media.length > 0) {
+      // Every photo in a tweet shares one t.co link, it is dropped in favour of the thumbnails
+      spans.add(new Span(Kind.MEDIA, media[0]));
+    }
+    spans.sort(BY_START);
+
+    int codePoints = text.codePointCount(0, text.length());
+    int at = 0;
+    for (Span span : spans) {
+      TweetEntity entity = span.entity;
+      String literal = span.literal();
+      // Twitter counts in code points and twitter4j only moves some indices past the &amp;s it
+      // unescapes, so the entity is looked for from where its index says, skipping any not found
+      int hint = entity.getStart() >= 0 && entity.getStart() < codePoints
+          ? text.offsetByCodePoints(0, entity.getStart()) : at;
+      int start = find(text, literal, at, hint);
+      if (start < 0) {
+        continue;
+      }
+      int end = start + literal.length();
+      text(html, text.substring(at, start));
+      switch (span.kind) {
+        case URL:
+          URLEntity url = (URLEntity) entity;
+          link(html, "twitter-url", firstSet(url.getExpandedURL(), url.getURL()),
+              firstSet(url.getDisplayURL(), url.getURL()));
+          break;
+        case MENTION:
+          mention(html, ((UserMentionEntity) entity).getScreenName());
+          break;
+        case HASHTAG:
+          link(html, "twitter-hashtag", TWITTER + "hashtag/" + encode(entity.getText()), "#" + entity.getText());
+          break;
+        case SYMBOL:
+          link(html, "twitter-cashtag", TWITTER + "search?q=%24" + encode(entity.getText()), "$" + entity.getText());
+          break;
+        default:
+          // Media, the thumbnails follow the text
+          break;
+      }
+      at = end;
+    }
+    text(html, text.substring(at));
+
+    if (media != null) {
+      for (MediaEntity m : media) {
+        thumbnail(html, m);
+      }
+    }
+  }
+
+  private static void addAll(List<Span> spans, Kind kind, TweetEntity[] entities) {
+    if (entities != null) {
+      for (TweetEntity entity : entities) {
+        if (entity.getText() != null) {
+          spans.add(new Span(kind, entity));
+        }
+      }
+    }
+  }
+
+  private static void mention(StringBuilder html, String screenName) {
+    if (screenName == null) {
+      return;
+    }
+    link(html, "twitter-mention", TWITTER + encode(screenName), "@" + screenName);
+  }
+
+  private static void link(StringBuilder html, String cssClass, String href, String text) {
+    if (!isHttp(href)) {
+      escape(html, text);
+      return;
+    }
+    html.append("<a class=\"").append(cssClass).append("\" href=\"");
+    escape(html, href);
+    html.append("\" rel=\"nofollow noopener\" target=\"_blank\">");
+    escape(html, text);
+    html.append("</a>");
+  }
+
+  private static void thumbnail(StringBuilder html, MediaEntity media) {
+    String src = media.getMediaURLHttps();
+    String href = firstSet(media.getExpandedURL(), media.getURL());
+    if (!isHttp(src) || !isHttp(href)) {
+      return;
+    }
+    html.append("<a class=\"twitter-media\" href=\"");
+    escape(html, href);
+    html.append("\" rel=\"nofollow noopener\" target=\"_blank\"><img src=\"");
+    escape(html, src + ":thumb");
+    html.append('"');
+    Map<Integer, MediaEntity.Size> sizes = media.getSizes();
+    MediaEntity.Size thumb = sizes == null ? null : sizes.get(MediaEntity.Size.THUMB);
+    if (thumb != null) {
+      html.append(" width=\"").append(thumb.getWidth()).append("\" height=\"").append(thumb.getHeight()).append('"');
+    }
+    html.append(" alt=\"");
+    escape(html, firstSet(media.getExtAltText(), media.getType(), "media"));
+    html.append("\"></a>");
+  }
+
+  /**
+   * Escapes text from the tweet, keeping its line breaks.
+   */
+  private static void text(StringBuilder html, String text) {
+    int lineStart = 0;
+    for (int i = text.indexOf('\n'); i != -1; i = text.indexOf('\n', lineStart)) {
+      escape(html, text.substring(lineStart, i));
+      html.append("<br>");
+      lineStart = i + 1;
+    }
+    escape(html, text.substring(lineStart));
+  }
+
+  private static void escape(StringBuilder html, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '&':
+          html.append("&amp;");
+          break;
+        case '<':
+          html.append("&lt;");
+          break;
+        case '>':
+          html.append("&gt;");
+          break;
+        case '"':
+          html.append("&quot;");
+          break;
+        case '\'':
+          html.append("&#39;");
+          break;
+        default:
+          html.append(c);
+      }
+    }
+  }
+
+  private static String encode(String s) {
+    try {
+      return URLEncoder.encode(s, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private enum Kind {
+    URL, MENTION, HASHTAG, SYMBOL, MEDIA
+  }
+
+  /**
+   * An entity and the kind of link it becomes.
+   */
+  private static final class Span {
+    private final Kind kind;
+    private final TweetEntity entity;
+
+    private Span(Kind kind, TweetEntity entity) {
+      this.kind = kind;
+      this.entity = entity;
+    }
+
+    /**
+     * The text the entity covers in the tweet.
+     */
+    private String literal() {
+      switch (kind) {
+        case MENTION:
+          return "@" + ((UserMentionEntity) entity).getScreenName();
+        case HASHTAG:
+          return "#" + entity.getText();
+        case SYMBOL:
+          return "$" + entity.getText();
+        default:
+          return ((URLEntity) entity).getURL();
+      }
+    }
+  }
+
+  /**
+   * Finds text in the tweet at or after from, trying the hinted offset first.
+   */
+  private static int find(String text, String literal, int from, int hint) {
+    if (literal == null || literal.length() < 2) {
+      return -1;
+    }
+    if (hint >= from && text.regionMatches(true, hint, literal, 0, literal.length())) {
+      return hint;
+    }
+    for (int i = from; i <= text.length() - literal.length(); i++) {
+      if (text.regionMatches(true, i, literal, 0, literal.length())) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isHttp(String url) {
+    if (url == null) {
+      return false;
+    }
+    String lower = url.toLowerCase();
+    return lower.startsWith("https://") || lower.startsWith("http://");
+  }
+
+  private static String firstSet(String... values) {
+    for (String value : values) {
+      if (value != null && !value.isEmpty()) {
+        return value;
+      }
+    }
+    return "";
+  }
+
+}
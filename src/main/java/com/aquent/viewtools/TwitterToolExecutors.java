@@ -0,0 +1,209 @@
+package com.aquent.viewtools;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Holds the background threads used by the TwitterTool so they can be shut down with the bundle.
+ */
+public enum TwitterToolExecutors {
+  // Makes this a singleton
+  INSTANCE;
+
+  private static final int REFRESH_THREADS = 2;
+  private static final int REFRESH_QUEUE = 100;
+  private static final int SCHEDULER_THREADS = 2;
+  private static final int LOOKUP_THREADS = 2;
+  private static final int LOOKUP_QUEUE = 100;
+  private static final int ASYNC_QUEUE = 1000;
+
+  private ExecutorService refreshExecutor;
+  private ScheduledExecutorService scheduler;
+  private ExecutorService lookupExecutor;
+  private ExecutorService asyncExecutor;
+  private Executor boundedAsyncExecutor;
+
+  /**
+   * Returns the executor used to refresh stale cache entries.
+   *
+   * @return The refresh executor
+   */
+  public synchronized ExecutorService refresh() {
+    if (refreshExecutor == null) {
+      refreshExecutor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60L, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(REFRESH_QUEUE), daemonThreads("twittertool-refresh"));
+    }
+    return refreshExecutor;
+  }
+
+  /**
+   * Returns the executor used for short delayed tasks, eg flushing a batch of user lookups.
+   *
+   * @return The scheduler
+   */
+  public synchronized ScheduledExecutorService scheduler() {
+    if (scheduler == null) {
+      scheduler = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, daemonThreads("twittertool-scheduler"));
+    }
+    return scheduler;
+  }
+
+  /**
+   * Returns the executor batched user lookups run on.  It is kept apart from the async executor
+   * because async showUser calls wait on the lookups, and would hold every async thread while the
+   * lookups they wait on queue behind them.
+   *
+   * @return The lookup executor
+   */
+  public synchronized ExecutorService lookup() {
+    if (lookupExecutor == null) {
+      lookupExecutor = new ThreadPoolExecutor(LOOKUP_THREADS, LOOKUP_THREADS, 60L, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(LOOKUP_QUEUE), daemonThreads("twittertool-lookup"));
+    }
+    return lookupExecutor;
+  }
+
+  /**
+   * Returns the executor the async viewtool methods run on.
+   *
+   * Uses virtual threads when the JVM has them, otherwise a fixed pool of daemon threads.  Either
+   * way no more than maxConcurrent tasks run at once, once that many are running further tasks
+   * wait in a bounded queue, and once that is full they are rejected with a
+   * RejectedExecutionException.  A task never runs on the calling thread, so a render waiting on
+   * its futures is held up no longer than its deadline.
+   *
+   * @param maxConcurrent The most tasks to run at once
+   * @return The async executor
+   */
+  public synchronized Executor async(int maxConcurrent) {
+    if (asyncExecutor == null) {
+      asyncExecutor = newVirtualThreadExecutor();
+      if (asyncExecutor == null) {
+        asyncExecutor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), daemonThreads("twittertool-async"));
+        ((ThreadPoolExecutor) asyncExecutor).allowCoreThreadTimeOut(true);
+      }
+      boundedAsyncExecutor = new BoundedExecutor(asyncExecutor, maxConcurrent);
+    }
+    return boundedAsyncExecutor;
+  }
+
+  /**
+   * Stops all the background threads, called when the bundle stops.
+   */
+  public synchronized void shutdown() {
+    if (refreshExecutor != null) {
+      Logger.info(this, "Stopping TwitterTool refresh threads");
+      refreshExecutor.shutdownNow();
+      refreshExecutor = null;
+    }
+    if (scheduler != null) {
+      Logger.info(this, "Stopping TwitterTool scheduler threads");
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+    if (lookupExecutor != null) {
+      Logger.info(this, "Stopping TwitterTool lookup threads");
+      lookupExecutor.shutdownNow();
+      lookupExecutor = null;
+    }
+    if (asyncExecutor != null) {
+      Logger.info(this, "Stopping TwitterTool async threads");
+      asyncExecutor.shutdownNow();
+      asyncExecutor = null;
+      boundedAsyncExecutor = null;
+    }
+  }
+
+  /**
+   * Creates a virtual thread per task executor on JVMs that have one, we compile against 1.8.
+   *
+   * @return The executor or null if virtual threads are not available
+   */
+  private ExecutorService newVirtualThreadExecutor() {
+    try {
+      ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      Logger.info(this, "TwitterTool async methods using virtual threads");
+      return executor;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Limits the number of tasks running at once, queueing the overflow until a running task ends.
+   */
+  private static final class BoundedExecutor implements Executor {
+    private final Executor delegate;
+    private final Semaphore permits;
+    private final BlockingQueue<Runnable> waiting = new ArrayBlockingQueue<>(ASYNC_QUEUE);
+
+    private BoundedExecutor(Executor delegate, int maxConcurrent) {
+      this.delegate = delegate;
+      this.permits = new Semaphore(maxConcurrent);
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+      if (!waiting.offer(task)) {
+        throw new RejectedExecutionException("TwitterTool async queue is full");
+      }
+      drain();
+    }
+
+    /**
+     * Starts queued tasks while there are permits.  Called after queueing and after each task ends,
+     * so a task queued while every permit was held is started by the task that frees one.
+     */
+    private void drain() {
+      while (!waiting.isEmpty() && permits.tryAcquire()) {
+        final Runnable task = waiting.poll();
+        if (task == null) {
+          permits.release();
+          continue;
+        }
+        try {
+          delegate.execute(() -> {
+            try {
+              task.run();
+            } finally {
+              permits.release();
+              drain();
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          // The delegate is shut down with the bundle
+          permits.release();
+          throw e;
+        }
+      }
+    }
+  }
+
+  static ThreadFactory daemonThreads(final String prefix) {
+    final AtomicInteger counter = new AtomicInteger();
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      }
+    };
+  }
+
+}
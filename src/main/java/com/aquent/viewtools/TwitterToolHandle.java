@@ -0,0 +1,154 @@
+package com.aquent.viewtools;
+
+import java.util.Locale;
+
+/**
+ * A user named in the host variables, by screen name or by id, with the slug of one of their
+ * lists, eg aquent, id:15378515 or aquent/team.
+ *
+ * User ids are written with an id: prefix so a screen name made of digits is never taken for an
+ * id, the same way the cache keys tell them apart.  Used by the prewarmer and the JSON api.
+ */
+public final class TwitterToolHandle {
+
+  public static final String ID_PREFIX = "id:";
+
+  private final String screenName;
+  private final long userId;
+  private final String slug;
+
+  private TwitterToolHandle(String screenName, long userId, String slug) {
+    this.screenName = screenName == null ? null : TwitterToolAliases.normalize(screenName);
+    this.userId = userId;
+    this.slug = slug;
+  }
+
+  /**
+   * A handle for a screen name.
+   *
+   * @param screenName The screen name
+   * @param slug The list slug or null for the user
+   * @return The handle
+   */
+  public static TwitterToolHandle of(String screenName, String slug) {
+    return new TwitterToolHandle(screenName, 0, slug);
+  }
+
+  /**
+   * A handle for a user id.
+   *
+   * @param userId The user id
+   * @param slug The list slug or null for the user
+   * @return The handle
+   */
+  public static TwitterToolHandle of(long userId, String slug) {
+    return new TwitterToolHandle(null, userId, slug);
+  }
+
+  /**
+   * Parses [id:]user[/slug].
+   *
+   * @param handle The handle as written in a host variable
+   * @return The handle, or null if it is not valid
+   */
+  public static TwitterToolHandle parse(String handle) {
+    String spec = handle.trim();
+    boolean byId = spec.startsWith(ID_PREFIX);
+    if (byId) {
+      spec = spec.substring(ID_PREFIX.length());
+    }
+    int slash = spec.indexOf('/');
+    String user = slash == -1 ? spec : spec.substring(0, slash);
+    String slug = slash == -1 ? null : spec.substring(slash + 1);
+    if (user.isEmpty() || user.indexOf(':') != -1 || (slug != null && (slug.isEmpty() || slug.indexOf('/') != -1))) {
+      return null;
+    }
+    if (!byId) {
+      return of(user, slug);
+    }
+    try {
+      long id = Long.parseLong(user);
+      return id > 0 ? of(id, slug) : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns where the handle at the start of a setting ends, eg before the :page:count of a
+   * prewarm page, skipping over an id: prefix.
+   *
+   * @param setting The setting, trimmed, starting with a handle
+   * @return The index after the handle
+   */
+  public static int endOf(String setting) {
+    int colon = setting.indexOf(':', setting.startsWith(ID_PREFIX) ? ID_PREFIX.length() : 0);
+    return colon == -1 ? setting.length() : colon;
+  }
+
+  public boolean isById() {
+    return screenName == null;
+  }
+
+  /**
+   * The screen name, normalized.
+   *
+   * @return The screen name or null for a handle by id
+   */
+  public String getScreenName() {
+    return screenName;
+  }
+
+  public long getUserId() {
+    return userId;
+  }
+
+  public String getSlug() {
+    return slug;
+  }
+
+  /**
+   * Returns the handle of the same list, or user, by user id.
+   *
+   * @param id The user id
+   * @return The handle
+   */
+  public TwitterToolHandle withUserId(long id) {
+    return new TwitterToolHandle(null, id, slug);
+  }
+
+  /**
+   * Returns the handle of the user, without the list.
+   *
+   * @return The handle, or this one if it is not a list
+   */
+  public TwitterToolHandle getOwner() {
+    return slug == null ? this : new TwitterToolHandle(screenName, userId, null);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof TwitterToolHandle)) {
+      return false;
+    }
+    TwitterToolHandle other = (TwitterToolHandle) o;
+    return toString().equals(other.toString());
+  }
+
+  @Override
+  public int hashCode() {
+    return toString().hashCode();
+  }
+
+  /**
+   * The handle as it is written in a host variable, with the slug in lower case.
+   */
+  @Override
+  public String toString() {
+    return (isById() ? ID_PREFIX + userId : screenName) + (slug == null ? "" : "/" + slug.toLowerCase(Locale.ROOT));
+  }
+
+}
@@ -0,0 +1,113 @@
+package com.aquent.viewtools;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free latency histogram with fixed buckets from 10 microseconds to 10 seconds.
+ *
+ * Recording is a couple of LongAdder increments so it is cheap enough for every call.
+ * Percentiles are the upper bound of the bucket they fall in.
+ */
+public class TwitterToolHistogram {
+
+  // Bucket upper bounds in microseconds, anything slower goes in the last bucket
+  private static final long[] BOUNDS = {
+    10, 25, 50, 100, 250, 500,
+    1000, 2500, 5000, 10000, 25000, 50000,
+    100000, 250000, 500000, 1000000, 2500000, 5000000, 10000000
+  };
+
+  private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+  private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+  public TwitterToolHistogram() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records one call.
+   *
+   * @param nanos How long the call took in nanoseconds
+   */
+  public void record(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    int i = 0;
+    while (i < BOUNDS.length && micros > BOUNDS[i]) {
+      i++;
+    }
+    buckets[i].increment();
+    count.increment();
+    totalMicros.add(micros);
+    maxMicros.accumulate(micros);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * The mean latency.
+   *
+   * @return The mean in milliseconds, 0 if nothing was recorded
+   */
+  public double getMeanMillis() {
+    long n = count.sum();
+    return n == 0 ? 0 : totalMicros.sum() / 1000.0 / n;
+  }
+
+  /**
+   * The slowest call recorded.
+   *
+   * @return The max in milliseconds
+   */
+  public double getMaxMillis() {
+    return maxMicros.get() / 1000.0;
+  }
+
+  /**
+   * Estimates a percentile.
+   *
+   * @param percentile The percentile, eg 0.99
+   * @return The upper bound of the bucket holding the percentile in milliseconds, or the max for
+   *     the last bucket, 0 if nothing was recorded
+   */
+  public double getPercentileMillis(double percentile) {
+    long[] counts = new long[buckets.length];
+    long n = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      counts[i] = buckets[i].sum();
+      n += counts[i];
+    }
+    if (n == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(percentile * n);
+    long seen = 0;
+    for (int i = 0; i < BOUNDS.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(BOUNDS[i], maxMicros.get()) / 1000.0;
+      }
+    }
+    return getMaxMillis();
+  }
+
+  /**
+   * Clears the histogram.
+   */
+  public void reset() {
+    for (LongAdder bucket : buckets) {
+      bucket.reset();
+    }
+    count.reset();
+    totalMicros.reset();
+    maxMicros.reset();
+  }
+
+}
@@ -0,0 +1,118 @@
+package com.aquent.viewtools;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.dotmarketing.util.Logger;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Credentials;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import twitter4j.HttpClientConfiguration;
+
+/**
+ * Chooses how the TwitterTool's twitter4j HttpClient talks to twitter.
+ *
+ * The default transport is twitter4j's own HttpURLConnection client.  The pooled transport is an
+ * OkHttp client that keeps connections alive in a pool shared by every call, negotiates HTTP/2
+ * with twitter when the JVM supports ALPN so concurrent calls share one connection, and handles
+ * gzip itself.
+ */
+public enum TwitterToolHttpTransport {
+  // Makes this a singleton
+  INSTANCE;
+
+  private volatile OkHttpClient pooled;
+  private final ConcurrentHashMap<TwitterToolEndpoint, OkHttpClient> endpointClients = new ConcurrentHashMap<>();
+
+  /**
+   * Switches to the pooled transport.
+   *
+   * @param conf The twitter4j configuration, for its timeouts and proxy
+   * @param maxIdleConnections The most idle connections to keep in the pool
+   * @param keepAliveSeconds The seconds an idle connection is kept
+   * @param http2 true to offer HTTP/2 to twitter
+   */
+  public synchronized void usePooled(HttpClientConfiguration conf, int maxIdleConnections, long keepAliveSeconds,
+      boolean http2) {
+    OkHttpClient.Builder builder = new OkHttpClient.Builder()
+        .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+        .connectTimeout(conf.getHttpConnectionTimeout(), TimeUnit.MILLISECONDS)
+        .readTimeout(conf.getHttpReadTimeout(), TimeUnit.MILLISECONDS)
+        .retryOnConnectionFailure(true)
+        .protocols(http2 ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1) : Collections.singletonList(Protocol.HTTP_1_1));
+
+    if (conf.getHttpProxyHost() != null && !conf.getHttpProxyHost().isEmpty()) {
+      builder.proxy(new Proxy(Proxy.Type.HTTP, InetSocketAddress.createUnresolved(conf.getHttpProxyHost(),
+          conf.getHttpProxyPort())));
+      if (conf.getHttpProxyUser() != null && !conf.getHttpProxyUser().isEmpty()) {
+        final String credential = Credentials.basic(conf.getHttpProxyUser(), conf.getHttpProxyPassword());
+        builder.proxyAuthenticator((route, response) ->
+            response.request().newBuilder().header("Proxy-Authorization", credential).build());
+      }
+    }
+
+    shutdown();
+    pooled = builder.build();
+    Logger.info(this, "Using the pooled http transport, keeping up to " + maxIdleConnections + " idle connections"
+        + (http2 ? " and offering HTTP/2" : ""));
+  }
+
+  /**
+   * Switches back to twitter4j's own transport.
+   */
+  public synchronized void useDefault() {
+    shutdown();
+  }
+
+  /**
+   * Returns the pooled client for an endpoint, with the endpoint's timeouts.
+   *
+   * @param endpoint The endpoint being requested, or null for any other request
+   * @return The client, or null when using the default transport
+   */
+  public OkHttpClient client(TwitterToolEndpoint endpoint) {
+    OkHttpClient client = pooled;
+    if (client == null || endpoint == null) {
+      return client;
+    }
+    OkHttpClient endpointClient = endpointClients.get(endpoint);
+    if (endpointClient == null) {
+      OkHttpClient.Builder builder = client.newBuilder();
+      int connectTimeout = TwitterToolTimeouts.INSTANCE.getConnectTimeout(endpoint);
+      if (connectTimeout > 0) {
+        builder.connectTimeout(connectTimeout, TimeUnit.MILLISECONDS);
+      }
+      int readTimeout = TwitterToolTimeouts.INSTANCE.getReadTimeout(endpoint);
+      if (readTimeout > 0) {
+        builder.readTimeout(readTimeout, TimeUnit.MILLISECONDS);
+      }
+      // Shares the pool and dispatcher of the pooled client
+      endpointClient = builder.build();
+      OkHttpClient raced = endpointClients.putIfAbsent(endpoint, endpointClient);
+      if (raced != null) {
+        endpointClient = raced;
+      }
+    }
+    return endpointClient;
+  }
+
+  /**
+   * Closes the pooled connections and goes back to the default transport, eg when the bundle stops.
+   */
+  public synchronized void shutdown() {
+    OkHttpClient client = pooled;
+    pooled = null;
+    endpointClients.clear();
+    if (client != null) {
+      client.connectionPool().evictAll();
+      client.dispatcher().executorService().shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,156 @@
+package com.aquent.viewtools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Image files in a directory, the least recently used deleted once they take up more than the
+ * most bytes allowed.
+ *
+ * Each file is named for its key plus the image's extension, eg 3f2a...-200.jpg, and is written to
+ * a temporary file first and moved into place so a reader never sees half an image.  The files
+ * already in the directory are picked up at startup, oldest first.
+ */
+public class TwitterToolImageCache {
+
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final File dir;
+  private final long maxBytes;
+  private final Map<String, Held> files = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes;
+
+  /**
+   * Opens the cache, creating the directory if need be.
+   *
+   * @param dir The directory to keep the images in
+   * @param maxBytes The most bytes of images to keep
+   */
+  public TwitterToolImageCache(File dir, long maxBytes) {
+    this.dir = dir;
+    this.maxBytes = maxBytes;
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      Logger.warn(this, "Unable to create the image cache directory " + dir);
+    }
+    load();
+  }
+
+  private synchronized void load() {
+    File[] existing = dir.listFiles();
+    if (existing == null) {
+      return;
+    }
+    Arrays.sort(existing, Comparator.comparingLong(File::lastModified));
+    for (File file : existing) {
+      String name = file.getName();
+      int dot = name.lastIndexOf('.');
+      if (name.endsWith(TEMP_SUFFIX) || dot <= 0) {
+        // Left over from a write that did not finish
+        file.delete();
+        continue;
+      }
+      Held held = new Held(file, file.length());
+      files.put(name.substring(0, dot), held);
+      totalBytes += held.bytes;
+    }
+    evict();
+  }
+
+  /**
+   * Returns the file for a key, marking it as just used.
+   *
+   * @param key The key
+   * @return The file or null if there is none
+   */
+  public synchronized File get(String key) {
+    Held held = files.get(key);
+    return held == null ? null : held.file;
+  }
+
+  /**
+   * Writes an image for a key, replacing any it had, and deletes the least recently used images
+   * past the most bytes.
+   *
+   * @param key The key
+   * @param extension The image's file extension, eg jpg
+   * @param bytes The image
+   * @return The file written
+   * @throws IOException If the file could not be written
+   */
+  public File put(String key, String extension, byte[] bytes) throws IOException {
+    File file = new File(dir, key + "." + extension);
+    File temp = new File(dir, key + "." + extension + TEMP_SUFFIX);
+    Files.write(temp.toPath(), bytes);
+    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    synchronized (this) {
+      Held old = files.put(key, new Held(file, bytes.length));
+      if (old != null) {
+        totalBytes -= old.bytes;
+        if (!old.file.equals(file)) {
+          old.file.delete();
+        }
+      }
+      totalBytes += bytes.length;
+      evict();
+    }
+    return file;
+  }
+
+  private void evict() {
+    Iterator<Held> it = files.values().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      Held held = it.next();
+      totalBytes -= held.bytes;
+      it.remove();
+      if (!held.file.delete()) {
+        Logger.debug(this, "Unable to delete " + held.file + " from the image cache");
+      }
+    }
+  }
+
+  /**
+   * Returns the number of images held.
+   *
+   * @return The count
+   */
+  public synchronized int getCount() {
+    return files.size();
+  }
+
+  /**
+   * Returns the bytes of images held.
+   *
+   * @return The bytes
+   */
+  public synchronized long getBytes() {
+    return totalBytes;
+  }
+
+  public File getDir() {
+    return dir;
+  }
+
+  /**
+   * A file and the bytes it was counted as.
+   */
+  private static final class Held {
+    private final File file;
+    private final long bytes;
+
+    private Held(File file, long bytes) {
+      this.file = file;
+      this.bytes = bytes;
+    }
+  }
+
+}
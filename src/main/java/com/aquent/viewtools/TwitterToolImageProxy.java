@@ -0,0 +1,569 @@
+package com.aquent.viewtools;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Serves twitter's profile and media images from a cache on local disk, in the widths templates
+ * show them at, through {@link TwitterToolImageServlet}.
+ *
+ * The first time an image is asked for it is fetched from twitter's CDN and a copy is made at each
+ * configured width narrower than it, so every later request, whatever its width, is a file read.
+ * Widths asked for are rounded up to the next configured width, so a template cannot fill the
+ * disk with one copy per pixel.  Twitter gives an image a new url when it changes, so the copies
+ * never go stale and are sent with long lived cache headers.  Only https urls on twitter's image
+ * hosts are fetched, so the servlet cannot be used to fetch anything else.  Urls are normalised
+ * before they are keyed or fetched, keeping only the query parameters twitter's image hosts read
+ * with the values they take, so made up parameters cannot force a fetch and a resize each.
+ *
+ * Started by the activator and used by every TwitterTool, so this is a singleton.
+ */
+public enum TwitterToolImageProxy {
+  // Makes this a singleton
+  INSTANCE;
+
+  // Where the activator registers the servlet, dotCMS serves bundle servlets under /app
+  public static final String SERVLET_ALIAS = "/twittertool/image";
+  public static final String SERVLET_PATH = "/app" + SERVLET_ALIAS;
+
+  private static final long DEFAULT_MAX_SIZE = 200;
+  private static final String DEFAULT_WIDTHS = "48,96,200,400,680";
+  private static final String DEFAULT_HOSTS = "pbs.twimg.com,abs.twimg.com";
+  private static final long DEFAULT_MAX_AGE = 31536000;
+  private static final int DEFAULT_TIMEOUT = 5000;
+  private static final int MAX_IMAGE_BYTES = 5 * 1024 * 1024;
+  private static final int LOCK_STRIPES = 64;
+  // The query parameters twitter's image hosts read and the values they take, in the order kept
+  private static final Map<String, Set<String>> QUERY_PARAMS = new LinkedHashMap<>();
+
+  static {
+    QUERY_PARAMS.put("format", new HashSet<>(Arrays.asList("jpg", "png", "webp")));
+    QUERY_PARAMS.put("name", new HashSet<>(Arrays.asList("thumb", "small", "medium", "large", "orig",
+        "120x120", "240x240", "360x360", "900x900", "4096x4096")));
+  }
+
+  private final Object[] locks = new Object[LOCK_STRIPES];
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong fetches = new AtomicLong();
+  private final AtomicLong resizes = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+
+  private volatile boolean enabled;
+  private volatile String baseUrl = SERVLET_PATH;
+  private volatile int[] widths = new int[0];
+  private volatile Set<String> hosts = Collections.emptySet();
+  private volatile long maxAge = DEFAULT_MAX_AGE;
+  private volatile int timeout = DEFAULT_TIMEOUT;
+  private volatile TwitterToolImageCache cache;
+
+  TwitterToolImageProxy() {
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new Object();
+    }
+  }
+
+  /**
+   * Turns the proxy on if the twitter4jImageProxyEnabled host variable on the default host is set.
+   *
+   * @return true if the proxy is on and its servlet should be registered
+   */
+  public boolean start() {
+    Host defaultHost;
+    try {
+      defaultHost = APILocator.getHostAPI().findDefaultHost(APILocator.getUserAPI().getSystemUser(), false);
+    } catch (Exception e) {
+      Logger.error(this, "Unable to get the default host, not proxying images", e);
+      return false;
+    }
+    return start(new TwitterToolConfig(defaultHost));
+  }
+
+  /**
+   * Turns the proxy on if the twitter4jImageProxyEnabled setting is set, eg against the stand-in.
+   *
+   * @param config The TwitterTool settings
+   * @return true if the proxy is on
+   */
+  synchronized boolean start(TwitterToolConfig config) {
+    if (!config.getBoolean("twitter4jImageProxyEnabled", false)) {
+      enabled = false;
+      return false;
+    }
+
+    String dir = config.getString("twitter4jImageCacheDir",
+        ConfigUtils.getDynamicContentPath() + File.separator + "twittertool" + File.separator + "images");
+    long maxBytes = config.getLong("twitter4jImageCacheMaxSize", DEFAULT_MAX_SIZE) * 1024L * 1024L;
+    cache = new TwitterToolImageCache(new File(dir), maxBytes);
+
+    TreeSet<Integer> configured = new TreeSet<>();
+    for (String width : config.getString("twitter4jImageWidths", DEFAULT_WIDTHS).split(",")) {
+      try {
+        int w = Integer.parseInt(width.trim());
+        if (w > 0) {
+          configured.add(w);
+        }
+      } catch (NumberFormatException e) {
+        Logger.warn(this, "twitter4jImageWidths takes comma separated widths, ignoring " + width);
+      }
+    }
+    widths = configured.stream().mapToInt(Integer::intValue).toArray();
+
+    Set<String> allowed = new HashSet<>();
+    for (String host : config.getString("twitter4jImageHosts", DEFAULT_HOSTS).split(",")) {
+      if (!host.trim().isEmpty()) {
+        allowed.add(host.trim().toLowerCase(Locale.ROOT));
+      }
+    }
+    hosts = Collections.unmodifiableSet(allowed);
+
+    // An absolute url, eg a CDN in front of dotCMS, or the servlet's path on this host
+    String base = config.getString("twitter4jImageProxyBaseUrl", "");
+    baseUrl = (base.endsWith("/") ? base.substring(0, base.length() - 1) : base) + SERVLET_PATH;
+    maxAge = config.getLong("twitter4jImageMaxAge", DEFAULT_MAX_AGE);
+    timeout = config.getInt("twitter4jImageTimeout", DEFAULT_TIMEOUT);
+    enabled = true;
+    Logger.info(this, "Proxying twitter images at " + baseUrl + " from " + dir + ", widths " + Arrays.toString(widths));
+    return true;
+  }
+
+  /**
+   * Turns the proxy off, called when the bundle stops.  The cached images are kept for next time.
+   */
+  public synchronized void stop() {
+    enabled = false;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the proxy url for an image, or the image's own url if the proxy is off or the url is
+   * not on one of twitter's image hosts.  The proxy fetches http urls over https.
+   *
+   * @param url The image url
+   * @param width The width to show it at, 0 for the image as twitter serves it
+   * @return The url to put in the page
+   */
+  public String rewrite(String url, int width) {
+    String secure = url != null && url.startsWith("http://") ? "https://" + url.substring("http://".length()) : url;
+    if (!enabled || !isAllowed(secure)) {
+      return url;
+    }
+    secure = normalize(secure);
+    int w = snap(width);
+    try {
+      return baseUrl + "?url=" + URLEncoder.encode(secure, "UTF-8") + (w == 0 ? "" : "&w=" + w);
+    } catch (UnsupportedEncodingException e) {
+      return url;
+    }
+  }
+
+  /**
+   * Checks an image url is one the proxy will fetch, an https url on one of twitter's image hosts.
+   *
+   * @param url The image url
+   * @return true if the url may be fetched
+   */
+  public boolean isAllowed(String url) {
+    if (url == null) {
+      return false;
+    }
+    try {
+      URI uri = new URI(url);
+      return "https".equalsIgnoreCase(uri.getScheme()) && uri.getHost() != null
+          && hosts.contains(uri.getHost().toLowerCase(Locale.ROOT)) && uri.getPort() == -1 && uri.getUserInfo() == null;
+    } catch (URISyntaxException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns an allowed url as the proxy keys and fetches it: the host lower cased, the fragment and
+   * any query parameters twitter's image hosts do not read dropped, and those kept in a fixed order.
+   *
+   * @param url The image url, which must pass {@link #isAllowed(String)}
+   * @return The normalised url
+   */
+  public String normalize(String url) {
+    try {
+      URI uri = new URI(url);
+      StringBuilder normalized = new StringBuilder("https://").append(uri.getHost().toLowerCase(Locale.ROOT))
+          .append(uri.getRawPath() == null ? "" : uri.getRawPath());
+      Map<String, String> params = new LinkedHashMap<>();
+      String query = uri.getRawQuery();
+      if (query != null) {
+        for (String param : query.split("&")) {
+          int eq = param.indexOf('=');
+          String name = eq < 0 ? param : param.substring(0, eq);
+          String value = eq < 0 ? "" : param.substring(eq + 1);
+          Set<String> values = QUERY_PARAMS.get(name);
+          if (values != null && values.contains(value)) {
+            params.put(name, value);
+          }
+        }
+      }
+      char separator = '?';
+      for (String name : QUERY_PARAMS.keySet()) {
+        if (params.containsKey(name)) {
+          normalized.append(separator).append(name).append('=').append(params.get(name));
+          separator = '&';
+        }
+      }
+      return normalized.toString();
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException("Not a url: " + url, e);
+    }
+  }
+
+  /**
+   * Rounds a width up to the next configured width, or down to the widest.
+   *
+   * @param width The width asked for, 0 or less for the image as twitter serves it
+   * @return The configured width, or 0 for the image as twitter serves it
+   */
+  public int snap(int width) {
+    int[] configured = widths;
+    if (width <= 0 || configured.length == 0) {
+      return 0;
+    }
+    for (int w : configured) {
+      if (w >= width) {
+        return w;
+      }
+    }
+    return configured[configured.length - 1];
+  }
+
+  /**
+   * The strong ETag of an image at a width, which never changes as twitter changes the url of an
+   * image that changes.
+   *
+   * @param url The image url
+   * @param width The width asked for
+   * @return The ETag, quoted
+   */
+  public String etagOf(String url, int width) {
+    return "\"" + nameOf(keyOf(normalize(url)), snap(width)) + "\"";
+  }
+
+  /**
+   * Seconds browsers and CDNs may keep an image for.
+   *
+   * @return The max age
+   */
+  public long getMaxAge() {
+    return maxAge;
+  }
+
+  /**
+   * Returns the cached copy of an image at a width, fetching and resizing it if this is the first
+   * time it has been asked for.
+   *
+   * @param url The image url, which must pass {@link #isAllowed(String)}
+   * @param width The width asked for, 0 for the image as twitter serves it
+   * @return The image file, or null if twitter does not have the image
+   * @throws IOException If the image could not be fetched or cached
+   */
+  public File get(String url, int width) throws IOException {
+    TwitterToolImageCache images = cache;
+    if (!enabled || images == null || !isAllowed(url)) {
+      throw new IOException("Not proxying " + url);
+    }
+    String source = normalize(url);
+    String key = keyOf(source);
+    int w = snap(width);
+    String name = nameOf(key, w);
+    File file = images.get(name);
+    if (file != null) {
+      hits.incrementAndGet();
+      return file;
+    }
+
+    synchronized (locks[(key.hashCode() & Integer.MAX_VALUE) % locks.length]) {
+      // Another request may have cached it while we waited
+      file = images.get(name);
+      if (file != null) {
+        hits.incrementAndGet();
+        return file;
+      }
+
+      File original = images.get(key);
+      byte[] bytes;
+      String extension;
+      int[] variants;
+      if (original == null) {
+        Fetched fetched = fetch(source);
+        if (fetched == null) {
+          return null;
+        }
+        bytes = fetched.bytes;
+        extension = fetched.extension;
+        original = images.put(key, extension, bytes);
+        // Make every width now, so no later request waits on a resize
+        variants = widths;
+      } else {
+        bytes = Files.readAllBytes(original.toPath());
+        extension = original.getName().substring(original.getName().lastIndexOf('.') + 1);
+        variants = new int[] {w};
+      }
+      if (w == 0) {
+        if (variants.length > 0) {
+          resize(images, key, bytes, extension, variants);
+        }
+        return original;
+      }
+      File resized = resize(images, key, bytes, extension, variants).get(w);
+      return resized != null ? resized : original;
+    }
+  }
+
+  /**
+   * Returns what the proxy has done.
+   *
+   * @return A map of enabled, images and bytes cached, hits, fetches, resizes and failures
+   */
+  public Map<String, Object> getStats() {
+    TwitterToolImageCache images = cache;
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", enabled);
+    stats.put("images", images == null ? 0 : images.getCount());
+    stats.put("bytes", images == null ? 0L : images.getBytes());
+    stats.put("hits", hits.get());
+    stats.put("fetches", fetches.get());
+    stats.put("resizes", resizes.get());
+    stats.put("failures", failures.get());
+    return stats;
+  }
+
+  /**
+   * Fetches an image from twitter.
+   *
+   * @return The image, or null if twitter does not have it
+   */
+  private Fetched fetch(String url) throws IOException {
+    fetches.incrementAndGet();
+    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+    conn.setConnectTimeout(timeout);
+    conn.setReadTimeout(timeout);
+    // A redirect could point anywhere, only the allowed hosts are fetched
+    conn.setInstanceFollowRedirects(false);
+    try {
+      int status = conn.getResponseCode();
+      if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_FORBIDDEN
+          || status == HttpURLConnection.HTTP_GONE) {
+        return null;
+      }
+      if (status != HttpURLConnection.HTTP_OK) {
+        throw new IOException("HTTP " + status + " fetching " + url);
+      }
+      String extension = extensionOf(conn.getContentType());
+      if (extension == null) {
+        throw new IOException("Not an image: " + conn.getContentType() + " fetching " + url);
+      }
+      if (conn.getContentLengthLong() > MAX_IMAGE_BYTES) {
+        throw new IOException("Image of " + conn.getContentLengthLong() + " bytes is too big to cache: " + url);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (InputStream in = conn.getInputStream()) {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+          out.write(buffer, 0, n);
+          if (out.size() > MAX_IMAGE_BYTES) {
+            throw new IOException("Image is too big to cache: " + url);
+          }
+        }
+      }
+      return new Fetched(out.toByteArray(), extension);
+    } catch (IOException e) {
+      failures.incrementAndGet();
+      throw e;
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  /**
+   * Caches the image at each width, a copy of the image itself where it is no wider already or
+   * cannot be decoded, eg a gif which would lose its animation.
+   *
+   * @return The files written keyed by width
+   */
+  private Map<Integer, File> resize(TwitterToolImageCache images, String key, byte[] bytes, String extension,
+      int[] variants) throws IOException {
+    Map<Integer, File> written = new LinkedHashMap<>();
+    BufferedImage source = "jpg".equals(extension) || "png".equals(extension)
+        ? ImageIO.read(new ByteArrayInputStream(bytes)) : null;
+    for (int w : variants) {
+      byte[] variant = bytes;
+      if (source != null && source.getWidth() > w) {
+        variant = encode(scale(source, w), extension);
+        resizes.incrementAndGet();
+      }
+      written.put(w, images.put(nameOf(key, w), extension, variant));
+    }
+    return written;
+  }
+
+  /**
+   * Scales an image down to a width, halving it first while it is more than twice as wide so the
+   * result is not jagged.
+   */
+  private static BufferedImage scale(BufferedImage source, int width) {
+    boolean opaque = source.getTransparency() == BufferedImage.OPAQUE;
+    int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+    BufferedImage current = source;
+    int w = source.getWidth();
+    int h = source.getHeight();
+    do {
+      w = Math.max(width, w / 2);
+      h = Math.max(1, (int) Math.round((double) source.getHeight() * w / source.getWidth()));
+      BufferedImage next = new BufferedImage(w, h, type);
+      Graphics2D g = next.createGraphics();
+      try {
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(current, 0, 0, w, h, null);
+      } finally {
+        g.dispose();
+      }
+      current = next;
+    } while (w > width);
+    return current;
+  }
+
+  private static byte[] encode(BufferedImage image, String extension) throws IOException {
+    BufferedImage toWrite = image;
+    if ("jpg".equals(extension) && image.getType() != BufferedImage.TYPE_INT_RGB) {
+      // JPEG has no alpha channel
+      toWrite = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+      Graphics2D g = toWrite.createGraphics();
+      try {
+        g.drawImage(image, 0, 0, Color.WHITE, null);
+      } finally {
+        g.dispose();
+      }
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    if (!ImageIO.write(toWrite, extension, out)) {
+      throw new IOException("No image writer for " + extension);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * The file extension for an image content type.
+   *
+   * @return The extension, or null if the content type is not an image we serve
+   */
+  private static String extensionOf(String contentType) {
+    if (contentType == null) {
+      return null;
+    }
+    String type = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+    switch (type) {
+      case "image/jpeg":
+      case "image/jpg":
+        return "jpg";
+      case "image/png":
+        return "png";
+      case "image/gif":
+        return "gif";
+      case "image/webp":
+        return "webp";
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * The content type of a cached image file.
+   *
+   * @param file The file
+   * @return The content type
+   */
+  public static String contentTypeOf(File file) {
+    String name = file.getName();
+    switch (name.substring(name.lastIndexOf('.') + 1)) {
+      case "jpg":
+        return "image/jpeg";
+      case "png":
+        return "image/png";
+      case "gif":
+        return "image/gif";
+      case "webp":
+        return "image/webp";
+      default:
+        return "application/octet-stream";
+    }
+  }
+
+  private static String nameOf(String key, int width) {
+    return width == 0 ? key : key + "-" + width;
+  }
+
+  /**
+   * The cache key of an image url, a hash so it is safe as a file name.
+   */
+  private static String keyOf(String url) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+      StringBuilder key = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return key.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every JVM has SHA-1
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * An image fetched from twitter.
+   */
+  private static final class Fetched {
+    private final byte[] bytes;
+    private final String extension;
+
+    private Fetched(byte[] bytes, String extension) {
+      this.bytes = bytes;
+      this.extension = extension;
+    }
+  }
+
+}
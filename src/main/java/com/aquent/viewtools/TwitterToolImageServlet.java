@@ -0,0 +1,133 @@
+package com.aquent.viewtools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Serves twitter's images from the {@link TwitterToolImageProxy} cache, eg
+ * /app/twittertool/image?url=https%3A%2F%2Fpbs.twimg.com%2Fprofile_images%2F1%2Fa.jpg&amp;w=96
+ *
+ * Images are sent with a strong ETag and a long max age, and a request carrying the ETag is
+ * answered with a 304 without reading the image.  Urls the proxy will not fetch get a 400, images
+ * twitter does not have a 404, and failures to fetch them a 502.  The image file is opened before
+ * anything is sent, so a copy the cache evicts while it is being sent is still sent whole, and one
+ * evicted before it could be opened is fetched again.
+ */
+public class TwitterToolImageServlet extends HttpServlet {
+
+  private static final long serialVersionUID = 1L;
+  // Seconds a missing image is remembered by browsers and CDNs
+  private static final long NOT_FOUND_MAX_AGE = 300;
+  // Times to ask the proxy again for an image evicted before it could be opened
+  private static final int MAX_ATTEMPTS = 3;
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+    TwitterToolImageProxy proxy = TwitterToolImageProxy.INSTANCE;
+    String url = request.getParameter("url");
+    int width;
+    try {
+      String w = request.getParameter("w");
+      width = w == null || w.isEmpty() ? 0 : Integer.parseInt(w);
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "w must be a width in pixels");
+      return;
+    }
+    if (!proxy.isEnabled()) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    if (!proxy.isAllowed(url)) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "url must be an https url on one of twitter's image hosts");
+      return;
+    }
+
+    // The ETag is known from the url alone, so a revalidation never touches the disk
+    String etag = proxy.etagOf(url, width);
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+      setCacheHeaders(response, etag, proxy.getMaxAge());
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    File image = null;
+    FileChannel channel = null;
+    try {
+      for (int attempt = 0; channel == null && attempt < MAX_ATTEMPTS; attempt++) {
+        image = proxy.get(url, width);
+        if (image == null) {
+          response.setHeader("Cache-Control", "public, max-age=" + NOT_FOUND_MAX_AGE);
+          response.sendError(HttpServletResponse.SC_NOT_FOUND);
+          return;
+        }
+        channel = open(image);
+      }
+    } catch (IOException e) {
+      Logger.warn(this, "Unable to proxy " + url + ": " + e.getMessage());
+      response.sendError(HttpServletResponse.SC_BAD_GATEWAY);
+      return;
+    }
+    if (channel == null) {
+      Logger.warn(this, "Unable to proxy " + url + ": evicted from the image cache before it could be sent");
+      response.sendError(HttpServletResponse.SC_BAD_GATEWAY);
+      return;
+    }
+
+    // Sent from the open channel, which still reads the whole image if the file is deleted meanwhile
+    try (FileChannel in = channel) {
+      long size = in.size();
+      setCacheHeaders(response, etag, proxy.getMaxAge());
+      response.setContentType(TwitterToolImageProxy.contentTypeOf(image));
+      response.setHeader("X-Content-Type-Options", "nosniff");
+      long lastModified = image.lastModified();
+      if (lastModified > 0) {
+        response.setDateHeader("Last-Modified", lastModified);
+      }
+      response.setContentLength((int) size);
+      try (OutputStream out = response.getOutputStream()) {
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = 0;
+        while (position < size) {
+          long sent = in.transferTo(position, size - position, target);
+          if (sent <= 0) {
+            break;
+          }
+          position += sent;
+        }
+      }
+    }
+  }
+
+  /**
+   * Opens a cached image for reading.
+   *
+   * @return The channel, or null if the cache deleted the file since it was handed out
+   */
+  private static FileChannel open(File image) throws IOException {
+    try {
+      return FileChannel.open(image.toPath(), StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  private static void setCacheHeaders(HttpServletResponse response, String etag, long maxAge) {
+    response.setHeader("ETag", etag);
+    response.setHeader("Cache-Control", "public, max-age=" + maxAge + ", immutable");
+  }
+
+}
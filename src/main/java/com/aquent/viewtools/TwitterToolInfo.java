@@ -24,15 +24,28 @@ public class TwitterToolInfo extends ServletToolInfo {
         return TwitterTool.class.getName();
     }
 
+    private TwitterTool viewTool;
+
     @Override
-    public Object getInstance(Object initData) {
+    public synchronized Object getInstance(Object initData) {
 
-        TwitterTool viewTool = new TwitterTool();
-        viewTool.init(initData);
+        // Application scoped, so the prewarmer and the templates share one tool
+        if (viewTool == null) {
+            viewTool = new TwitterTool();
+            viewTool.init(initData);
+        }
 
         setScope(ViewContext.APPLICATION);
 
         return viewTool;
     }
 
+    /**
+     * Returns the tool, creating it if no template has used it yet.
+     * @return The TwitterTool
+     */
+    public TwitterTool getViewTool() {
+        return (TwitterTool) getInstance(null);
+    }
+
 }
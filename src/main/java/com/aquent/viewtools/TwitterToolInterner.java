@@ -0,0 +1,51 @@
+package com.aquent.viewtools;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Hands out one shared instance for equal values so duplicates held in cache can be collected.
+ *
+ * Values are held weakly, once nothing else uses a value it drops out of the interner.
+ *
+ *
+ * @param <T> The type of value being interned
+ */
+public class TwitterToolInterner<T> {
+
+  private final Map<T, WeakReference<T>> values = new WeakHashMap<>();
+
+  /**
+   * Returns the shared instance equal to the value, making the value the shared one if there isn't one.
+   *
+   * @param value The value
+   * @return The shared instance or null if the value is null
+   */
+  public T intern(T value) {
+    if (value == null) {
+      return null;
+    }
+    synchronized (values) {
+      WeakReference<T> ref = values.get(value);
+      T shared = ref == null ? null : ref.get();
+      if (shared == null) {
+        values.put(value, new WeakReference<>(value));
+        shared = value;
+      }
+      return shared;
+    }
+  }
+
+  /**
+   * Returns the number of values being held.
+   *
+   * @return The size
+   */
+  public int size() {
+    synchronized (values) {
+      return values.size();
+    }
+  }
+
+}
@@ -0,0 +1,186 @@
+package com.aquent.viewtools;
+
+import java.util.Date;
+import java.util.List;
+
+import twitter4j.Status;
+import twitter4j.User;
+
+/**
+ * Writes statuses and users as compact JSON for the {@link TwitterToolApiServlet}.
+ *
+ * Only the fields a widget needs are written, named as twitter names them, plus the status's HTML
+ * as {@link TwitterTool#html} renders it.  Ids are written as strings too since javascript cannot
+ * hold them as numbers, and &lt;, &gt;, &amp; and the unicode line separators are escaped so the
+ * JSON is safe inside a script tag.
+ */
+public final class TwitterToolJson {
+
+  // The width profile images are shown at in twitter's own widgets
+  private static final int PROFILE_IMAGE_WIDTH = 48;
+
+  private final TwitterTool tool;
+  private final StringBuilder json = new StringBuilder(1024);
+
+  /**
+   * Starts a document.
+   *
+   * @param tool The tool to render HTML and image urls with
+   */
+  public TwitterToolJson(TwitterTool tool) {
+    this.tool = tool;
+  }
+
+  /**
+   * Writes a list of statuses as an array.
+   *
+   * @param statuses The statuses
+   * @return This writer
+   */
+  public TwitterToolJson statuses(List<Status> statuses) {
+    json.append('[');
+    for (int i = 0; i < statuses.size(); i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      status(statuses.get(i));
+    }
+    json.append(']');
+    return this;
+  }
+
+  /**
+   * Writes a status as an object.
+   *
+   * @param status The status, may be null
+   * @return This writer
+   */
+  public TwitterToolJson status(Status status) {
+    if (status == null) {
+      json.append("null");
+      return this;
+    }
+    json.append('{');
+    id(status.getId());
+    field("created_at", status.getCreatedAt());
+    field("text", status.getText());
+    field("html", tool.html(status));
+    json.append(",\"user\":");
+    user(status.getUser());
+    field("retweet_count", status.getRetweetCount());
+    field("favorite_count", status.getFavoriteCount());
+    if (status.getInReplyToStatusId() > 0) {
+      field("in_reply_to_status_id_str", Long.toString(status.getInReplyToStatusId()));
+      field("in_reply_to_screen_name", status.getInReplyToScreenName());
+    }
+    field("lang", status.getLang());
+    if (status.getRetweetedStatus() != null) {
+      json.append(",\"retweeted_status\":");
+      status(status.getRetweetedStatus());
+    }
+    json.append('}');
+    return this;
+  }
+
+  /**
+   * Writes a user as an object.
+   *
+   * @param user The user, may be null
+   * @return This writer
+   */
+  public TwitterToolJson user(User user) {
+    if (user == null) {
+      json.append("null");
+      return this;
+    }
+    json.append('{');
+    id(user.getId());
+    field("screen_name", user.getScreenName());
+    field("name", user.getName());
+    field("description", user.getDescription());
+    field("location", user.getLocation());
+    field("url", user.getURL());
+    field("profile_image_url_https", tool.profileImageUrl(user, PROFILE_IMAGE_WIDTH));
+    field("verified", user.isVerified());
+    field("protected", user.isProtected());
+    field("followers_count", user.getFollowersCount());
+    field("friends_count", user.getFriendsCount());
+    field("statuses_count", user.getStatusesCount());
+    json.append('}');
+    return this;
+  }
+
+  private void id(long id) {
+    json.append("\"id\":").append(id).append(",\"id_str\":\"").append(id).append('"');
+  }
+
+  private void field(String name, long value) {
+    json.append(",\"").append(name).append("\":").append(value);
+  }
+
+  private void field(String name, boolean value) {
+    json.append(",\"").append(name).append("\":").append(value);
+  }
+
+  private void field(String name, Date value) {
+    field(name, value == null ? null : value.toInstant().toString());
+  }
+
+  private void field(String name, String value) {
+    json.append(",\"").append(name).append("\":");
+    if (value == null) {
+      json.append("null");
+      return;
+    }
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        case '\n':
+          json.append("\\n");
+          break;
+        case '\r':
+          json.append("\\r");
+          break;
+        case '\t':
+          json.append("\\t");
+          break;
+        case '<':
+        case '>':
+        case '&':
+        case '\u2028':
+        case '\u2029':
+          unicode(c);
+          break;
+        default:
+          if (c < 0x20) {
+            unicode(c);
+          } else {
+            json.append(c);
+          }
+      }
+    }
+    json.append('"');
+  }
+
+  private void unicode(char c) {
+    json.append("\\u");
+    String hex = Integer.toHexString(c);
+    for (int i = hex.length(); i < 4; i++) {
+      json.append('0');
+    }
+    json.append(hex);
+  }
+
+  @Override
+  public String toString() {
+    return json.toString();
+  }
+
+}
@@ -0,0 +1,56 @@
+package com.aquent.viewtools;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cluster held in memory, shared by the TwitterTools in one JVM.
+ *
+ * Used to simulate several nodes in one JVM.  Published results are never evicted so this is not
+ * meant for a real site.
+ */
+public class TwitterToolLocalCluster implements TwitterToolCluster {
+
+  private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, TwitterToolCacheEntry> results = new ConcurrentHashMap<>();
+
+  @Override
+  public boolean tryLease(String key, final String node, long millis) {
+    final long now = System.currentTimeMillis();
+    final Lease mine = new Lease(node, now + millis);
+    return leases.merge(key, mine, (held, wanted) -> held.expiresAt <= now || held.node.equals(node) ? wanted : held) == mine;
+  }
+
+  @Override
+  public void release(String key, final String node) {
+    leases.computeIfPresent(key, (k, held) -> held.node.equals(node) ? null : held);
+  }
+
+  @Override
+  public void publish(String key, TwitterToolCacheEntry entry) {
+    results.put(key, entry);
+  }
+
+  @Override
+  public TwitterToolCacheEntry read(String key) {
+    return results.get(key);
+  }
+
+  /**
+   * Drops every lease and result.
+   */
+  public void clear() {
+    leases.clear();
+    results.clear();
+  }
+
+  private static final class Lease {
+    private final String node;
+    private final long expiresAt;
+
+    private Lease(String node, long expiresAt) {
+      this.node = node;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+}
@@ -0,0 +1,169 @@
+package com.aquent.viewtools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import twitter4j.Status;
+
+/**
+ * The newest statuses of several timelines interleaved into one, newest first, eg a news wall of
+ * a dozen handles.
+ *
+ * The timelines are merged with a heap keyed on each one's newest unmerged status, so merging k
+ * timelines of n statuses costs n log k rather than a sort of everything.  A tweet shared by more
+ * than one of the timelines, as the original or as retweets, is kept once, as its newest share.
+ *
+ * Instances are immutable and remember the newest status they took from each timeline.  Updating
+ * one with the timelines fetched since merges in only the statuses newer than those, against the
+ * statuses already merged, so one new tweet does not re-merge every timeline.  If a timeline no
+ * longer starts where it left off, eg a status was deleted, everything is merged again.
+ */
+public final class TwitterToolMergedTimeline {
+
+  private final List<Status> statuses;
+  private final long[] newestIds;
+  private final int count;
+
+  private TwitterToolMergedTimeline(List<Status> statuses, long[] newestIds, int count) {
+    this.statuses = Collections.unmodifiableList(statuses);
+    this.newestIds = newestIds;
+    this.count = count;
+  }
+
+  /**
+   * Merges timelines.
+   *
+   * @param timelines The timelines, each newest first, null for any that could not be fetched
+   * @param count The most statuses to keep
+   * @return The merged timeline
+   */
+  public static TwitterToolMergedTimeline merge(List<? extends List<Status>> timelines, int count) {
+    long[] newestIds = new long[timelines.size()];
+    List<List<Status>> sources = new ArrayList<>(timelines.size());
+    for (int i = 0; i < timelines.size(); i++) {
+      List<Status> timeline = timelines.get(i);
+      newestIds[i] = timeline == null || timeline.isEmpty() ? -1 : timeline.get(0).getId();
+      if (timeline != null) {
+        sources.add(timeline);
+      }
+    }
+    return new TwitterToolMergedTimeline(kWayMerge(sources, count), newestIds, count);
+  }
+
+  /**
+   * Brings this merged timeline up to date with the same timelines fetched again.
+   *
+   * @param timelines The timelines in the same order as before, null for any that could not be
+   *     fetched this time, which keep what they had
+   * @param newCount The most statuses to keep
+   * @return The updated timeline, this one if nothing has changed
+   */
+  public TwitterToolMergedTimeline update(List<? extends List<Status>> timelines, int newCount) {
+    if (timelines.size() != newestIds.length || newCount != count) {
+      return merge(timelines, newCount);
+    }
+
+    long[] updatedIds = newestIds.clone();
+    List<List<Status>> sources = new ArrayList<>(timelines.size() + 1);
+    for (int i = 0; i < timelines.size(); i++) {
+      List<Status> timeline = timelines.get(i);
+      if (timeline == null) {
+        continue;
+      }
+      int newer = 0;
+      while (newer < timeline.size() && timeline.get(newer).getId() > newestIds[i]) {
+        newer++;
+      }
+      if (newestIds[i] != -1 && newer < timeline.size() && timeline.get(newer).getId() != newestIds[i]) {
+        // The timeline changed under what we merged, start over
+        return merge(timelines, newCount);
+      }
+      if (newer > 0) {
+        sources.add(timeline.subList(0, newer));
+        updatedIds[i] = timeline.get(0).getId();
+      }
+    }
+    if (sources.isEmpty()) {
+      return this;
+    }
+    sources.add(statuses);
+    List<Status> merged = kWayMerge(sources, count);
+    if (merged.size() < count && statuses.size() == count) {
+      // A repeat pushed out a status, the one to take its place was cut off last time
+      return merge(timelines, newCount);
+    }
+    return new TwitterToolMergedTimeline(merged, updatedIds, count);
+  }
+
+  /**
+   * Merges newest first lists into one, dropping repeats of a tweet.
+   */
+  private static List<Status> kWayMerge(List<List<Status>> sources, int count) {
+    PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()));
+    for (List<Status> source : sources) {
+      if (!source.isEmpty()) {
+        heads.add(new Head(source));
+      }
+    }
+
+    List<Status> merged = new ArrayList<>(count);
+    Set<Long> seen = new HashSet<>();
+    while (merged.size() < count && !heads.isEmpty()) {
+      Head head = heads.poll();
+      Status status = head.status();
+      if (seen.add(tweetId(status))) {
+        merged.add(status);
+      }
+      if (head.advance()) {
+        heads.add(head);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * The id of the tweet a status shares, the retweeted status for a retweet.
+   */
+  private static long tweetId(Status status) {
+    Status retweeted = status.getRetweetedStatus();
+    return retweeted == null ? status.getId() : retweeted.getId();
+  }
+
+  public List<Status> getStatuses() {
+    return statuses;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * The next status of a source list, ordered newest first.
+   */
+  private static final class Head implements Comparable<Head> {
+    private final List<Status> source;
+    private int index;
+
+    private Head(List<Status> source) {
+      this.source = source;
+    }
+
+    private Status status() {
+      return source.get(index);
+    }
+
+    private boolean advance() {
+      return ++index < source.size();
+    }
+
+    @Override
+    public int compareTo(Head that) {
+      return Long.compare(that.status().getId(), status().getId());
+    }
+  }
+
+}
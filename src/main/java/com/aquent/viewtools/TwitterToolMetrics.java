@@ -0,0 +1,133 @@
+package com.aquent.viewtools;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Counts calls, cache hits and upstream requests for each endpoint.
+ *
+ * The stats are exposed through JMX, registered by the activator, and read only through
+ * $twitter.stats.
+ */
+public enum TwitterToolMetrics {
+  // Makes this a singleton
+  INSTANCE;
+
+  public static final String JMX_DOMAIN = "com.aquent.viewtools";
+
+  private final Map<TwitterToolEndpoint, TwitterToolEndpointStats> stats = new EnumMap<>(TwitterToolEndpoint.class);
+
+  TwitterToolMetrics() {
+    for (TwitterToolEndpoint endpoint : TwitterToolEndpoint.values()) {
+      stats.put(endpoint, new TwitterToolEndpointStats());
+    }
+  }
+
+  /**
+   * Records a viewtool call.
+   *
+   * @param endpoint The endpoint called
+   * @param outcome How the call was answered
+   * @param start The System.nanoTime() the call started at
+   */
+  public void record(TwitterToolEndpoint endpoint, TwitterToolOutcome outcome, long start) {
+    stats.get(endpoint).record(outcome, System.nanoTime() - start);
+  }
+
+  /**
+   * Records an http request made to twitter.
+   *
+   * @param endpoint The endpoint requested
+   * @param start The System.nanoTime() the request started at
+   * @param error true if twitter returned an error or the request failed
+   */
+  public void recordUpstream(TwitterToolEndpoint endpoint, long start, boolean error) {
+    stats.get(endpoint).recordUpstream(System.nanoTime() - start, error);
+  }
+
+  /**
+   * Adds to the number of response bytes read from twitter.
+   *
+   * @param endpoint The endpoint requested
+   * @param bytes The number of bytes read
+   */
+  public void recordUpstreamBytes(TwitterToolEndpoint endpoint, long bytes) {
+    stats.get(endpoint).recordUpstreamBytes(bytes);
+  }
+
+  public TwitterToolEndpointStats get(TwitterToolEndpoint endpoint) {
+    return stats.get(endpoint);
+  }
+
+  /**
+   * Returns a read only snapshot of every endpoint's stats.
+   *
+   * @return The stats keyed by endpoint config name, eg UserTimeline
+   */
+  public Map<String, Map<String, Object>> getStats() {
+    Map<String, Map<String, Object>> map = new LinkedHashMap<>();
+    for (Map.Entry<TwitterToolEndpoint, TwitterToolEndpointStats> e : stats.entrySet()) {
+      map.put(e.getKey().getConfigName(), e.getValue().toMap());
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  /**
+   * Clears every endpoint's stats.
+   */
+  public void reset() {
+    for (TwitterToolEndpointStats s : stats.values()) {
+      s.reset();
+    }
+  }
+
+  /**
+   * Registers an MBean for each endpoint with the platform MBean server, replacing any left from a
+   * previous deploy.
+   */
+  public void registerMBeans() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (Map.Entry<TwitterToolEndpoint, TwitterToolEndpointStats> e : stats.entrySet()) {
+      try {
+        ObjectName name = objectName(e.getKey());
+        if (server.isRegistered(name)) {
+          server.unregisterMBean(name);
+        }
+        server.registerMBean(e.getValue(), name);
+      } catch (JMException ex) {
+        Logger.warn(this, "Unable to register the TwitterTool MBean for " + e.getKey() + ": " + ex.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Unregisters the MBeans, called when the bundle stops.
+   */
+  public void unregisterMBeans() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (TwitterToolEndpoint endpoint : stats.keySet()) {
+      try {
+        ObjectName name = objectName(endpoint);
+        if (server.isRegistered(name)) {
+          server.unregisterMBean(name);
+        }
+      } catch (JMException e) {
+        Logger.warn(this, "Unable to unregister the TwitterTool MBean for " + endpoint + ": " + e.getMessage());
+      }
+    }
+  }
+
+  private static ObjectName objectName(TwitterToolEndpoint endpoint) throws JMException {
+    return new ObjectName(JMX_DOMAIN + ":type=TwitterTool,endpoint=" + endpoint.getConfigName());
+  }
+
+}
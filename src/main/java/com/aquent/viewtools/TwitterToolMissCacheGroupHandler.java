@@ -1,5 +1,8 @@
 package com.aquent.viewtools;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotCacheAdministrator;
 import com.dotmarketing.business.DotCacheException;
@@ -8,6 +11,12 @@ import com.dotmarketing.util.UtilMethods;
 
 /**
  * Cache Group Handler for miss cache.
+ *
+ * Screen names and user ids are kept apart with the sn: and id: key prefixes, use
+ * {@link #screenNameKey} and {@link #userIdKey} to build keys.  Each entry expires after the ttl
+ * for its {@link TwitterToolMissReason}.  Every key put is also added to a Bloom filter which get
+ * checks first, so keys that were never missed are answered without going to the cache.
+ *
  * @author cfalzone
  */
 public enum TwitterToolMissCacheGroupHandler {
@@ -15,20 +24,69 @@ public enum TwitterToolMissCacheGroupHandler {
   INSTANCE;
 
   // A name for this cache pool
-  public static final String CACHE_GROUP_NAME = "AquentGlobalConfigCache";
+  public static final String CACHE_GROUP_NAME = "TwitterToolMissCache";
+
+  private static final int BLOOM_EXPECTED = 10000;
+  private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+
+  private final TwitterToolBloomFilter bloom = new TwitterToolBloomFilter(BLOOM_EXPECTED, BLOOM_FALSE_POSITIVE_RATE);
+  private final Map<TwitterToolMissReason, Long> ttls = new EnumMap<>(TwitterToolMissReason.class);
+  private volatile boolean bloomLoaded = false;
+
+  TwitterToolMissCacheGroupHandler() {
+    for (TwitterToolMissReason reason : TwitterToolMissReason.values()) {
+      ttls.put(reason, reason.getDefaultTtl() * 1000L);
+    }
+  }
 
+  /**
+   * Returns the miss cache key for a screen name, the same key whatever its case.
+   *
+   * @param screenName The screen name
+   * @return The key
+   */
+  public static String screenNameKey(String screenName) {
+    return "sn:" + TwitterToolAliases.normalize(screenName);
+  }
 
   /**
-   * Returns the value of a key in the miss cache or false if not found.
+   * Returns the miss cache key for a user id.
+   *
+   * @param userId The user id
+   * @return The key
+   */
+  public static String userIdKey(long userId) {
+    return "id:" + userId;
+  }
+
+  /**
+   * Sets how long a miss is remembered for a reason.
+   *
+   * @param reason The reason
+   * @param ttl The ttl in seconds
+   */
+  public void setTtl(TwitterToolMissReason reason, long ttl) {
+    synchronized (ttls) {
+      ttls.put(reason, ttl * 1000L);
+    }
+  }
+
+  /**
+   * Returns true if the key is in the miss cache and has not expired.
    *
    * @param key The key you want to pull from cache
-   * @return The value of the key in the properties or false if not found
+   * @return true if the key is a miss
    */
-  public Boolean get(String key) {
+  public boolean get(String key) {
     if (!UtilMethods.isSet(key)) {
       throw new IllegalArgumentException("key cannot be null.");
     }
 
+    loadBloom();
+    if (!bloom.mightContain(key)) {
+      return false;
+    }
+
     DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
     Object o = null;
 
@@ -42,27 +100,45 @@ public enum TwitterToolMissCacheGroupHandler {
 
     if (o == null) {
       return false;
-    } else {
-      return (Boolean) o;
     }
+
+    // Values are "REASON:expiresAt" so they survive a redeploy of the plugin's classes
+    String value = o.toString();
+    long expiresAt;
+    try {
+      expiresAt = Long.parseLong(value.substring(value.indexOf(':') + 1));
+    } catch (NumberFormatException e) {
+      expiresAt = 0;
+    }
+    if (System.currentTimeMillis() >= expiresAt) {
+      cache.remove(key, CACHE_GROUP_NAME);
+      return false;
+    }
+    return true;
   }
 
   /**
    * Puts an item into the cache.
    *
    * @param key The key value
-   * @param value The value
+   * @param reason Why the key is a miss
    */
-  public void put(String key, boolean value) {
+  public void put(String key, TwitterToolMissReason reason) {
     if (!UtilMethods.isSet(key)) {
       throw new IllegalArgumentException("key cannot be null.");
     }
-    if (!UtilMethods.isSet(value)) {
-      throw new IllegalArgumentException("value cannot be null.");
+    if (reason == null) {
+      throw new IllegalArgumentException("reason cannot be null.");
+    }
+
+    long ttl;
+    synchronized (ttls) {
+      ttl = ttls.get(reason);
     }
 
+    bloom.put(key);
     DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
-    cache.put(key, value, CACHE_GROUP_NAME);
+    cache.put(key, reason.name() + ":" + (System.currentTimeMillis() + ttl), CACHE_GROUP_NAME);
   }
 
   /**
@@ -85,6 +161,29 @@ public enum TwitterToolMissCacheGroupHandler {
   public void removeAll() {
     DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
     cache.flushGroup(CACHE_GROUP_NAME);
+    bloom.clear();
+  }
+
+  /**
+   * Adds the keys already in the cache to the Bloom filter, eg ones left from before a redeploy.
+   */
+  private void loadBloom() {
+    if (bloomLoaded) {
+      return;
+    }
+    synchronized (bloom) {
+      if (bloomLoaded) {
+        return;
+      }
+      try {
+        for (String key : CacheLocator.getCacheAdministrator().getKeys(CACHE_GROUP_NAME)) {
+          bloom.put(key);
+        }
+      } catch (RuntimeException e) {
+        Logger.warn(this.getClass(), "Unable to read the keys of " + CACHE_GROUP_NAME + ": " + e.getMessage());
+      }
+      bloomLoaded = true;
+    }
   }
 
 }
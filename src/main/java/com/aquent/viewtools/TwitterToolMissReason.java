@@ -0,0 +1,86 @@
+package com.aquent.viewtools;
+
+import twitter4j.TwitterException;
+
+/**
+ * Why a user was added to the miss cache, each reason has its own ttl.
+ */
+public enum TwitterToolMissReason {
+  // The user or list does not exist
+  NOT_FOUND("NotFound", 3600),
+  // The account is suspended
+  SUSPENDED("Suspended", 21600),
+  // The account is protected and we are not allowed to see it
+  PROTECTED("Protected", 3600);
+
+  private static final int NO_USER_MATCHES_ERR_CODE = 17;
+  private static final int PAGE_DOES_NOT_EXIST_ERR_CODE = 34;
+  private static final int USER_NOT_FOUND_ERR_CODE = 50;
+  private static final int SUSPENDED_ERR_CODE = 63;
+  private static final int NOT_AUTHORIZED_ERR_CODE = 179;
+  private static final int UNAUTHORIZED_STATUS = 401;
+
+  private final String configName;
+  private final int defaultTtl;
+
+  TwitterToolMissReason(String configName, int defaultTtl) {
+    this.configName = configName;
+    this.defaultTtl = defaultTtl;
+  }
+
+  /**
+   * The suffix used for the per reason host variables, eg twitter4jMissTtlNotFound.
+   *
+   * @return The config name for this reason
+   */
+  public String getConfigName() {
+    return configName;
+  }
+
+  /**
+   * The number of seconds a miss is remembered when no host variable is set.
+   *
+   * @return The default ttl in seconds
+   */
+  public int getDefaultTtl() {
+    return defaultTtl;
+  }
+
+  /**
+   * Works out if an error means the user should be added to the miss cache.
+   *
+   * Only twitter's own error codes for the user are trusted.  Bad credentials, rate limits and bare
+   * 404s or 401s without a code (a wrong base url, a proxy or an expired token answer the same way)
+   * say nothing about the user, those return null.  See {@link #isBareUnauthorized} for the 401
+   * twitter sends for a protected account's tweets.
+   *
+   * @param e The error twitter returned
+   * @return The reason to miss cache the user, or null if the error is not about the user
+   */
+  public static TwitterToolMissReason of(TwitterException e) {
+    switch (e.getErrorCode()) {
+      case NO_USER_MATCHES_ERR_CODE:
+      case PAGE_DOES_NOT_EXIST_ERR_CODE:
+      case USER_NOT_FOUND_ERR_CODE:
+        return NOT_FOUND;
+      case SUSPENDED_ERR_CODE:
+        return SUSPENDED;
+      case NOT_AUTHORIZED_ERR_CODE:
+        return PROTECTED;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Checks for a 401 without an error code, which is how twitter refuses to show a protected
+   * account's tweets or lists, but also how it answers a revoked token.
+   *
+   * @param e The error twitter returned
+   * @return true if the error is a bare 401
+   */
+  public static boolean isBareUnauthorized(TwitterException e) {
+    return e.getErrorCode() == -1 && e.getStatusCode() == UNAUTHORIZED_STATUS;
+  }
+
+}
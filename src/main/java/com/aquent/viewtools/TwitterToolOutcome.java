@@ -0,0 +1,17 @@
+package com.aquent.viewtools;
+
+/**
+ * How a TwitterTool call was answered, counted per endpoint by {@link TwitterToolMetrics}.
+ */
+public enum TwitterToolOutcome {
+  // Served from a fresh result cache entry
+  HIT,
+  // Served from a stale result cache entry while it refreshes
+  STALE,
+  // The user is in the miss cache so nothing was fetched
+  MISS_CACHED,
+  // Fetched from twitter
+  FETCHED,
+  // Nothing could be returned, eg an error or a used up rate limit
+  ERROR
+}
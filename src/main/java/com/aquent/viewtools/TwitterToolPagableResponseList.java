@@ -0,0 +1,57 @@
+package com.aquent.viewtools;
+
+import java.util.Collection;
+
+import twitter4j.PagableResponseList;
+import twitter4j.RateLimitStatus;
+import twitter4j.TwitterResponse;
+
+/**
+ * A PagableResponseList built by the TwitterTool rather than parsed from a single twitter response.
+ *
+ * @param <T> The type of the items in the list
+ */
+public class TwitterToolPagableResponseList<T extends TwitterResponse> extends TwitterToolResponseList<T>
+    implements PagableResponseList<T> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long previousCursor;
+  private final long nextCursor;
+
+  /**
+   * Creates a list holding the items.
+   *
+   * @param items The items
+   * @param rateLimitStatus The rate limit status of the response the items came from, may be null
+   * @param previousCursor The cursor of the previous page, 0 if there is none
+   * @param nextCursor The cursor of the next page, 0 if there is none
+   */
+  public TwitterToolPagableResponseList(Collection<? extends T> items, RateLimitStatus rateLimitStatus,
+      long previousCursor, long nextCursor) {
+    super(items, rateLimitStatus);
+    this.previousCursor = previousCursor;
+    this.nextCursor = nextCursor;
+  }
+
+  @Override
+  public boolean hasPrevious() {
+    return previousCursor != 0;
+  }
+
+  @Override
+  public long getPreviousCursor() {
+    return previousCursor;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return nextCursor != 0;
+  }
+
+  @Override
+  public long getNextCursor() {
+    return nextCursor;
+  }
+
+}
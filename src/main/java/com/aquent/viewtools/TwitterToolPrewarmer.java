@@ -0,0 +1,257 @@
+package com.aquent.viewtools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Keeps the timelines and lists every template renders fresh in the cache, so no render waits on
+ * twitter for them.
+ *
+ * Each configured page is refreshed in the background a while before its cached copy expires,
+ * then again every interval, give or take some jitter so the pages drift apart rather than all
+ * coming due together.  The first refreshes are spaced evenly across one interval instead of all
+ * being made at startup.  The refreshes are background calls, so they stop short of the part of
+ * each rate limit kept back for renders.
+ *
+ * Started and stopped by the activator, so this is a singleton.
+ */
+public enum TwitterToolPrewarmer {
+  // Makes this a singleton
+  INSTANCE;
+
+  private static final int DEFAULT_JITTER = 10;
+  // Refresh when this much of the ttl has passed
+  private static final double TTL_FRACTION = 0.8;
+  private static final long MIN_INTERVAL = 1000;
+
+  private final AtomicLong refreshes = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+
+  private volatile List<Target> targets = Collections.emptyList();
+
+  /**
+   * Starts refreshing the pages in the twitter4jPrewarm host variable on the default host, if it is
+   * set.
+   *
+   * @param tool Returns the viewtool to refresh through, only asked for when there is something to refresh
+   */
+  public void start(Supplier<TwitterTool> tool) {
+    Host defaultHost;
+    try {
+      defaultHost = APILocator.getHostAPI().findDefaultHost(APILocator.getUserAPI().getSystemUser(), false);
+    } catch (Exception e) {
+      Logger.error(this, "Unable to get the default host, not prewarming", e);
+      return;
+    }
+
+    TwitterToolConfig config = new TwitterToolConfig(defaultHost);
+    if (config.getString("twitter4jPrewarm", null) == null) {
+      return;
+    }
+    start(config, tool.get());
+  }
+
+  /**
+   * Starts refreshing the pages in the twitter4jPrewarm setting, eg against the stand-in.
+   *
+   * Each page is a screen name or id: and a user id, see {@link TwitterToolHandle}, optionally
+   * followed by /slug for one of their lists and :page:count for the page renders ask for, eg
+   * aquent, aquent:1:5, id:15378515:1:5 or suzillazilla/team:1:20.
+   *
+   * @param config The TwitterTool settings
+   * @param tool The viewtool to refresh through
+   */
+  synchronized void start(TwitterToolConfig config, TwitterTool tool) {
+    stop();
+
+    long interval = TimeUnit.SECONDS.toMillis(config.getLong("twitter4jPrewarmInterval", 0));
+    int jitter = Math.max(0, Math.min(100, config.getInt("twitter4jPrewarmJitter", DEFAULT_JITTER)));
+    List<Target> newTargets = new ArrayList<>();
+    for (String page : config.getString("twitter4jPrewarm", "").split(",")) {
+      Target target = Target.parse(page.trim(), tool, interval, jitter);
+      if (target != null) {
+        newTargets.add(target);
+      } else if (!page.trim().isEmpty()) {
+        Logger.warn(this, "twitter4jPrewarm takes [id:]handle[/slug][:page:count], ignoring " + page);
+      }
+    }
+    if (newTargets.isEmpty()) {
+      return;
+    }
+
+    targets = Collections.unmodifiableList(newTargets);
+    for (int i = 0; i < newTargets.size(); i++) {
+      Target target = newTargets.get(i);
+      target.schedule(target.interval * i / newTargets.size());
+    }
+    Logger.info(this, "Prewarming " + newTargets);
+  }
+
+  /**
+   * Stops refreshing, called when the bundle stops.
+   */
+  public synchronized void stop() {
+    List<Target> oldTargets = targets;
+    targets = Collections.emptyList();
+    if (!oldTargets.isEmpty()) {
+      Logger.info(this, "Stopping prewarming " + oldTargets);
+    }
+    for (Target target : oldTargets) {
+      target.cancel();
+    }
+  }
+
+  /**
+   * Returns what has been prewarmed.
+   *
+   * @return A map of the pages and how often each is refreshed in seconds, refreshes, failures (eg
+   *     the rate limit budget left is kept for renders) and refreshes skipped as the queue was full
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> pages = new LinkedHashMap<>();
+    for (Target target : targets) {
+      pages.put(target.toString(), target.interval / 1000.0);
+    }
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("pages", pages);
+    stats.put("refreshes", refreshes.get());
+    stats.put("failures", failures.get());
+    stats.put("skipped", skipped.get());
+    return stats;
+  }
+
+  /**
+   * A page to keep fresh and its schedule.
+   */
+  private static final class Target {
+    private final TwitterTool tool;
+    private final TwitterToolHandle handle;
+    private final int page;
+    private final int count;
+    private final long interval;
+    private final int jitter;
+    private volatile ScheduledFuture<?> next;
+    private volatile boolean cancelled;
+
+    private Target(TwitterTool tool, TwitterToolHandle handle, int page, int count, long interval, int jitter) {
+      this.tool = tool;
+      this.handle = handle;
+      this.page = page;
+      this.count = count;
+      this.interval = interval;
+      this.jitter = jitter;
+    }
+
+    /**
+     * Parses [id:]handle[/slug][:page:count].
+     *
+     * @return The target or null if the page is not valid
+     */
+    private static Target parse(String spec, TwitterTool tool, long interval, int jitter) {
+      int end = TwitterToolHandle.endOf(spec);
+      TwitterToolHandle handle = TwitterToolHandle.parse(spec.substring(0, end));
+      String[] parts = end == spec.length() ? new String[0] : spec.substring(end + 1).split(":", -1);
+      if (handle == null || parts.length > 2) {
+        return null;
+      }
+      int page = 1;
+      int count = 20;
+      try {
+        if (parts.length > 0) {
+          page = Integer.parseInt(parts[0]);
+        }
+        if (parts.length > 1) {
+          count = Integer.parseInt(parts[1]);
+        }
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      if (page < 1 || count < 1) {
+        return null;
+      }
+      if (interval <= 0) {
+        TwitterToolEndpoint endpoint = handle.getSlug() == null ? TwitterToolEndpoint.USER_TIMELINE
+            : TwitterToolEndpoint.LIST_STATUSES;
+        interval = (long) (tool.getTtl(endpoint) * TTL_FRACTION);
+      }
+      return new Target(tool, handle, page, count, Math.max(MIN_INTERVAL, interval), jitter);
+    }
+
+    private void schedule(long delay) {
+      if (cancelled) {
+        return;
+      }
+      try {
+        next = TwitterToolExecutors.INSTANCE.scheduler().schedule(this::submit, delay, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        Logger.debug(TwitterToolPrewarmer.INSTANCE, "Scheduler stopped, not prewarming " + this);
+      }
+    }
+
+    /**
+     * Hands the refresh to the refresh threads, the scheduler threads are kept for short tasks.
+     */
+    private void submit() {
+      try {
+        TwitterToolExecutors.INSTANCE.refresh().execute(this::refresh);
+      } catch (RejectedExecutionException e) {
+        INSTANCE.skipped.incrementAndGet();
+        schedule(nextDelay());
+      }
+    }
+
+    private void refresh() {
+      try {
+        if (cancelled) {
+          return;
+        }
+        if (tool.prewarm(handle, page, count)) {
+          INSTANCE.refreshes.incrementAndGet();
+        } else {
+          INSTANCE.failures.incrementAndGet();
+        }
+      } catch (RuntimeException e) {
+        INSTANCE.failures.incrementAndGet();
+        Logger.warn(TwitterToolPrewarmer.INSTANCE, "Unable to prewarm " + this + ": " + e.getMessage());
+      } finally {
+        schedule(nextDelay());
+      }
+    }
+
+    /**
+     * The interval give or take the jitter.
+     */
+    private long nextDelay() {
+      long spread = interval * jitter / 100;
+      return spread == 0 ? interval : interval - spread + ThreadLocalRandom.current().nextLong(2 * spread + 1);
+    }
+
+    private void cancel() {
+      cancelled = true;
+      ScheduledFuture<?> scheduled = next;
+      if (scheduled != null) {
+        scheduled.cancel(false);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return handle + ":" + page + ":" + count;
+    }
+  }
+
+}
@@ -0,0 +1,11 @@
+package com.aquent.viewtools;
+
+/**
+ * How urgent a call to twitter is, used to decide who gets the last of a rate limit budget.
+ */
+public enum TwitterToolPriority {
+  // A render is waiting on the call
+  INTERACTIVE,
+  // Nobody is waiting, eg refreshing a stale cache entry
+  BACKGROUND
+}
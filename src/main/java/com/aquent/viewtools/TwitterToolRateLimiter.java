@@ -0,0 +1,164 @@
+package com.aquent.viewtools;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotmarketing.util.Logger;
+
+import twitter4j.RateLimitStatus;
+
+/**
+ * Tracks the twitter rate limit budget for each endpoint from the RateLimitStatus on each response.
+ *
+ * Once a budget is used up calls are refused locally until it resets instead of making a request
+ * twitter will reject.  Background calls are also refused once the budget falls to the reserve so
+ * the rest of it is left for renders.
+ */
+public class TwitterToolRateLimiter {
+
+  private final Map<TwitterToolEndpoint, Budget> budgets = new EnumMap<>(TwitterToolEndpoint.class);
+  private final int reservePercent;
+  private final AtomicLong throttled = new AtomicLong();
+
+  /**
+   * Creates a rate limiter.
+   *
+   * @param reservePercent The percent of each budget kept back for interactive calls
+   */
+  public TwitterToolRateLimiter(int reservePercent) {
+    this.reservePercent = Math.max(0, Math.min(100, reservePercent));
+    for (TwitterToolEndpoint endpoint : TwitterToolEndpoint.values()) {
+      budgets.put(endpoint, new Budget());
+    }
+  }
+
+  /**
+   * Takes one call from the endpoint's budget if there is room for a call of this priority.
+   *
+   * @param endpoint The endpoint about to be called
+   * @param priority The priority of the call
+   * @return true if the call may go ahead, false if it should not be made
+   */
+  public boolean tryAcquire(TwitterToolEndpoint endpoint, TwitterToolPriority priority) {
+    Budget budget = budgets.get(endpoint);
+    if (System.currentTimeMillis() >= budget.resetAt) {
+      // We don't know the budget or the window has reset, let twitter tell us
+      return true;
+    }
+
+    int floor = priority == TwitterToolPriority.BACKGROUND ? budget.limit * reservePercent / 100 : 0;
+    while (true) {
+      int remaining = budget.remaining.get();
+      if (remaining <= floor) {
+        throttled.incrementAndGet();
+        return false;
+      }
+      if (budget.remaining.compareAndSet(remaining, remaining - 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Checks if there is room for a call of this priority without taking it from the budget.
+   *
+   * @param endpoint The endpoint to check
+   * @param priority The priority of the call
+   * @return true if a call would be allowed
+   */
+  public boolean isAvailable(TwitterToolEndpoint endpoint, TwitterToolPriority priority) {
+    Budget budget = budgets.get(endpoint);
+    if (System.currentTimeMillis() >= budget.resetAt) {
+      return true;
+    }
+    int floor = priority == TwitterToolPriority.BACKGROUND ? budget.limit * reservePercent / 100 : 0;
+    return budget.remaining.get() > floor;
+  }
+
+  /**
+   * Returns the calls left in an endpoint's budget.
+   *
+   * @param endpoint The endpoint to check
+   * @return The calls left, or Integer.MAX_VALUE if the budget is not known or has reset
+   */
+  public int getRemaining(TwitterToolEndpoint endpoint) {
+    Budget budget = budgets.get(endpoint);
+    if (System.currentTimeMillis() >= budget.resetAt) {
+      return Integer.MAX_VALUE;
+    }
+    return budget.remaining.get();
+  }
+
+  /**
+   * Records the rate limit status twitter returned for an endpoint.
+   *
+   * @param endpoint The endpoint that was called
+   * @param status The rate limit status from the response, may be null
+   */
+  public void update(TwitterToolEndpoint endpoint, RateLimitStatus status) {
+    if (status == null) {
+      return;
+    }
+    Budget budget = budgets.get(endpoint);
+    budget.limit = status.getLimit();
+    budget.remaining.set(status.getRemaining());
+    budget.resetAt = status.getResetTimeInSeconds() * 1000L;
+    if (status.getRemaining() == 0) {
+      Logger.warn(this, "Rate limit used up for " + endpoint.getResource() + ", resets in " + status.getSecondsUntilReset() + "s");
+    }
+  }
+
+  /**
+   * Marks an endpoint's budget as used up after twitter rejected a call for exceeding it.
+   *
+   * @param endpoint The endpoint that was called
+   * @param status The rate limit status from the error, may be null
+   * @param retryAfter The retry after seconds from the error or -1
+   */
+  public void exhausted(TwitterToolEndpoint endpoint, RateLimitStatus status, int retryAfter) {
+    Budget budget = budgets.get(endpoint);
+    if (status != null) {
+      budget.limit = status.getLimit();
+      budget.resetAt = status.getResetTimeInSeconds() * 1000L;
+    } else {
+      budget.resetAt = System.currentTimeMillis() + (retryAfter > 0 ? retryAfter : 60) * 1000L;
+    }
+    budget.remaining.set(0);
+  }
+
+  /**
+   * Returns the number of calls refused locally.
+   *
+   * @return The number of throttled calls
+   */
+  public long getThrottled() {
+    return throttled.get();
+  }
+
+  /**
+   * Returns the known budget of each endpoint for display.
+   *
+   * @return A map of resource to limit, remaining and reset (epoch seconds)
+   */
+  public Map<String, Map<String, Long>> getStats() {
+    Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+    for (Map.Entry<TwitterToolEndpoint, Budget> e : budgets.entrySet()) {
+      Map<String, Long> budget = new LinkedHashMap<>();
+      budget.put("limit", (long) e.getValue().limit);
+      budget.put("remaining", (long) e.getValue().remaining.get());
+      budget.put("reset", e.getValue().resetAt / 1000L);
+      stats.put(e.getKey().getResource(), budget);
+    }
+    return stats;
+  }
+
+  private static final class Budget {
+    private volatile int limit;
+    private final AtomicInteger remaining = new AtomicInteger();
+    private volatile long resetAt;
+  }
+
+}
@@ -0,0 +1,44 @@
+package com.aquent.viewtools;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import twitter4j.RateLimitStatus;
+import twitter4j.ResponseList;
+import twitter4j.TwitterResponse;
+
+/**
+ * A ResponseList built by the TwitterTool rather than parsed from a single twitter response.
+ *
+ * @param <T> The type of the items in the list
+ */
+public class TwitterToolResponseList<T> extends ArrayList<T> implements ResponseList<T> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final RateLimitStatus rateLimitStatus;
+  private final int accessLevel;
+
+  /**
+   * Creates a list holding the items.
+   *
+   * @param items The items
+   * @param rateLimitStatus The rate limit status of the last response the items came from, may be null
+   */
+  public TwitterToolResponseList(Collection<? extends T> items, RateLimitStatus rateLimitStatus) {
+    super(items);
+    this.rateLimitStatus = rateLimitStatus;
+    this.accessLevel = TwitterResponse.READ;
+  }
+
+  @Override
+  public RateLimitStatus getRateLimitStatus() {
+    return rateLimitStatus;
+  }
+
+  @Override
+  public int getAccessLevel() {
+    return accessLevel;
+  }
+
+}
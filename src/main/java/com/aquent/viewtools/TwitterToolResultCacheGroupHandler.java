@@ -0,0 +1,88 @@
+package com.aquent.viewtools;
+
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.DotCacheAdministrator;
+import com.dotmarketing.business.DotCacheException;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Cache Group Handler for successful TwitterTool results.
+ *
+ * The size of this cache is bounded by the dotCMS cache region, set cache.twittertoolresultcache.size
+ * in dotmarketing-config.properties to change it.
+ */
+public enum TwitterToolResultCacheGroupHandler {
+  // Makes this a singleton
+  INSTANCE;
+
+  // A name for this cache pool
+  public static final String CACHE_GROUP_NAME = "TwitterToolResultCache";
+
+  /**
+   * Returns the cached entry for a key or null if not found.
+   *
+   * @param key The key you want to pull from cache
+   * @return The cached entry or null if not found
+   */
+  public TwitterToolCacheEntry get(TwitterToolCacheKey key) {
+    if (key == null) {
+      throw new IllegalArgumentException("key cannot be null.");
+    }
+
+    DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
+    Object o = null;
+
+    try {
+      o = cache.get(key.toString(), CACHE_GROUP_NAME);
+    } catch (DotCacheException e) {
+      Logger.error(this.getClass(), String.format("DotCacheException for Group '%s', key '%s', message: %s",
+          CACHE_GROUP_NAME, key, e.getMessage()), e);
+    }
+
+    if (o instanceof TwitterToolCacheEntry) {
+      return (TwitterToolCacheEntry) o;
+    }
+    return null;
+  }
+
+  /**
+   * Puts an entry into the cache.
+   *
+   * @param key The key value
+   * @param entry The entry
+   */
+  public void put(TwitterToolCacheKey key, TwitterToolCacheEntry entry) {
+    if (key == null) {
+      throw new IllegalArgumentException("key cannot be null.");
+    }
+    if (entry == null) {
+      throw new IllegalArgumentException("entry cannot be null.");
+    }
+
+    DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
+    cache.put(key.toString(), entry, CACHE_GROUP_NAME);
+  }
+
+  /**
+   * Removes an entry from the cache.
+   *
+   * @param key The key to remove
+   */
+  public void remove(TwitterToolCacheKey key) {
+    if (key == null) {
+      throw new IllegalArgumentException("key cannot be null.");
+    }
+
+    DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
+    cache.remove(key.toString(), CACHE_GROUP_NAME);
+  }
+
+  /**
+   * Flushing the cache.
+   */
+  public void removeAll() {
+    DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
+    cache.flushGroup(CACHE_GROUP_NAME);
+  }
+
+}
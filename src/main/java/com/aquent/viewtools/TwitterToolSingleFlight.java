@@ -0,0 +1,99 @@
+package com.aquent.viewtools;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Makes sure only one upstream call runs per key at a time.
+ *
+ * The first caller for a key runs the call, any caller that arrives while it is running waits
+ * for it and gets the same result.
+ */
+public class TwitterToolSingleFlight {
+
+  private final ConcurrentHashMap<TwitterToolCacheKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong upstreamCalls = new AtomicLong();
+  private final AtomicLong coalescedCalls = new AtomicLong();
+
+  /**
+   * Runs the loader for the key, or waits on the loader already running for it.
+   *
+   * @param key The key being loaded
+   * @param loader The loader to run if no other thread is loading the key
+   * @return The result of the loader
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T execute(TwitterToolCacheKey key, Supplier<T> loader) {
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      coalescedCalls.incrementAndGet();
+      try {
+        return (T) running.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+
+    upstreamCalls.incrementAndGet();
+    try {
+      T result = loader.get();
+      mine.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  /**
+   * Returns the number of loaders that were run.
+   *
+   * @return The number of upstream calls
+   */
+  public long getUpstreamCalls() {
+    return upstreamCalls.get();
+  }
+
+  /**
+   * Returns the number of callers that shared another caller's result instead of running their own.
+   *
+   * @return The number of coalesced calls
+   */
+  public long getCoalescedCalls() {
+    return coalescedCalls.get();
+  }
+
+  /**
+   * Returns the number of keys being loaded right now.
+   *
+   * @return The number of in flight keys
+   */
+  public int getInFlight() {
+    return inFlight.size();
+  }
+
+  /**
+   * Returns the counters as a map for display.
+   *
+   * @return The counters
+   */
+  public Map<String, Long> getStats() {
+    Map<String, Long> stats = new LinkedHashMap<>();
+    stats.put("upstreamCalls", getUpstreamCalls());
+    stats.put("coalescedCalls", getCoalescedCalls());
+    stats.put("inFlight", (long) getInFlight());
+    return stats;
+  }
+
+}
@@ -0,0 +1,360 @@
+package com.aquent.viewtools;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.util.Logger;
+
+import twitter4j.ConnectionLifeCycleListener;
+import twitter4j.FilterQuery;
+import twitter4j.StallWarning;
+import twitter4j.Status;
+import twitter4j.StatusDeletionNotice;
+import twitter4j.StatusListener;
+import twitter4j.TwitterStream;
+import twitter4j.TwitterStreamFactory;
+import twitter4j.conf.Configuration;
+import twitter4j.conf.ConfigurationBuilder;
+
+/**
+ * Keeps the timelines of a few watched users up to date from twitter's streaming api instead of
+ * polling them.
+ *
+ * The watched user ids are followed over one long lived statuses/filter connection and each
+ * status they post is merged into their timeline as it arrives, deleted statuses are removed.
+ * twitter4j reconnects a dropped stream on its own, backing off the way twitter asks.  Each time
+ * the stream connects the timelines are brought up to date with a since_id call through the
+ * viewtool, so statuses posted while it was down are not lost.  The viewtool serves watched
+ * timelines straight from here, unless the stream has been down for longer than a timeline's ttl
+ * without being backfilled since, when it falls back to its own cache.
+ *
+ * Started and stopped by the activator, so this is a singleton.
+ */
+public enum TwitterToolStream {
+  // Makes this a singleton
+  INSTANCE;
+
+  private static final long DEFAULT_BACKFILL_INTERVAL = 60;
+
+  private final Map<Long, TwitterToolTimeline> timelines = new ConcurrentHashMap<>();
+  private final Map<String, Long> screenNames = new ConcurrentHashMap<>();
+  private final AtomicBoolean backfillPending = new AtomicBoolean();
+  private final AtomicLong connects = new AtomicLong();
+  private final AtomicLong disconnects = new AtomicLong();
+  private final AtomicLong statuses = new AtomicLong();
+  private final AtomicLong deletes = new AtomicLong();
+  private final AtomicLong backfills = new AtomicLong();
+
+  private volatile Set<Long> watched = Collections.emptySet();
+  private volatile TwitterStream stream;
+  private volatile TwitterTool tool;
+  private volatile boolean connected;
+  // When the timelines stopped being kept up to date, 0 while connected and backfilled
+  private volatile long staleSince;
+  private volatile long lastBackfill;
+  private int capacity;
+  private boolean compact;
+  private long backfillInterval;
+
+  /**
+   * Starts following the users in the twitter4jStreamFollow host variable on the default host, if
+   * it is set.
+   *
+   * @param tool Returns the viewtool to backfill through, only asked for when there is something to follow
+   */
+  public void start(Supplier<TwitterTool> tool) {
+    Host defaultHost;
+    try {
+      defaultHost = APILocator.getHostAPI().findDefaultHost(APILocator.getUserAPI().getSystemUser(), false);
+    } catch (Exception e) {
+      Logger.error(this, "Unable to get the default host, not streaming", e);
+      return;
+    }
+
+    TwitterToolConfig config = new TwitterToolConfig(defaultHost);
+    if (config.getString("twitter4jStreamFollow", null) == null) {
+      return;
+    }
+    ConfigurationBuilder cb = TwitterTool.newConfigurationBuilder(defaultHost, config);
+    String streamBaseUrl = config.getString("twitter4jStreamBaseUrl", null);
+    if (streamBaseUrl != null) {
+      cb.setStreamBaseURL(streamBaseUrl.endsWith("/") ? streamBaseUrl : streamBaseUrl + "/");
+    }
+    start(config, cb.build(), tool.get());
+  }
+
+  /**
+   * Starts following the users in the twitter4jStreamFollow setting, eg against the stand-in.
+   *
+   * @param config The TwitterTool settings
+   * @param conf The twitter4j configuration to stream with
+   * @param tool The viewtool to backfill through
+   */
+  synchronized void start(TwitterToolConfig config, Configuration conf, TwitterTool tool) {
+    stop();
+
+    Set<Long> ids = new LinkedHashSet<>();
+    for (String id : config.getString("twitter4jStreamFollow", "").split(",")) {
+      try {
+        if (!id.trim().isEmpty()) {
+          ids.add(Long.valueOf(id.trim()));
+        }
+      } catch (NumberFormatException e) {
+        Logger.warn(this, "twitter4jStreamFollow takes user ids, ignoring " + id);
+      }
+    }
+    if (ids.isEmpty()) {
+      return;
+    }
+
+    capacity = Math.max(1, config.getInt("twitter4jTimelineSize", TwitterToolTimeline.MAX_COUNT));
+    compact = config.getBoolean("twitter4jCompactCache", false);
+    backfillInterval = TimeUnit.SECONDS.toMillis(config.getLong("twitter4jStreamBackfillInterval",
+        DEFAULT_BACKFILL_INTERVAL));
+    watched = Collections.unmodifiableSet(ids);
+    this.tool = tool;
+    staleSince = System.currentTimeMillis();
+
+    TwitterStream newStream = new TwitterStreamFactory(conf).getInstance();
+    newStream.addConnectionLifeCycleListener(new Connection());
+    newStream.addListener(new Listener());
+    long[] follow = new long[ids.size()];
+    int i = 0;
+    for (Long id : ids) {
+      follow[i++] = id;
+    }
+    newStream.filter(new FilterQuery(follow));
+    stream = newStream;
+    Logger.info(this, "Streaming the timelines of " + ids);
+  }
+
+  /**
+   * Closes the stream and forgets the watched timelines, called when the bundle stops.
+   */
+  public synchronized void stop() {
+    TwitterStream oldStream = stream;
+    stream = null;
+    if (oldStream != null) {
+      Logger.info(this, "Stopping the stream of " + watched);
+      oldStream.shutdown();
+    }
+    watched = Collections.emptySet();
+    tool = null;
+    connected = false;
+    timelines.clear();
+    screenNames.clear();
+  }
+
+  /**
+   * Returns the timeline of a watched user.
+   *
+   * @param userId The user id
+   * @return The timeline, or null if the user is not watched, nothing has come in yet or the
+   *     stream has been down too long to trust it
+   */
+  public TwitterToolTimeline getTimeline(long userId) {
+    return isFresh() ? timelines.get(userId) : null;
+  }
+
+  /**
+   * Returns the timeline of a watched user.
+   *
+   * @param screenName The screen name, matched without case
+   * @return The timeline, or null if the user is not watched, nothing has come in yet or the
+   *     stream has been down too long to trust it
+   */
+  public TwitterToolTimeline getTimeline(String screenName) {
+    if (screenName == null || timelines.isEmpty()) {
+      return null;
+    }
+    Long userId = screenNames.get(TwitterToolAliases.normalize(screenName));
+    return userId == null ? null : getTimeline(userId);
+  }
+
+  /**
+   * Checks whether the streamed timelines are up to date, or have not been behind for longer than
+   * a cached timeline would be served fresh.
+   *
+   * @return false if renders should go to the viewtool's cache and twitter instead
+   */
+  public boolean isFresh() {
+    long since = staleSince;
+    if (since == 0) {
+      return true;
+    }
+    TwitterTool current = tool;
+    return current != null && System.currentTimeMillis() - since < current.getTtl(TwitterToolEndpoint.USER_TIMELINE);
+  }
+
+  /**
+   * Returns the state of the stream.
+   *
+   * @return A map of connected, connects, disconnects, statuses, deletes, backfills and watched
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("connected", connected);
+    stats.put("fresh", isFresh());
+    stats.put("connects", connects.get());
+    stats.put("disconnects", disconnects.get());
+    stats.put("statuses", statuses.get());
+    stats.put("deletes", deletes.get());
+    stats.put("backfills", backfills.get());
+    stats.put("watched", watched);
+    return stats;
+  }
+
+  /**
+   * Brings every watched timeline up to date after the stream connects, at most once per
+   * backfill interval so a flapping stream does not use up the timeline rate limit.
+   */
+  private void scheduleBackfill() {
+    if (!backfillPending.compareAndSet(false, true)) {
+      return;
+    }
+    long delay = Math.max(0, lastBackfill + backfillInterval - System.currentTimeMillis());
+    try {
+      TwitterToolExecutors.INSTANCE.scheduler().schedule(() -> {
+        try {
+          TwitterToolExecutors.INSTANCE.refresh().execute(this::backfill);
+        } catch (RejectedExecutionException e) {
+          backfillPending.set(false);
+          Logger.warn(this, "Refresh queue full, not backfilling the streamed timelines");
+        }
+      }, delay, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      backfillPending.set(false);
+    }
+  }
+
+  /**
+   * Syncs each watched timeline through the viewtool, so backfills share its credentials, rate
+   * limits, circuits and miss cache and leave its cached copy up to date as well.
+   */
+  private void backfill() {
+    backfillPending.set(false);
+    lastBackfill = System.currentTimeMillis();
+    boolean complete = true;
+    for (final Long userId : watched) {
+      TwitterTool rest = tool;
+      if (rest == null) {
+        return;
+      }
+      TwitterToolTimeline synced = rest.syncTimeline(userId);
+      if (synced == null) {
+        Logger.warn(this, "Unable to backfill the timeline of " + userId);
+        complete = false;
+        continue;
+      }
+      backfills.incrementAndGet();
+      if (!synced.getStatuses().isEmpty() && synced.getStatuses().get(0).getUser().getId() == userId) {
+        remember(synced.getStatuses().get(0));
+      }
+      // Keep anything that came in over the stream while we were fetching
+      timelines.merge(userId, synced, (current, fetched) -> fetched.merge(current.getStatuses(), capacity));
+    }
+    if (complete && connected) {
+      staleSince = 0;
+    }
+  }
+
+  private void remember(Status status) {
+    if (status.getUser() != null && status.getUser().getScreenName() != null) {
+      screenNames.put(TwitterToolAliases.normalize(status.getUser().getScreenName()), status.getUser().getId());
+      TwitterToolAliases.INSTANCE.learn(status.getUser());
+    }
+  }
+
+  /**
+   * Merges streamed statuses into the watched timelines.
+   */
+  private final class Listener implements StatusListener {
+
+    @Override
+    public void onStatus(Status status) {
+      // The stream also sends retweets of and replies to the watched users by everyone else
+      if (status.getUser() == null || !watched.contains(status.getUser().getId())) {
+        return;
+      }
+      statuses.incrementAndGet();
+      remember(status);
+      final Status kept = compact ? TwitterToolCompactor.INSTANCE.compact(status)
+          : TwitterToolEnricher.INSTANCE.enrich(status);
+      timelines.compute(status.getUser().getId(), (userId, timeline) -> timeline == null
+          ? TwitterToolTimeline.of(Collections.singletonList(kept), false)
+          : timeline.merge(Collections.singletonList(kept), capacity));
+    }
+
+    @Override
+    public void onDeletionNotice(StatusDeletionNotice notice) {
+      deletes.incrementAndGet();
+      timelines.computeIfPresent(notice.getUserId(), (userId, timeline) -> timeline.without(notice.getStatusId()));
+    }
+
+    @Override
+    public void onTrackLimitationNotice(int numberOfLimitedStatuses) {
+      Logger.debug(this, "Stream limited, " + numberOfLimitedStatuses + " statuses not sent");
+    }
+
+    @Override
+    public void onScrubGeo(long userId, long upToStatusId) {
+      // Geolocation is not kept apart from the statuses
+    }
+
+    @Override
+    public void onStallWarning(StallWarning warning) {
+      Logger.warn(this, "Stream falling behind: " + warning.getMessage() + " (" + warning.getPercentFull() + "% full)");
+    }
+
+    @Override
+    public void onException(Exception e) {
+      Logger.warn(this, "Stream error, reconnecting: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Backfills when the stream connects and counts the disconnects.
+   */
+  private final class Connection implements ConnectionLifeCycleListener {
+
+    @Override
+    public void onConnect() {
+      connected = true;
+      connects.incrementAndGet();
+      Logger.info(this, "Stream connected");
+      scheduleBackfill();
+    }
+
+    @Override
+    public void onDisconnect() {
+      connected = false;
+      markStale();
+      disconnects.incrementAndGet();
+      Logger.info(this, "Stream disconnected");
+    }
+
+    @Override
+    public void onCleanUp() {
+      connected = false;
+      markStale();
+    }
+
+    private void markStale() {
+      if (staleSince == 0) {
+        staleSince = System.currentTimeMillis();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,234 @@
+package com.aquent.viewtools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import twitter4j.Paging;
+import twitter4j.RateLimitStatus;
+import twitter4j.ResponseList;
+import twitter4j.Status;
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+import twitter4j.TwitterResponse;
+
+/**
+ * The most recent statuses of a user timeline or list, newest first and bounded to a capacity.
+ *
+ * Instances are immutable, syncing returns a new timeline with any newer statuses merged in so
+ * it can be shared by every render reading it from cache.
+ */
+public final class TwitterToolTimeline implements TwitterResponse {
+
+  private static final long serialVersionUID = 1L;
+
+  // The most statuses twitter returns per call
+  public static final int MAX_COUNT = 200;
+  private static final int MIN_COUNT = 20;
+  // The most calls made past a short first page to find out whether the timeline has ended
+  private static final int MAX_PROBES = 2;
+
+  private final List<Status> statuses;
+  private final boolean complete;
+  private final RateLimitStatus rateLimitStatus;
+
+  /**
+   * Fetches a page of a timeline from twitter.
+   */
+  public interface Fetcher {
+    ResponseList<Status> fetch(Twitter twitter, Paging paging) throws TwitterException;
+  }
+
+  private TwitterToolTimeline(List<Status> statuses, boolean complete, RateLimitStatus rateLimitStatus) {
+    this.statuses = Collections.unmodifiableList(statuses);
+    this.complete = complete;
+    this.rateLimitStatus = rateLimitStatus;
+  }
+
+  /**
+   * Creates a timeline from statuses that are already newest first, eg read back from disk.
+   *
+   * @param statuses The statuses, newest first
+   * @param complete true if these are all of the timeline's statuses
+   * @return The timeline
+   */
+  static TwitterToolTimeline of(List<Status> statuses, boolean complete) {
+    return new TwitterToolTimeline(new ArrayList<>(statuses), complete, null);
+  }
+
+  /**
+   * Brings a timeline up to date.
+   *
+   * If the previous timeline holds enough statuses only the statuses newer than its newest one are
+   * fetched and merged in, otherwise the first needed statuses are fetched, as they are for an empty
+   * timeline which has no newest status to fetch from.  A timeline is only
+   * marked complete once twitter returns no statuses past its oldest one.
+   *
+   * @param previous The previous timeline or null
+   * @param fetcher Fetches a page of the timeline
+   * @param twitter The twitter instance to call
+   * @param needed The number of statuses the caller wants
+   * @param capacity The most statuses to keep
+   * @return The synced timeline
+   * @throws TwitterException If twitter returns an error
+   */
+  public static TwitterToolTimeline sync(TwitterToolTimeline previous, Fetcher fetcher, Twitter twitter, int needed,
+      int capacity) throws TwitterException {
+    if (previous == null || !previous.covers(needed) || previous.getNewestId() < 1) {
+      int count = Math.min(Math.min(capacity, MAX_COUNT), Math.max(needed, MIN_COUNT));
+      ResponseList<Status> fetched = fetcher.fetch(twitter, new Paging(1, count));
+      List<Status> statuses = new ArrayList<>(fetched);
+      RateLimitStatus rateLimitStatus = fetched.getRateLimitStatus();
+      boolean complete = statuses.isEmpty();
+
+      // Twitter cuts a page to count before it drops deleted and suspended statuses, so a short page
+      // does not mean the timeline has ended, only an empty page past the oldest status does
+      for (int probes = 0; !complete && statuses.size() < count && probes < MAX_PROBES; probes++) {
+        long oldestId = statuses.get(statuses.size() - 1).getId();
+        if (oldestId <= 1) {
+          complete = true;
+          break;
+        }
+        ResponseList<Status> older = fetcher.fetch(twitter, new Paging().maxId(oldestId - 1).count(count - statuses.size()));
+        if (older.isEmpty()) {
+          complete = true;
+        } else {
+          statuses.addAll(older);
+          rateLimitStatus = older.getRateLimitStatus();
+        }
+      }
+      return new TwitterToolTimeline(statuses, complete, rateLimitStatus);
+    }
+
+    ResponseList<Status> newer = fetcher.fetch(twitter, new Paging(previous.getNewestId()).count(MAX_COUNT));
+    if (newer.size() >= MAX_COUNT) {
+      // There may be a gap between these and what we had, start over
+      return new TwitterToolTimeline(new ArrayList<>(newer), false, newer.getRateLimitStatus());
+    }
+    return previous.merge(newer, capacity);
+  }
+
+  private TwitterToolTimeline merge(ResponseList<Status> newer, int capacity) {
+    if (newer.isEmpty()) {
+      return new TwitterToolTimeline(statuses, complete, newer.getRateLimitStatus());
+    }
+    return merge(newer, newer.getRateLimitStatus(), capacity);
+  }
+
+  /**
+   * Merges statuses into this timeline, newest first without duplicates, eg a status that came in
+   * over the stream.  The merged timeline is complete if this one is and nothing was cut off.
+   *
+   * @param other The statuses to merge in, newest first
+   * @param capacity The most statuses to keep
+   * @return The merged timeline
+   */
+  public TwitterToolTimeline merge(List<Status> other, int capacity) {
+    return merge(other, rateLimitStatus, capacity);
+  }
+
+  private TwitterToolTimeline merge(List<Status> other, RateLimitStatus newRateLimitStatus, int capacity) {
+    List<Status> merged = new ArrayList<>(Math.min(capacity, other.size() + statuses.size()));
+    int i = 0;
+    int j = 0;
+    long oldest = Long.MAX_VALUE;
+    while (merged.size() < capacity && (i < statuses.size() || j < other.size())) {
+      // Take the newer of the two heads, the other's copy when both have the same status
+      Status status = j >= other.size() || (i < statuses.size() && statuses.get(i).getId() > other.get(j).getId())
+          ? statuses.get(i++) : other.get(j++);
+      if (status.getId() < oldest) {
+        merged.add(status);
+        oldest = status.getId();
+      }
+    }
+    boolean truncated = i < statuses.size() || j < other.size();
+    return new TwitterToolTimeline(merged, complete && !truncated, newRateLimitStatus);
+  }
+
+  /**
+   * Returns a copy of this timeline without a status, eg one that was deleted.
+   *
+   * @param statusId The id of the status to remove
+   * @return The new timeline, or this one if it does not hold the status
+   */
+  public TwitterToolTimeline without(long statusId) {
+    List<Status> kept = new ArrayList<>(statuses.size());
+    for (Status status : statuses) {
+      if (status.getId() != statusId) {
+        kept.add(status);
+      }
+    }
+    return kept.size() == statuses.size() ? this : new TwitterToolTimeline(kept, complete, rateLimitStatus);
+  }
+
+  /**
+   * Returns a copy of this timeline with each status replaced, eg by its compact copy.
+   *
+   * @param mapper Replaces a status
+   * @return The new timeline
+   */
+  public TwitterToolTimeline map(UnaryOperator<Status> mapper) {
+    List<Status> mapped = new ArrayList<>(statuses.size());
+    for (Status status : statuses) {
+      mapped.add(mapper.apply(status));
+    }
+    return new TwitterToolTimeline(mapped, complete, rateLimitStatus);
+  }
+
+  /**
+   * Returns the id of the newest status or -1 if the timeline is empty.
+   *
+   * @return The newest status id
+   */
+  public long getNewestId() {
+    return statuses.isEmpty() ? -1 : statuses.get(0).getId();
+  }
+
+  /**
+   * Returns true if this timeline can serve the first needed statuses, either because it has that
+   * many or because it has all of them.
+   *
+   * @param needed The number of statuses needed
+   * @return true if the timeline covers the request
+   */
+  public boolean covers(int needed) {
+    return complete || statuses.size() >= needed;
+  }
+
+  /**
+   * Returns a page of this timeline.
+   *
+   * @param page The page, starting from 1
+   * @param count The number of statuses per page
+   * @return The statuses on the page
+   */
+  public ResponseList<Status> page(int page, int count) {
+    int from = Math.min(statuses.size(), (page - 1) * count);
+    int to = Math.min(statuses.size(), from + count);
+    return new TwitterToolResponseList<>(statuses.subList(from, to), rateLimitStatus);
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+
+  public List<Status> getStatuses() {
+    return statuses;
+  }
+
+  public int size() {
+    return statuses.size();
+  }
+
+  @Override
+  public RateLimitStatus getRateLimitStatus() {
+    return rateLimitStatus;
+  }
+
+  @Override
+  public int getAccessLevel() {
+    return TwitterResponse.READ;
+  }
+
+}
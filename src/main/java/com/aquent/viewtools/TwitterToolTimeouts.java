@@ -0,0 +1,36 @@
+package com.aquent.viewtools;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The connect and read timeouts for each endpoint, applied by the twitter4j HttpClient.
+ */
+public enum TwitterToolTimeouts {
+  // Makes this a singleton
+  INSTANCE;
+
+  // 0 leaves the timeout from the twitter4j configuration
+  private final AtomicIntegerArray connect = new AtomicIntegerArray(TwitterToolEndpoint.values().length);
+  private final AtomicIntegerArray read = new AtomicIntegerArray(TwitterToolEndpoint.values().length);
+
+  /**
+   * Sets the timeouts for an endpoint.
+   *
+   * @param endpoint The endpoint
+   * @param connectMillis The connect timeout in milliseconds, 0 for the twitter4j default
+   * @param readMillis The read timeout in milliseconds, 0 for the twitter4j default
+   */
+  public void set(TwitterToolEndpoint endpoint, int connectMillis, int readMillis) {
+    connect.set(endpoint.ordinal(), Math.max(0, connectMillis));
+    read.set(endpoint.ordinal(), Math.max(0, readMillis));
+  }
+
+  public int getConnectTimeout(TwitterToolEndpoint endpoint) {
+    return connect.get(endpoint.ordinal());
+  }
+
+  public int getReadTimeout(TwitterToolEndpoint endpoint) {
+    return read.get(endpoint.ordinal());
+  }
+
+}
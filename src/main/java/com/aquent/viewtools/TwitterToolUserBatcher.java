@@ -0,0 +1,292 @@
+package com.aquent.viewtools;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.dotmarketing.util.Logger;
+
+import twitter4j.ResponseList;
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+import twitter4j.User;
+
+/**
+ * Looks up users in bulk with the users/lookup endpoint, 100 at a time.
+ *
+ * Single showUser calls made by different threads within a few milliseconds of each other are
+ * collected into one batch and fetched with a single lookup.  Users twitter does not return are
+ * added to the miss cache.  Each lookup is made with whichever app in the pool has the most
+ * lookups left.  The shared scheduler only times the window, the lookup itself runs on the
+ * executor given, so a slow lookup does not hold up the other scheduled work.  That executor must
+ * not be one the callers themselves may be running on, or callers waiting for a batch could hold
+ * every thread its lookup needs.
+ */
+public class TwitterToolUserBatcher {
+
+  public static final int MAX_LOOKUP = 100;
+
+  private static final long WAIT_TIMEOUT = 30000;
+  private static final int NO_USER_MATCHES_ERR_CODE = 17;
+
+  private final long window;
+  private final TwitterToolCredentialPool credentials;
+  private final Executor flusher;
+  private final Object lock = new Object();
+  private Batch pending;
+
+  /**
+   * Creates a batcher.
+   *
+   * @param window The number of milliseconds to collect showUser calls before looking them up
+   * @param credentials The apps to look users up with
+   * @param flusher Runs the lookup of each batch once its window closes
+   */
+  public TwitterToolUserBatcher(long window, TwitterToolCredentialPool credentials, Executor flusher) {
+    this.window = window;
+    this.credentials = credentials;
+    this.flusher = flusher;
+  }
+
+  /**
+   * Looks up a user by screen name as part of the next batch.
+   *
+   * @param screenName The screen name to look up
+   * @return The user or null if twitter did not return them
+   * @throws TwitterException If the lookup failed
+   */
+  public User showUser(String screenName) throws TwitterException {
+    return await(enqueue(screenName));
+  }
+
+  /**
+   * Looks up a user by id as part of the next batch.
+   *
+   * @param userId The user id to look up
+   * @return The user or null if twitter did not return them
+   * @throws TwitterException If the lookup failed
+   */
+  public User showUser(long userId) throws TwitterException {
+    return await(enqueue(Long.valueOf(userId)));
+  }
+
+  /**
+   * Looks up users by id and screen name, 100 per call.
+   *
+   * Users that are requested but not returned are added to the miss cache.  Chunks refused by
+   * the rate limiter are skipped and their users are left out of the result.
+   *
+   * @param userIds The user ids to look up
+   * @param screenNames The screen names to look up
+   * @param priority The priority of the lookup
+   * @return The users found, keyed by {@link #keyOf(Object)} of both their id and screen name
+   * @throws TwitterException If a lookup failed
+   */
+  public Map<String, User> lookup(Collection<Long> userIds, Collection<String> screenNames,
+      TwitterToolPriority priority) throws TwitterException {
+    Map<String, User> found = new HashMap<>();
+
+    List<Long> ids = new ArrayList<>(userIds);
+    for (int i = 0; i < ids.size(); i += MAX_LOOKUP) {
+      List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + MAX_LOOKUP));
+      long[] chunkIds = new long[chunk.size()];
+      for (int j = 0; j < chunkIds.length; j++) {
+        chunkIds[j] = chunk.get(j);
+      }
+      if (lookupChunk(chunkIds, null, priority, found)) {
+        recordMisses(chunk, found);
+      }
+    }
+
+    List<String> names = new ArrayList<>(screenNames);
+    for (int i = 0; i < names.size(); i += MAX_LOOKUP) {
+      List<String> chunk = names.subList(i, Math.min(names.size(), i + MAX_LOOKUP));
+      if (lookupChunk(null, chunk.toArray(new String[chunk.size()]), priority, found)) {
+        recordMisses(chunk, found);
+      }
+    }
+
+    return found;
+  }
+
+  /**
+   * Returns the key a user is stored under in the map returned by lookup.
+   *
+   * @param user A screen name or a user id
+   * @return The key
+   */
+  public static String keyOf(Object user) {
+    if (user instanceof Number) {
+      return "id:" + ((Number) user).longValue();
+    }
+    return "sn:" + TwitterToolAliases.normalize(user.toString());
+  }
+
+  private boolean lookupChunk(long[] ids, String[] screenNames, TwitterToolPriority priority,
+      Map<String, User> found) throws TwitterException {
+    TwitterToolCredentialPool.Client client = credentials.acquire(TwitterToolEndpoint.LOOKUP_USERS, priority);
+    if (client == null) {
+      Logger.debug(this, "Rate limit budget for " + TwitterToolEndpoint.LOOKUP_USERS.getResource() + " used up, skipping lookup");
+      return false;
+    }
+
+    ResponseList<User> users;
+    try {
+      Twitter twitter = client.getTwitter();
+      users = ids != null ? twitter.lookupUsers(ids) : twitter.lookupUsers(screenNames);
+    } catch (TwitterException e) {
+      if (e.getErrorCode() == NO_USER_MATCHES_ERR_CODE) {
+        // None of the users in this chunk exist
+        return true;
+      }
+      if (e.exceededRateLimitation()) {
+        client.getRateLimiter().exhausted(TwitterToolEndpoint.LOOKUP_USERS, e.getRateLimitStatus(), e.getRetryAfter());
+      } else {
+        client.getRateLimiter().update(TwitterToolEndpoint.LOOKUP_USERS, e.getRateLimitStatus());
+      }
+      throw e;
+    }
+
+    client.getRateLimiter().update(TwitterToolEndpoint.LOOKUP_USERS, users.getRateLimitStatus());
+    TwitterToolAliases.INSTANCE.learn(users);
+    for (User user : users) {
+      found.put(keyOf(user.getId()), user);
+      found.put(keyOf(user.getScreenName()), user);
+    }
+    return true;
+  }
+
+  private void recordMisses(List<?> requested, Map<String, User> found) {
+    for (Object user : requested) {
+      if (!found.containsKey(keyOf(user))) {
+        String missKey = user instanceof Long ? TwitterToolMissCacheGroupHandler.userIdKey((Long) user)
+            : TwitterToolMissCacheGroupHandler.screenNameKey(user.toString());
+        Logger.debug(this, "Adding " + missKey + " to the miss cache");
+        TwitterToolMissCacheGroupHandler.INSTANCE.put(missKey, TwitterToolMissReason.NOT_FOUND);
+      }
+    }
+  }
+
+  private CompletableFuture<User> enqueue(Object user) {
+    Batch full = null;
+    CompletableFuture<User> future;
+    synchronized (lock) {
+      if (pending == null) {
+        final Batch batch = new Batch();
+        pending = batch;
+        try {
+          TwitterToolExecutors.INSTANCE.scheduler().schedule(() -> dispatch(batch), window, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+          // Shutting down, flush it on this thread
+          full = batch;
+        }
+      }
+      future = pending.add(user);
+      if (pending.users.size() >= MAX_LOOKUP) {
+        full = pending;
+      }
+      if (full != null) {
+        pending = null;
+      }
+    }
+    if (full != null) {
+      flush(full);
+    }
+    return future;
+  }
+
+  /**
+   * Hands a batch whose window has closed to the flusher, failing its calls if the flusher is full.
+   */
+  private void dispatch(final Batch batch) {
+    try {
+      flusher.execute(() -> flush(batch));
+    } catch (RejectedExecutionException e) {
+      if (batch.flushed.compareAndSet(false, true)) {
+        synchronized (lock) {
+          if (pending == batch) {
+            pending = null;
+          }
+        }
+        TwitterException error = new TwitterException("Unable to look up a batch of users: " + e.getMessage(), e);
+        for (CompletableFuture<User> future : batch.users.values()) {
+          future.completeExceptionally(error);
+        }
+      }
+    }
+  }
+
+  private void flush(Batch batch) {
+    if (!batch.flushed.compareAndSet(false, true)) {
+      return;
+    }
+    synchronized (lock) {
+      if (pending == batch) {
+        pending = null;
+      }
+    }
+
+    List<Long> ids = new ArrayList<>();
+    List<String> screenNames = new ArrayList<>();
+    for (Object user : batch.users.keySet()) {
+      if (user instanceof Long) {
+        ids.add((Long) user);
+      } else {
+        screenNames.add((String) user);
+      }
+    }
+
+    Logger.debug(this, "Looking up a batch of " + batch.users.size() + " users");
+    try {
+      Map<String, User> found = lookup(ids, screenNames, TwitterToolPriority.INTERACTIVE);
+      for (Map.Entry<Object, CompletableFuture<User>> e : batch.users.entrySet()) {
+        e.getValue().complete(found.get(keyOf(e.getKey())));
+      }
+    } catch (TwitterException | RuntimeException e) {
+      for (CompletableFuture<User> future : batch.users.values()) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+
+  private static User await(CompletableFuture<User> future) throws TwitterException {
+    try {
+      return future.get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof TwitterException) {
+        throw (TwitterException) e.getCause();
+      }
+      throw new TwitterException("User lookup failed", e.getCause());
+    } catch (TimeoutException e) {
+      throw new TwitterException("Timed out waiting for user lookup", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TwitterException("Interrupted waiting for user lookup", e);
+    }
+  }
+
+  private static final class Batch {
+    private final Map<Object, CompletableFuture<User>> users = new LinkedHashMap<>();
+    private final AtomicBoolean flushed = new AtomicBoolean();
+
+    private CompletableFuture<User> add(Object user) {
+      CompletableFuture<User> future = users.get(user);
+      if (future == null) {
+        future = new CompletableFuture<>();
+        users.put(user, future);
+      }
+      return future;
+    }
+  }
+
+}
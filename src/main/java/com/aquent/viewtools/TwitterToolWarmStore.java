@@ -0,0 +1,302 @@
+package com.aquent.viewtools;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.dotmarketing.util.Logger;
+
+import twitter4j.Status;
+import twitter4j.User;
+
+/**
+ * Keeps the latest timelines and users on disk so a restarted bundle can serve them right away.
+ *
+ * Entries are written behind on the scheduler a short while after they change and read back with a
+ * memory mapped read the first time the tool starts up.  The file holds a table of the distinct
+ * authors followed by the entries, each status refers to its author by index.
+ */
+public enum TwitterToolWarmStore {
+  // Makes this a singleton
+  INSTANCE;
+
+  private static final int MAGIC = 0x54545743;
+  private static final int VERSION = 2;
+  private static final byte TYPE_USER = 1;
+  private static final byte TYPE_TIMELINE = 2;
+
+  private volatile File file;
+  private volatile long writeDelay;
+  private Map<TwitterToolCacheKey, TwitterToolCacheEntry> entries = newEntries(0);
+  private final AtomicBoolean loaded = new AtomicBoolean();
+  private final AtomicBoolean writeScheduled = new AtomicBoolean();
+  private final Object writeLock = new Object();
+  private volatile boolean dirty;
+
+  /**
+   * Turns the store on.
+   *
+   * @param storeFile The file to keep the entries in
+   * @param maxEntries The most entries to keep
+   * @param delay Milliseconds to wait after a change before writing
+   */
+  public synchronized void configure(File storeFile, int maxEntries, long delay) {
+    this.file = storeFile;
+    this.writeDelay = delay;
+    Map<TwitterToolCacheKey, TwitterToolCacheEntry> resized = newEntries(maxEntries);
+    resized.putAll(entries);
+    entries = resized;
+  }
+
+  public boolean isEnabled() {
+    return file != null;
+  }
+
+  /**
+   * Reads the file in the background, once, putting each entry in the result cache unless it
+   * already holds that key.
+   */
+  public void loadInBackground() {
+    if (!isEnabled() || !loaded.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      TwitterToolExecutors.INSTANCE.refresh().execute(this::load);
+    } catch (RejectedExecutionException e) {
+      loaded.set(false);
+    }
+  }
+
+  /**
+   * Remembers the latest result for a key to be written to disk, only timelines and users are kept.
+   * The store is only turned on with the compact cache, so the result is already a compact copy.
+   *
+   * @param key The key
+   * @param entry The cache entry
+   */
+  public void record(TwitterToolCacheKey key, TwitterToolCacheEntry entry) {
+    if (!isEnabled()) {
+      return;
+    }
+    Object value = entry.getValue();
+    if (value instanceof TwitterToolTimeline || value instanceof User) {
+      synchronized (this) {
+        entries.put(key, entry);
+      }
+      dirty = true;
+      scheduleWrite();
+    }
+  }
+
+  /**
+   * Writes the entries now if anything changed since the last write, called when the bundle stops.
+   */
+  public void flush() {
+    if (isEnabled() && dirty) {
+      write();
+    }
+  }
+
+  private void scheduleWrite() {
+    if (!writeScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      TwitterToolExecutors.INSTANCE.scheduler().schedule(() -> {
+        writeScheduled.set(false);
+        write();
+      }, writeDelay, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      writeScheduled.set(false);
+    }
+  }
+
+  private void load() {
+    File f = file;
+    if (f == null || !f.isFile()) {
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+    int count = 0;
+    try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      DataInputStream in = new DataInputStream(TwitterToolBinary.asInputStream(buffer));
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        Logger.warn(this, "Ignoring TwitterTool warm cache with an unknown format: " + f);
+        return;
+      }
+
+      int userCount = in.readInt();
+      List<User> users = new ArrayList<>(userCount);
+      for (int i = 0; i < userCount; i++) {
+        users.add(TwitterToolCompactor.INSTANCE.readUser(in));
+      }
+
+      int entryCount = in.readInt();
+      for (int i = 0; i < entryCount; i++) {
+        TwitterToolCacheKey key = TwitterToolCacheKey.of(TwitterToolEndpoint.valueOf(in.readUTF()), in.readUTF(),
+            in.readBoolean(), TwitterToolBinary.readString(in, null), in.readInt(), in.readInt());
+        long fetchedAt = in.readLong();
+        byte type = in.readByte();
+        Object value;
+        if (type == TYPE_USER) {
+          value = users.get(in.readInt());
+        } else {
+          boolean complete = in.readBoolean();
+          int size = in.readInt();
+          List<Status> statuses = new ArrayList<>(size);
+          for (int j = 0; j < size; j++) {
+            statuses.add(readStatus(in, users));
+          }
+          value = TwitterToolTimeline.of(statuses, complete);
+        }
+
+        TwitterToolCacheEntry entry = new TwitterToolCacheEntry(value, fetchedAt);
+        synchronized (this) {
+          entries.putIfAbsent(key, entry);
+        }
+        if (TwitterToolResultCacheGroupHandler.INSTANCE.get(key) == null) {
+          TwitterToolResultCacheGroupHandler.INSTANCE.put(key, entry);
+          count++;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      Logger.warn(this, "Unable to read the TwitterTool warm cache " + f + ": " + e.getMessage());
+      return;
+    }
+    Logger.info(this, "Loaded " + count + " TwitterTool warm cache entries in " + (System.currentTimeMillis() - start) + "ms");
+  }
+
+  private void write() {
+    synchronized (writeLock) {
+      writeFile();
+    }
+  }
+
+  private void writeFile() {
+    File f = file;
+    if (f == null) {
+      return;
+    }
+    dirty = false;
+    List<Map.Entry<TwitterToolCacheKey, TwitterToolCacheEntry>> snapshot;
+    synchronized (this) {
+      snapshot = new ArrayList<>(entries.entrySet());
+    }
+
+    // Number the distinct authors so each is written once
+    Map<User, Integer> users = new LinkedHashMap<>();
+    for (Map.Entry<TwitterToolCacheKey, TwitterToolCacheEntry> e : snapshot) {
+      Object value = e.getValue().getValue();
+      if (value instanceof User) {
+        number(users, (User) value);
+      } else {
+        for (Status status : ((TwitterToolTimeline) value).getStatuses()) {
+          number(users, status.getUser());
+          if (status.getRetweetedStatus() != null) {
+            number(users, status.getRetweetedStatus().getUser());
+          }
+        }
+      }
+    }
+
+    File tmp = new File(f.getPath() + ".tmp");
+    try {
+      File dir = f.getParentFile();
+      if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+        throw new IOException("Unable to create " + dir);
+      }
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(users.size());
+        for (User user : users.keySet()) {
+          TwitterToolCompactUser.write(user, out);
+        }
+
+        out.writeInt(snapshot.size());
+        for (Map.Entry<TwitterToolCacheKey, TwitterToolCacheEntry> e : snapshot) {
+          TwitterToolCacheKey key = e.getKey();
+          out.writeUTF(key.getEndpoint().name());
+          out.writeUTF(key.getUser());
+          out.writeBoolean(key.isById());
+          TwitterToolBinary.writeString(out, key.getSlug());
+          out.writeInt(key.getPage());
+          out.writeInt(key.getCount());
+          out.writeLong(e.getValue().getFetchedAt());
+
+          Object value = e.getValue().getValue();
+          if (value instanceof User) {
+            out.writeByte(TYPE_USER);
+            out.writeInt(users.get(value));
+          } else {
+            TwitterToolTimeline timeline = (TwitterToolTimeline) value;
+            out.writeByte(TYPE_TIMELINE);
+            out.writeBoolean(timeline.isComplete());
+            out.writeInt(timeline.size());
+            for (Status status : timeline.getStatuses()) {
+              writeStatus(out, status, users);
+            }
+          }
+        }
+      }
+      Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      Logger.debug(this, "Wrote " + snapshot.size() + " TwitterTool warm cache entries to " + f);
+    } catch (IOException e) {
+      dirty = true;
+      Logger.warn(this, "Unable to write the TwitterTool warm cache " + f + ": " + e.getMessage());
+      if (!tmp.delete()) {
+        Logger.debug(this, "Unable to delete " + tmp);
+      }
+    }
+  }
+
+  private static void number(Map<User, Integer> users, User user) {
+    if (user != null && !users.containsKey(user)) {
+      users.put(user, users.size());
+    }
+  }
+
+  private static void writeStatus(DataOutputStream out, Status status, Map<User, Integer> users) throws IOException {
+    out.writeInt(status.getUser() == null ? -1 : users.get(status.getUser()));
+    out.writeBoolean(status.getRetweetedStatus() != null);
+    if (status.getRetweetedStatus() != null) {
+      writeStatus(out, status.getRetweetedStatus(), users);
+    }
+    TwitterToolCompactStatus.write(status, out);
+  }
+
+  private static Status readStatus(DataInputStream in, List<User> users) throws IOException {
+    int userIndex = in.readInt();
+    Status retweeted = in.readBoolean() ? readStatus(in, users) : null;
+    return TwitterToolCompactor.INSTANCE.readStatus(in, userIndex == -1 ? null : users.get(userIndex), retweeted);
+  }
+
+  private static Map<TwitterToolCacheKey, TwitterToolCacheEntry> newEntries(final int maxEntries) {
+    return new LinkedHashMap<TwitterToolCacheKey, TwitterToolCacheEntry>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<TwitterToolCacheKey, TwitterToolCacheEntry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+}
@@ -0,0 +1,230 @@
+package twitter4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.aquent.viewtools.TwitterToolCircuitBreaker;
+import com.aquent.viewtools.TwitterToolCircuitOpenException;
+import com.aquent.viewtools.TwitterToolEndpoint;
+import com.aquent.viewtools.TwitterToolHttpTransport;
+import com.aquent.viewtools.TwitterToolMetrics;
+import com.aquent.viewtools.TwitterToolTimeouts;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * The twitter4j HttpClient used by the TwitterTool, it counts the requests, errors, latency and
+ * response bytes of each endpoint in {@link TwitterToolMetrics}, applies the endpoint's
+ * {@link TwitterToolTimeouts} and refuses requests while its {@link TwitterToolCircuitBreaker}
+ * circuit is open.  Requests to the endpoints go through the pooled OkHttp client when
+ * {@link TwitterToolHttpTransport} has one, otherwise through twitter4j's HttpURLConnection.
+ *
+ * twitter4j's HttpClientFactory picks this class up by name when it is on the classpath, so it
+ * lives in the twitter4j package to reach the response stream.
+ */
+public class AlternativeHttpClientImpl extends HttpClientImpl {
+
+  private static final long serialVersionUID = 1L;
+  private static final MediaType FORM = MediaType.parse("application/x-www-form-urlencoded");
+
+  public AlternativeHttpClientImpl(HttpClientConfiguration conf) {
+    super(conf);
+  }
+
+  @Override
+  public HttpResponse handleRequest(HttpRequest req) throws TwitterException {
+    TwitterToolEndpoint endpoint = TwitterToolEndpoint.forUrl(req.getURL());
+    if (endpoint == null) {
+      return send(req, null);
+    }
+
+    if (!TwitterToolCircuitBreaker.INSTANCE.tryAcquire(endpoint)) {
+      throw new TwitterToolCircuitOpenException(endpoint);
+    }
+
+    long start = System.nanoTime();
+    HttpResponse res;
+    try {
+      res = send(req, endpoint);
+    } catch (TwitterException e) {
+      TwitterToolMetrics.INSTANCE.recordUpstream(endpoint, start, true);
+      TwitterToolCircuitBreaker.INSTANCE.onError(endpoint, e, System.nanoTime() - start);
+      throw e;
+    } catch (RuntimeException e) {
+      // eg OkHttp or a bad url, twitter never answered so it counts against the circuit
+      TwitterToolMetrics.INSTANCE.recordUpstream(endpoint, start, true);
+      TwitterToolCircuitBreaker.INSTANCE.onError(endpoint, e, System.nanoTime() - start);
+      throw e;
+    } finally {
+      TwitterToolCircuitBreaker.INSTANCE.release(endpoint);
+    }
+    TwitterToolMetrics.INSTANCE.recordUpstream(endpoint, start, false);
+    TwitterToolCircuitBreaker.INSTANCE.onSuccess(endpoint, System.nanoTime() - start);
+    if (res.is != null) {
+      res.is = new CountingInputStream(res.is, endpoint);
+    }
+    return res;
+  }
+
+  private HttpResponse send(HttpRequest req, TwitterToolEndpoint endpoint) throws TwitterException {
+    // Other requests, eg the stream with its own long read timeout, keep to twitter4j's transport
+    OkHttpClient client = endpoint == null ? null : TwitterToolHttpTransport.INSTANCE.client(endpoint);
+    if (client == null || (req.getParameters() != null && HttpParameter.containsFile(req.getParameters()))) {
+      return super.handleRequest(req);
+    }
+    return sendPooled(client, req);
+  }
+
+  /**
+   * Makes the request with the pooled client, retrying and failing the way HttpClientImpl does.
+   */
+  private HttpResponse sendPooled(OkHttpClient client, HttpRequest req) throws TwitterException {
+    Request request = toRequest(req);
+    int retryCount = CONF.getHttpRetryCount();
+    for (int retried = 0; ; retried++) {
+      try {
+        HttpResponse res = new PooledResponse(client.newCall(request).execute(), CONF);
+        int code = res.getStatusCode();
+        if (code >= OK && (code == FOUND || code < MULTIPLE_CHOICES)) {
+          return res;
+        }
+        if (code == ENHANCE_YOUR_CLAIM || code == BAD_REQUEST || code < INTERNAL_SERVER_ERROR || retried >= retryCount) {
+          throw new TwitterException(res.asString(), res);
+        }
+        res.disconnect();
+      } catch (IOException e) {
+        if (retried >= retryCount) {
+          throw new TwitterException(e.getMessage(), e, -1);
+        }
+      }
+      try {
+        Thread.sleep(TimeUnit.SECONDS.toMillis(CONF.getHttpRetryIntervalSeconds()));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new TwitterException("Interrupted waiting to retry " + req.getURL(), e);
+      }
+    }
+  }
+
+  private static Request toRequest(HttpRequest req) {
+    Request.Builder builder = new Request.Builder().url(req.getURL());
+    if (req.getRequestHeaders() != null) {
+      for (Map.Entry<String, String> header : req.getRequestHeaders().entrySet()) {
+        // OkHttp asks for gzip and unzips the response itself, as long as we don't ask for it
+        if (!header.getKey().equalsIgnoreCase("Accept-Encoding")) {
+          builder.header(header.getKey(), header.getValue());
+        }
+      }
+    }
+    if (req.getAuthorization() != null) {
+      String authorization = req.getAuthorization().getAuthorizationHeader(req);
+      if (authorization != null) {
+        builder.header("Authorization", authorization);
+      }
+    }
+
+    RequestBody body = null;
+    if (req.getMethod() == RequestMethod.POST || req.getMethod() == RequestMethod.PUT) {
+      HttpParameter[] params = req.getParameters();
+      body = RequestBody.create(FORM, params == null ? "" : HttpParameter.encodeParameters(params));
+    }
+    return builder.method(req.getMethod().name(), body).build();
+  }
+
+  @Override
+  HttpURLConnection getConnection(String url) throws IOException {
+    HttpURLConnection con = super.getConnection(url);
+    TwitterToolEndpoint endpoint = TwitterToolEndpoint.forUrl(url);
+    if (endpoint != null) {
+      int connectTimeout = TwitterToolTimeouts.INSTANCE.getConnectTimeout(endpoint);
+      if (connectTimeout > 0) {
+        con.setConnectTimeout(connectTimeout);
+      }
+      int readTimeout = TwitterToolTimeouts.INSTANCE.getReadTimeout(endpoint);
+      if (readTimeout > 0) {
+        con.setReadTimeout(readTimeout);
+      }
+    }
+    return con;
+  }
+
+  /**
+   * A response read through the pooled client, closing it returns the connection to the pool.
+   */
+  private static class PooledResponse extends HttpResponse {
+
+    private final Response response;
+
+    PooledResponse(Response response, HttpClientConfiguration conf) {
+      super(conf);
+      this.response = response;
+      statusCode = response.code();
+      ResponseBody body = response.body();
+      is = body == null ? null : body.byteStream();
+    }
+
+    @Override
+    public String getResponseHeader(String name) {
+      return response.header(name);
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaderFields() {
+      return response.headers().toMultimap();
+    }
+
+    @Override
+    public void disconnect() {
+      response.close();
+    }
+  }
+
+  /**
+   * Adds the bytes read from the response to the endpoint's stats.
+   */
+  private static class CountingInputStream extends FilterInputStream {
+
+    private final TwitterToolEndpoint endpoint;
+
+    CountingInputStream(InputStream in, TwitterToolEndpoint endpoint) {
+      super(in);
+      this.endpoint = endpoint;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        TwitterToolMetrics.INSTANCE.recordUpstreamBytes(endpoint, 1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        TwitterToolMetrics.INSTANCE.recordUpstreamBytes(endpoint, n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      TwitterToolMetrics.INSTANCE.recordUpstreamBytes(endpoint, skipped);
+      return skipped;
+    }
+  }
+
+}
@@ -0,0 +1,59 @@
+package com.aquent.viewtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests parsing the handles named in the prewarm and api host variables.
+ */
+public class TwitterToolHandleTest {
+
+  @Test
+  public void digitsAreAScreenName() {
+    TwitterToolHandle handle = TwitterToolHandle.parse("12345");
+
+    assertFalse(handle.isById());
+    assertEquals("12345", handle.getScreenName());
+  }
+
+  @Test
+  public void idPrefixIsAUserId() {
+    TwitterToolHandle handle = TwitterToolHandle.parse("id:12345");
+
+    assertTrue(handle.isById());
+    assertEquals(12345L, handle.getUserId());
+    assertEquals(TwitterToolHandle.of(12345L, null), handle);
+    assertFalse(handle.equals(TwitterToolHandle.parse("12345")));
+  }
+
+  @Test
+  public void listsKeepTheirSlug() {
+    TwitterToolHandle handle = TwitterToolHandle.parse("Aquent/Team");
+
+    assertEquals("aquent", handle.getScreenName());
+    assertEquals("Team", handle.getSlug());
+    assertEquals("aquent/team", handle.toString());
+    assertEquals(TwitterToolHandle.of("aquent", null), handle.getOwner());
+  }
+
+  @Test
+  public void endOfSkipsTheIdPrefix() {
+    assertEquals(8, TwitterToolHandle.endOf("id:12345:1:5"));
+    assertEquals(6, TwitterToolHandle.endOf("aquent:1:5"));
+    assertEquals(11, TwitterToolHandle.endOf("aquent/team"));
+  }
+
+  @Test
+  public void invalidHandlesAreNull() {
+    assertNull(TwitterToolHandle.parse(""));
+    assertNull(TwitterToolHandle.parse("id:"));
+    assertNull(TwitterToolHandle.parse("id:aquent"));
+    assertNull(TwitterToolHandle.parse("/team"));
+    assertNull(TwitterToolHandle.parse("aquent/"));
+  }
+
+}
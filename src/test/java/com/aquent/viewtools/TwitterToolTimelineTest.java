@@ -0,0 +1,268 @@
+package com.aquent.viewtools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import twitter4j.Paging;
+import twitter4j.ResponseList;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+
+/**
+ * Tests syncing, merging and paging timelines against a fake user timeline.
+ */
+public class TwitterToolTimelineTest {
+
+  private static final int CAPACITY = 200;
+
+  @Test
+  public void shortPageWithOlderStatusesIsNotComplete() throws Exception {
+    // 40 statuses, 5 of the newest 20 deleted, so the first page of 20 comes back with 15
+    FakeTimeline fake = new FakeTimeline(40).delete(40, 38, 35, 30, 25);
+
+    TwitterToolTimeline timeline = TwitterToolTimeline.sync(null, fake, null, 20, CAPACITY);
+
+    assertFalse(timeline.isComplete());
+    assertEquals(20, timeline.size());
+    assertEquals(ids(39, 37, 36, 34, 33, 32, 31, 29, 28, 27, 26, 24, 23, 22, 21, 20, 19, 18, 17, 16),
+        ids(timeline.getStatuses()));
+    assertFalse(timeline.covers(21));
+    assertEquals(2, fake.calls);
+  }
+
+  @Test
+  public void shortPageStaysIncompleteThroughSyncs() throws Exception {
+    FakeTimeline fake = new FakeTimeline(40).delete(40, 38, 35, 30, 25);
+    TwitterToolTimeline timeline = TwitterToolTimeline.sync(null, fake, null, 20, CAPACITY);
+
+    fake.add(41);
+    timeline = TwitterToolTimeline.sync(timeline, fake, null, 20, CAPACITY);
+
+    assertFalse(timeline.isComplete());
+    assertEquals(41, timeline.getNewestId());
+    assertFalse(timeline.covers(40));
+  }
+
+  @Test
+  public void emptyProbeMarksComplete() throws Exception {
+    FakeTimeline fake = new FakeTimeline(108, 101);
+
+    TwitterToolTimeline timeline = TwitterToolTimeline.sync(null, fake, null, 20, CAPACITY);
+
+    assertTrue(timeline.isComplete());
+    assertEquals(8, timeline.size());
+    assertTrue(timeline.covers(40));
+    assertTrue(timeline.page(2, 10).isEmpty());
+    assertEquals(2, fake.calls);
+  }
+
+  @Test
+  public void oldestPossibleStatusMarksComplete() throws Exception {
+    FakeTimeline fake = new FakeTimeline(8);
+
+    TwitterToolTimeline timeline = TwitterToolTimeline.sync(null, fake, null, 20, CAPACITY);
+
+    assertTrue(timeline.isComplete());
+    assertEquals(1, fake.calls);
+  }
+
+  @Test
+  public void emptyTimelineIsComplete() throws Exception {
+    FakeTimeline fake = new FakeTimeline(0);
+
+    TwitterToolTimeline timeline = TwitterToolTimeline.sync(null, fake, null, 20, CAPACITY);
+
+    assertTrue(timeline.isComplete());
+    assertEquals(0, timeline.size());
+    assertEquals(1, fake.calls);
+  }
+
+  @Test
+  public void resyncOfEmptyTimelineFetchesTheFirstPage() throws Exception {
+    FakeTimeline fake = new FakeTimeline(0);
+    TwitterToolTimeline timeline = TwitterToolTimeline.sync(null, fake, null, 20, CAPACITY);
+
+    timeline = TwitterToolTimeline.sync(timeline, fake, null, 20, CAPACITY);
+    assertTrue(timeline.isComplete());
+    assertEquals(0, timeline.size());
+    assertTrue(fake.lastPaging.getSinceId() < 1);
+
+    fake.add(1);
+    timeline = TwitterToolTimeline.sync(timeline, fake, null, 20, CAPACITY);
+    assertEquals(ids(1), ids(timeline.getStatuses()));
+    assertEquals(3, fake.calls);
+  }
+
+  @Test
+  public void syncFetchesOnlyNewerStatuses() throws Exception {
+    FakeTimeline fake = new FakeTimeline(30);
+    TwitterToolTimeline timeline = TwitterToolTimeline.sync(null, fake, null, 20, CAPACITY);
+    assertEquals(20, timeline.size());
+
+    fake.add(31).add(32).add(33);
+    fake.calls = 0;
+    timeline = TwitterToolTimeline.sync(timeline, fake, null, 20, CAPACITY);
+
+    assertEquals(1, fake.calls);
+    assertEquals(30L, fake.lastPaging.getSinceId());
+    assertEquals(23, timeline.size());
+    assertEquals(33, timeline.getNewestId());
+    assertEquals(ids(33, 32, 31, 30), ids(timeline.getStatuses().subList(0, 4)));
+  }
+
+  @Test
+  public void syncStartsOverAfterAGap() throws Exception {
+    FakeTimeline fake = new FakeTimeline(30);
+    TwitterToolTimeline timeline = TwitterToolTimeline.sync(null, fake, null, 20, CAPACITY);
+    for (long id = 31; id <= 31 + TwitterToolTimeline.MAX_COUNT; id++) {
+      fake.add(id);
+    }
+
+    timeline = TwitterToolTimeline.sync(timeline, fake, null, 20, CAPACITY);
+
+    assertFalse(timeline.isComplete());
+    assertEquals(TwitterToolTimeline.MAX_COUNT, timeline.size());
+    assertEquals(31 + TwitterToolTimeline.MAX_COUNT, timeline.getNewestId());
+  }
+
+  @Test
+  public void mergeKeepsNewestFirstWithoutDuplicates() throws Exception {
+    TwitterToolTimeline timeline = TwitterToolTimeline.of(statuses(9, 7, 5, 3), true);
+
+    TwitterToolTimeline merged = timeline.merge(statuses(10, 7, 6), CAPACITY);
+
+    assertEquals(ids(10, 9, 7, 6, 5, 3), ids(merged.getStatuses()));
+    assertTrue(merged.isComplete());
+  }
+
+  @Test
+  public void mergePastCapacityIsNotComplete() throws Exception {
+    TwitterToolTimeline timeline = TwitterToolTimeline.of(statuses(9, 7, 5, 3), true);
+
+    TwitterToolTimeline merged = timeline.merge(statuses(10, 8), 4);
+
+    assertEquals(ids(10, 9, 8, 7), ids(merged.getStatuses()));
+    assertFalse(merged.isComplete());
+  }
+
+  @Test
+  public void mergeOfIncompleteStaysIncomplete() throws Exception {
+    TwitterToolTimeline timeline = TwitterToolTimeline.of(statuses(9, 7), false);
+
+    assertFalse(timeline.merge(statuses(10), CAPACITY).isComplete());
+  }
+
+  @Test
+  public void pageSlicesTheTimeline() throws Exception {
+    TwitterToolTimeline timeline = TwitterToolTimeline.of(statuses(9, 8, 7, 6, 5), false);
+
+    assertEquals(ids(9, 8), ids(timeline.page(1, 2)));
+    assertEquals(ids(7, 6), ids(timeline.page(2, 2)));
+    assertEquals(ids(5), ids(timeline.page(3, 2)));
+    assertTrue(timeline.page(4, 2).isEmpty());
+  }
+
+  @Test
+  public void withoutRemovesAStatus() throws Exception {
+    TwitterToolTimeline timeline = TwitterToolTimeline.of(statuses(9, 8, 7), true);
+
+    assertEquals(ids(9, 7), ids(timeline.without(8).getStatuses()));
+    assertSame(timeline, timeline.without(4));
+  }
+
+  private static List<Long> ids(long... ids) {
+    List<Long> list = new ArrayList<>();
+    for (long id : ids) {
+      list.add(id);
+    }
+    return list;
+  }
+
+  private static List<Long> ids(List<Status> statuses) {
+    List<Long> list = new ArrayList<>();
+    for (Status status : statuses) {
+      list.add(status.getId());
+    }
+    return list;
+  }
+
+  private static List<Status> statuses(long... ids) throws TwitterException {
+    List<Status> list = new ArrayList<>();
+    for (long id : ids) {
+      list.add(status(id));
+    }
+    return list;
+  }
+
+  private static Status status(long id) throws TwitterException {
+    return TwitterObjectFactory.createStatus("{\"id\":" + id + ",\"text\":\"status " + id
+        + "\",\"created_at\":\"Wed Oct 10 20:19:24 +0000 2018\"}");
+  }
+
+  /**
+   * A user timeline answered the way twitter answers it: count is applied before deleted statuses
+   * are dropped, so pages come back short while older statuses remain.
+   */
+  private static final class FakeTimeline implements TwitterToolTimeline.Fetcher {
+    private final List<Long> ids = new ArrayList<>();
+    private final Set<Long> deleted = new HashSet<>();
+    private int calls;
+    private Paging lastPaging;
+
+    private FakeTimeline(long newestId) {
+      this(newestId, 1);
+    }
+
+    private FakeTimeline(long newestId, long oldestId) {
+      for (long id = newestId; id >= oldestId; id--) {
+        ids.add(id);
+      }
+    }
+
+    private FakeTimeline delete(long... deletedIds) {
+      for (long id : deletedIds) {
+        deleted.add(id);
+      }
+      return this;
+    }
+
+    private FakeTimeline add(long id) {
+      ids.add(0, id);
+      return this;
+    }
+
+    @Override
+    public ResponseList<Status> fetch(twitter4j.Twitter twitter, Paging paging) throws TwitterException {
+      calls++;
+      lastPaging = paging;
+      List<Long> matching = new ArrayList<>();
+      for (long id : ids) {
+        if ((paging.getSinceId() <= 0 || id > paging.getSinceId()) && (paging.getMaxId() <= 0 || id <= paging.getMaxId())) {
+          matching.add(id);
+        }
+      }
+      int count = paging.getCount() > 0 ? paging.getCount() : 20;
+      int page = paging.getPage() > 0 ? paging.getPage() : 1;
+      int from = Math.min(matching.size(), (page - 1) * count);
+      int to = Math.min(matching.size(), from + count);
+      List<Status> result = new ArrayList<>();
+      for (long id : matching.subList(from, to)) {
+        if (!deleted.contains(id)) {
+          result.add(status(id));
+        }
+      }
+      return new TwitterToolResponseList<>(result, null);
+    }
+  }
+
+}